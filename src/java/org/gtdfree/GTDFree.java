@@ -134,6 +134,7 @@ import org.gtdfree.gui.QuickCollectPanel;
 import org.gtdfree.gui.WorkflowPane;
 import org.gtdfree.model.Folder;
 import org.gtdfree.model.FolderEvent;
+import org.gtdfree.model.FolderStats;
 import org.gtdfree.model.GTDData;
 import org.gtdfree.model.GTDDataODB;
 import org.gtdfree.model.GTDDataXML;
@@ -283,19 +284,10 @@ public class GTDFree implements GTDFreeOperations {
 			}
 		}
 		private void updateReminders() {
-			int past=0;
-			int today=0;
 			long time= Utils.today();
-			for (org.gtdfree.model.Action a : getEngine().getGTDModel().getRemindFolder()) {
-				if (a.getRemind()!=null && a.isOpen()) {
-					long t= a.getRemind().getTime();
-					if (t<time) {
-						past++;
-					} else if ((t>=time) && (t<(time+Utils.MILLISECONDS_IN_DAY))) {
-						today++;
-					}
-				}
-			}
+			FolderStats st= getEngine().getGTDModel().getRemindFolder().getStats();
+			int past= st.getRemindCountBefore(time);
+			int today= st.getRemindCountBetween(time, time+Utils.MILLISECONDS_IN_DAY);
 			if (past!=pastActions) {
 				pastActions=past;
 				supp.firePropertyChange("pastActions", -1, pastActions); //$NON-NLS-1$
@@ -680,6 +672,9 @@ public class GTDFree implements GTDFreeOperations {
 		
 		try {
 			final GTDFree application = new GTDFree();
+			
+			// data is loaded in background while GUI is built
+			application.getEngine().startup();
 					
 			SwingUtilities.invokeLater(new Runnable() {
 				@Override
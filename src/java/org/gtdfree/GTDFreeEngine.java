@@ -37,6 +37,14 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.ActionMap;
 import javax.swing.JDialog;
@@ -63,6 +71,7 @@ import org.gtdfree.gui.WorkflowPane;
 import org.gtdfree.journal.JournalModel;
 import org.gtdfree.model.GTDDataODB;
 import org.gtdfree.model.GTDDataXML;
+import org.gtdfree.model.GTDDataXMLTools;
 import org.gtdfree.model.GTDModel;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
@@ -122,11 +131,170 @@ public class GTDFreeEngine {
 	private PropertyChangeSupport support= new PropertyChangeSupport(this);
 	private JDialog upgradeImportDialog;
 	private Logger logger= Logger.getLogger(GTDFreeEngine.class);
+	private ExecutorService startupExecutor;
+	private Future<GTDDataXML> startupModel;
+	private Future<Set<String>> startupJournalFiles;
+	private StartupTimings startupTimings;
 	
 	public GTDFreeEngine() throws FileNotFoundException, XMLStreamException, FactoryConfigurationError, MalformedURLException {
 	}
 	
-	public Properties getConfiguration() {
+	/**
+	 * Starts loading of data in background. Options, configuration, journal file index, 
+	 * backup file headers and XML data file are loaded concurrently on small thread pool, 
+	 * while application builds GUI. Model is then taken over by <code>getGTDModel()</code>, 
+	 * which waits for load to finish. If database is not XML or is not selected yet, 
+	 * model is not preloaded. Durations of startup phases are logged and 
+	 * available with <code>getStartupTimings()</code>.
+	 */
+	public synchronized void startup() {
+		if (startupExecutor!=null || gtdModel!=null) {
+			return;
+		}
+		
+		startupTimings= new StartupTimings();
+		final int threads= Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+		startupExecutor= Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private AtomicInteger count= new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t= new Thread(r, "StartupLoader-"+count.incrementAndGet()); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		
+		final Future<GlobalProperties> options= startupExecutor.submit(new Callable<GlobalProperties>() {
+			@Override
+			public GlobalProperties call() throws Exception {
+				long t= startupTimings.now();
+				try {
+					return getGlobalProperties();
+				} finally {
+					startupTimings.record("options", t); //$NON-NLS-1$
+				}
+			}
+		});
+		
+		startupExecutor.submit(new Callable<Properties>() {
+			@Override
+			public Properties call() throws Exception {
+				long t= startupTimings.now();
+				try {
+					return getConfiguration();
+				} finally {
+					startupTimings.record("configuration", t); //$NON-NLS-1$
+				}
+			}
+		});
+		
+		startupJournalFiles= startupExecutor.submit(new Callable<Set<String>>() {
+			@Override
+			public Set<String> call() throws Exception {
+				long t= startupTimings.now();
+				try {
+					return JournalModel.findJournalFiles(getDataFolder());
+				} finally {
+					startupTimings.record("journal index", t); //$NON-NLS-1$
+				}
+			}
+		});
+		
+		startupModel= startupExecutor.submit(new Callable<GTDDataXML>() {
+			@Override
+			public GTDDataXML call() throws Exception {
+				GlobalProperties gp= options.get();
+				Object db= gp.getProperty(GlobalProperties.DATABASE);
+				if (db==null || !GlobalProperties.DATABASE_VALUE_XML.equalsIgnoreCase(db.toString())) {
+					return null;
+				}
+				
+				final GTDDataXML xml= new GTDDataXML(getDataFolder(),gp);
+				// backup headers are needed only if data file fails to load, so they are read meanwhile
+				xml.setBackupFiles(startupExecutor.submit(new Callable<GTDDataXMLTools.DataHeader[]>() {
+					@Override
+					public GTDDataXMLTools.DataHeader[] call() throws Exception {
+						long t= startupTimings.now();
+						try {
+							return xml.findBackupFiles();
+						} finally {
+							startupTimings.record("backup headers", t); //$NON-NLS-1$
+						}
+					}
+				}));
+				
+				// only reads data, load failure dialogs are shown by restore on caller thread
+				long t= startupTimings.now();
+				try {
+					xml.preload();
+					return xml;
+				} finally {
+					startupTimings.record("data file", t); //$NON-NLS-1$
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Takes over model loaded by <code>startup()</code>, waits for it if necessary. 
+	 * Loading is completed on calling thread, which is usually event dispatch thread, 
+	 * since it may ask user how to handle failed load. 
+	 * Startup pool is shut down afterwards.
+	 * @return loaded model or <code>null</code> if model was not preloaded
+	 */
+	private GTDModel takeStartupModel() {
+		Future<GTDDataXML> f;
+		synchronized (this) {
+			f= startupModel;
+			startupModel= null;
+		}
+		if (f==null) {
+			return null;
+		}
+		
+		long t= startupTimings.now();
+		try {
+			GTDDataXML xml= f.get();
+			startupTimings.record("model wait", t); //$NON-NLS-1$
+			if (xml==null) {
+				return null;
+			}
+			t= startupTimings.now();
+			try {
+				return xml.restore();
+			} finally {
+				startupTimings.record("data restore", t); //$NON-NLS-1$
+			}
+		} catch (IOException e) {
+			Logger.getLogger(this.getClass()).fatal("Initialization error, closing.", e); //$NON-NLS-1$
+			try {
+				close(true,false);
+			} catch (Exception ex) {
+				Logger.getLogger(this.getClass()).error("Closing error.", ex); //$NON-NLS-1$
+			}
+			System.exit(0);
+			return null;
+		} catch (ExecutionException e) {
+			startupTimings.record("model wait", t); //$NON-NLS-1$
+			Logger.getLogger(this.getClass()).error("Initialization error.", e.getCause()); //$NON-NLS-1$
+			return null;
+		} catch (InterruptedException e) {
+			Logger.getLogger(this.getClass()).debug("Internal error.", e); //$NON-NLS-1$
+			return null;
+		} finally {
+			startupExecutor.shutdown();
+			logger.info(startupTimings);
+		}
+	}
+	
+	/**
+	 * @return durations of startup phases, <code>null</code> if <code>startup()</code> was not called
+	 */
+	public StartupTimings getStartupTimings() {
+		return startupTimings;
+	}
+	
+	public synchronized Properties getConfiguration() {
 		if (configuration==null) {
 			configuration= ApplicationHelper.loadConfiguration();
 		}
@@ -134,6 +302,12 @@ public class GTDFreeEngine {
 	}
 	
 	public GTDModel getGTDModel() {
+		if (gtdModel == null && startupModel!=null) {
+			gtdModel= takeStartupModel();
+			if (gtdModel!=null) {
+				setAutoSave(getGlobalProperties().getBoolean(GlobalProperties.AUTO_SAVE , true));
+			}
+		}
 		if (gtdModel == null) {
 			
 			Object db= getGlobalProperties().getProperty(GlobalProperties.DATABASE);
@@ -260,6 +434,14 @@ public class GTDFreeEngine {
 	public JournalModel getJournalModel() {
 		if (journalModel == null) {
 			journalModel = new JournalModel(getDataFolder(), getGTDModel());
+			if (startupJournalFiles!=null) {
+				try {
+					journalModel.setJournalFiles(startupJournalFiles.get());
+				} catch (Exception e) {
+					logger.debug("Internal error.", e); //$NON-NLS-1$
+				}
+				startupJournalFiles=null;
+			}
 			/*if (file==null) {
 				file=ApplicationHelper.getDefaultFile();
 			}
@@ -335,7 +517,7 @@ public class GTDFreeEngine {
 		}
 	}
 	
-	public GlobalProperties getGlobalProperties() {
+	public synchronized GlobalProperties getGlobalProperties() {
 		if (globalProperties==null) {
 			globalProperties= new GlobalProperties();
 			
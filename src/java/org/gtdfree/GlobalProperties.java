@@ -125,6 +125,16 @@ public class GlobalProperties {
 	public static final String SHOW_OVERVIEW_TAB = "showOverviewTab"; //$NON-NLS-1$
 	public static final String SHOW_QUICK_COLLECT = "showQuickCollectBar"; //$NON-NLS-1$
 	public static final String AUTO_SAVE = "autoSave"; //$NON-NLS-1$
+	public static final String AUTO_SAVE_QUIET_PERIOD = "autoSaveQuietPeriod"; //$NON-NLS-1$
+	public static final String AUTO_SAVE_MAX_DELAY = "autoSaveMaxDelay"; //$NON-NLS-1$
+	public static final String AUTO_SAVE_MIN_INTERVAL = "autoSaveMinInterval"; //$NON-NLS-1$
+	public static final String COMPRESS_DATA = "compressData"; //$NON-NLS-1$
+	public static final String LAZY_DESCRIPTIONS = "lazyDescriptions"; //$NON-NLS-1$
+	public static final String BACKUP_KEEP_LAST = "backupKeepLast"; //$NON-NLS-1$
+	public static final String BACKUP_KEEP_HOURLY = "backupKeepHourly"; //$NON-NLS-1$
+	public static final String BACKUP_KEEP_DAILY = "backupKeepDaily"; //$NON-NLS-1$
+	public static final String BACKUP_KEEP_WEEKLY = "backupKeepWeekly"; //$NON-NLS-1$
+	public static final String BACKUP_INTERVAL = "backupInterval"; //$NON-NLS-1$
 	public static final String DATABASE = "database"; //$NON-NLS-1$
 	public static final String DATABASE_VALUE_XML = "xml"; //$NON-NLS-1$
 	public static final String DATABASE_VALUE_ODB = "odb"; //$NON-NLS-1$
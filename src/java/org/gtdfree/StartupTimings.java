@@ -0,0 +1,88 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects durations of startup phases. Phases can run concurrently, for each phase
+ * also offset from start of startup is kept, so it can be seen which phases overlapped.
+ *
+ * @author ikesan
+ *
+ */
+public final class StartupTimings {
+
+	private final long start= System.nanoTime();
+	private final Map<String, Long> durations= new LinkedHashMap<String, Long>();
+	private final Map<String, Long> offsets= new LinkedHashMap<String, Long>();
+
+	/**
+	 * @return current time in nanoseconds, to be used as phase start
+	 */
+	public long now() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records phase, which started at provided time and ends now.
+	 * @param phase name of phase
+	 * @param phaseStart start of phase as returned by <code>now()</code>
+	 */
+	public synchronized void record(String phase, long phaseStart) {
+		long end= System.nanoTime();
+		durations.put(phase, (end-phaseStart)/1000000);
+		offsets.put(phase, (phaseStart-start)/1000000);
+	}
+
+	/**
+	 * @return durations of recorded phases in milliseconds, in order of recording
+	 */
+	public synchronized Map<String, Long> getDurations() {
+		return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(durations));
+	}
+
+	/**
+	 * @return milliseconds elapsed from start of startup
+	 */
+	public long getElapsed() {
+		return (System.nanoTime()-start)/1000000;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb= new StringBuilder(128);
+		sb.append("Startup timing: total "); //$NON-NLS-1$
+		sb.append(getElapsed());
+		sb.append("ms"); //$NON-NLS-1$
+		for (Map.Entry<String, Long> e : durations.entrySet()) {
+			sb.append(", "); //$NON-NLS-1$
+			sb.append(e.getKey());
+			sb.append(' ');
+			sb.append(e.getValue());
+			sb.append("ms (at "); //$NON-NLS-1$
+			sb.append(offsets.get(e.getKey()));
+			sb.append("ms)"); //$NON-NLS-1$
+		}
+		return sb.toString();
+	}
+}
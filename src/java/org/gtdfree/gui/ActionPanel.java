@@ -591,8 +591,13 @@ public class ActionPanel extends JPanel implements FolderListener {
 
 				public void actionPerformed(ActionEvent e) {
 					Action[] aa=actions;
-					for (Action a : aa) {
-						a.setResolution(Resolution.DELETED);
+					engine.getGTDModel().beginBatch();
+					try {
+						for (Action a : aa) {
+							a.setResolution(Resolution.DELETED);
+						}
+					} finally {
+						engine.getGTDModel().commit();
 					}
 				}
 			
@@ -612,8 +617,13 @@ public class ActionPanel extends JPanel implements FolderListener {
 
 				public void actionPerformed(ActionEvent e) {
 					Action[] aa=actions;
-					for (Action a : aa) {
-						a.setResolution(Resolution.RESOLVED);
+					engine.getGTDModel().beginBatch();
+					try {
+						for (Action a : aa) {
+							a.setResolution(Resolution.RESOLVED);
+						}
+					} finally {
+						engine.getGTDModel().commit();
 					}
 				}
 			
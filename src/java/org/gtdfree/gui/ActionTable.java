@@ -90,8 +90,10 @@ import org.gtdfree.model.ActionFilter;
 import org.gtdfree.model.Folder;
 import org.gtdfree.model.Folder.FolderPreset;
 import org.gtdfree.model.FolderEvent;
-import org.gtdfree.model.FolderListener;
 import org.gtdfree.model.GTDModel;
+import org.gtdfree.model.GTDModelAdapter;
+import org.gtdfree.model.GTDModelEventBus.EventType;
+import org.gtdfree.model.GTDModelEventBus.Subscription;
 import org.gtdfree.model.Priority;
 import org.gtdfree.model.Project;
 import org.gtdfree.model.Utils;
@@ -1083,7 +1085,8 @@ public class ActionTable extends JTable {
 	protected Folder folder;
 	private ActionTableModel model;
 	private boolean showAll=false;
-	private FolderListener folderListener = new FolderListener() {
+	private Subscription folderSubscription;
+	private GTDModelAdapter folderListener = new GTDModelAdapter() {
 		
 		@Override
 		public void elementRemoved(FolderEvent note) {
@@ -1736,8 +1739,9 @@ public class ActionTable extends JTable {
 	 * @param folder the folder to set
 	 */
 	public void setFolder(Folder folder, boolean showAll) {
-		if (this.folder!=null) {
-			this.folder.removeFolderListener(folderListener);
+		if (folderSubscription!=null) {
+			this.folder.getParent().getEventBus().unsubscribe(folderSubscription);
+			folderSubscription=null;
 		}
 		Folder old = this.folder;
 		this.folder = folder;
@@ -1747,7 +1751,7 @@ public class ActionTable extends JTable {
 
 			updateIDColumnWidth();
 			
-			folder.addFolderListener(folderListener);
+			folderSubscription= folder.getParent().getEventBus().subscribe(folderListener, EventType.ELEMENT_EVENTS, folder.getId(), null, false);
 			
 			setShowAll(showAll);
 			setShowResolvedColumn(engine.getStateMachine().getShowResolvedColumn(folder.getType()));
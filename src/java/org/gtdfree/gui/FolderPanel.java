@@ -28,6 +28,7 @@ import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.EnumSet;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -48,6 +49,7 @@ import org.gtdfree.GTDFreeEngine;
 import org.gtdfree.Messages;
 import org.gtdfree.model.Folder;
 import org.gtdfree.model.GTDModelAdapter;
+import org.gtdfree.model.GTDModelEventBus.EventType;
 import org.gtdfree.model.Folder.FolderType;
 
 /**
@@ -265,7 +267,8 @@ public class FolderPanel extends JPanel {
 	public void setEngine(GTDFreeEngine engine) {
 		this.engine = engine;
 		folderTree.setEngine(this.engine);
-		engine.getGTDModel().addGTDModelListener(new GTDModelAdapter() {
+		// only resolution changes open count, which enables close and reopen 
+		engine.getGTDModel().getEventBus().subscribe(new GTDModelAdapter() {
 			@Override
 			public void elementModified(org.gtdfree.model.ActionEvent a) {
 				if (a.getAction().getParent()==getSelectedFolder() || (getSelectedFolder()!=null && a.getAction().getProject()!=null && getSelectedFolder().getId()==a.getAction().getProject())) {
@@ -273,7 +276,7 @@ public class FolderPanel extends JPanel {
 					getReopenFolderAction().setEnabled(getSelectedFolder()!=null && getSelectedFolder().isClosed());
 				}
 			}
-		});
+		}, EnumSet.of(EventType.ELEMENT_MODIFIED), null, org.gtdfree.model.Action.RESOLUTION_PROPERTY_NAME, false);
 	}
 
 	public void setDefaultFoldersVisible(boolean b) {
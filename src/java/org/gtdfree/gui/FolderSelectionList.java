@@ -50,6 +50,7 @@ import org.gtdfree.model.Folder;
 import org.gtdfree.model.FolderEvent;
 import org.gtdfree.model.GTDModel;
 import org.gtdfree.model.GTDModelAdapter;
+import org.gtdfree.model.GTDModelEventBus.EventType;
 
 /**
  * @author ikesan
@@ -527,7 +528,7 @@ public class FolderSelectionList extends JTable {
 	 */
 	public void setGtdModel(GTDModel gtdModel) {
 		this.gtdModel = gtdModel;
-		gtdModel.addGTDModelListener(new GTDModelAdapter() {
+		gtdModel.getEventBus().subscribe(new GTDModelAdapter() {
 			@Override
 			public void folderAdded(Folder folder) {
 				rebuild=true;
@@ -540,7 +541,7 @@ public class FolderSelectionList extends JTable {
 			public void folderRemoved(Folder folder) {
 				rebuild=true;
 			}
-		});
+		}, EventType.FOLDER_EVENTS);
 	}
 
 	/**
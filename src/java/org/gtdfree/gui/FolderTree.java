@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.EventObject;
 import java.util.HashSet;
@@ -62,7 +63,8 @@ import org.gtdfree.model.ActionEvent;
 import org.gtdfree.model.Folder;
 import org.gtdfree.model.FolderEvent;
 import org.gtdfree.model.GTDModel;
-import org.gtdfree.model.GTDModelListener;
+import org.gtdfree.model.GTDModelAdapter;
+import org.gtdfree.model.GTDModelEventBus.EventType;
 import org.gtdfree.model.Project;
 import org.gtdfree.model.Action.Resolution;
 import org.gtdfree.model.Folder.FolderPreset;
@@ -633,10 +635,15 @@ public class FolderTree extends JTree {
 
 				@Override
 				public void actionPerformed(java.awt.event.ActionEvent e) {
-					Iterator<Action> i= getSelectedFolder().iterator(FolderPreset.OPEN);
-					while (i.hasNext()) {
-						Action a = i.next();
-						a.setResolution(Resolution.RESOLVED);
+					getGTDModel().beginBatch();
+					try {
+						Iterator<Action> i= getSelectedFolder().iterator(FolderPreset.OPEN);
+						while (i.hasNext()) {
+							Action a = i.next();
+							a.setResolution(Resolution.RESOLVED);
+						}
+					} finally {
+						getGTDModel().commit();
 					}
 				}
 			};
@@ -761,10 +768,15 @@ public class FolderTree extends JTree {
 
 				@Override
 				public void actionPerformed(java.awt.event.ActionEvent e) {
-					Iterator<Action> i= getSelectedFolder().iterator(FolderPreset.ALL);
-					while (i.hasNext()) {
-						Action a = i.next();
-						a.setResolution(Resolution.DELETED);
+					getGTDModel().beginBatch();
+					try {
+						Iterator<Action> i= getSelectedFolder().iterator(FolderPreset.ALL);
+						while (i.hasNext()) {
+							Action a = i.next();
+							a.setResolution(Resolution.DELETED);
+						}
+					} finally {
+						getGTDModel().commit();
 					}
 				}
 			};
@@ -787,13 +799,16 @@ public class FolderTree extends JTree {
 	private void setGTDModel(GTDModel gtdModel) {
 		this.gtdModel = gtdModel;
 		transferHandler.setModel(gtdModel);
-		gtdModel.addGTDModelListener(new GTDModelListener() {
+		// order of actions is not shown in tree
+		gtdModel.getEventBus().subscribe(new GTDModelAdapter() {
 		
+			@Override
 			public void elementRemoved(FolderEvent note) {
 				model.nodeChanged(folderToNode(note.getFolder()));
 				repaint();
 			}
 		
+			@Override
 			public void elementModified(ActionEvent note) {
 				int[] i= new int[meta.getChildCount()];
 				for (int j = 0; j < i.length; j++) {
@@ -814,6 +829,7 @@ public class FolderTree extends JTree {
 				}
 			}
 		
+			@Override
 			public void elementAdded(FolderEvent note) {
 				//if (!checkIfShow(note.getFolder())) {
 					model.nodeChanged(folderToNode(note.getFolder()));
@@ -821,10 +837,12 @@ public class FolderTree extends JTree {
 				//}
 			}
 		
+			@Override
 			public void folderRemoved(Folder folder) {
 				removeFromTree(folder, true);
 			}
 		
+			@Override
 			public void folderModified(FolderEvent f) {
 				if (f.getProperty()=="closed") { //$NON-NLS-1$
 					checkIfShow(f.getFolder());
@@ -847,14 +865,12 @@ public class FolderTree extends JTree {
 				repaint();
 			}
 		
+			@Override
 			public void folderAdded(Folder folder) {
 				addToTree(folder, true);
 			}
-			public void orderChanged(Folder f) {
-				//
-			}
 		
-		});		
+		}, EnumSet.complementOf(EnumSet.of(EventType.ORDER_CHANGED)));		
 		rebuildTree();
 	}
 	
@@ -30,6 +30,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.text.MessageFormat;
 import java.util.Date;
+import java.util.EnumSet;
 
 import javax.swing.AbstractAction;
 import javax.swing.JButton;
@@ -51,8 +52,8 @@ import org.gtdfree.gui.ActionTable.CellAction;
 import org.gtdfree.model.Action;
 import org.gtdfree.model.ActionsCollection;
 import org.gtdfree.model.Folder;
-import org.gtdfree.model.FolderEvent;
-import org.gtdfree.model.FolderListener;
+import org.gtdfree.model.GTDModelAdapter;
+import org.gtdfree.model.GTDModelEventBus.EventType;
 import org.gtdfree.model.Action.Resolution;
 
 
@@ -74,12 +75,9 @@ public class InBasketPane extends JPanel implements WorkflowPane {
 	private AbstractAction clearAction;
 	private boolean setting=false;
 
-	private FolderListener noteListener= new FolderListener() {
-	
-		public void elementRemoved(FolderEvent note) {
-			//
-		}
+	private GTDModelAdapter noteListener= new GTDModelAdapter() {
 	
+		@Override
 		public void elementModified(org.gtdfree.model.ActionEvent note) {
 			if (!setting && getSelectedAction()!=null && !getSelectedAction().getDescription().equals(ideaText.getText())) {
 				setting=true;
@@ -88,13 +86,6 @@ public class InBasketPane extends JPanel implements WorkflowPane {
 				setting=false;
 			}
 		}
-	
-		public void elementAdded(FolderEvent note) {
-			//
-		}
-		public void orderChanged(Folder f) {
-			//
-		}
 
 	};
 
@@ -387,7 +378,8 @@ public class InBasketPane extends JPanel implements WorkflowPane {
 		noteTable.setFolder(folder);
 		ideaText.setEngine(engine);
 		
-		folder.addFolderListener(noteListener);
+		// only description of selected note is shown in editor
+		engine.getGTDModel().getEventBus().subscribe(noteListener, EnumSet.of(EventType.ELEMENT_MODIFIED), folder.getId(), "description", false); //$NON-NLS-1$
 		
 	}
 	
@@ -29,6 +29,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.text.MessageFormat;
 import java.util.Date;
+import java.util.EnumSet;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -48,6 +49,7 @@ import org.gtdfree.model.ActionsCollection;
 import org.gtdfree.model.Folder;
 import org.gtdfree.model.FolderEvent;
 import org.gtdfree.model.GTDModelAdapter;
+import org.gtdfree.model.GTDModelEventBus.EventType;
 import org.gtdfree.model.Action.Resolution;
 
 
@@ -301,7 +303,7 @@ public class ProcessPane extends JSplitPane implements WorkflowPane {
 			}
 		});
 		
-		engine.getGTDModel().addGTDModelListener(new GTDModelAdapter() {
+		engine.getGTDModel().getEventBus().subscribe(new GTDModelAdapter() {
 		
 			@Override
 			public void elementRemoved(FolderEvent a) {
@@ -318,14 +320,15 @@ public class ProcessPane extends JSplitPane implements WorkflowPane {
 					checkLeft();
 				}
 			}
-			
+		}, EnumSet.of(EventType.ELEMENT_ADDED, EventType.ELEMENT_REMOVED));
+		
+		// changes of actions in other folders do not change what is left in in-bucket
+		engine.getGTDModel().getEventBus().subscribe(new GTDModelAdapter() {
 			@Override
 			public void elementModified(org.gtdfree.model.ActionEvent a) {
-				if (a.getAction().getParent().isInBucket()) {
-					checkLeft();
-				}
+				checkLeft();
 			}
-		});
+		}, EnumSet.of(EventType.ELEMENT_MODIFIED), engine.getGTDModel().getInBucketFolder().getId(), null, false);
 		
 		checkSelection();
 		checkLeft();
@@ -48,6 +48,7 @@ import org.gtdfree.model.Folder;
 import org.gtdfree.model.FolderEvent;
 import org.gtdfree.model.GTDModel;
 import org.gtdfree.model.GTDModelAdapter;
+import org.gtdfree.model.GTDModelEventBus.EventType;
 import org.gtdfree.model.Project;
 import org.gtdfree.model.Folder.FolderType;
 
@@ -309,7 +310,8 @@ public class ProjectsCombo extends JComboBox {
 	public void setGTDModel(GTDModel m) {
 		this.gtdModel = m;
 		comboModel.reload();
-		m.addGTDModelListener(new GTDModelAdapter() {
+		// reloaded later on EDT, so changes to several projects reload it once
+		m.getEventBus().subscribe(new GTDModelAdapter() {
 			@Override
 			public void folderRemoved(Folder folder) {
 				comboModel.reload();
@@ -325,7 +327,7 @@ public class ProjectsCombo extends JComboBox {
 				comboModel.reload();
 			}
 		
-		});
+		}, EventType.FOLDER_EVENTS, null, null, true);
 	}
 
 	public Project getSelectedProject() {
@@ -24,6 +24,7 @@ import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -34,6 +35,7 @@ import org.gtdfree.model.Folder;
 import org.gtdfree.model.FolderEvent;
 import org.gtdfree.model.GTDModel;
 import org.gtdfree.model.GTDModelAdapter;
+import org.gtdfree.model.GTDModelEventBus.EventType;
 import org.gtdfree.model.Project;
 import org.gtdfree.model.StatusActionFilter;
 
@@ -101,7 +103,7 @@ public class SelectionModel {
 	
 	public void setGtdModel(GTDModel model) {
 		this.gtdModel = model;
-		model.addGTDModelListener(new GTDModelAdapter() {
+		model.getEventBus().subscribe(new GTDModelAdapter() {
 		
 			@Override
 			public void elementRemoved(FolderEvent a) {
@@ -127,7 +129,7 @@ public class SelectionModel {
 				}*/
 			}
 		
-		});
+		}, EnumSet.of(EventType.ELEMENT_REMOVED, EventType.FOLDER_REMOVED));
 	}
 	
 	public GTDModel getGtdModel() {
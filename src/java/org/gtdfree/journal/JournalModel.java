@@ -157,6 +157,11 @@ public class JournalModel {
 	private EventHandler eventHandler= new EventHandler();
 	// A list of all days whose journal entries have changed and require to be saved.
 	private Set<Long> dirtyDays = new HashSet<Long>();
+	/**
+	 * Names of existing journal files, days without file are not loaded. 
+	 * If <code>null</code>, file is looked up for each day.
+	 */
+	private Set<String> journalFiles;
 
 	public JournalModel(File dataFolder, GTDModel gtdModel) {
 		data= new HashMap<Long, List<JournalEntry>>();
@@ -207,6 +212,34 @@ public class JournalModel {
 		listeners.remove(JournalModelListener.class, l);
 	}
 
+	/**
+	 * Lists journal files in data folder. It can be called in advance from any thread, 
+	 * result is then provided to journal model with <code>setJournalFiles</code>.
+	 * @param dataFolder folder with journal files
+	 * @return names of journal files
+	 */
+	public static Set<String> findJournalFiles(File dataFolder) {
+		Set<String> files= new HashSet<String>();
+		String[] names= dataFolder.list();
+		if (names!=null) {
+			for (String n : names) {
+				if (n.startsWith("journal-") && n.endsWith(".xml")) { //$NON-NLS-1$ //$NON-NLS-2$
+					files.add(n);
+				}
+			}
+		}
+		return files;
+	}
+	
+	/**
+	 * Sets names of existing journal files, as returned by <code>findJournalFiles</code>, 
+	 * so days without journal are not looked up on disk.
+	 * @param files names of journal files
+	 */
+	public void setJournalFiles(Set<String> files) {
+		journalFiles= new HashSet<String>(files);
+	}
+
 	private File getJournalFile(long day) {
 		Date date = JournalTools.toDate(day);
 		return new File(dataFolder, "journal-" + JOURNAL_DATE_FORMAT.get().format(date) + ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -216,6 +249,9 @@ public class JournalModel {
 		LinkedList<JournalEntry> result = new LinkedList<JournalEntry>();
 		
 		File file = getJournalFile(day);
+		if (journalFiles!=null && !journalFiles.contains(file.getName())) {
+			return result;
+		}
 		if(!file.exists() || !file.canRead()) {
 			return result;
 		}
@@ -355,8 +391,14 @@ public class JournalModel {
 			if(file.exists()) {
 				file.delete();
 			}
+			if (journalFiles!=null) {
+				journalFiles.remove(file.getName());
+			}
 			return;
 		}
+		if (journalFiles!=null) {
+			journalFiles.add(file.getName());
+		}
 		
 		FileOutputStream fos = new FileOutputStream(file);
 		XMLStreamWriter w = XMLOutputFactory.newInstance().createXMLStreamWriter(fos, "UTF-8"); //$NON-NLS-1$
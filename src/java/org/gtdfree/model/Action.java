@@ -49,6 +49,16 @@ public final class Action {
 		}
 	};
 	
+	/**
+	 * Source of description, which is loaded from storage only when it is needed.
+	 */
+	interface DeferredText {
+		/**
+		 * @return loaded text
+		 */
+		String load();
+	}
+	
 	public static final boolean hasOpen(Action[] actions) {
 		if (actions!=null) { 
 			for (Action action : actions) {
@@ -97,6 +107,10 @@ public final class Action {
 	private Date resolved;
 	private Date modified;
 	private String description;
+	/**
+	 * Description, which was not loaded yet. Description field is written before this is cleared.
+	 */
+	private transient volatile DeferredText deferredDescription;
 	private Date start;
 	private Date remind;
 	private Date due;
@@ -112,6 +126,18 @@ public final class Action {
 	private transient URL url;
 	private String urlId;
 	private transient ActionProxy proxy;
+	/**
+	 * Set for action copies in model snapshots, which must not be changed.
+	 */
+	private transient boolean readOnly;
+	/**
+	 * Counts changes of this action. For read-only copy it is count of original at the time of copy.
+	 */
+	private transient volatile int version;
+	/**
+	 * Last read-only copy, reused by snapshots while this action is not changed.
+	 */
+	private transient volatile Action frozen;
 
 	public Action(int id, Date created, Date resolved, String description, Date modified) {
 		this.id=id;
@@ -164,13 +190,14 @@ public final class Action {
 	 * @param description the description to set
 	 */
 	public void setDescription(String description) {
-		if (description!=null && description.equals(this.description)) {
+		checkWritable();
+		String old= getDescription();
+		if (description!=null && description.equals(old)) {
 			return;
 		}
-		if (this.description!=null && this.description.equals(description)) {
+		if (old!=null && old.equals(description)) {
 			return;
 		}
-		String old= this.description;
 		this.description = description;
 		modified();
 		if (getParent()!=null) getParent().fireElementModified(this,proxy,"description",old,description); //$NON-NLS-1$
@@ -181,14 +208,41 @@ public final class Action {
 	 * @return the description
 	 */
 	public String getDescription() {
+		DeferredText d= deferredDescription;
+		if (d!=null) {
+			description= d.load();
+			deferredDescription= null;
+		}
 		return description;
 	}
+	
+	/**
+	 * Returns description, but does not keep it in memory if it was not loaded yet.
+	 * Used when action is written to storage.
+	 * @return the description
+	 */
+	String loadDescription() {
+		DeferredText d= deferredDescription;
+		return d!=null ? d.load() : description;
+	}
+	
+	/**
+	 * Sets description, which is loaded only when it is first needed. 
+	 * Used when action is loaded from storage, does not fire any event.
+	 * @param d source of description
+	 */
+	void setDeferredDescription(DeferredText d) {
+		description= null;
+		deferredDescription= d;
+		version++;
+	}
 
 
 	/**
 	 * @param resolution the resolution to set
 	 */
 	public void setResolution(Resolution resolution) {
+		checkWritable();
 		if (this.getResolution()==resolution) {
 			return;
 		}
@@ -235,6 +289,7 @@ public final class Action {
 	 * @param start the start to set
 	 */
 	public void setStart(Date start) {
+		checkWritable();
 		Date old= this.start;
 		this.start = start;
 		modified();
@@ -255,6 +310,7 @@ public final class Action {
 	 * @param type the type to set
 	 */
 	public void setType(ActionType type) {
+		checkWritable();
 		if (getType() == type) {
 			return;
 		}
@@ -284,6 +340,7 @@ public final class Action {
 	 * @param url the url to set
 	 */
 	public void setUrl(URL url) {
+		checkWritable();
 		if ((this.url==null && url==null) || (this.url!=null && url!=null && this.url.toString().equals(url.toString()))) {
 			return;
 		}
@@ -300,6 +357,68 @@ public final class Action {
 	
 	private void modified() {
 		modified= new Date();
+		version++;
+	}
+	
+	/**
+	 * Sets resolved and modified dates without notifying folder,
+	 * used when saved action state is restored after setters changed them.
+	 */
+	void restoreDates(Date resolved, Date modified) {
+		checkWritable();
+		this.resolved=resolved;
+		this.modified=modified;
+		version++;
+	}
+
+	private void checkWritable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("Action "+id+" is part of read-only snapshot."); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	/**
+	 * Returns read-only copy of this action, used in model snapshots.
+	 * Immutable values, like strings and dates, are shared with this action.
+	 * Copy is made only after action was changed, otherwise previous copy is 
+	 * returned, so snapshots of mostly unchanged model share action copies. 
+	 * Copy does not have proxy, folder of copy is known only to snapshot folder.
+	 * @return read-only copy of this action
+	 */
+	Action readOnlyCopy() {
+		// version is read first, copy made during change is not reused
+		int v= version;
+		Action f= frozen;
+		if (f!=null && f.version==v) {
+			return f;
+		}
+		Action a= new Action(id,created,resolved,description,modified);
+		a.deferredDescription=deferredDescription;
+		a.start=start;
+		a.remind=remind;
+		a.due=due;
+		a.project=project;
+		a.queued=queued;
+		a.resolution=getResolution();
+		a.resolutionId=resolutionId;
+		a.type=getType();
+		a.typeId=typeId;
+		a.priority=getPriority();
+		a.priorityId=priorityId;
+		a.url=getUrl();
+		a.urlId=urlId;
+		a.readOnly=true;
+		a.version=v;
+		frozen=a;
+		return a;
+	}
+	
+	/**
+	 * Returns <code>true</code> if this action is read-only copy from model snapshot.
+	 * @return <code>true</code> if this action can not be changed
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
 	}
 
 	/**
@@ -316,6 +435,7 @@ public final class Action {
 	 * @param priority the priority to set
 	 */
 	public void setPriority(Priority priority) {
+		checkWritable();
 		if (priority==null) priority=Priority.None;
 		if (this.priority == priority) {
 			return;
@@ -339,6 +459,7 @@ public final class Action {
 	 * @param remind the remind to set
 	 */
 	public void setRemind(Date remind) {
+		checkWritable();
 		Date old= this.remind;
 		this.remind = remind;
 		modified();
@@ -356,6 +477,7 @@ public final class Action {
 	 * @param due the due to set
 	 */
 	public void setDue(Date due) {
+		checkWritable();
 		Date old= this.due;
 		this.due = due;
 		modified();
@@ -366,6 +488,7 @@ public final class Action {
 	 * @param folder the folder to set
 	 */
 	void setParent(Folder folder) {
+		checkWritable();
 		if (proxy!=null) {
 			proxy.setParent(folder);
 		} else {
@@ -413,6 +536,7 @@ public final class Action {
 	 * @param project the project to set
 	 */
 	public void setProject(Integer project) {
+		checkWritable();
 		if (project!=null && project.equals(this.project)) {
 			return;
 		}
@@ -451,6 +575,7 @@ public final class Action {
 	 * @param queued the queued to set
 	 */
 	public void setQueued(boolean queued) {
+		checkWritable();
 		if (queued==this.queued) {
 			return;
 		}
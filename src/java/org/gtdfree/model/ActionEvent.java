@@ -20,9 +20,6 @@
 package org.gtdfree.model;
 
 import java.util.EventObject;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 
 import org.gtdfree.ApplicationHelper;
 import org.gtdfree.model.GTDData.ActionProxy;
@@ -35,101 +32,112 @@ public class ActionEvent extends EventObject {
 	
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Sorts actions of event by properties, which define membership in meta folders.
+	 * Membership is kept as bit set per action, arrays of actions are made only 
+	 * when requested and only if index contains part of actions. When index contains 
+	 * all or none of actions, event arrays or shared empty array are returned, 
+	 * so single action events do not allocate anything.
+	 */
 	static class SortedElements {
 		
 		enum ActionIndex {RESOLVED,DELETED,REMINDER,PRIORITY,QUEUE,PROJECT}
 		
+		private static final Action[] NO_ACTIONS= new Action[0];
+		private static final ActionProxy[] NO_PROXIES= new ActionProxy[0];
+		private static final int INDEX_COUNT= ActionIndex.values().length;
+		
 		private Action[] ac;
 		private ActionProxy[] ap;
-		private List<Integer>[] indices;
+		/**
+		 * Index bits of single action event, bit position is index ordinal.
+		 */
+		private int single;
+		/**
+		 * Index bits for each action, <code>null</code> for single action event.
+		 */
+		private int[] flags;
+		/**
+		 * Number of actions in each index, <code>null</code> for single action event.
+		 */
+		private int[] counts;
 
-		@SuppressWarnings("unchecked")
 		public SortedElements(Action[] ac, ActionProxy[] ap) {
 			this.ac=ac;
 			this.ap=ap;
-			indices = new List[ActionIndex.values().length];
 			
-			for (Integer i = 0; i < ap.length; i++) {
-				Action aa= ac[i];
-				
-				if (aa.isResolved()) {
-					index(ActionIndex.RESOLVED).add(i);
-				}
-				if (aa.isDeleted()) {
-					index(ActionIndex.DELETED).add(i);
-				}
-				if (aa.getRemind()!=null) {
-					index(ActionIndex.REMINDER).add(i);
-				}
-				if (aa.getPriority()!=null && aa.getPriority()!=Priority.None) {
-					index(ActionIndex.PRIORITY).add(i);
-				}
-				if (aa.isQueued()) {
-					index(ActionIndex.QUEUE).add(i);
-				}
-				if (aa.getProject()!=null) {
-					index(ActionIndex.PROJECT).add(i);
+			if (ap.length==1) {
+				single= flags(ac[0]);
+				return;
+			}
+			
+			flags= new int[ap.length];
+			counts= new int[INDEX_COUNT];
+			for (int i = 0; i < ap.length; i++) {
+				int f= flags(ac[i]);
+				flags[i]=f;
+				for (int j = 0; j < INDEX_COUNT; j++) {
+					counts[j]+= (f>>>j) & 1;
 				}
 			}
 		}
 		
-		private List<Integer> index(ActionIndex i) {
-			List<Integer> l= indices[i.ordinal()];
-			if (l==null) {
-				indices[i.ordinal()] = l = new LinkedList<Integer>();
+		private static int flags(Action aa) {
+			int f=0;
+			if (aa.isResolved()) {
+				f|= 1<<ActionIndex.RESOLVED.ordinal();
 			}
-			return l;
-		}
-		
-		private Action[] getActions(List<Integer> l) {
-			Action[] a= new Action[l.size()];
-			int k=0;
-			for (Integer i : l) {
-				a[k++]=ac[i];
+			if (aa.isDeleted()) {
+				f|= 1<<ActionIndex.DELETED.ordinal();
 			}
-			return a;
-		}
-		
-		private ActionProxy[] getActionProxies(List<Integer> l) {
-			ActionProxy[] a= new ActionProxy[l.size()];
-			int k=0;
-			for (Integer i : l) {
-				a[k++]=ap[i];
+			if (aa.getRemind()!=null) {
+				f|= 1<<ActionIndex.REMINDER.ordinal();
 			}
-			return a;
+			if (aa.getPriority()!=null && aa.getPriority()!=Priority.None) {
+				f|= 1<<ActionIndex.PRIORITY.ordinal();
+			}
+			if (aa.isQueued()) {
+				f|= 1<<ActionIndex.QUEUE.ordinal();
+			}
+			if (aa.getProject()!=null) {
+				f|= 1<<ActionIndex.PROJECT.ordinal();
+			}
+			return f;
 		}
 		
-		private Action[] getActionsInv(List<Integer> l) {
-			if (l.size()==0) {
+		private Action[] getActions(ActionIndex i, boolean in) {
+			int n= in ? size(i) : sizeInv(i);
+			if (n==0) {
+				return NO_ACTIONS;
+			}
+			if (n==ac.length) {
 				return ac;
 			}
-			Action[] a= new Action[ac.length-l.size()];
+			Action[] a= new Action[n];
+			int bit= 1<<i.ordinal();
 			int k=0;
-			Iterator<Integer> it= l.iterator();
-			int in= it.next();
-			for (int i=0; i< ac.length; i++) {
-				if (i==in) {
-					in=it.hasNext() ? it.next() : -1; 
-				} else {
-					a[k++]=ac[i];
+			for (int j=0; j< ac.length; j++) {
+				if (((flags[j] & bit)!=0)==in) {
+					a[k++]=ac[j];
 				}
 			}
 			return a;
 		}
 		
-		private ActionProxy[] getActionProxiesInv(List<Integer> l) {
-			if (l.size()==0) {
+		private ActionProxy[] getActionProxies(ActionIndex i, boolean in) {
+			int n= in ? size(i) : sizeInv(i);
+			if (n==0) {
+				return NO_PROXIES;
+			}
+			if (n==ap.length) {
 				return ap;
 			}
-			ActionProxy[] a= new ActionProxy[ap.length-l.size()];
+			ActionProxy[] a= new ActionProxy[n];
+			int bit= 1<<i.ordinal();
 			int k=0;
-			Iterator<Integer> it= l.iterator();
-			int in= it.next();
-			for (int i=0; i< ap.length; i++) {
-				if (i==in) {
-					in=it.hasNext() ? it.next() : -1; 
-				} else {
-					a[k++]=ap[i];
+			for (int j=0; j< ap.length; j++) {
+				if (((flags[j] & bit)!=0)==in) {
+					a[k++]=ap[j];
 				}
 			}
 			return a;
@@ -144,26 +152,29 @@ public class ActionEvent extends EventObject {
 		}
 
 		public Action[] getActions(ActionIndex i) {
-			return getActions(index(i));
+			return getActions(i,true);
 		}
 		
 		public ActionProxy[] getActionProxies(ActionIndex i) {
-			return getActionProxies(index(i));
+			return getActionProxies(i,true);
 		}
 		
 		public Action[] getActionsInv(ActionIndex i) {
-			return getActionsInv(index(i));
+			return getActions(i,false);
 		}
 		
 		public ActionProxy[] getActionProxiesInv(ActionIndex i) {
-			return getActionProxiesInv(index(i));
+			return getActionProxies(i,false);
 		}
 
 		public int size(ActionIndex i) {
-			return indices[i.ordinal()] == null ? 0 : index(i).size();
+			if (counts==null) {
+				return (single>>>i.ordinal()) & 1;
+			}
+			return counts[i.ordinal()];
 		}
 		public int sizeInv(ActionIndex i) {
-			return ac.length - (indices[i.ordinal()] == null ? 0 : index(i).size());
+			return ap.length - size(i);
 		}
 		
 	}
@@ -0,0 +1,228 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.gtdfree.model.GTDData.ActionProxy;
+
+/**
+ * Ordered set of action proxies, used as folder content by data repositories.
+ * Proxies are kept in insertion order in a list, together with identity hash index
+ * of proxy positions. Membership test is constant-time, positions are refreshed
+ * lazily after structural change, so <code>indexOf</code> and <code>remove(ActionProxy)</code>
+ * are amortized constant-time for common case when actions are added at the end
+ * or close to it.
+ * <p>
+ * This class is not thread safe, folder synchronizes access to its data. Only exception
+ * is <code>indexOf</code>, which folder calls with shared read lock, it refreshes
+ * positions and is therefore synchronized.
+ *
+ * @author ikesan
+ *
+ */
+public final class ActionProxyList implements Iterable<ActionProxy> {
+
+	private ArrayList<ActionProxy> list;
+	private IdentityHashMap<ActionProxy, Integer> index;
+	/**
+	 * Positions in index are valid for proxies with list index below this value.
+	 */
+	private int valid=0;
+
+	public ActionProxyList() {
+		this(16);
+	}
+
+	public ActionProxyList(int capacity) {
+		list= new ArrayList<ActionProxy>(capacity);
+		index= new IdentityHashMap<ActionProxy, Integer>(capacity);
+	}
+
+	public int size() {
+		return list.size();
+	}
+
+	public ActionProxy get(int i) {
+		return list.get(i);
+	}
+
+	public boolean contains(ActionProxy ap) {
+		return index.containsKey(ap);
+	}
+
+	/**
+	 * Returns position of proxy or -1 if proxy is not contained.
+	 * @param ap the proxy
+	 * @return position of proxy or -1
+	 */
+	public synchronized int indexOf(ActionProxy ap) {
+		Integer p= index.get(ap);
+		if (p==null) {
+			return -1;
+		}
+		if (p<valid && list.get(p)==ap) {
+			return p;
+		}
+		reindex();
+		return index.get(ap);
+	}
+
+	private void reindex() {
+		for (int i = valid; i < list.size(); i++) {
+			index.put(list.get(i), i);
+		}
+		valid=list.size();
+	}
+
+	private void invalidateFrom(int i) {
+		if (valid>i) {
+			valid=i;
+		}
+	}
+
+	public void add(ActionProxy ap) {
+		add(list.size(),ap);
+	}
+
+	public void add(int i, ActionProxy ap) {
+		list.add(i, ap);
+		index.put(ap, i);
+		if (valid>=i) {
+			valid=i+1;
+		}
+	}
+
+	/**
+	 * Inserts proxy at position found with binary search. List must be already sorted
+	 * with same comparator. Proxy is inserted after all proxies, which compare equal.
+	 * @param ap the proxy to be inserted
+	 * @param c the comparator which defines list order
+	 * @return position at which proxy was inserted
+	 */
+	public int addSorted(ActionProxy ap, Comparator<? super ActionProxy> c) {
+		int lo=0;
+		int hi=list.size();
+		while (lo<hi) {
+			int mid= (lo+hi)>>>1;
+			if (c.compare(list.get(mid), ap)<=0) {
+				lo=mid+1;
+			} else {
+				hi=mid;
+			}
+		}
+		add(lo,ap);
+		return lo;
+	}
+
+	public void set(int i, ActionProxy ap) {
+		if (valid<list.size()) {
+			reindex();
+		}
+		ActionProxy old= list.set(i, ap);
+		if (old==ap) {
+			return;
+		}
+		// old proxy might be placed elsewhere already, for example when two proxies are swapped
+		if (old!=null) {
+			Integer p= index.get(old);
+			if (p!=null && p==i) {
+				index.remove(old);
+			}
+		}
+		index.put(ap, i);
+	}
+
+	public ActionProxy remove(int i) {
+		ActionProxy ap= list.remove(i);
+		if (ap!=null) {
+			index.remove(ap);
+		}
+		invalidateFrom(i);
+		return ap;
+	}
+
+	public boolean remove(ActionProxy ap) {
+		int i= indexOf(ap);
+		if (i<0) {
+			return false;
+		}
+		remove(i);
+		return true;
+	}
+
+	public void clear() {
+		list.clear();
+		index.clear();
+		valid=0;
+	}
+
+	public void sort(Comparator<? super ActionProxy> c) {
+		Collections.sort(list, c);
+		valid=0;
+	}
+
+	/**
+	 * Moves proxies of provided actions to the beginning of the list in provided order.
+	 * Proxies, which are not part of order, keep their relative order after reordered ones.
+	 * @param order new order of actions
+	 */
+	public void reorder(Action[] order) {
+		// proxies are matched by action ID, since not all repositories register proxy with action
+		IntHashMap<ActionProxy> ids= new IntHashMap<ActionProxy>(list.size());
+		for (ActionProxy ap : list) {
+			ids.put(ap.getId(), ap);
+		}
+		List<ActionProxy> l= new ArrayList<ActionProxy>(list.size());
+		for (int i = 0; i < order.length; i++) {
+			ActionProxy ap= ids.remove(order[i].getId());
+			if (ap!=null) {
+				l.add(ap);
+			}
+		}
+		for (ActionProxy ap : list) {
+			if (ids.get(ap.getId())==ap) {
+				l.add(ap);
+			}
+		}
+		clear();
+		list.addAll(l);
+		reindex();
+	}
+
+	public ActionProxy[] toArray() {
+		return list.toArray(new ActionProxy[list.size()]);
+	}
+
+	@Override
+	public Iterator<ActionProxy> iterator() {
+		return Collections.unmodifiableList(list).iterator();
+	}
+
+	@Override
+	public String toString() {
+		return list.toString();
+	}
+}
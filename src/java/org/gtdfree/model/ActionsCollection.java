@@ -29,6 +29,7 @@ import java.util.Set;
 import org.gtdfree.Messages;
 import org.gtdfree.addons.ExportAddOn;
 import org.gtdfree.gui.ActionTable;
+import org.gtdfree.model.GTDData.ActionProxy;
 
 
 /**
@@ -59,7 +60,33 @@ public class ActionsCollection {
 		}
 	}
 	
-	class FoldersActionsIterator implements Iterator<Object> {
+	/**
+	 * Reads actions from consistent copy of current folder content, 
+	 * so folder can be changed by other thread while iterating.
+	 */
+	abstract class FolderViewIterator implements Iterator<Object> {
+		
+		private Folder viewFolder;
+		private ActionProxy[] view;
+		
+		int size(Folder f) {
+			return view(f).length;
+		}
+		
+		Action get(Folder f, int i) {
+			return view(f)[i].get();
+		}
+		
+		private ActionProxy[] view(Folder f) {
+			if (viewFolder!=f) {
+				viewFolder=f;
+				view=f.view();
+			}
+			return view;
+		}
+	}
+	
+	class FoldersActionsIterator extends FolderViewIterator {
 		
 		int folderIndex=0;
 		int actionIndex=0;
@@ -89,7 +116,7 @@ public class ActionsCollection {
 				// find also next action
 				return hasNext();
 			}
-			if (actionIndex>=f.size()) {
+			if (actionIndex>=size(f)) {
 				// end of actions
 				if (nextFolderReady && includeEmptyFolders) {
 					// previous folder was not consumed, folder is empty 
@@ -107,7 +134,7 @@ public class ActionsCollection {
 				return hasNext();
 			}
 			
-			if (!filter.isAcceptable(f, f.get(actionIndex)) || !isInRange(f,f.get(actionIndex))) {
+			if (!filter.isAcceptable(f, get(f,actionIndex)) || !isInRange(f,get(f,actionIndex))) {
 				// current action is not acceptable, move to next
 				actionIndex++;
 				// test next action
@@ -127,7 +154,7 @@ public class ActionsCollection {
 				nextFolderReady=false;
 				return folders.get(folderIndex);
 			}
-			return folders.get(folderIndex).get(actionIndex++);
+			return get(folders.get(folderIndex),actionIndex++);
 		}
 		
 		@Override
@@ -137,7 +164,7 @@ public class ActionsCollection {
 		
 	}
 	
-	class ActionsIterator implements Iterator<Object> {
+	class ActionsIterator extends FolderViewIterator {
 		
 		int folderIndex=0;
 		int actionIndex=0;
@@ -157,12 +184,12 @@ public class ActionsCollection {
 				folderIndex++;
 				return hasNext();
 			}
-			if (actionIndex>=f.size()) {
+			if (actionIndex>=size(f)) {
 				folderIndex++;
 				actionIndex=0;
 				return hasNext();
 			}
-			if (!filter.isAcceptable(f, f.get(actionIndex)) || !isInRange(f,f.get(actionIndex))) {
+			if (!filter.isAcceptable(f, get(f,actionIndex)) || !isInRange(f,get(f,actionIndex))) {
 				actionIndex++;
 				return hasNext();
 			}
@@ -175,7 +202,7 @@ public class ActionsCollection {
 			if (!hasNext()) {
 				return null;
 			}
-			return folders.get(folderIndex).get(actionIndex++);
+			return get(folders.get(folderIndex),actionIndex++);
 		}
 		
 		@Override
@@ -251,7 +278,7 @@ public class ActionsCollection {
 		
 	}
 
-	class ProjectsActionsIterator implements Iterator<Object> {
+	class ProjectsActionsIterator extends FolderViewIterator {
 		
 		int projectIndex=0;
 		int actionIndex=0;
@@ -280,7 +307,7 @@ public class ActionsCollection {
 				// find also next action
 				return hasNext();
 			}
-			if (actionIndex>=f.size()) {
+			if (actionIndex>=size(f)) {
 				// end of actions
 				if (nextProjectReady && includeEmptyFolders) {
 					// previous folder was not consumed, folder is empty 
@@ -296,7 +323,7 @@ public class ActionsCollection {
 				// find also next action
 				return hasNext();
 			}
-			Action a= f.get(actionIndex);
+			Action a= get(f,actionIndex);
 			if (!filter.isAcceptable(f, a) || !isInRange(a.getParent(), a)) {
 				// current action is not acceptable, move to next
 				actionIndex++;
@@ -323,7 +350,7 @@ public class ActionsCollection {
 				nextProjectReady=false;
 				return projects.get(projectIndex);
 			}
-			return projects.get(projectIndex).get(actionIndex++);
+			return get(projects.get(projectIndex),actionIndex++);
 		}
 		
 		@Override
@@ -20,10 +20,13 @@
 package org.gtdfree.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.swing.event.EventListenerList;
 
@@ -31,8 +34,21 @@ import org.apache.log4j.Logger;
 import org.gtdfree.model.Action.Resolution;
 import org.gtdfree.model.GTDData.ActionProxy;
 import org.gtdfree.model.GTDData.FolderDataProxy;
+import org.gtdfree.model.GTDData.LazyFolderDataProxy;
 
 
+/**
+ * Folder of actions, also project and build-in meta folders.
+ * <p>
+ * Content of folder is guarded by folder's own read-write lock. Iteration, counting
+ * and statistics work on read-only copy of content and do not lock at all, lookups
+ * take read lock and changes take write lock. To avoid deadlocks, locks are always 
+ * taken in this order: model lock, then lock of single folder, then locks of data repository.
+ * Folder lock is never held while listeners are notified or while other folder is 
+ * changed, events are fired after lock is released. Thus model, which updates meta folders 
+ * while handling events, and moves of actions between several folders never hold 
+ * locks of two folders at the same time.
+ */
 public class Folder implements Iterable<Action> {
 
 	public enum FolderType {
@@ -55,12 +71,78 @@ public class Folder implements Iterable<Action> {
 	private transient FolderType type;
 	private transient GTDModel parent;
 	private transient boolean suspendedForMultipleChanges;
+	/**
+	 * Flag telling that folder content is known to be sorted with comparator, 
+	 * so new actions can be inserted at sorted position without full sort.
+	 */
+	private transient volatile boolean sorted;
+	/**
+	 * Read-only copy of folder content, shared by readers until folder is changed.
+	 * Writers change content while holding folder lock and reset the copy, 
+	 * next reader makes new one.
+	 */
+	private transient volatile ActionProxy[] view;
+	/**
+	 * Action counts, created on first request.
+	 */
+	private transient volatile FolderStats stats;
+	/**
+	 * Guards folder content, created on first use, since folders restored
+	 * by data repository do not run initializers.
+	 */
+	private transient volatile ReentrantReadWriteLock lock;
 	
 
 	
 	FolderDataProxy getData() {
 		return data;
 	}
+	
+	/**
+	 * Returns consistent read-only copy of folder content, which can be used without 
+	 * locking folder. Returned array is shared and must not be modified.
+	 * @return proxies of actions in this folder 
+	 */
+	ActionProxy[] view() {
+		ActionProxy[] v= view;
+		if (v==null) {
+			ReentrantReadWriteLock.ReadLock l= lock().readLock();
+			l.lock();
+			try {
+				// writers are excluded, concurrent readers would make equal copies
+				if (view==null) {
+					view= data.toArray();
+				}
+				v= view;
+			} finally {
+				l.unlock();
+			}
+		}
+		return v;
+	}
+	
+	/**
+	 * Returns <code>true</code> if folder content is read from repository only when needed
+	 * and is not loaded yet. Such folder is iterated by data itself, so iteration
+	 * does not load whole content.
+	 * @return <code>true</code> if data should be iterated directly
+	 */
+	private boolean isLazy() {
+		return data instanceof LazyFolderDataProxy && !((LazyFolderDataProxy)data).isLoaded();
+	}
+	
+	private ReentrantReadWriteLock lock() {
+		ReentrantReadWriteLock l= lock;
+		if (l==null) {
+			synchronized (this) {
+				if (lock==null) {
+					lock= new ReentrantReadWriteLock();
+				}
+				l= lock;
+			}
+		}
+		return l;
+	}
 	/**
 	 * @return the comparator
 	 */
@@ -72,7 +154,17 @@ public class Folder implements Iterable<Action> {
 	 * @param comparator the comparator to set
 	 */
 	public void setComparator(Comparator<Action> comparator) {
-		this.comparator = comparator;
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			this.comparator = comparator;
+			sorted=false;
+			if (data.size()>0) {
+				sort();
+			}
+		} finally {
+			l.unlock();
+		}
 		data.store();
 	}
 
@@ -129,6 +221,9 @@ public class Folder implements Iterable<Action> {
 		}
 		FolderListener[] l = listeners.getListeners(FolderListener.class);
 		for (FolderListener listener : l) {
+			if (isDeferred(listener)) {
+				continue;
+			}
 			try {
 				listener.elementAdded(f);
 			} catch (Exception e) {
@@ -155,6 +250,9 @@ public class Folder implements Iterable<Action> {
 		}
 		FolderListener[] l = listeners.getListeners(FolderListener.class);
 		for (FolderListener listener : l) {
+			if (isDeferred(listener)) {
+				continue;
+			}
 			try {
 				listener.elementRemoved(f);
 			} catch (Exception e) {
@@ -165,7 +263,11 @@ public class Folder implements Iterable<Action> {
 
 	public void fireElementModified(Action a, ActionProxy ap, String property, Object oldVal, Object newVal) {
 		fireElementModified(a,ap,property,oldVal,newVal,false);
-		ap.store();
+		if (parent!=null) {
+			parent.deferStore(ap);
+		} else {
+			ap.store();
+		}
 	}
 
 	public void fireElementModified(Action a, ActionProxy ap, String property, Object oldVal, Object newVal, boolean recycled) {
@@ -189,21 +291,42 @@ public class Folder implements Iterable<Action> {
 	}
 
 	private void fireElementModified(ActionEvent i) {
-		if (!data.contains(i.getActionProxy())) {
-			return;
-		}
-		if (i.getProperty().equals(Action.RESOLUTION_PROPERTY_NAME)) {
-			if (Resolution.OPEN==i.getOldValue()) {
-				decOpenCount();
-			} else if (Resolution.OPEN==i.getNewValue()) {
-				incOpenCount();
+		boolean resolution= i.getProperty().equals(Action.RESOLUTION_PROPERTY_NAME);
+		// only open count is changed here, content and its order are not, 
+		// so other properties need only read lock
+		Lock lk= resolution ? lock().writeLock() : lock().readLock();
+		lk.lock();
+		try {
+			if (!data.contains(i.getActionProxy())) {
+				return;
+			}
+			if (sorted && getComparator()!=null) {
+				checkSorted(i.getActions(), i.getActionProxies());
 			}
+			if (resolution) {
+				if (Resolution.OPEN==i.getOldValue()) {
+					decOpenCount();
+				} else if (Resolution.OPEN==i.getNewValue()) {
+					incOpenCount();
+				}
+			}
+			FolderStats st= stats;
+			if (st!=null) {
+				for (Action a : i.getActions()) {
+					st.update(a);
+				}
+			}
+		} finally {
+			lk.unlock();
 		}
 		if (listeners==null) {
 			listeners= new EventListenerList();
 		}
 		FolderListener[] l = listeners.getListeners(FolderListener.class);
 		for (FolderListener listener : l) {
+			if (isDeferred(listener)) {
+				continue;
+			}
 			try {
 				listener.elementModified(i);
 			} catch (Exception e) {
@@ -218,6 +341,57 @@ public class Folder implements Iterable<Action> {
 		}
 		FolderListener[] l = listeners.getListeners(FolderListener.class);
 		for (FolderListener listener : l) {
+			if (isDeferred(listener)) {
+				continue;
+			}
+			try {
+				listener.orderChanged(this);
+			} catch (Exception e) {
+				Logger.getLogger(this.getClass()).debug("Internal error.", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * While model is in batch mode only model is notified immediately, so it can
+	 * maintain meta folders, other listeners receive merged events when batch is committed.
+	 */
+	private boolean isDeferred(FolderListener l) {
+		return parent!=null && parent.isBatch() && !(l instanceof GTDModel.ModelListenerSupport);
+	}
+	
+	void deliverElementAdded(FolderEvent f) {
+		for (FolderListener listener : deferredListeners()) {
+			try {
+				listener.elementAdded(f);
+			} catch (Exception e) {
+				Logger.getLogger(this.getClass()).debug("Internal error.", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	void deliverElementRemoved(FolderEvent f) {
+		for (FolderListener listener : deferredListeners()) {
+			try {
+				listener.elementRemoved(f);
+			} catch (Exception e) {
+				Logger.getLogger(this.getClass()).debug("Internal error.", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	void deliverElementModified(ActionEvent i) {
+		for (FolderListener listener : deferredListeners()) {
+			try {
+				listener.elementModified(i);
+			} catch (Exception e) {
+				Logger.getLogger(this.getClass()).debug("Internal error.", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	void deliverOrderChanged() {
+		for (FolderListener listener : deferredListeners()) {
 			try {
 				listener.orderChanged(this);
 			} catch (Exception e) {
@@ -226,36 +400,98 @@ public class Folder implements Iterable<Action> {
 		}
 	}
 
+	private List<FolderListener> deferredListeners() {
+		if (listeners==null) {
+			return Collections.emptyList();
+		}
+		FolderListener[] l = listeners.getListeners(FolderListener.class);
+		List<FolderListener> r= new ArrayList<FolderListener>(l.length);
+		for (FolderListener listener : l) {
+			if (!(listener instanceof GTDModel.ModelListenerSupport)) {
+				r.add(listener);
+			}
+		}
+		return r;
+	}
+
 	private void sort() {
 		if (getComparator()!=null && !suspendedForMultipleChanges) {
 			data.sort(getComparator());
+			view=null;
+			sorted=true;
+		}
+	}
+	
+	/**
+	 * Inserts proxy to data. If folder has comparator and is already sorted, then
+	 * proxy is inserted at sorted position, otherwise folder is sorted after insert.
+	 * @param i insert position, -1 to append at the end
+	 * @param ap the proxy
+	 */
+	private void insert(int i, ActionProxy ap) {
+		if (getComparator()!=null && sorted && !suspendedForMultipleChanges) {
+			data.addSorted(ap, getComparator());
+			view=null;
+			return;
+		}
+		if (i<0) {
+			data.add(ap);
+		} else {
+			data.add(i, ap);
+		}
+		view=null;
+		sorted=false;
+		sort();
+	}
+	
+	/**
+	 * Checks if modified actions are still in order with their neighbors, 
+	 * if not, folder will be fully sorted at next insert.
+	 */
+	private void checkSorted(Action[] a, ActionProxy[] ap) {
+		Comparator<Action> c= getComparator();
+		for (int k = 0; k < ap.length && sorted; k++) {
+			int i= data.indexOf(ap[k]);
+			if (i<0) {
+				continue;
+			}
+			if ((i>0 && c.compare(data.get(i-1).get(), a[k])>0) 
+					|| (i<data.size()-1 && c.compare(a[k], data.get(i+1).get())>0)) {
+				sorted=false;
+			}
 		}
 	}
 
-	synchronized void add(int i, Action a) {
+	void add(int i, Action a) {
 		ActionProxy ap = parent.getDataRepository().getProxy(a);
 		add(i,a,ap);
 	}
 	
-	synchronized void add(int i, Action a, ActionProxy ap) {
-		if (data.contains(ap)) {
-			return;
+	void add(int i, Action a, ActionProxy ap) {
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			if (data.contains(ap)) {
+				return;
+			}
+			data.suspend(true);
+			try {
+				insert(i, ap);
+				if (!isMeta()) ap.setParent(this);
+				added(a);
+			} finally {
+				data.suspend(false);
+			}
+		} finally {
+			l.unlock();
 		}
-		data.suspend(true);
-		data.add(i, ap);
-		if (!isMeta()) ap.setParent(this);
-		sort();
 		if (a.isOpen() && isClosed()) {
 			setClosed(false);
 		}
-		if (a.isOpen()) {
-			incOpenCount();
-		}
-		data.suspend(false);
 		fireElementAdded(a,ap);
 	}
 
-	synchronized void add(int idx, Action[] ac) {
+	void add(int idx, Action[] ac) {
 		if (ac==null || ac.length==0) {
 			return;
 		}
@@ -265,90 +501,128 @@ public class Folder implements Iterable<Action> {
 		}
 		add(idx, ac, ap);
 	}
-	synchronized void add(int idx, Action[] ac, ActionProxy[] ap) {
+	void add(int idx, Action[] ac, ActionProxy[] ap) {
 		if (ac==null || ac.length==0 || ap==null || ap.length==0) {
 			return;
 		}
 		
 		List<Action> aac= new ArrayList<Action>(ac.length);
 		List<ActionProxy> aap= new ArrayList<ActionProxy>(ac.length);
+		boolean reopen= false;
 		
-		data.suspend(true);
-		int ins=0;
-		for (int i = 0; i < ac.length; i++) {
-			Action a= ac[i];
-			ActionProxy p= ap[i];
-			if (data.contains(p)) {
-				continue;
-			}
-			data.add(idx+ins,p);
-			ins++;
-			if (!isMeta()) a.setParent(this);
-			if (a.isOpen() && isClosed()) {
-				setClosed(false);
-			}
-			aac.add(a);
-			aap.add(p);
-			if (a.isOpen()) {
-				incOpenCount();
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			data.suspend(true);
+			try {
+				int ins=0;
+				for (int i = 0; i < ac.length; i++) {
+					Action a= ac[i];
+					ActionProxy p= ap[i];
+					if (data.contains(p)) {
+						continue;
+					}
+					data.add(idx+ins,p);
+					view=null;
+					ins++;
+					if (!isMeta()) a.setParent(this);
+					reopen|= a.isOpen();
+					aac.add(a);
+					aap.add(p);
+					added(a);
+				}
+				if (aac.size()==0) {
+					return;
+				}
+				sorted=false;
+				sort();
+			} finally {
+				data.suspend(false);
 			}
+		} finally {
+			l.unlock();
 		}
-		if (aac.size()==0) {
-			return;
+		if (reopen && isClosed()) {
+			setClosed(false);
 		}
-		sort();
-		data.suspend(false);
 
 		fireElementAdded(aac.toArray(new Action[aac.size()]), aap.toArray(new ActionProxy[aap.size()]));
 	}
 
-	synchronized void add(Action a) {
+	void add(Action a) {
 		ActionProxy ap = parent.getDataRepository().getProxy(a);
 		add(a,ap);
 	}
 	
-	synchronized void add(Action a, ActionProxy ap) {
-		if (data.contains(ap)) {
-			return;
+	void add(Action a, ActionProxy ap) {
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			if (data.contains(ap)) {
+				return;
+			}
+			data.suspend(true);
+			try {
+				insert(-1, ap);
+				if (!isMeta()) a.setParent(this);
+				added(a);
+			} finally {
+				data.suspend(false);
+			}
+		} finally {
+			l.unlock();
 		}
-		data.suspend(true);
-		data.add(ap);
-		if (!isMeta()) a.setParent(this);
-		sort();
 		if (a.isOpen() && isClosed()) {
 			setClosed(false);
 		}
-		if (a.isOpen()) {
-			incOpenCount();
-		}
-		data.suspend(false);
 		fireElementAdded(a,ap);
 	}
 
-	synchronized boolean remove(Action a, ActionProxy i) {
-		data.suspend(true);
-		boolean b= data.remove(i);
-		if (b) {
-			if (a.isOpen()) {
-				decOpenCount();
+	boolean remove(Action a, ActionProxy i) {
+		boolean b;
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			data.suspend(true);
+			try {
+				b= data.remove(i);
+				view=null;
+				if (b) {
+					removed(a);
+				}
+			} finally {
+				data.suspend(false);
 			}
+		} finally {
+			l.unlock();
+		}
+		if (b) {
 			fireElementRemoved(a,i);
 		}
-		data.suspend(false);
 		return b;
 	}
 
-	synchronized boolean remove(int i) {
-		ActionProxy ap= data.get(i);
-		Action a= ap.get();
-		data.suspend(true);
-		data.remove(i);
-		if (a!=null) {
-			if (a.isOpen()) {
-				decOpenCount();
+	boolean remove(int i) {
+		ActionProxy ap;
+		Action a;
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			ap= data.get(i);
+			a= ap.get();
+			data.suspend(true);
+			try {
+				data.remove(i);
+				view=null;
+				if (a!=null) {
+					removed(a);
+				}
+			} finally {
+				data.suspend(false);
 			}
+		} finally {
+			l.unlock();
 		}
-		data.suspend(false);
 		fireElementRemoved(a,ap);
 		return true;
 	}
@@ -379,20 +653,22 @@ public class Folder implements Iterable<Action> {
 	}
 
 	public Iterator<Action> iterator() {
+		if (isLazy()) {
+			return iterator(FolderPreset.ALL);
+		}
 		return new Iterator<Action>() {
+			ActionProxy[] v= view();
 			int i= 0;
 			@Override
 			public boolean hasNext() {
-				return i<size();
+				return i<v.length;
 			}
 			@Override
 			public Action next() {
-				synchronized (Folder.this) {
-					if (i<size()) {
-						return data.get(i++).get();
-					}
-					return null;
+				if (i<v.length) {
+					return v[i++].get();
 				}
+				return null;
 			}
 			@Override
 			public void remove() {
@@ -403,19 +679,17 @@ public class Folder implements Iterable<Action> {
 
 	public Iterator<Action> iterator(final FolderPreset fp) {
 		return new Iterator<Action>() {
-			Iterator<ActionProxy> i= data.iterator(fp);
+			Iterator<ActionProxy> i= proxyIterator(fp);
 			@Override
 			public boolean hasNext() {
 				return i.hasNext();
 			}
 			@Override
 			public Action next() {
-				synchronized (Folder.this) {
-					if (i.hasNext()) {
-						return i.next().get();
-					}
-					return null;
+				if (i.hasNext()) {
+					return i.next().get();
 				}
+				return null;
 			}
 			@Override
 			public void remove() {
@@ -424,12 +698,52 @@ public class Folder implements Iterable<Action> {
 		};
 	}
 	
-	public Iterator<ActionProxy> proxyIterator(FolderPreset fp) {
-		return data.iterator(fp);
+	/**
+	 * Iterates over copy of folder content at the time of call, 
+	 * changes made to folder while iterating are not visible to iterator.
+	 * Folder, which is not loaded from lazy repository, is iterated by its data 
+	 * page by page, such iterator may see changes made while iterating.
+	 * @param fp folder preset, with OPEN only open actions are returned 
+	 * @return iterator over action proxies
+	 */
+	public Iterator<ActionProxy> proxyIterator(final FolderPreset fp) {
+		if (isLazy()) {
+			ReentrantReadWriteLock.ReadLock l= lock().readLock();
+			l.lock();
+			try {
+				return data.iterator(fp);
+			} finally {
+				l.unlock();
+			}
+		}
+		return new Iterator<ActionProxy>() {
+			ActionProxy[] v= view();
+			int i= 0;
+			@Override
+			public boolean hasNext() {
+				if (fp==FolderPreset.OPEN) {
+					while (i<v.length && !v[i].get().isOpen()) {
+						i++;
+					}
+				}
+				return i<v.length;
+			}
+			@Override
+			public ActionProxy next() {
+				if (hasNext()) {
+					return v[i++];
+				}
+				return null;
+			}
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	public Action getActionByID(int id) {
-		Iterator<ActionProxy> i= data.iterator(FolderPreset.ALL);
+		Iterator<ActionProxy> i= proxyIterator(FolderPreset.ALL);
 		while (i.hasNext()) {
 			ActionProxy a= i.next();
 			if (a.getId() == id) {
@@ -448,7 +762,13 @@ public class Folder implements Iterable<Action> {
 	}
 
 	public int size() {
-		return data.size();
+		ReentrantReadWriteLock.ReadLock l= lock().readLock();
+		l.lock();
+		try {
+			return data.size();
+		} finally {
+			l.unlock();
+		}
 	}
 	
 	/**
@@ -460,67 +780,97 @@ public class Folder implements Iterable<Action> {
 		return isBuildIn() || type==FolderType.PROJECT || type==FolderType.QUEUE;
 	}
 	
-	public synchronized void moveUp(Action a) {
-		int open=0;
-		for (int i = 0; i < data.size(); i++) {
-			if (a.getId()==data.get(i).getId()) {
-				if (open==i) {
-					return;
+	public void moveUp(Action a) {
+		boolean moved= false;
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			int open=0;
+			for (int i = 0; i < data.size(); i++) {
+				if (a.getId()==data.get(i).getId()) {
+					if (open==i) {
+						return;
+					}
+					data.suspend(true);
+					try {
+						data.set(i, data.get(open));
+						data.set(open, parent.getDataRepository().getProxy(a));
+						view=null;
+						moved= true;
+					} finally {
+						data.suspend(false);
+					}
+					break;
+				}
+				if (data.get(i).get().isOpen()) {
+					open=i;
 				}
-				data.suspend(true);
-				data.set(i, data.get(open));
-				data.set(open, parent.getDataRepository().getProxy(a));
-				data.suspend(false);
-				fireOrderChanged();
-				return;
-			}
-			if (data.get(i).get().isOpen()) {
-				open=i;
 			}
+		} finally {
+			l.unlock();
+		}
+		if (moved) {
+			fireOrderChanged();
 		}
 	}
 	public boolean canMoveUp(Action a) {
 		if (a==null) {
 			return false;
 		}
-		for (int i = 0; i < data.size(); i++) {
-			if (a.getId()==data.get(i).getId()) {
+		ActionProxy[] v= view();
+		for (int i = 0; i < v.length; i++) {
+			if (a.getId()==v[i].getId()) {
 				return false;
 			}
-			if (data.get(i).get().isOpen()) {
+			if (v[i].get().isOpen()) {
 				return true;
 			}
 		}
 		return false;
 	}
-	public synchronized void moveDown(Action a) {
-		int open= data.size()-1;
-		for (int i = data.size()-1 ; i > -1 ; i--) {
-			if (a.getId()==data.get(i).getId()) {
-				if (open==i) {
-					return;
+	public void moveDown(Action a) {
+		boolean moved= false;
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			int open= data.size()-1;
+			for (int i = data.size()-1 ; i > -1 ; i--) {
+				if (a.getId()==data.get(i).getId()) {
+					if (open==i) {
+						return;
+					}
+					data.suspend(true);
+					try {
+						data.set(i, data.get(open));
+						data.set(open, parent.getDataRepository().getProxy(a));
+						view=null;
+						moved= true;
+					} finally {
+						data.suspend(false);
+					}
+					break;
+				}
+				if (data.get(i).get().isOpen()) {
+					open=i;
 				}
-				data.suspend(true);
-				data.set(i, data.get(open));
-				data.set(open, parent.getDataRepository().getProxy(a));
-				data.suspend(false);
-				fireOrderChanged();
-				return;
-			}
-			if (data.get(i).get().isOpen()) {
-				open=i;
 			}
+		} finally {
+			l.unlock();
+		}
+		if (moved) {
+			fireOrderChanged();
 		}
 	}
 	public boolean canMoveDown(Action a) {
 		if (a==null) {
 			return false;
 		}
-		for (int i = data.size()-1 ; i > -1 ; i--) {
-			if (a.getId()==data.get(i).getId()) {
+		ActionProxy[] v= view();
+		for (int i = v.length-1 ; i > -1 ; i--) {
+			if (a.getId()==v[i].getId()) {
 				return false;
 			}
-			if (data.get(i).get().isOpen()) {
+			if (v[i].get().isOpen()) {
 				return true;
 			}
 		}
@@ -528,11 +878,17 @@ public class Folder implements Iterable<Action> {
 	}
 	
 	public Action get(int i) {
-		return data.get(i).get();
+		return getProxy(i).get();
 	}
 
 	public ActionProxy getProxy(int i) {
-		return data.get(i);
+		ReentrantReadWriteLock.ReadLock l= lock().readLock();
+		l.lock();
+		try {
+			return data.get(i);
+		} finally {
+			l.unlock();
+		}
 	}
 	
 	@Override
@@ -566,22 +922,36 @@ public class Folder implements Iterable<Action> {
 		return openCount;
 	}
 
-	public synchronized void visit(Visitor v) {
+	public void visit(Visitor v) {
 		v.meet(this);
-		Iterator<ActionProxy> i= data.iterator(FolderPreset.ALL);
+		Iterator<ActionProxy> i= proxyIterator(FolderPreset.ALL);
 		while (i.hasNext()) {
 			v.meet(i.next().get());
 		}
 		v.depart(this);
 	}
 
-	public synchronized int indexOf(Action selectedAction) {
-		for (int i = 0; i < data.size(); i++) {
-			if (data.get(i).getId()==selectedAction.getId()) {
-				return i;
+	public int indexOf(Action selectedAction) {
+		ActionProxy ap= selectedAction.getProxy();
+		ReentrantReadWriteLock.ReadLock l= lock().readLock();
+		l.lock();
+		try {
+			if (ap!=null) {
+				int i= data.indexOf(ap);
+				if (i>-1) {
+					return i;
+				}
+			}
+			// repository might hold different proxy for same action, for example one created by a query
+			for (int i = 0; i < data.size(); i++) {
+				if (data.get(i).getId()==selectedAction.getId()) {
+					return i;
+				}
 			}
+			return -1;
+		} finally {
+			l.unlock();
 		}
-		return -1;
 	}
 	public int getId() {
 		return id;
@@ -592,7 +962,13 @@ public class Folder implements Iterable<Action> {
 	}
 	
 	public boolean contains(ActionProxy a) {
-		return data.contains(a);
+		ReentrantReadWriteLock.ReadLock l= lock().readLock();
+		l.lock();
+		try {
+			return data.contains(a);
+		} finally {
+			l.unlock();
+		}
 	}
 	
 	/**
@@ -643,9 +1019,15 @@ public class Folder implements Iterable<Action> {
 	}
 
 	public void setSuspendedForMultipleChanges(boolean suspendedForMultipleChanges) {
-		this.suspendedForMultipleChanges = suspendedForMultipleChanges;
-		if (!suspendedForMultipleChanges) {
-			sort();
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			this.suspendedForMultipleChanges = suspendedForMultipleChanges;
+			if (!suspendedForMultipleChanges && !sorted) {
+				sort();
+			}
+		} finally {
+			l.unlock();
 		}
 	}
 
@@ -718,14 +1100,27 @@ public class Folder implements Iterable<Action> {
 	}
 	
 	void purgeAll() {
-		ActionProxy[] ap= data.toArray();
+		ActionProxy[] ap;
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			ap= data.toArray();
+			data.suspend(true);
+			try {
+				data.clear();
+				view=null;
+				openCount=0;
+				if (stats!=null) {
+					stats.clear();
+				}
+			} finally {
+				data.suspend(false);
+			}
+		} finally {
+			l.unlock();
+		}
 		Action[] ac= new Action[ap.length];
 		
-		data.suspend(true);
-		data.clear();
-		openCount=0;
-		data.suspend(false);
-		
 		for (int i = 0; i < ap.length; i++) {
 			ac[i]= ap[i].get();
 		}
@@ -738,14 +1133,27 @@ public class Folder implements Iterable<Action> {
 	}
 
 	void clear() {
-		ActionProxy[] ap= data.toArray();
+		ActionProxy[] ap;
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			ap= data.toArray();
+			data.suspend(true);
+			try {
+				data.clear();
+				view=null;
+				openCount=0;
+				if (stats!=null) {
+					stats.clear();
+				}
+			} finally {
+				data.suspend(false);
+			}
+		} finally {
+			l.unlock();
+		}
 		Action[] ac= new Action[ap.length];
 		
-		data.suspend(true);
-		data.clear();
-		openCount=0;
-		data.suspend(false);
-		
 		for (int i = 0; i < ap.length; i++) {
 			ac[i]= ap[i].get();
 		}
@@ -765,36 +1173,45 @@ public class Folder implements Iterable<Action> {
 		
 		List<Action> aac= new ArrayList<Action>(ac.length);
 		List<ActionProxy> aap= new ArrayList<ActionProxy>(ac.length);
+		boolean reopen= false;
 		
-		data.suspend(true);
-
-		for (int i = 0; i < ac.length; i++) {
-			Action a= ac[i];
-			ActionProxy p= ap[i];
-			if (data.contains(p)) {
-				continue;
-			}
-			data.add(p);
-			if (!isMeta()) a.setParent(this);
-			if (a.isOpen() && isClosed()) {
-				setClosed(false);
-			}
-			aac.add(a);
-			aap.add(p);
-			if (a.isOpen()) {
-				incOpenCount();
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			data.suspend(true);
+			try {
+				for (int i = 0; i < ac.length; i++) {
+					Action a= ac[i];
+					ActionProxy p= ap[i];
+					if (data.contains(p)) {
+						continue;
+					}
+					data.add(p);
+					view=null;
+					if (!isMeta()) a.setParent(this);
+					reopen|= a.isOpen();
+					aac.add(a);
+					aap.add(p);
+					added(a);
+				}
+				if (aac.size()==0) {
+					return;
+				}
+				sorted=false;
+				sort();
+			} finally {
+				data.suspend(false);
 			}
+		} finally {
+			l.unlock();
 		}
-		if (aac.size()==0) {
-			return;
+		if (reopen && isClosed()) {
+			setClosed(false);
 		}
-		sort();
-		
-		data.suspend(false);
 		fireElementAdded(aac.toArray(new Action[aac.size()]), aap.toArray(new ActionProxy[aap.size()]));
 	}
 	
-	synchronized boolean remove(Action[] ac, ActionProxy[] ap) {
+	boolean remove(Action[] ac, ActionProxy[] ap) {
 		if (ac==null || ac.length==0 || ap==null || ap.length==0) {
 			return false;
 		}
@@ -802,27 +1219,83 @@ public class Folder implements Iterable<Action> {
 		List<Action> aac= new ArrayList<Action>(ac.length);
 		List<ActionProxy> aap= new ArrayList<ActionProxy>(ac.length);
 		
-		data.suspend(true);
-		for (int i = 0; i < ac.length; i++) {
-			Action a= ac[i];
-			ActionProxy p= ap[i];
-			if (data.remove(p)) {
-				aac.add(a);
-				aap.add(p);
-				if (a.isOpen()) {
-					decOpenCount();
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			data.suspend(true);
+			try {
+				for (int i = 0; i < ac.length; i++) {
+					Action a= ac[i];
+					ActionProxy p= ap[i];
+					if (data.remove(p)) {
+						view=null;
+						aac.add(a);
+						aap.add(p);
+						removed(a);
+					}
 				}
+			} finally {
+				data.suspend(false);
 			}
+		} finally {
+			l.unlock();
 		}
 		if (aac.size()==0) {
 			return false;
 		}
-		sort();
-		data.suspend(false);
+		// removal does not break order, no need to sort
 		fireElementRemoved(aac.toArray(new Action[aac.size()]), aap.toArray(new ActionProxy[aap.size()]));
 		return true;
 	}
 	
+	private void added(Action a) {
+		if (a.isOpen()) {
+			incOpenCount();
+		}
+		FolderStats st= stats;
+		if (st!=null) {
+			st.add(a);
+		}
+	}
+	
+	private void removed(Action a) {
+		if (a.isOpen()) {
+			decOpenCount();
+		}
+		FolderStats st= stats;
+		if (st!=null) {
+			st.remove(a);
+		}
+	}
+	
+	/**
+	 * Returns action counts of this folder. Counts are collected when first requested
+	 * and are then maintained by folder as actions are added, removed or modified.
+	 * @return action counts of this folder
+	 */
+	public FolderStats getStats() {
+		FolderStats st= stats;
+		if (st==null) {
+			// write lock, so no change is missed between counting and publishing
+			ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+			l.lock();
+			try {
+				if (stats==null) {
+					FolderStats n= new FolderStats(data.size());
+					Iterator<ActionProxy> i= proxyIterator(FolderPreset.ALL);
+					while (i.hasNext()) {
+						n.add(i.next().get());
+					}
+					stats=n;
+				}
+				st= stats;
+			} finally {
+				l.unlock();
+			}
+		}
+		return st;
+	}
+	
 	private void incOpenCount() {
 		if (openCount<size()) {
 			openCount++;
@@ -876,6 +1349,18 @@ public class Folder implements Iterable<Action> {
 		return data.getCreated();
 	}
 	
+	/**
+	 * Copies folder state, which is not kept in folder data, from provided folder. 
+	 * Used when making model snapshot, content is not copied.
+	 * @param f folder to copy state from
+	 */
+	void copyState(Folder f) {
+		closed=f.closed;
+		openCount=f.openCount;
+		comparator=f.comparator;
+		sorted=true;
+	}
+
 	void setDates(Date created, Date modified, Date resolved) {
 		data.suspend(true);
 		data.setCreated(created);
@@ -890,17 +1375,30 @@ public class Folder implements Iterable<Action> {
 	 * @return open action with same or higher index, then parameter, or null if not found
 	 */
 	public Action getOpenFrom(int i) {
-		for (;i<size();i++) {
-			Action a= get(i);
-			if (a.isOpen()) {
-				return a;
+		ReentrantReadWriteLock.ReadLock l= lock().readLock();
+		l.lock();
+		try {
+			for (;i<data.size();i++) {
+				Action a= data.get(i).get();
+				if (a.isOpen()) {
+					return a;
+				}
 			}
+			return null;
+		} finally {
+			l.unlock();
 		}
-		return null;
 	}
 	
 	public void reorder(Action[] order) {
-		data.reorder(order);
+		ReentrantReadWriteLock.WriteLock l= lock().writeLock();
+		l.lock();
+		try {
+			data.reorder(order);
+			view=null;
+		} finally {
+			l.unlock();
+		}
 		fireOrderChanged();
 	}
 }
@@ -0,0 +1,286 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Action counts of single folder or project, maintained incrementally by folder
+ * when actions are added, removed or modified, so they can be shown without
+ * iterating folder actions.
+ * <p>
+ * Counts of queued, reminded, prioritized and due actions include only open actions.
+ * For each action the contribution, which was counted, is remembered, so counts stay
+ * correct regardless of order in which folder is notified about changes.
+ *
+ * @author ikesan
+ *
+ */
+public final class FolderStats {
+
+	private static final int OPEN= 1;
+	private static final int QUEUED= 1<<1;
+	private static final int REMIND= 1<<2;
+	private static final int PRIORITY= 1<<3;
+	private static final int DUE= 1<<4;
+
+	private static final class Entry {
+		int flags;
+		long remind;
+		long due;
+	}
+
+	/**
+	 * Number of actions by time, with count of actions before last queried time. 
+	 * That count is kept up to date when counts change, and is moved to new query time 
+	 * by summing only counts between old and new time. Repeated queries with same 
+	 * or slowly advancing time therefore do not iterate over all times.
+	 */
+	private static final class TimeCounts {
+		private final TreeMap<Long, Integer> counts= new TreeMap<Long, Integer>();
+		private long cursor= Long.MIN_VALUE;
+		private int before;
+
+		void count(long time, int d) {
+			Integer c= counts.get(time);
+			int n= (c!=null ? c : 0)+d;
+			if (n>0) {
+				counts.put(time, n);
+			} else {
+				counts.remove(time);
+			}
+			if (time<cursor) {
+				before+=d;
+			}
+		}
+
+		int countBefore(long time) {
+			if (time>cursor) {
+				before+= sum(counts.subMap(cursor, time));
+			} else if (time<cursor) {
+				before-= sum(counts.subMap(time, cursor));
+			}
+			cursor=time;
+			return before;
+		}
+
+		void clear() {
+			counts.clear();
+			cursor=Long.MIN_VALUE;
+			before=0;
+		}
+
+		private static int sum(Map<Long, Integer> m) {
+			int s=0;
+			for (Integer i : m.values()) {
+				s+=i;
+			}
+			return s;
+		}
+	}
+
+	private IntHashMap<Entry> entries;
+	private int total;
+	private int open;
+	private int queued;
+	private int reminded;
+	private int prioritized;
+	private int due;
+	private final TimeCounts remindTimes= new TimeCounts();
+	private final TimeCounts dueTimes= new TimeCounts();
+
+	FolderStats(int expected) {
+		entries= new IntHashMap<Entry>(expected);
+	}
+
+	/**
+	 * Counts action, if action was already counted, its contribution is updated.
+	 * @param a the action
+	 */
+	synchronized void add(Action a) {
+		Entry e= entries.get(a.getId());
+		if (e==null) {
+			e= new Entry();
+			entries.put(a.getId(), e);
+			total++;
+		} else {
+			count(e, -1);
+		}
+		e.flags=0;
+		if (a.isOpen()) {
+			e.flags|=OPEN;
+			if (a.isQueued()) {
+				e.flags|=QUEUED;
+			}
+			if (a.getRemind()!=null) {
+				e.flags|=REMIND;
+				e.remind=a.getRemind().getTime();
+			}
+			if (a.getPriority()!=null && a.getPriority()!=Priority.None) {
+				e.flags|=PRIORITY;
+			}
+			if (a.getDue()!=null) {
+				e.flags|=DUE;
+				e.due=a.getDue().getTime();
+			}
+		}
+		count(e, 1);
+	}
+
+	/**
+	 * Updates contribution of modified action, if it was counted.
+	 * @param a the action
+	 */
+	synchronized void update(Action a) {
+		if (entries.containsKey(a.getId())) {
+			add(a);
+		}
+	}
+
+	synchronized void remove(Action a) {
+		Entry e= entries.remove(a.getId());
+		if (e!=null) {
+			count(e, -1);
+			total--;
+		}
+	}
+
+	synchronized void clear() {
+		entries.clear();
+		total=open=queued=reminded=prioritized=due=0;
+		remindTimes.clear();
+		dueTimes.clear();
+	}
+
+	private void count(Entry e, int d) {
+		if ((e.flags & OPEN)!=0) {
+			open+=d;
+		}
+		if ((e.flags & QUEUED)!=0) {
+			queued+=d;
+		}
+		if ((e.flags & PRIORITY)!=0) {
+			prioritized+=d;
+		}
+		if ((e.flags & REMIND)!=0) {
+			reminded+=d;
+			remindTimes.count(e.remind, d);
+		}
+		if ((e.flags & DUE)!=0) {
+			due+=d;
+			dueTimes.count(e.due, d);
+		}
+	}
+
+	/**
+	 * @return number of all actions in folder
+	 */
+	public synchronized int getTotalCount() {
+		return total;
+	}
+
+	/**
+	 * @return number of open actions
+	 */
+	public synchronized int getOpenCount() {
+		return open;
+	}
+
+	/**
+	 * @return number of open actions, which are queued
+	 */
+	public synchronized int getQueuedCount() {
+		return queued;
+	}
+
+	/**
+	 * @return number of open actions with reminder date
+	 */
+	public synchronized int getRemindCount() {
+		return reminded;
+	}
+
+	/**
+	 * @return number of open actions with priority other than <code>None</code>
+	 */
+	public synchronized int getPriorityCount() {
+		return prioritized;
+	}
+
+	/**
+	 * @return number of open actions with due date
+	 */
+	public synchronized int getDueCount() {
+		return due;
+	}
+
+	/**
+	 * Returns number of open actions with reminder before provided time.
+	 * @param time time in milliseconds
+	 * @return number of open actions reminded before time
+	 */
+	public synchronized int getRemindCountBefore(long time) {
+		return remindTimes.countBefore(time);
+	}
+
+	/**
+	 * Returns number of open actions with reminder in provided interval.
+	 * @param from start of interval, inclusive
+	 * @param to end of interval, exclusive
+	 * @return number of open actions reminded within interval
+	 */
+	public synchronized int getRemindCountBetween(long from, long to) {
+		if (from>=to) {
+			return 0;
+		}
+		// cursor is left at start of interval, which is usually queried next
+		int before= remindTimes.countBefore(to);
+		return before-remindTimes.countBefore(from);
+	}
+
+	/**
+	 * Returns number of open actions, which are overdue at provided time.
+	 * @param time time in milliseconds, usually current time
+	 * @return number of open actions with due date before time
+	 */
+	public synchronized int getOverdueCount(long time) {
+		return dueTimes.countBefore(time);
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb= new StringBuilder();
+		sb.append("FolderStats{total= "); //$NON-NLS-1$
+		sb.append(total);
+		sb.append(", open= "); //$NON-NLS-1$
+		sb.append(open);
+		sb.append(", queued= "); //$NON-NLS-1$
+		sb.append(queued);
+		sb.append(", remind= "); //$NON-NLS-1$
+		sb.append(reminded);
+		sb.append(", priority= "); //$NON-NLS-1$
+		sb.append(prioritized);
+		sb.append(", due= "); //$NON-NLS-1$
+		sb.append(due);
+		sb.append("}"); //$NON-NLS-1$
+		return sb.toString();
+	}
+}
@@ -75,6 +75,13 @@ public interface GTDData {
 		public void setDescription(String desc);
 
 		public boolean contains(ActionProxy ap);
+		
+		/**
+		 * Returns position of proxy in this folder or -1 if proxy is not contained.
+		 * @param ap the proxy
+		 * @return position of proxy or -1
+		 */
+		public int indexOf(ActionProxy ap);
 
 		public int size();
 
@@ -87,6 +94,14 @@ public interface GTDData {
 		public void add(int i, ActionProxy ap);
 
 		public void add(ActionProxy ap);
+		
+		/**
+		 * Inserts proxy at position determined by comparator with binary search.
+		 * Folder content must already be sorted with the same comparator.
+		 * @param ap the proxy to be inserted
+		 * @param comparator the comparator, which defines folder order
+		 */
+		public void addSorted(ActionProxy ap, Comparator<Action> comparator);
 
 		public boolean remove(int i);
 
@@ -110,6 +125,21 @@ public interface GTDData {
 		public void reorder(Action[] order);
 
 	}
+	
+	/**
+	 * Folder data, which reads actions from repository only when they are needed.
+	 * Until content is loaded, folder iterates over data itself instead of over
+	 * copy of whole content.
+	 */
+	public static interface LazyFolderDataProxy extends FolderDataProxy {
+		
+		/**
+		 * Returns <code>true</code> if whole folder content is kept in memory.
+		 * @return <code>true</code> if content is loaded
+		 */
+		public boolean isLoaded();
+		
+	}
 
 	/**
 	 * Registers new Folder with data repository.
@@ -169,7 +199,8 @@ public interface GTDData {
 
 	/**
 	 * Suspends save to database files. Used before larger amount of data is to be 
-	 * imported in order to speed up the process.
+	 * imported in order to speed up the process. Calls can be nested, save is resumed 
+	 * when each <code>suspend(true)</code> is matched by <code>suspend(false)</code>.
 	 * @param b flag to suspend
 	 */
 	public void suspend(boolean b);
@@ -0,0 +1,862 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.log4j.Logger;
+import org.gtdfree.model.Action.ActionType;
+import org.gtdfree.model.Folder.FolderType;
+import org.gtdfree.model.GTDData.ActionProxy;
+
+/**
+ * Reads and writes model in compact binary format. Binary file holds same data as
+ * XML data file version 2.2 and can be converted from and to it, it is used as
+ * cache of XML data file, which loads with single sequential read.
+ * <p>
+ * File starts with fixed size header: magic number, format version, flags, length and
+ * modification time of XML data file it was made from, size of body, size of stored body
+ * and CRC32 of stored body. Body is optionally compressed with Deflate. In body numbers
+ * are written as variable length integers, dates as epoch milliseconds and strings
+ * are interned: each distinct string is written once and later referenced by index.
+ *
+ * @author ikesan
+ *
+ */
+public final class GTDDataBinaryTools {
+
+	/**
+	 * "GTDB"
+	 */
+	private static final int MAGIC= 0x47544442;
+	public static final int VERSION= 1;
+	private static final int HEADER_SIZE= 4+1+1+8+8+4+4+4;
+	private static final int FLAG_DEFLATE= 1;
+
+	private static final int STRING_NULL= 0;
+	private static final int STRING_NEW= 1;
+
+	private static final int F_CLOSED= 1;
+	private static final int F_CREATED= 1<<1;
+	private static final int F_MODIFIED= 1<<2;
+	private static final int F_RESOLVED= 1<<3;
+	private static final int F_START= 1<<4;
+	private static final int F_REMIND= 1<<5;
+	private static final int F_DUE= 1<<6;
+	private static final int F_QUEUED= 1<<7;
+	private static final int F_PROJECT= 1<<8;
+
+	/**
+	 * Header of binary data file.
+	 */
+	public static class BinaryHeader {
+		private int version;
+		private boolean compressed;
+		private long sourceLength;
+		private long sourceModified;
+		private int size;
+		private int storedSize;
+		private int crc;
+
+		/**
+		 * @return format version
+		 */
+		public int getVersion() {
+			return version;
+		}
+
+		/**
+		 * @return <code>true</code> if body is compressed
+		 */
+		public boolean isCompressed() {
+			return compressed;
+		}
+
+		/**
+		 * @return length of XML data file, from which binary file was made, or 0
+		 */
+		public long getSourceLength() {
+			return sourceLength;
+		}
+
+		/**
+		 * @return modification time of XML data file, from which binary file was made, or 0
+		 */
+		public long getSourceModified() {
+			return sourceModified;
+		}
+
+		/**
+		 * Checks if binary file holds same data as provided XML data file,
+		 * that is if it was made from file with same length and modification time.
+		 * @param f XML data file
+		 * @return <code>true</code> if binary file can be used instead of XML file
+		 */
+		public boolean isSourceOf(File f) {
+			return f.exists() && f.length()==sourceLength && f.lastModified()==sourceModified;
+		}
+
+		@Override
+		public String toString() {
+			return "BinaryHeader{version= "+version+", compressed= "+compressed+", size= "+size+", stored= "+storedSize+"}"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		}
+	}
+
+	/**
+	 * Growable byte buffer with encoding of body values.
+	 */
+	private static final class Output {
+		private byte[] buf= new byte[65536];
+		private int size;
+		private HashMap<String, Integer> strings= new HashMap<String, Integer>();
+
+		private void ensure(int n) {
+			if (size+n>buf.length) {
+				buf= Arrays.copyOf(buf, Math.max(buf.length*2, size+n));
+			}
+		}
+
+		void writeInt(int i) {
+			writeLong(i);
+		}
+
+		/**
+		 * Writes zig-zag encoded variable length integer, 7 bits per byte.
+		 */
+		void writeLong(long l) {
+			ensure(10);
+			long v= (l << 1) ^ (l >> 63);
+			while ((v & ~0x7FL)!=0) {
+				buf[size++]= (byte)((v & 0x7F) | 0x80);
+				v>>>=7;
+			}
+			buf[size++]=(byte)v;
+		}
+
+		void writeString(String s) {
+			if (s==null) {
+				writeInt(STRING_NULL);
+				return;
+			}
+			Integer i= strings.get(s);
+			if (i!=null) {
+				writeInt(i+2);
+				return;
+			}
+			strings.put(s, strings.size());
+			writeInt(STRING_NEW);
+			byte[] b= s.getBytes(StandardCharsets.UTF_8);
+			writeInt(b.length);
+			ensure(b.length);
+			System.arraycopy(b, 0, buf, size, b.length);
+			size+=b.length;
+		}
+
+		void writeDate(Date d) {
+			if (d!=null) {
+				writeLong(d.getTime());
+			}
+		}
+	}
+
+	/**
+	 * String from body, which is kept UTF-8 encoded outside of heap and decoded when it is needed.
+	 */
+	private static final class EncodedText implements Action.DeferredText {
+		private final ByteBuffer text;
+
+		EncodedText(ByteBuffer text) {
+			this.text=text;
+		}
+
+		@Override
+		public String load() {
+			byte[] b= new byte[text.limit()];
+			// absolute read, buffer position is not used
+			text.get(0, b);
+			return new String(b, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Keeps encoded strings in direct buffers, which are allocated in chunks. Strings are 
+	 * copied out of body, so they do not use heap and do not keep body or mapped file alive.
+	 */
+	private static final class TextStore {
+		private static final int CHUNK_SIZE= 64*1024;
+		private ByteBuffer chunk;
+
+		/**
+		 * Copies bytes from current position of source buffer and advances its position.
+		 * @param src the source buffer
+		 * @param n number of bytes
+		 * @return buffer with copied bytes
+		 */
+		ByteBuffer copy(ByteBuffer src, int n) {
+			ByteBuffer b;
+			if (n>CHUNK_SIZE/4) {
+				b= ByteBuffer.allocateDirect(n);
+			} else {
+				if (chunk==null || chunk.remaining()<n) {
+					chunk= ByteBuffer.allocateDirect(CHUNK_SIZE);
+				}
+				b= chunk.slice(chunk.position(), n);
+				chunk.position(chunk.position()+n);
+			}
+			b.put(0, src, src.position(), n);
+			src.position(src.position()+n);
+			return b;
+		}
+	}
+
+	/**
+	 * Decodes body values from buffer.
+	 */
+	private static final class Input {
+		private final ByteBuffer buf;
+		/**
+		 * Read strings, either String or EncodedText, which is not decoded yet.
+		 */
+		private final List<Object> strings= new ArrayList<Object>();
+		private byte[] bytes= new byte[256];
+		private final boolean defer;
+		private TextStore texts;
+
+		/**
+		 * @param buf body
+		 * @param defer if <code>true</code> descriptions of closed actions are not decoded
+		 */
+		Input(ByteBuffer buf, boolean defer) {
+			this.buf=buf;
+			this.defer=defer;
+		}
+
+		int readInt() throws IOException {
+			long l= readLong();
+			if (l<Integer.MIN_VALUE || l>Integer.MAX_VALUE) {
+				throw new IOException("Corrupted binary data, integer out of range."); //$NON-NLS-1$
+			}
+			return (int)l;
+		}
+
+		long readLong() throws IOException {
+			long v=0;
+			int shift=0;
+			while (true) {
+				int b= buf.get();
+				v|= (long)(b & 0x7F) << shift;
+				if ((b & 0x80)==0) {
+					break;
+				}
+				shift+=7;
+				if (shift>63) {
+					throw new IOException("Corrupted binary data, variable length integer too long."); //$NON-NLS-1$
+				}
+			}
+			return (v >>> 1) ^ -(v & 1);
+		}
+
+		String readString() throws IOException {
+			int i= readInt();
+			if (i==STRING_NULL) {
+				return null;
+			}
+			if (i==STRING_NEW) {
+				int n= readInt();
+				if (n<0 || n>buf.remaining()) {
+					throw new IOException("Corrupted binary data, string length "+n+"."); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				if (bytes.length<n) {
+					bytes= new byte[Math.max(n, bytes.length*2)];
+				}
+				buf.get(bytes, 0, n);
+				String s= new String(bytes, 0, n, StandardCharsets.UTF_8);
+				strings.add(s);
+				return s;
+			}
+			Object o= readReference(i);
+			return o instanceof EncodedText ? ((EncodedText)o).load() : (String)o;
+		}
+
+		/**
+		 * Reads string, but does not decode it if it is new, then only its encoded bytes are kept 
+		 * outside of heap.
+		 * @return String or EncodedText, <code>null</code> if string is null
+		 */
+		Object readDeferredString() throws IOException {
+			if (!defer) {
+				return readString();
+			}
+			int i= readInt();
+			if (i==STRING_NULL) {
+				return null;
+			}
+			if (i==STRING_NEW) {
+				int n= readInt();
+				if (n<0 || n>buf.remaining()) {
+					throw new IOException("Corrupted binary data, string length "+n+"."); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				if (texts==null) {
+					texts= new TextStore();
+				}
+				EncodedText t= new EncodedText(texts.copy(buf, n));
+				strings.add(t);
+				return t;
+			}
+			return readReference(i);
+		}
+
+		private Object readReference(int i) throws IOException {
+			if (i-2<0 || i-2>=strings.size()) {
+				throw new IOException("Corrupted binary data, string reference "+i+"."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			return strings.get(i-2);
+		}
+
+		Date readDate(int flags, int flag) throws IOException {
+			return (flags & flag)!=0 ? new Date(readLong()) : null;
+		}
+	}
+
+	private GTDDataBinaryTools() {
+	}
+
+	/**
+	 * Writes model in binary format to file.
+	 * @param model the model
+	 * @param f binary file
+	 * @param compress if <code>true</code> body is compressed
+	 * @param source XML data file, from which model was loaded or into which it was stored,
+	 * it is used later to check if binary file is up to date, can be <code>null</code>
+	 * @throws IOException if writing fails
+	 */
+	public static void store(GTDModel model, File f, boolean compress, File source) throws IOException {
+		FileOutputStream out= new FileOutputStream(f);
+		try {
+			store(model, out, compress, source!=null ? source.length() : 0, source!=null ? source.lastModified() : 0);
+			out.getChannel().force(true);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes model in binary format to stream. Stream is not closed.
+	 * @param model the model
+	 * @param out output stream
+	 * @param compress if <code>true</code> body is compressed
+	 * @param sourceLength length of XML data file, which binary file replaces
+	 * @param sourceModified modification time of XML data file, which binary file replaces
+	 * @throws IOException if writing fails
+	 */
+	public static void store(GTDModel model, OutputStream out, boolean compress, long sourceLength, long sourceModified) throws IOException {
+
+		Output o= new Output();
+		writeBody(model, o);
+
+		byte[] body= o.buf;
+		int stored= o.size;
+
+		if (compress) {
+			Deflater d= new Deflater(Deflater.BEST_SPEED);
+			try {
+				d.setInput(o.buf, 0, o.size);
+				d.finish();
+				body= new byte[Math.max(64, o.size/2)];
+				stored=0;
+				while (!d.finished()) {
+					if (stored==body.length) {
+						body= Arrays.copyOf(body, body.length*2);
+					}
+					stored+= d.deflate(body, stored, body.length-stored);
+				}
+			} finally {
+				d.end();
+			}
+		}
+
+		CRC32 crc= new CRC32();
+		crc.update(body, 0, stored);
+
+		ByteBuffer h= ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+		h.putInt(MAGIC);
+		h.put((byte)VERSION);
+		h.put((byte)(compress ? FLAG_DEFLATE : 0));
+		h.putLong(sourceLength);
+		h.putLong(sourceModified);
+		h.putInt(o.size);
+		h.putInt(stored);
+		h.putInt((int)crc.getValue());
+
+		out.write(h.array());
+		out.write(body, 0, stored);
+		out.flush();
+	}
+
+	private static void writeBody(GTDModel model, Output o) {
+
+		o.writeInt(model.getLastActionID());
+
+		Folder[] fn= model.toFoldersArray();
+		int count=0;
+		for (Folder f : fn) {
+			if (!f.isMeta()) {
+				count++;
+			}
+		}
+
+		o.writeInt(count);
+		for (Folder f : fn) {
+			if (f.isMeta()) {
+				continue;
+			}
+			o.writeInt(f.getId());
+			o.writeString(f.getName());
+			o.writeString(f.getType().toString());
+			writeFolderDates(f, o);
+			o.writeString(f.isInBucket() ? null : f.getDescription());
+
+			ActionProxy[] v= f.view();
+			o.writeInt(v.length);
+			for (ActionProxy ap : v) {
+				writeAction(ap.get(), o);
+			}
+		}
+
+		Project[] pn= model.toProjectsArray();
+		o.writeInt(pn.length);
+		for (Project p : pn) {
+			o.writeInt(p.getId());
+			o.writeString(p.getName());
+			writeFolderDates(p, o);
+			o.writeString(p.getGoal());
+			o.writeString(p.getDescription());
+
+			writeIds(p, o);
+		}
+
+		writeIds(model.getQueue(), o);
+	}
+
+	private static void writeIds(Folder f, Output o) {
+		ActionProxy[] v= f.view();
+		o.writeInt(v.length);
+		for (ActionProxy ap : v) {
+			o.writeInt(ap.getId());
+		}
+	}
+
+	private static void writeFolderDates(Folder f, Output o) {
+		int flags=0;
+		if (f.isClosed()) flags|=F_CLOSED;
+		if (f.getCreated()!=null) flags|=F_CREATED;
+		if (f.getModified()!=null) flags|=F_MODIFIED;
+		if (f.getResolved()!=null) flags|=F_RESOLVED;
+		o.writeInt(flags);
+		o.writeDate(f.getCreated());
+		o.writeDate(f.getModified());
+		o.writeDate(f.getResolved());
+	}
+
+	private static void writeAction(Action a, Output o) {
+		int flags=0;
+		if (a.getCreated()!=null) flags|=F_CREATED;
+		if (a.getModified()!=null) flags|=F_MODIFIED;
+		if (a.getResolved()!=null) flags|=F_RESOLVED;
+		if (a.getStart()!=null) flags|=F_START;
+		if (a.getRemind()!=null) flags|=F_REMIND;
+		if (a.getDue()!=null) flags|=F_DUE;
+		if (a.isQueued()) flags|=F_QUEUED;
+		if (a.getProject()!=null) flags|=F_PROJECT;
+
+		o.writeInt(a.getId());
+		o.writeInt(flags);
+		o.writeDate(a.getCreated());
+		o.writeDate(a.getModified());
+		o.writeDate(a.getResolved());
+		o.writeDate(a.getStart());
+		o.writeDate(a.getRemind());
+		o.writeDate(a.getDue());
+		if (a.getProject()!=null) {
+			o.writeInt(a.getProject());
+		}
+		o.writeString(a.getResolution().toString());
+		o.writeString(a.getType()!=null ? a.getType().toString() : null);
+		o.writeString(a.getPriority()!=null ? a.getPriority().toString() : null);
+		o.writeString(a.getUrl()!=null ? a.getUrl().toString() : null);
+		o.writeString(a.loadDescription());
+	}
+
+	/**
+	 * Reads header of binary data file.
+	 * @param f the file
+	 * @return header or <code>null</code> if file does not exist or is not binary data file
+	 * @throws IOException if reading fails
+	 */
+	public static BinaryHeader readHeader(File f) throws IOException {
+		if (!f.exists() || f.length()<HEADER_SIZE) {
+			return null;
+		}
+		RandomAccessFile raf= new RandomAccessFile(f, "r"); //$NON-NLS-1$
+		try {
+			ByteBuffer b= ByteBuffer.allocate(HEADER_SIZE);
+			raf.getChannel().read(b, 0);
+			b.flip();
+			return readHeader(b);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static BinaryHeader readHeader(ByteBuffer b) {
+		if (b.remaining()<HEADER_SIZE || b.getInt()!=MAGIC) {
+			return null;
+		}
+		BinaryHeader h= new BinaryHeader();
+		h.version= b.get() & 0xFF;
+		h.compressed= (b.get() & FLAG_DEFLATE)!=0;
+		h.sourceLength= b.getLong();
+		h.sourceModified= b.getLong();
+		h.size= b.getInt();
+		h.storedSize= b.getInt();
+		h.crc= b.getInt();
+		return h;
+	}
+
+	/**
+	 * Loads binary data file into model. File is memory mapped and read in single pass.
+	 * @param model the model, should be empty
+	 * @param f binary data file
+	 * @return header of loaded file
+	 * @throws IOException if file can not be read or is not valid binary data file
+	 */
+	public static BinaryHeader load(GTDModel model, File f) throws IOException {
+		return load(model, f, false);
+	}
+
+	/**
+	 * Loads binary data file into model. File is memory mapped.
+	 * <p>
+	 * If descriptions are deferred, descriptions of resolved and deleted actions 
+	 * are decoded only when they are needed. Their bytes are copied out of mapping, 
+	 * so model does not keep mapping alive and file can be replaced while model is used, 
+	 * also on platforms, which do not allow replacing mapped file.
+	 * @param model the model, should be empty
+	 * @param f binary data file
+	 * @param deferDescriptions if <code>true</code> descriptions of resolved and deleted actions are loaded when needed
+	 * @return header of loaded file
+	 * @throws IOException if file can not be read or is not valid binary data file
+	 */
+	public static BinaryHeader load(GTDModel model, File f, boolean deferDescriptions) throws IOException {
+		RandomAccessFile raf= new RandomAccessFile(f, "r"); //$NON-NLS-1$
+		try {
+			FileChannel ch= raf.getChannel();
+			return load(model, ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()), deferDescriptions);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Loads binary data into model.
+	 * @param model the model, should be empty
+	 * @param b buffer with header and body of binary data
+	 * @return header of loaded data
+	 * @throws IOException if data is not valid binary data
+	 */
+	public static BinaryHeader load(GTDModel model, ByteBuffer b) throws IOException {
+		return load(model, b, false);
+	}
+
+	/**
+	 * Loads binary data into model.
+	 * @param model the model, should be empty
+	 * @param b buffer with header and body of binary data
+	 * @param deferDescriptions if <code>true</code> descriptions of resolved and deleted actions 
+	 * are decoded when needed
+	 * @return header of loaded data
+	 * @throws IOException if data is not valid binary data
+	 */
+	public static BinaryHeader load(GTDModel model, ByteBuffer b, boolean deferDescriptions) throws IOException {
+		b.order(ByteOrder.BIG_ENDIAN);
+		BinaryHeader h= readHeader(b);
+		if (h==null) {
+			throw new IOException("Not GTD-Free binary data."); //$NON-NLS-1$
+		}
+		if (h.version>VERSION) {
+			throw new IOException("Binary gtd-free data with version number "+h.version+" can not be imported. Data version is newer then supported versions."); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		if (h.storedSize<0 || h.storedSize>b.remaining() || h.size<0) {
+			throw new IOException("Truncated binary data."); //$NON-NLS-1$
+		}
+
+		ByteBuffer body= b.slice();
+		body.limit(h.storedSize);
+
+		CRC32 crc= new CRC32();
+		crc.update(body.duplicate());
+		if ((int)crc.getValue()!=h.crc) {
+			throw new IOException("Corrupted binary data, checksum does not match."); //$NON-NLS-1$
+		}
+
+		if (h.compressed) {
+			byte[] bb= new byte[h.size];
+			Inflater inf= new Inflater();
+			try {
+				inf.setInput(body);
+				int n=0;
+				while (n<bb.length && !inf.finished()) {
+					int i= inf.inflate(bb, n, bb.length-n);
+					if (i==0 && (inf.needsInput() || inf.needsDictionary())) {
+						break;
+					}
+					n+=i;
+				}
+				if (n!=bb.length) {
+					throw new IOException("Corrupted binary data, body size does not match."); //$NON-NLS-1$
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupted binary data.", e); //$NON-NLS-1$
+			} finally {
+				inf.end();
+			}
+			body= ByteBuffer.wrap(bb);
+		}
+
+		model.setSuspendedForMultipleChanges(true);
+		model.getDataRepository().suspend(true);
+		try {
+			readBody(model, new Input(body, deferDescriptions));
+		} catch (RuntimeException e) {
+			// buffer underflow, illegal enum name and similar
+			throw new IOException("Corrupted binary data.", e); //$NON-NLS-1$
+		} finally {
+			model.setSuspendedForMultipleChanges(false);
+			model.getDataRepository().suspend(false);
+		}
+		return h;
+	}
+
+	private static void readBody(GTDModel model, Input in) throws IOException {
+
+		GTDData data= model.getDataRepository();
+		IntHashMap<Action> withProject= new IntHashMap<Action>();
+		List<Action> withProjectOrder= new ArrayList<Action>();
+		IntHashMap<Action> queued= new IntHashMap<Action>();
+		List<Action> queuedOrder= new ArrayList<Action>();
+
+		int lastID= in.readInt();
+
+		int folders= in.readInt();
+		for (int i = 0; i < folders; i++) {
+			int id= in.readInt();
+			Folder f= model.createFolder(id, in.readString(), FolderType.valueOf(in.readString()));
+			readFolderDates(f, in);
+			String d= in.readString();
+			if (!f.isInBucket()) {
+				f.setDescription(d);
+			}
+
+			int n= in.readInt();
+			Action[] ac= new Action[n];
+			ActionProxy[] ap= new ActionProxy[n];
+			for (int j = 0; j < n; j++) {
+				Action a= readAction(in);
+				ac[j]=a;
+				ap[j]=data.getProxy(a);
+				if (a.getProject()!=null) {
+					withProject.put(a.getId(), a);
+					withProjectOrder.add(a);
+				}
+				if (a.isQueued()) {
+					queued.put(a.getId(), a);
+					queuedOrder.add(a);
+				}
+				if (a.getId()>lastID) {
+					lastID=a.getId();
+				}
+			}
+			f.add(ac, ap);
+		}
+
+		if (lastID>model.getLastActionID()) {
+			model.setLastActionID(lastID);
+		}
+
+		int projects= in.readInt();
+		for (int i = 0; i < projects; i++) {
+			int id= in.readInt();
+			Project p= (Project)model.createFolder(id, in.readString(), FolderType.PROJECT);
+			readFolderDates(p, in);
+			p.setGoal(in.readString());
+			String d= in.readString();
+			if (d!=null) {
+				p.setDescription(d);
+			}
+			addAll(p, withProject, in, data);
+		}
+
+		for (Action a : withProjectOrder) {
+			if (withProject.containsKey(a.getId()) && a.getProject()!=null) {
+				Project p= model.getProject(a.getProject());
+				if (p!=null) {
+					p.add(a);
+				} else {
+					a.setProject(null);
+				}
+			}
+		}
+
+		addAll(model.getQueue(), queued, in, data);
+
+		for (Action a : queuedOrder) {
+			if (queued.containsKey(a.getId()) && a.isQueued()) {
+				model.getQueue().add(a);
+			}
+		}
+	}
+
+	/**
+	 * Reads list of action IDs and adds actions found in map to folder, found actions are removed from map.
+	 */
+	private static void addAll(Folder f, IntHashMap<Action> actions, Input in, GTDData data) throws IOException {
+		int n= in.readInt();
+		List<Action> ac= new ArrayList<Action>(n);
+		List<ActionProxy> ap= new ArrayList<ActionProxy>(n);
+		for (int j = 0; j < n; j++) {
+			Action a= actions.remove(in.readInt());
+			if (a!=null) {
+				ac.add(a);
+				ap.add(data.getProxy(a));
+			}
+		}
+		f.add(ac.toArray(new Action[ac.size()]), ap.toArray(new ActionProxy[ap.size()]));
+	}
+
+	private static void readFolderDates(Folder f, Input in) throws IOException {
+		int flags= in.readInt();
+		f.setClosed((flags & F_CLOSED)!=0);
+		Date cr= in.readDate(flags, F_CREATED);
+		Date mo= in.readDate(flags, F_MODIFIED);
+		Date re= in.readDate(flags, F_RESOLVED);
+		f.setDates(cr, mo, re);
+	}
+
+	private static Action readAction(Input in) throws IOException {
+		int id= in.readInt();
+		int flags= in.readInt();
+		Date cr= in.readDate(flags, F_CREATED);
+		Date mo= in.readDate(flags, F_MODIFIED);
+		Date re= in.readDate(flags, F_RESOLVED);
+		Date start= in.readDate(flags, F_START);
+		Date remind= in.readDate(flags, F_REMIND);
+		Date due= in.readDate(flags, F_DUE);
+		Integer project= (flags & F_PROJECT)!=0 ? in.readInt() : null;
+		String resolution= in.readString();
+		String type= in.readString();
+		String priority= in.readString();
+		String url= in.readString();
+		// descriptions of closed actions are rarely needed
+		Object description= "RESOLVED".equals(resolution) || "DELETED".equals(resolution) ? in.readDeferredString() : in.readString(); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Action a;
+		if (description instanceof EncodedText) {
+			a= new Action(id, cr, re, null, mo);
+			a.setDeferredDescription((EncodedText)description);
+		} else {
+			a= new Action(id, cr, re, (String)description, mo);
+		}
+		if (type!=null) a.setType(ActionType.valueOf(type));
+		if (url!=null) {
+			try {
+				a.setUrl(GTDDataXMLTools.createURL(url));
+			} catch (Exception e) {
+				Logger.getLogger(GTDDataBinaryTools.class).debug("Internal error.", e); //$NON-NLS-1$
+			}
+		}
+		if (start!=null) a.setStart(start);
+		if (remind!=null) a.setRemind(remind);
+		if (due!=null) a.setDue(due);
+		if ((flags & F_QUEUED)!=0) a.setQueued(true);
+		if (project!=null) a.setProject(project);
+		if (priority!=null) a.setPriority(Priority.valueOf(priority));
+		a.setResolution(Action.Resolution.toResolution(resolution));
+
+		// setters have touched modified date, stored one is kept
+		if (mo!=null) {
+			a.restoreDates(a.getResolved(), mo);
+		}
+		return a;
+	}
+
+	/**
+	 * Converts XML data file to binary data file.
+	 * @param xml XML data file
+	 * @param bin binary file to be written
+	 * @param compress if <code>true</code> body is compressed
+	 * @throws IOException if reading or writing fails
+	 */
+	public static void convertToBinary(File xml, File bin, boolean compress) throws IOException {
+		GTDModel m= new GTDModel(null);
+		try {
+			GTDDataXMLTools.load(m, xml);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
+		store(m, bin, compress, xml);
+	}
+
+	/**
+	 * Converts binary data file to XML data file version 2.2.
+	 * @param bin binary data file
+	 * @param xml XML data file to be written
+	 * @throws IOException if reading or writing fails
+	 */
+	public static void convertToXML(File bin, File xml) throws IOException {
+		GTDModel m= new GTDModel(null);
+		load(m, bin);
+		try {
+			GTDDataXMLTools.store(m, xml);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
+	}
+}
@@ -21,12 +21,9 @@ package org.gtdfree.model;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.List;
 import java.util.logging.Logger;
 
 import org.gtdfree.GlobalProperties;
@@ -92,7 +89,7 @@ public class GTDDataDefault implements GTDData {
 			}
 		}
 
-		private List<ActionProxy> actions= new ArrayList<ActionProxy>();
+		private ActionProxyList actions= new ActionProxyList();
 		private String description;
 
 		private Date created;
@@ -174,6 +171,10 @@ public class GTDDataDefault implements GTDData {
 			return actions.contains(ap);
 		}
 		@Override
+		public int indexOf(ActionProxy ap) {
+			return actions.indexOf(ap);
+		}
+		@Override
 		public ActionProxy get(int i) {
 			return actions.get(i);
 		}
@@ -237,6 +238,11 @@ public class GTDDataDefault implements GTDData {
 			modify();
 		}
 		@Override
+		public void addSorted(ActionProxy ap, Comparator<Action> comparator) {
+			actions.addSorted(ap, new ProxyComparator(comparator));
+			modify();
+		}
+		@Override
 		public void clear() {
 			actions.clear();
 			modify();
@@ -258,12 +264,12 @@ public class GTDDataDefault implements GTDData {
 		}
 		@Override
 		public void sort(Comparator<Action> comparator) {
-			Collections.sort(actions,new ProxyComparator(comparator));
+			actions.sort(new ProxyComparator(comparator));
 			modify();
 		}
 		@Override
 		public ActionProxy[] toArray() {
-			return actions.toArray(new ActionProxy[actions.size()]);
+			return actions.toArray();
 		}
 
 		@Override
@@ -278,16 +284,7 @@ public class GTDDataDefault implements GTDData {
 
 		@Override
 		public void reorder(Action[] order) {
-			for (int i = 0; i < order.length; i++) {
-				actions.remove(order[i].getProxy());
-			}
-			for (int i = 0; i < order.length; i++) {
-				if (actions.size()>i) {
-					actions.set(i,order[i].getProxy());
-				} else {
-					actions.add(order[i].getProxy());
-				}
-			}
+			actions.reorder(order);
 		}
 	}
 
@@ -30,6 +30,7 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -254,6 +255,11 @@ public final class  GTDDataODB implements GTDData {
 		private transient Folder folder;
 		private transient Set<Object> references= new HashSet<Object>();
 		private transient OID dataOID;
+		/**
+		 * Identity index of proxies in persisted actions list, valid only for data instance in membersOf.
+		 */
+		private transient Set<ActionProxy> members;
+		private transient Data membersOf;
 		
 		private long _dataOID;
 		private Integer folderID;
@@ -399,15 +405,34 @@ public final class  GTDDataODB implements GTDData {
 			}
 		}
 		
+		// built lazily by concurrent readers of folder
+		private synchronized Set<ActionProxy> members(Data d) {
+			if (membersOf!=d || members==null) {
+				members= Collections.newSetFromMap(new IdentityHashMap<ActionProxy, Boolean>(d.actions.size()*2));
+				members.addAll(d.actions);
+				membersOf=d;
+			}
+			return members;
+		}
+		
 		@Override
 		public boolean contains(ActionProxy ap) {
 			Data d= getData();
 			if (d!=null) {
-				return d.actions.contains(ap);
+				return members(d).contains(ap);
 			}
 			return false;
 		}
 		
+		@Override
+		public int indexOf(ActionProxy ap) {
+			Data d= getData();
+			if (d!=null && members(d).contains(ap)) {
+				return d.actions.indexOf(ap);
+			}
+			return -1;
+		}
+		
 		@Override
 		public ActionProxy get(int i) {
 			Data d= getData();
@@ -507,6 +532,7 @@ public final class  GTDDataODB implements GTDData {
 			Data d=getData();
 			ActionProxyODB apo= (ActionProxyODB)ap;
 			d.actions.add(apo);
+			members(d).add(apo);
 			modified(d);
 			if (!folder.isMeta()) {
 				apo.connect(odb, folder);
@@ -525,6 +551,7 @@ public final class  GTDDataODB implements GTDData {
 			Data d=getData();
 			ActionProxyODB apo= (ActionProxyODB)ap;
 			d.actions.add(i,apo);
+			members(d).add(apo);
 			modified(d);
 			if (!folder.isMeta()) {
 				apo.connect(odb, folder);
@@ -538,9 +565,28 @@ public final class  GTDDataODB implements GTDData {
 			}
 		}
 		
+		@Override
+		public void addSorted(ActionProxy ap, Comparator<Action> comparator) {
+			Data d=getData();
+			ProxyComparator c= new ProxyComparator(comparator);
+			ActionProxyODB apo= (ActionProxyODB)ap;
+			int lo=0;
+			int hi=d.actions.size();
+			while (lo<hi) {
+				int mid= (lo+hi)>>>1;
+				if (c.compare(d.actions.get(mid), apo)<=0) {
+					lo=mid+1;
+				} else {
+					hi=mid;
+				}
+			}
+			add(lo,ap);
+		}
+		
 		public void clear() {
 			Data d=getData();
 			d.actions.clear();
+			members(d).clear();
 			modified(d);
 			if (suspend) {
 				references.add(d);
@@ -552,7 +598,7 @@ public final class  GTDDataODB implements GTDData {
 		@Override
 		public boolean remove(ActionProxy i) {
 			Data d=getData();
-			boolean b= d.actions.remove(i);
+			boolean b= members(d).remove(i) && d.actions.remove(i);
 			modified(d);
 			if (b) {
 				size=d.actions.size();
@@ -568,7 +614,11 @@ public final class  GTDDataODB implements GTDData {
 		@Override
 		public boolean remove(int i) {
 			Data d=getData();
-			boolean b= d.actions.remove(i)!=null;
+			ActionProxyODB ap= d.actions.remove(i);
+			boolean b= ap!=null;
+			if (b) {
+				members(d).remove(ap);
+			}
 			modified(d);
 			if (b) {
 				size=d.actions.size();
@@ -585,6 +635,7 @@ public final class  GTDDataODB implements GTDData {
 		public void set(int i, ActionProxy ap) {
 			Data d=getData();
 			d.actions.set(i,(ActionProxyODB)ap);
+			membersOf=null;
 			size=d.actions.size();
 			if (suspend) {
 				references.add(d);
@@ -709,6 +760,7 @@ public final class  GTDDataODB implements GTDData {
 					d.actions.add((ActionProxyODB)order[i].getProxy());
 				}
 			}
+			membersOf=null;
 			if (s) {
 				suspend(true);
 			}
@@ -0,0 +1,348 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.logging.Logger;
+
+import org.gtdfree.GlobalProperties;
+import org.gtdfree.model.Folder.FolderPreset;
+import org.gtdfree.model.Folder.FolderType;
+
+/**
+ * Read-only data repository of model snapshot, created with <code>GTDModel.snapshot()</code>.
+ * Folder content is fixed when snapshot is made, all changes are rejected with
+ * <code>UnsupportedOperationException</code>.
+ *
+ * @author ikesan
+ *
+ */
+final class GTDDataSnapshot implements GTDData {
+
+	static final class Proxy implements ActionProxy {
+
+		private Action action;
+		private final Folder parent;
+
+		Proxy(Folder parent) {
+			this.parent=parent;
+		}
+
+		@Override
+		public Action get() {
+			return action;
+		}
+		@Override
+		public int getId() {
+			return action.getId();
+		}
+		@Override
+		public void store() {
+			throw readOnly();
+		}
+		@Override
+		public void delete() {
+			throw readOnly();
+		}
+		@Override
+		public Folder getParent() {
+			return parent;
+		}
+		@Override
+		public void setParent(Folder f) {
+			throw readOnly();
+		}
+		@Override
+		public String toString() {
+			return action.toString();
+		}
+	}
+
+	static final class FolderData implements FolderDataProxy {
+
+		private final ActionProxy[] actions;
+		private final String description;
+		private final Date created;
+		private final Date resolved;
+		private final Date modified;
+		private IdentityHashMap<ActionProxy, Integer> index;
+
+		FolderData(ActionProxy[] actions, Folder f) {
+			this.actions=actions;
+			description=f.getDescription();
+			created=f.getCreated();
+			resolved=f.getResolved();
+			modified=f.getModified();
+		}
+
+		@Override
+		public String getDescription() {
+			return description;
+		}
+		@Override
+		public Date getCreated() {
+			return created;
+		}
+		@Override
+		public Date getResolved() {
+			return resolved;
+		}
+		@Override
+		public Date getModified() {
+			return modified;
+		}
+		@Override
+		public boolean contains(ActionProxy ap) {
+			return indexOf(ap)>-1;
+		}
+		@Override
+		public synchronized int indexOf(ActionProxy ap) {
+			if (index==null) {
+				index= new IdentityHashMap<ActionProxy, Integer>(actions.length);
+				for (int i = 0; i < actions.length; i++) {
+					index.put(actions[i], i);
+				}
+			}
+			Integer i= index.get(ap);
+			return i!=null ? i : -1;
+		}
+		@Override
+		public int size() {
+			return actions.length;
+		}
+		@Override
+		public ActionProxy get(int i) {
+			return actions[i];
+		}
+		@Override
+		public ActionProxy[] toArray() {
+			return actions.clone();
+		}
+		@Override
+		public Iterator<ActionProxy> iterator(final FolderPreset fp) {
+			return new Iterator<ActionProxy>() {
+				int i=0;
+				@Override
+				public boolean hasNext() {
+					if (fp==FolderPreset.OPEN) {
+						while (i<actions.length && !actions[i].get().isOpen()) {
+							i++;
+						}
+					}
+					return i<actions.length;
+				}
+				@Override
+				public ActionProxy next() {
+					if (hasNext()) {
+						return actions[i++];
+					}
+					return null;
+				}
+				@Override
+				public void remove() {
+					throw readOnly();
+				}
+			};
+		}
+		@Override
+		public void suspend(boolean b) {
+			// nothing to suspend
+		}
+		@Override
+		public void store() {
+			throw readOnly();
+		}
+		@Override
+		public void delete() {
+			throw readOnly();
+		}
+		@Override
+		public void setDescription(String desc) {
+			throw readOnly();
+		}
+		@Override
+		public void sort(Comparator<Action> comparator) {
+			throw readOnly();
+		}
+		@Override
+		public void add(int i, ActionProxy ap) {
+			throw readOnly();
+		}
+		@Override
+		public void add(ActionProxy ap) {
+			throw readOnly();
+		}
+		@Override
+		public void addSorted(ActionProxy ap, Comparator<Action> comparator) {
+			throw readOnly();
+		}
+		@Override
+		public boolean remove(int i) {
+			throw readOnly();
+		}
+		@Override
+		public boolean remove(ActionProxy i) {
+			throw readOnly();
+		}
+		@Override
+		public void set(int i, ActionProxy actionProxy) {
+			throw readOnly();
+		}
+		@Override
+		public void clear() {
+			throw readOnly();
+		}
+		@Override
+		public void setCreated(Date d) {
+			throw readOnly();
+		}
+		@Override
+		public void setResolved(Date d) {
+			throw readOnly();
+		}
+		@Override
+		public void setModified(Date d) {
+			throw readOnly();
+		}
+		@Override
+		public void reorder(Action[] order) {
+			throw readOnly();
+		}
+		@Override
+		public String toString() {
+			return Arrays.toString(actions);
+		}
+	}
+
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("Model snapshot is read-only."); //$NON-NLS-1$
+	}
+
+	private GTDModel model;
+
+	GTDDataSnapshot(GTDModel snapshot) {
+		model=snapshot;
+	}
+
+	/**
+	 * Makes snapshot copy of provided folder. Proxies of action copies are shared between
+	 * folders trough provided map, action copies are reused from earlier snapshots if
+	 * action was not changed since.
+	 * Primary folders must be copied before meta folders, since parent of action
+	 * copy is the folder, which made the copy.
+	 * @param f live folder
+	 * @param copies proxies of action copies by action ID
+	 * @return snapshot folder
+	 */
+	Folder copyFolder(Folder f, IntHashMap<ActionProxy> copies) {
+		ActionProxy[] v= f.view();
+		ActionProxy[] c= new ActionProxy[v.length];
+		FolderData fd= new FolderData(c, f);
+		Folder sf;
+		if (f.isProject()) {
+			sf= new Project(model, f.getId(), f.getName(), fd);
+		} else {
+			sf= new Folder(model, f.getId(), f.getName(), f.getType(), fd);
+		}
+		sf.copyState(f);
+		for (int i = 0; i < v.length; i++) {
+			ActionProxy p= copies.get(v[i].getId());
+			if (p==null) {
+				Proxy np= new Proxy(f.isMeta() ? null : sf);
+				np.action= v[i].get().readOnlyCopy();
+				copies.put(np.getId(), np);
+				p=np;
+			}
+			c[i]=p;
+		}
+		return sf;
+	}
+
+	@Override
+	public Folder newFolder(int id, String name, FolderType type) {
+		throw readOnly();
+	}
+
+	@Override
+	public void store() {
+		// nothing to store
+	}
+
+	@Override
+	public void initialize(File dataLoc, GlobalProperties prop) {
+	}
+
+	@Override
+	public GTDModel restore() throws IOException {
+		return model;
+	}
+
+	@Override
+	public ActionProxy newAction(int id, Date created, Date resolved, String description) {
+		throw readOnly();
+	}
+
+	@Override
+	public ActionProxy newAction(int id, Action copy, Integer project) {
+		throw readOnly();
+	}
+
+	@Override
+	public ActionProxy getProxy(Action a) {
+		if (a.getProxy()!=null) {
+			return a.getProxy();
+		}
+		throw readOnly();
+	}
+
+	@Override
+	public void flush() throws IOException {
+	}
+
+	@Override
+	public boolean close(boolean terminal) throws IOException {
+		return true;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return false;
+	}
+
+	@Override
+	public void suspend(boolean b) {
+	}
+
+	@Override
+	public void checkConsistency(Logger log, boolean fail, boolean correct) throws ConsistencyException {
+	}
+
+	@Override
+	public String getDatabaseType() {
+		return "Snapshot"; //$NON-NLS-1$
+	}
+
+}
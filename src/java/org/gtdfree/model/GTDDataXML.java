@@ -19,15 +19,24 @@
 
 package org.gtdfree.model;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import javax.swing.JOptionPane;
 
@@ -41,72 +50,6 @@ import org.gtdfree.model.Folder.FolderType;
 
 public class GTDDataXML implements GTDData {
 	
-	class SaveThread extends Thread implements GTDModelListener {
-		boolean destroyed= false;
-		public SaveThread() {
-			super("GTDDataXML-SaveThread"); //$NON-NLS-1$
-		}
-		@Override
-		public void run() {
-			while (!destroyed) {
-				if (changed) {
-					try {
-						flush();
-					} catch (Exception e) {
-						Logger.getLogger(this.getClass()).debug("Internal error.", e); //$NON-NLS-1$
-					}
-				}
-				synchronized (this) {
-					try {
-						wait(60000);
-					} catch (InterruptedException e) {
-						Logger.getLogger(this.getClass()).debug("Internal error.", e); //$NON-NLS-1$
-					}
-				}
-			}
-		}
-		public void elementAdded(FolderEvent a) {
-			if (!a.isRecycled()) {
-				notifySave();
-			}
-		}
-		public void elementModified(ActionEvent a) {
-			if (!a.isRecycled()) {
-				notifySave();
-			}
-		}
-		public void elementRemoved(FolderEvent a) {
-			if (!a.isRecycled()) {
-				notifySave();
-			}
-		}
-		public void folderAdded(Folder folder) {
-			notifySave();
-		}
-		public void folderModified(FolderEvent folder) {
-			if (!folder.isRecycled()) {
-				notifySave();
-			}
-		}
-		public void folderRemoved(Folder folder) {
-			notifySave();
-		}
-		public void orderChanged(Folder f) {
-			notifySave();
-		}
-		public synchronized void notifySave() {
-			logger.debug("Save ready."); //$NON-NLS-1$
-			//Thread.dumpStack();
-			changed=true;
-			notify();
-		}
-		public synchronized void stopSave() {
-			destroyed=true;
-			notify();
-		}
-	}
-
-	
 	public class ActionProxyXML implements ActionProxy {
 		private Action a;
 		private Folder parent;
@@ -124,8 +67,15 @@ public class GTDDataXML implements GTDData {
 		}
 		@Override
 		public void store() {
+			markParent();
 			notifyUpdate();
 		}
+		private void markParent() {
+			Folder p= parent;
+			if (p!=null) {
+				markSegment(GTDDataXMLSegments.key(p.getId(), p.getType()));
+			}
+		}
 		@Override
 		public boolean equals(Object obj) {
 			return obj instanceof ActionProxyXML && ((ActionProxyXML)obj).a==a;
@@ -137,6 +87,7 @@ public class GTDDataXML implements GTDData {
 		}
 		@Override
 		public void delete() {
+			markParent();
 			notifyUpdate();
 		}
 		@Override
@@ -162,13 +113,25 @@ public class GTDDataXML implements GTDData {
 			}
 		}
 
-		private List<ActionProxy> actions= new ArrayList<ActionProxy>();
+		private ActionProxyList actions= new ActionProxyList();
 		private String description;
 		private Date created;
 		private Date resolved;
 		private Date modified;
+		private final String segment;
+		private Folder folder;
 		
-		public FolderData() {
+		/**
+		 * @param segment key of segment, in which folder is stored
+		 */
+		public FolderData(String segment) {
+			this.segment=segment;
+		}
+		
+		private void update() {
+			markSegment(segment);
+			logFolder(folder);
+			notifyUpdate();
 		}
 		
 		/**
@@ -185,7 +148,7 @@ public class GTDDataXML implements GTDData {
 		public void setCreated(Date created) {
 			this.created = created;
 			modify();
-			notifyUpdate();
+			update();
 		}
 
 
@@ -203,7 +166,7 @@ public class GTDDataXML implements GTDData {
 		public void setResolved(Date resolved) {
 			this.resolved = resolved;
 			modify();
-			notifyUpdate();
+			update();
 		}
 
 
@@ -229,53 +192,59 @@ public class GTDDataXML implements GTDData {
 		public void add(ActionProxy ap) {
 			actions.add(ap);
 			modify();
-			notifyUpdate();
+			update();
 		}
 		@Override
 		public void add(int i, ActionProxy ap) {
 			actions.add(i, ap);
 			modify();
-			notifyUpdate();
+			update();
+		}
+		@Override
+		public void addSorted(ActionProxy ap, Comparator<Action> comparator) {
+			actions.addSorted(ap, new ProxyComparator(comparator));
+			modify();
+			update();
 		}
 		@Override
 		public void clear() {
 			actions.clear();
 			modify();
-			notifyUpdate();
+			update();
 		}
 		@Override
 		public boolean remove(ActionProxy i) {
 			boolean b=actions.remove(i);
 			modify();
-			notifyUpdate();
+			update();
 			return b;
 		}
 		@Override
 		public boolean remove(int i) {
 			boolean b= actions.remove(i)!=null;
 			modify();
-			notifyUpdate();
+			update();
 			return b;
 		}
 		@Override
 		public void set(int i, ActionProxy actionProxy) {
 			actions.set(i, actionProxy);
 			modify();
-			notifyUpdate();
+			update();
 		}
 		@Override
 		public void sort(Comparator<Action> comparator) {
-			Collections.sort(actions,new ProxyComparator(comparator));
+			actions.sort(new ProxyComparator(comparator));
 			modify();
-			notifyUpdate();
+			update();
 		}
 		@Override
 		public ActionProxy[] toArray() {
-			return actions.toArray(new ActionProxy[actions.size()]);
+			return actions.toArray();
 		}
 		@Override
 		public void delete() {
-			notifyUpdate();
+			update();
 		}
 		@Override
 		public String getDescription() {
@@ -285,17 +254,21 @@ public class GTDDataXML implements GTDData {
 		public void setDescription(String desc) {
 			description=desc;
 			modify();
-			notifyUpdate();
+			update();
 		}
 		@Override
 		public void store() {
-			notifyUpdate();
+			update();
 		}
 		@Override
 		public boolean contains(ActionProxy ap) {
 			return actions.contains(ap);
 		}
 		@Override
+		public int indexOf(ActionProxy ap) {
+			return actions.indexOf(ap);
+		}
+		@Override
 		public Iterator<ActionProxy> iterator(FolderPreset fp) {
 			if (fp==FolderPreset.OPEN) {
 				return new Iterator<ActionProxy>() {
@@ -352,16 +325,7 @@ public class GTDDataXML implements GTDData {
 
 		@Override
 		public void reorder(Action[] order) {
-			for (int i = 0; i < order.length; i++) {
-				actions.remove(order[i].getProxy());
-			}
-			for (int i = 0; i < order.length; i++) {
-				if (actions.size()>i) {
-					actions.set(i,(ActionProxyXML)order[i].getProxy());
-				} else {
-					actions.add((ActionProxyXML)order[i].getProxy());
-				}
-			}
+			actions.reorder(order);
 		}
 	}
 	
@@ -370,15 +334,62 @@ public class GTDDataXML implements GTDData {
 	 * Instance declarations
 	 * 
 	 */
+	/**
+	 * Size of change log, after which whole data file is written.
+	 */
+	private static final long CHANGE_LOG_LIMIT= 1<<20;
+	/**
+	 * Longest time between writes of whole data file, while changes are written to change log.
+	 */
+	private static final long SNAPSHOT_INTERVAL= 30*60*1000L;
+	/**
+	 * Default time without changes in milliseconds, after which changes are saved.
+	 */
+	private static final long DEFAULT_QUIET_PERIOD= 2000;
+	/**
+	 * Default longest time in milliseconds, for which changes can wait for save.
+	 */
+	private static final long DEFAULT_MAX_DELAY= 30000;
+	/**
+	 * Default shortest time in milliseconds between two saves.
+	 */
+	private static final long DEFAULT_MIN_INTERVAL= 5000;
+	/**
+	 * Default shortest time in milliseconds between two backups, data file is 
+	 * written more often and backup of each write would only add write volume.
+	 */
+	private static final long DEFAULT_BACKUP_INTERVAL= 60*60*1000L;
+	private static final String TEMP_SUFFIX= ".tmp"; //$NON-NLS-1$
+	
 	private GTDModel model;
 	protected volatile boolean changed=false;
-	private SaveThread saveThread;
+	/**
+	 * While suspended, changes are only marked and not saved.
+	 */
+	private volatile boolean suspended=false;
+	/**
+	 * Number of <code>suspend(true)</code> calls, which were not yet matched, guarded by suspendLock.
+	 */
+	private int suspendDepth=0;
+	private final Object suspendLock= new Object();
+	private SaveScheduler saveScheduler;
 	private boolean autoSave=true;
-	private int i=0;
 	private GlobalProperties gp;
 	private File file;
 	private boolean closed=false;
 	private Logger logger= Logger.getLogger(this.getClass());
+	private GTDDataXMLChangeLog changeLog;
+	private volatile long lastSnapshot;
+	private long lastBackup;
+	private volatile Future<GTDDataXMLTools.DataHeader[]> backupFiles;
+	private volatile GTDDataXMLSegments segments;
+	private GTDDataXMLBackups backups;
+	private boolean compress;
+	// state of preload, which was not yet completed by restore
+	private boolean preloaded;
+	private boolean fromSegments;
+	private boolean loaded;
+	private Exception loadFailure;
 	
 	public GTDDataXML() {
 	}
@@ -400,45 +411,111 @@ public class GTDDataXML implements GTDData {
 	@Override
 	public void initialize(File f, GlobalProperties gp) {
 		this.gp=gp;
-		if (f==null) {
-			return;
-		}
-		if ((f.exists() && f.isFile()) || (!f.isDirectory() && f.getName().toLowerCase().endsWith(".xml"))) { //$NON-NLS-1$
-			file=f;
-		} else {
-			if (!f.exists()) {
-				f.mkdir();
+		if (f!=null) {
+			if ((f.exists() && f.isFile()) || (!f.isDirectory() && f.getName().toLowerCase().endsWith(".xml"))) { //$NON-NLS-1$
+				file=f;
+			} else {
+				if (!f.exists()) {
+					f.mkdir();
+				}
+				file= new File(f,ApplicationHelper.DEFAULT_DATA_FILE_NAME);
 			}
-			file= new File(f,ApplicationHelper.DEFAULT_DATA_FILE_NAME);
 		}
+		segments= new GTDDataXMLSegments(getSegmentsFolder());
+		compress= gp!=null && gp.getBoolean(GlobalProperties.COMPRESS_DATA, false);
+		backups= new GTDDataXMLBackups(getBackupsFolder());
+		backups.setCompress(compress);
+		backups.setPolicy(new GTDDataXMLBackups.RetentionPolicy(
+				getCount(GlobalProperties.BACKUP_KEEP_LAST, GTDDataXMLBackups.DEFAULT_POLICY.getLast()), 
+				getCount(GlobalProperties.BACKUP_KEEP_HOURLY, GTDDataXMLBackups.DEFAULT_POLICY.getHourly()), 
+				getCount(GlobalProperties.BACKUP_KEEP_DAILY, GTDDataXMLBackups.DEFAULT_POLICY.getDaily()), 
+				getCount(GlobalProperties.BACKUP_KEEP_WEEKLY, GTDDataXMLBackups.DEFAULT_POLICY.getWeekly())));
 	}
 	
-	@Override
-	public GTDModel restore() throws IOException {
-		if (model==null) {
-			model= new GTDModel();
-			model.initialize(this);
+	/**
+	 * Reads data file, its segments or binary cache into new model, but does not 
+	 * ask user anything, so it can be called from background thread. Load failure is 
+	 * kept and handled by following <code>restore()</code>, which must be called 
+	 * on event dispatch thread, since it may show dialogs.
+	 */
+	public void preload() {
+		if (model!=null || preloaded) {
+			return;
+		}
+		preloaded=true;
+		model= new GTDModel();
+		model.initialize(this);
 
-			Logger.getLogger(this.getClass()).info("Loading XML file "+getDataFile().getAbsolutePath()); //$NON-NLS-1$
+		Logger.getLogger(this.getClass()).info("Loading XML file "+getDataFile().getAbsolutePath()); //$NON-NLS-1$
 
-			if (getDataFile().exists()) {
+		removeTempFiles();
+		
+		fromSegments= loadSegments();
+		loaded= fromSegments;
+		if (!fromSegments) {
+			if (getDataFile().exists() && loadCache()) {
+				loaded= true;
+			} else if (getDataFile().exists()) {
 				try {
 					GTDDataXMLTools.load(model, getDataFile());
+					loaded= true;
+					storeCache(model, getDataFile().getAbsoluteFile());
 				} catch (Exception e) {
 					Logger.getLogger(this.getClass()).error("Initialization error.", e); //$NON-NLS-1$
-						
-					GTDDataXMLTools.DataHeader[] dh= findBackupFiles();
-						
-					handleFailedLoad(model, dh, 0, e);
-						
+					loadFailure= e;
 				}
 			} else {
-				GTDDataXMLTools.DataHeader[] dh= findBackupFiles();
+				GTDDataXMLTools.DataHeader[] dh= getBackupFiles();
 				if (dh!=null && dh.length>0) {
-					handleFailedLoad(model, dh, 0, new FileNotFoundException("Missing main data file: '"+getDataFile().getAbsolutePath()+"'.")); //$NON-NLS-1$ //$NON-NLS-2$
+					loadFailure= new FileNotFoundException("Missing main data file: '"+getDataFile().getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		}
+	}
+	
+	@Override
+	public GTDModel restore() throws IOException {
+		if (model==null || preloaded) {
+			preload();
+			preloaded=false;
+			
+			if (loadFailure!=null) {
+				Exception e= loadFailure;
+				loadFailure=null;
+				handleFailedLoad(model, getBackupFiles(), 0, e);
+			}
+			
+			GTDDataXMLSegments.Manifest mf= segments.getManifest();
+			if (fromSegments || (loaded && mf!=null && mf.isSynced() && mf.isBasedOn(getDataFile()))) {
+				segments.clearDirty();
+			} else {
+				segments.markAllDirty();
+			}
+			
+			GTDDataXMLChangeLog log= new GTDDataXMLChangeLog(getChangeLogFile());
+			int replayed=0;
+			if (loaded) {
+				try {
+					replayed= log.replay(model);
+				} catch (IOException e) {
+					Logger.getLogger(this.getClass()).error("Change log replay error.", e); //$NON-NLS-1$
+				}
+			} else if (log.hasRecords()) {
+				// changes were made to data file, which could not be loaded, keep them aside
+				File old= new File(log.getFile().getPath()+".old"); //$NON-NLS-1$
+				if ((old.exists() && !old.delete()) || !log.getFile().renameTo(old)) {
+					Logger.getLogger(this.getClass()).warn("Failed to move aside change log '"+log.getFile().getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
 				}
 			}
+			log.attach(model);
+			changeLog= log;
+			
 			changed=false;
+			lastSnapshot= System.currentTimeMillis();
+			if (replayed>0) {
+				Logger.getLogger(this.getClass()).info("Replayed "+replayed+" changes from change log, writing data file."); //$NON-NLS-1$ //$NON-NLS-2$
+				flush();
+			}
 			setAutoSave(gp.getBoolean(GlobalProperties.AUTO_SAVE , true));
 		}
 
@@ -464,8 +541,8 @@ public class GTDDataXML implements GTDData {
 					"GTD-Free - "+Messages.getString("GTDDataXML.Fail.title"), JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
 			if (option== JOptionPane.YES_OPTION) {
 				autoSave=false;
-				if (saveThread!=null) {
-					saveThread.stopSave();
+				if (saveScheduler!=null) {
+					saveScheduler.stop();
 				}
 				throw new IOException("Aborting because of previous errors.",e); //$NON-NLS-1$
 			}
@@ -493,7 +570,11 @@ public class GTDDataXML implements GTDData {
 				Logger.getLogger(this.getClass()).info("Loading XML file "+dh[i].getFile().getAbsolutePath()); //$NON-NLS-1$
 				model= new GTDModel();
 				model.initialize(this);
-				GTDDataXMLTools.load(model, dh[i].getFile());
+				if (backups.isBackup(dh[i].getFile())) {
+					backups.load(model, dh[i].getFile());
+				} else {
+					GTDDataXMLTools.load(model, dh[i].getFile());
+				}
 				return;
 			} catch (Exception ex) {
 				Logger.getLogger(this.getClass()).error("Initialization error.", e); //$NON-NLS-1$
@@ -504,8 +585,8 @@ public class GTDDataXML implements GTDData {
 		} else {
 			//if (option== JOptionPane.CANCEL_OPTION) {
 			autoSave=false;
-			if (saveThread!=null) {
-				saveThread.stopSave();
+			if (saveScheduler!=null) {
+				saveScheduler.stop();
 			}
 			throw new IOException("Aborting because of previous errors.",e); //$NON-NLS-1$
 		} 
@@ -513,9 +594,56 @@ public class GTDDataXML implements GTDData {
 	}
 
 	
-	private GTDDataXMLTools.DataHeader[] findBackupFiles() {
+	/**
+	 * Sets headers of backup files, which are being read in advance, so they are ready 
+	 * if data file fails to load.
+	 * @param f result of <code>findBackupFiles()</code>
+	 */
+	public void setBackupFiles(Future<GTDDataXMLTools.DataHeader[]> f) {
+		backupFiles= f;
+	}
+	
+	/**
+	 * Writes backup, as returned by <code>findBackupFiles</code>, as complete data file.
+	 * @param dh header of backup
+	 * @param target file to be written
+	 * @throws IOException if backup can not be read or written
+	 */
+	public void materializeBackup(GTDDataXMLTools.DataHeader dh, File target) throws IOException {
+		if (backups.isBackup(dh.getFile())) {
+			backups.materialize(dh.getFile(), target);
+		} else {
+			Files.copy(dh.getFile().toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**
+	 * Returns headers of backup files, newest first, probed in advance if possible.
+	 */
+	private GTDDataXMLTools.DataHeader[] getBackupFiles() {
+		Future<GTDDataXMLTools.DataHeader[]> f= backupFiles;
+		if (f!=null) {
+			try {
+				return f.get();
+			} catch (Exception e) {
+				logger.debug("Internal error.", e); //$NON-NLS-1$
+			}
+		}
+		return findBackupFiles();
+	}
+	
+	/**
+	 * Reads headers of existing backup files.
+	 * @return headers of backup files, newest first
+	 */
+	public GTDDataXMLTools.DataHeader[] findBackupFiles() {
 		List<GTDDataXMLTools.DataHeader> l= new ArrayList<GTDDataXMLTools.DataHeader>(10);
 		
+		for (GTDDataXMLBackups.Backup b : backups.list()) {
+			l.add(b.toDataHeader());
+		}
+		
+		// backup files written by older versions
 		for (int i=0; i<10; i++) {
 			
 			File f= ApplicationHelper.createBackupDataFile(getDataFile(),i);
@@ -557,6 +685,126 @@ public class GTDDataXML implements GTDData {
 	public File getDataFile() {
 		return file!=null ? file: ApplicationHelper.getDataFile();
 	}
+	
+	/**
+	 * @return binary copy of data file, which is loaded instead of data file, while it is up to date
+	 */
+	public File getCacheFile() {
+		return new File(getDataFile().getPath()+".bin"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Loads model from binary cache file, if it was made from current data file.
+	 * @return <code>true</code> if model was loaded
+	 */
+	private boolean loadCache() {
+		File f= getCacheFile();
+		try {
+			GTDDataBinaryTools.BinaryHeader h= GTDDataBinaryTools.readHeader(f);
+			if (h==null || !h.isSourceOf(getDataFile())) {
+				return false;
+			}
+			// deferred descriptions are copied out of cache, so it can be replaced by next save
+			GTDDataBinaryTools.load(model, f, gp!=null && gp.getBoolean(GlobalProperties.LAZY_DESCRIPTIONS, false));
+			logger.info("Loaded binary cache "+f.getAbsolutePath()); //$NON-NLS-1$
+			return true;
+		} catch (Exception e) {
+			logger.warn("Binary cache load failed, loading data file.", e); //$NON-NLS-1$
+			// start over with empty model
+			model= new GTDModel();
+			model.initialize(this);
+			return false;
+		}
+	}
+	
+	/**
+	 * Writes binary cache of data file. Cache is written to temporary file and moved 
+	 * over old one, failure is not fatal, data file is then loaded next time.
+	 */
+	private void storeCache(GTDModel m, File data) {
+		File cache= getCacheFile().getAbsoluteFile();
+		File tmp= null;
+		try {
+			tmp= File.createTempFile(data.getName()+".", TEMP_SUFFIX, data.getParentFile()); //$NON-NLS-1$
+			GTDDataBinaryTools.store(m, tmp, false, data);
+			try {
+				Files.move(tmp.toPath(), cache.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (Exception e) {
+			logger.warn("Failed to write binary cache '"+cache.getAbsolutePath()+"'.", e); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			if (tmp!=null && tmp.exists() && !tmp.delete()) {
+				logger.warn("Failed to remove temporary file '"+tmp.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+	
+	/**
+	 * @return folder of backup store
+	 */
+	public File getBackupsFolder() {
+		return new File(getDataFile().getPath()+".backups"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * @return folder with segments, which hold data written after data file
+	 */
+	public File getSegmentsFolder() {
+		return new File(getDataFile().getPath()+".segments"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Loads model from segments, if they were written after data file.
+	 * @return <code>true</code> if model was loaded
+	 */
+	private boolean loadSegments() {
+		try {
+			GTDDataXMLSegments.Manifest mf= segments.readManifest();
+			if (mf==null) {
+				return false;
+			}
+			segments.removeUnused();
+			if (mf.isSynced() || !mf.isBasedOn(getDataFile())) {
+				return false;
+			}
+			segments.load(model);
+			logger.info("Loaded segments "+segments.getDirectory().getAbsolutePath()); //$NON-NLS-1$
+			return true;
+		} catch (Exception e) {
+			logger.warn("Segments load failed, loading data file.", e); //$NON-NLS-1$
+			// start over with empty model
+			model= new GTDModel();
+			model.initialize(this);
+			return false;
+		}
+	}
+	
+	private void markSegment(String key) {
+		GTDDataXMLSegments s= segments;
+		if (s!=null) {
+			s.markDirty(key);
+		}
+	}
+	
+	/**
+	 * Folder data can change without model event, for example re-sort after 
+	 * comparator change, so change log is told about it here.
+	 */
+	private void logFolder(Folder f) {
+		GTDDataXMLChangeLog log= changeLog;
+		if (log!=null && f!=null) {
+			log.folderStored(f);
+		}
+	}
+	
+	/**
+	 * @return file with changes made after data file was written
+	 */
+	public File getChangeLogFile() {
+		return new File(getDataFile().getPath()+".changes"); //$NON-NLS-1$
+	}
 
 	@Override
 	public void store() {
@@ -600,34 +848,240 @@ public class GTDDataXML implements GTDData {
 			}
 		}
 		
+		if (changeLog!=null) {
+			changeLog.detach();
+		}
 		closed=true;
 		return true;
 	}
 	
+	/**
+	 * Writes changes to change log, changed segments are written only when log 
+	 * grows large or when they were not written for long time.
+	 * @param changes number of change notifications covered by this save 
+	 * @throws IOException if writing fails
+	 */
+	private void save(int changes) throws IOException {
+		GTDDataXMLChangeLog log= changeLog;
+		if (log==null) {
+			flush();
+			logger.debug("Saved "+changes+" changes."); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		if (log.length()>CHANGE_LOG_LIMIT || System.currentTimeMillis()-lastSnapshot>SNAPSHOT_INTERVAL) {
+			try {
+				flushSegments(log);
+			} catch (IOException e) {
+				logger.warn("Segments write failed, writing data file.", e); //$NON-NLS-1$
+				flush();
+			}
+			logger.debug("Saved "+changes+" changes."); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		changed=false;
+		try {
+			log.sync();
+			logger.debug("Logged "+changes+" changes to "+log.getFile().getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (IOException e) {
+			logger.warn("Change log write failed, writing data file.", e); //$NON-NLS-1$
+			flush();
+		}
+	}
+	
+	/**
+	 * Writes only segments of folders, which were changed, data file is not written.
+	 * Change log is then cut, since changes are in segments.
+	 */
+	private synchronized void flushSegments(GTDDataXMLChangeLog log) throws IOException {
+		// changes made after snapshot will trigger new save
+		changed=false;
+		GTDDataXMLSegments.Changes ch= segments.takeChanges(getDataFile().getAbsoluteFile());
+		long checkpoint;
+		GTDModel snapshot;
+		try {
+			checkpoint= log.sync();
+			snapshot= model.snapshot();
+		} catch (IOException e) {
+			segments.restoreChanges(ch);
+			changed=true;
+			throw e;
+		} catch (RuntimeException e) {
+			segments.restoreChanges(ch);
+			changed=true;
+			throw e;
+		}
+		int written;
+		try {
+			// marks changes again if it fails
+			written= segments.write(snapshot, getDataFile().getAbsoluteFile(), false, ch);
+		} catch (IOException e) {
+			changed=true;
+			throw e;
+		} catch (RuntimeException e) {
+			changed=true;
+			throw e;
+		}
+		lastSnapshot= System.currentTimeMillis();
+		logger.debug("Saved "+written+" segments to "+segments.getDirectory().getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			log.cut(checkpoint);
+		} catch (IOException e) {
+			// records are replayed again over segments, which is harmless
+			logger.warn("Failed to cut change log.", e); //$NON-NLS-1$
+		}
+	}
+	
 	@Override
 	public synchronized void flush() throws IOException {
+		// changes made after snapshot will trigger new save
+		changed=false;
+		GTDDataXMLSegments.Changes ch= segments.takeChanges(getDataFile().getAbsoluteFile());
+		GTDDataXMLChangeLog log= changeLog;
+		long checkpoint=-1;
+		if (log!=null) {
+			// changes up to checkpoint are in snapshot, later are kept in log
+			try {
+				checkpoint= log.sync();
+			} catch (IOException e) {
+				logger.debug("I/O error.", e); //$NON-NLS-1$
+			}
+		}
+		GTDModel snapshot= model.snapshot();
+		try {
+			flush(snapshot);
+		} catch (IOException e) {
+			segments.restoreChanges(ch);
+			changed=true;
+			throw e;
+		} catch (RuntimeException e) {
+			segments.restoreChanges(ch);
+			changed=true;
+			throw e;
+		}
+		lastSnapshot= System.currentTimeMillis();
+		try {
+			// segments now hold same data as data file
+			segments.write(snapshot, getDataFile().getAbsoluteFile(), true, ch);
+		} catch (IOException e) {
+			// segments are not based on new data file and are not used
+			logger.warn("Failed to write segments.", e); //$NON-NLS-1$
+		}
+		if (checkpoint>=0) {
+			try {
+				log.cut(checkpoint);
+			} catch (IOException e) {
+				// records are replayed again over new data file, which is harmless
+				logger.warn("Failed to cut change log.", e); //$NON-NLS-1$
+			}
+		}
+	}
+	
+	/**
+	 * Writes snapshot to temporary file in data folder, forces it to disk and then 
+	 * atomically replaces data file with it. Data file is thus always complete, 
+	 * either old or new one. Snapshot is then added to backup store, if last backup 
+	 * is older than backup interval.
+	 */
+	private synchronized void flush(GTDModel snapshot) throws IOException {
 		
-		File backup = ApplicationHelper.createBackupDataFile(getDataFile(),i++%10);
-		if (backup.exists() && !backup.delete()) {
-			throw new IOException("Failed to remove backup file '"+backup.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+		File data= getDataFile().getAbsoluteFile();
+		File tmp= File.createTempFile(data.getName()+".", TEMP_SUFFIX, data.getParentFile()); //$NON-NLS-1$
+		try {
+			FileOutputStream out= new FileOutputStream(tmp);
+			try {
+				BufferedOutputStream bout= new BufferedOutputStream(out,65536);
+				GTDDataXMLTools.store(snapshot,bout,null,compress);
+				bout.flush();
+				out.getChannel().force(true);
+			} catch (IOException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IOException(e);
+			} finally {
+				out.close();
+			}
+			
+			try {
+				Files.move(tmp.toPath(), data.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				logger.debug("Atomic move not supported.", e); //$NON-NLS-1$
+				Files.move(tmp.toPath(), data.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			forceDirectory(data.getParentFile());
+		} finally {
+			if (tmp.exists() && !tmp.delete()) {
+				logger.warn("Failed to remove temporary file '"+tmp.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
 		}
-		if (getDataFile().exists() && !getDataFile().renameTo(backup)) {
-			throw new IOException("Failed to make backup copy file '"+backup.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+		logger.debug("Saved to "+data.getAbsolutePath()); //$NON-NLS-1$
+		storeCache(snapshot, data);
+		backup(snapshot);
+	}
+	
+	/**
+	 * Stores snapshot in backup store, unchanged folders are shared with older backups. 
+	 * First save in session is always backed up, later only once per backup interval.
+	 * Failed backup does not prevent save.
+	 */
+	private void backup(GTDModel snapshot) {
+		long now= System.currentTimeMillis();
+		if (lastBackup>0 && now-lastBackup<getInterval(GlobalProperties.BACKUP_INTERVAL, DEFAULT_BACKUP_INTERVAL)) {
+			return;
 		}
 		try {
-			GTDDataXMLTools.store(model,getDataFile());
+			backups.store(snapshot);
+			lastBackup= now;
 		} catch (Exception e) {
-			throw new IOException(e);
+			logger.warn("Failed to make backup in '"+backups.getDirectory().getAbsolutePath()+"'.", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	/**
+	 * Forces directory entry changes to disk, so moved data file survives crash.
+	 * Not all platforms support it, there it is skipped. 
+	 */
+	private void forceDirectory(File dir) {
+		try {
+			FileChannel ch= FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+			try {
+				ch.force(true);
+			} finally {
+				ch.close();
+			}
+		} catch (IOException e) {
+			logger.debug("Directory sync not supported.", e); //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * Removes temporary files left by save, which was interrupted.
+	 */
+	private void removeTempFiles() {
+		final File data= getDataFile().getAbsoluteFile();
+		File[] f= data.getParentFile().listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File pathname) {
+				return pathname.getName().startsWith(data.getName()+".") && pathname.getName().endsWith(TEMP_SUFFIX); //$NON-NLS-1$
+			}
+		});
+		if (f==null) {
+			return;
+		}
+		for (File t : f) {
+			if (!t.delete()) {
+				logger.warn("Failed to remove temporary file '"+t.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
 		}
-		changed=false;
-		logger.debug("Saved to "+getDataFile().getAbsolutePath()); //$NON-NLS-1$
 	}
 	
 	public void notifyUpdate() {
 		changed=true;
-		SaveThread st= saveThread;
+		if (suspended) {
+			return;
+		}
+		SaveScheduler st= saveScheduler;
 		if (st!=null) {
-			st.notifySave();
+			st.changed();
 		}
 	}
 	
@@ -643,24 +1097,47 @@ public class GTDDataXML implements GTDData {
 	 */
 	public void setAutoSave(boolean autoSave) {
 		this.autoSave = autoSave;
+		if (saveScheduler!=null) {
+			saveScheduler.stop();
+			saveScheduler=null;
+		} 
 		if (autoSave) {
-			if (saveThread!=null) {
-				saveThread.stopSave();
-				//model.removeGTDModelListener(saveThread);
+			saveScheduler= new SaveScheduler("GTDDataXML-SaveThread",  //$NON-NLS-1$
+					getInterval(GlobalProperties.AUTO_SAVE_QUIET_PERIOD, DEFAULT_QUIET_PERIOD), 
+					getInterval(GlobalProperties.AUTO_SAVE_MAX_DELAY, DEFAULT_MAX_DELAY), 
+					getInterval(GlobalProperties.AUTO_SAVE_MIN_INTERVAL, DEFAULT_MIN_INTERVAL), 
+					new SaveScheduler.Saver() {
+						@Override
+						public void save(int changes) throws Exception {
+							if (changed && !suspended) {
+								GTDDataXML.this.save(changes);
+							}
+						}
+					});
+			if (changed) {
+				saveScheduler.changed();
 			}
-			saveThread=new SaveThread();
-			saveThread.start();
-			//model.addGTDModelListener(saveThread);
-		} else {
-			if (saveThread!=null) {
-				saveThread.stopSave();
-				saveThread=null;
-			} 
 		}
 	}
 
+	private long getInterval(String property, long def) {
+		Integer i= gp!=null ? gp.getInteger(property) : null;
+		return i!=null ? i : def;
+	}
+
+	private int getCount(String property, int def) {
+		Integer i= gp!=null ? gp.getInteger(property) : null;
+		return i!=null ? i : def;
+	}
+
 	public boolean isSaveReady() {
-		return changed;
+		GTDDataXMLChangeLog log= changeLog;
+		if (changed || (log!=null && (log.isPending() || log.hasRecords()))) {
+			return true;
+		}
+		// data file is older than segments
+		GTDDataXMLSegments.Manifest mf= segments!=null ? segments.getManifest() : null;
+		return mf!=null && !mf.isSynced();
 	}
 	
 	@Override
@@ -672,18 +1149,30 @@ public class GTDDataXML implements GTDData {
 	@Override
 	public Folder newFolder(int id, String name, FolderType type) {
 		Folder f= null;
-		FolderData fd= new FolderData();
+		FolderData fd= new FolderData(GTDDataXMLSegments.key(id, type));
 		if (type==FolderType.PROJECT) {
 			f= new Project(model,id, name,fd);
 		} else {
 			f= new Folder(model,id,name,type,fd);
 		}
+		fd.folder=f;
 		notifyUpdate();
 		return f;
 	}
 	
 	@Override
 	public void suspend(boolean b) {
+		synchronized (suspendLock) {
+			if (b) {
+				suspendDepth++;
+			} else if (suspendDepth>0) {
+				suspendDepth--;
+			}
+			suspended= suspendDepth>0;
+		}
+		if (!b && !suspended && changed) {
+			notifyUpdate();
+		}
 	}
 	
 	@Override
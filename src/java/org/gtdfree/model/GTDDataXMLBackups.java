@@ -0,0 +1,516 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.log4j.Logger;
+import org.gtdfree.ApplicationHelper;
+
+/**
+ * Backup store for XML data. Each backup is split into chunks, one for each list,
+ * project and queue, in same format as data segments. Chunks are stored once,
+ * named by hash of their content, so folders, which did not change between backups,
+ * do not take any additional space. Backup itself is small index, which lists its chunks.
+ * <p>
+ * Chunks are optionally GZIP compressed, loading recognizes compressed chunks.
+ * <p>
+ * Old backups are removed according to retention policy, chunks, which are no longer
+ * used by any backup, are removed with them. Any kept backup can be loaded
+ * or written as complete data file.
+ *
+ * @author ikesan
+ *
+ */
+final class GTDDataXMLBackups {
+
+	/**
+	 * Defines which backups are kept: certain number of latest backups and
+	 * latest backup of each of certain number of last hours, days and weeks.
+	 */
+	static final class RetentionPolicy {
+		private final int last;
+		private final int hourly;
+		private final int daily;
+		private final int weekly;
+
+		/**
+		 * @param last number of latest backups to keep
+		 * @param hourly number of hours for which latest backup in hour is kept
+		 * @param daily number of days for which latest backup in day is kept
+		 * @param weekly number of weeks for which latest backup in week is kept
+		 */
+		RetentionPolicy(int last, int hourly, int daily, int weekly) {
+			this.last=last;
+			this.hourly=hourly;
+			this.daily=daily;
+			this.weekly=weekly;
+		}
+
+		int getLast() {
+			return last;
+		}
+
+		int getHourly() {
+			return hourly;
+		}
+
+		int getDaily() {
+			return daily;
+		}
+
+		int getWeekly() {
+			return weekly;
+		}
+
+		/**
+		 * Selects backups to keep.
+		 * @param created creation times of backups, newest first
+		 * @return flags of backups to keep, in same order
+		 */
+		boolean[] select(long[] created) {
+			boolean[] keep= new boolean[created.length];
+			Calendar c= Calendar.getInstance();
+			long lastHour=Long.MIN_VALUE, lastDay=Long.MIN_VALUE, lastWeek=Long.MIN_VALUE;
+			int hours=0, days=0, weeks=0;
+			for (int i = 0; i < created.length; i++) {
+				c.setTimeInMillis(created[i]);
+				long hour= c.get(Calendar.YEAR)*1000000L+c.get(Calendar.DAY_OF_YEAR)*100L+c.get(Calendar.HOUR_OF_DAY);
+				long day= c.get(Calendar.YEAR)*1000L+c.get(Calendar.DAY_OF_YEAR);
+				long week= c.getWeekYear()*100L+c.get(Calendar.WEEK_OF_YEAR);
+				if (i<last) {
+					keep[i]=true;
+				}
+				if (hour!=lastHour && hours<hourly) {
+					keep[i]=true;
+					hours++;
+				}
+				if (day!=lastDay && days<daily) {
+					keep[i]=true;
+					days++;
+				}
+				if (week!=lastWeek && weeks<weekly) {
+					keep[i]=true;
+					weeks++;
+				}
+				lastHour=hour;
+				lastDay=day;
+				lastWeek=week;
+			}
+			return keep;
+		}
+	}
+
+	/**
+	 * Index of single backup.
+	 */
+	static final class Backup {
+		private final File file;
+		private long created;
+		private int lastActionID;
+		private String version;
+		private final List<String> chunks= new ArrayList<String>();
+
+		private Backup(File file) {
+			this.file=file;
+		}
+
+		/**
+		 * @return index file of backup
+		 */
+		File getFile() {
+			return file;
+		}
+
+		/**
+		 * @return creation time of backup
+		 */
+		long getCreated() {
+			return created;
+		}
+
+		/**
+		 * @return header, which can be used in place of header of backup data file
+		 */
+		GTDDataXMLTools.DataHeader toDataHeader() {
+			return new GTDDataXMLTools.DataHeader(file, version, ApplicationHelper.formatLongISO(new Date(created)));
+		}
+	}
+
+	/**
+	 * Default policy: last ten backups, as many as was kept by old backup files,
+	 * and hourly for a day, daily for a week and weekly for a month.
+	 */
+	static final RetentionPolicy DEFAULT_POLICY= new RetentionPolicy(10, 24, 7, 4);
+
+	private static final String INDEX_PREFIX= "backup-"; //$NON-NLS-1$
+	private static final String XML_SUFFIX= ".xml"; //$NON-NLS-1$
+	private static final String TEMP_SUFFIX= ".tmp"; //$NON-NLS-1$
+	private static final String CHUNKS= "chunks"; //$NON-NLS-1$
+	private static final char[] HEX= "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private final File dir;
+	private final File chunks;
+	private RetentionPolicy policy= DEFAULT_POLICY;
+	private boolean compress;
+	private Logger logger= Logger.getLogger(this.getClass());
+
+	/**
+	 * @param dir folder of backup store
+	 */
+	GTDDataXMLBackups(File dir) {
+		this.dir=dir;
+		this.chunks= new File(dir,CHUNKS);
+	}
+
+	/**
+	 * @return folder of backup store
+	 */
+	File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * @param policy retention policy applied after each new backup
+	 */
+	synchronized void setPolicy(RetentionPolicy policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * @param compress if <code>true</code> new chunks are GZIP compressed
+	 */
+	synchronized void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+
+	/**
+	 * Checks if file is backup index from this store.
+	 */
+	boolean isBackup(File f) {
+		return f!=null && dir.equals(f.getParentFile()) && f.getName().startsWith(INDEX_PREFIX);
+	}
+
+	/**
+	 * Stores model as new backup. Only chunks, which are not already in store, are written.
+	 * Then backups, which are not kept by retention policy, are removed.
+	 * @param model snapshot of model
+	 * @return number of written chunks
+	 * @throws IOException if backup could not be written
+	 */
+	synchronized int store(GTDModel model) throws IOException {
+		if (!chunks.exists() && !chunks.mkdirs()) {
+			throw new IOException("Failed to create backup folder '"+chunks.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		MessageDigest md;
+		try {
+			md= MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+
+		long created= System.currentTimeMillis();
+		// backups created in same millisecond would have same name
+		File f= new File(dir, INDEX_PREFIX+created+XML_SUFFIX);
+		while (f.exists()) {
+			created++;
+			f= new File(dir, INDEX_PREFIX+created+XML_SUFFIX);
+		}
+		Backup b= new Backup(f);
+		b.created= created;
+		b.lastActionID= model.getLastActionID();
+		b.version= "2.2"; //$NON-NLS-1$
+
+		List<Folder> folders= new ArrayList<Folder>();
+		for (Folder ff : model.toFoldersArray()) {
+			if (!ff.isMeta()) {
+				folders.add(ff);
+			}
+		}
+		for (Project p : model.toProjectsArray()) {
+			folders.add(p);
+		}
+		folders.add(model.getQueue());
+
+		int written=0;
+		ByteArrayOutputStream buf= new ByteArrayOutputStream(4096);
+		for (Folder ff : folders) {
+			buf.reset();
+			try {
+				GTDDataXMLTools.storeSegment(ff, buf);
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			}
+			byte[] data= buf.toByteArray();
+			String hash= toHex(md.digest(data));
+			File cf= new File(chunks, hash+XML_SUFFIX);
+			if (!cf.exists()) {
+				// hash is of plain data, so compressed and plain chunks are same chunk
+				writeAtomic(cf, compress ? gzip(data) : data);
+				written++;
+			}
+			b.chunks.add(hash);
+		}
+
+		writeIndex(b);
+		logger.debug("Backup "+f.getName()+" written, "+written+" of "+folders.size()+" chunks new."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+		prune();
+		return written;
+	}
+
+	/**
+	 * @return indexes of all backups, newest first
+	 */
+	synchronized Backup[] list() {
+		File[] files= dir.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File pathname) {
+				return pathname.isFile() && pathname.getName().startsWith(INDEX_PREFIX) && pathname.getName().endsWith(XML_SUFFIX);
+			}
+		});
+		if (files==null) {
+			return new Backup[0];
+		}
+		List<Backup> l= new ArrayList<Backup>(files.length);
+		for (File f : files) {
+			try {
+				l.add(readIndex(f));
+			} catch (Exception e) {
+				logger.warn("Failed to read backup index '"+f.getAbsolutePath()+"'.", e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		Backup[] b= l.toArray(new Backup[l.size()]);
+		Arrays.sort(b, new Comparator<Backup>() {
+			@Override
+			public int compare(Backup o1, Backup o2) {
+				return o1.created<o2.created ? 1 : (o1.created==o2.created ? 0 : -1);
+			}
+		});
+		return b;
+	}
+
+	/**
+	 * Loads backup into model.
+	 * @param model empty model
+	 * @param index index file of backup
+	 * @throws IOException if backup or some of its chunks can not be read
+	 */
+	synchronized void load(GTDModel model, File index) throws IOException {
+		Backup b= readIndex(index);
+		List<File> files= new ArrayList<File>(b.chunks.size());
+		for (String hash : b.chunks) {
+			File cf= new File(chunks, hash+XML_SUFFIX);
+			if (!cf.exists()) {
+				throw new IOException("Backup chunk '"+cf.getAbsolutePath()+"' is missing."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			files.add(cf);
+		}
+		try {
+			GTDDataXMLTools.loadSegments(model, files, b.lastActionID);
+		} catch (XMLStreamException e) {
+			throw new IOException("Failed to load backup '"+index.getAbsolutePath()+"'.", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Writes backup as complete data file. Only target file is written.
+	 * @param index index file of backup
+	 * @param target data file to be written
+	 * @throws IOException if backup can not be read or written
+	 */
+	void materialize(File index, File target) throws IOException {
+		// model is only in memory, it is not bound to any data location
+		GTDModel m= new GTDModel(null);
+		load(m, index);
+		try {
+			GTDDataXMLTools.store(m, target);
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Removes backups not kept by retention policy and chunks not used by kept backups.
+	 */
+	synchronized void prune() {
+		Backup[] b= list();
+		long[] created= new long[b.length];
+		for (int i = 0; i < b.length; i++) {
+			created[i]= b[i].created;
+		}
+		boolean[] keep= policy.select(created);
+		Set<String> used= new HashSet<String>();
+		for (int i = 0; i < b.length; i++) {
+			if (keep[i]) {
+				used.addAll(b[i].chunks);
+			} else if (!b[i].file.delete()) {
+				logger.warn("Failed to remove backup '"+b[i].file.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+				used.addAll(b[i].chunks);
+			}
+		}
+		File[] files= chunks.listFiles();
+		if (files==null) {
+			return;
+		}
+		for (File f : files) {
+			String name= f.getName();
+			String hash= name.endsWith(XML_SUFFIX) ? name.substring(0, name.length()-XML_SUFFIX.length()) : name;
+			if (!used.contains(hash) && !f.delete()) {
+				logger.warn("Failed to remove backup chunk '"+f.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	private Backup readIndex(File f) throws IOException {
+		Backup b= new Backup(f);
+		InputStream in= new BufferedInputStream(new FileInputStream(f));
+		try {
+			XMLStreamReader r= XMLInputFactory.newInstance().createXMLStreamReader(in);
+			try {
+				r.nextTag();
+				if (!"gtd-backup".equals(r.getLocalName())) { //$NON-NLS-1$
+					throw new IOException("File '"+f.getAbsolutePath()+"' is not backup index."); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				b.created= Long.parseLong(r.getAttributeValue(null, "created")); //$NON-NLS-1$
+				b.lastActionID= Integer.parseInt(r.getAttributeValue(null, "lastActionID")); //$NON-NLS-1$
+				b.version= r.getAttributeValue(null, "dataVersion"); //$NON-NLS-1$
+				r.nextTag();
+				while (r.getEventType()==XMLStreamReader.START_ELEMENT && "chunk".equals(r.getLocalName())) { //$NON-NLS-1$
+					b.chunks.add(r.getAttributeValue(null, "hash")); //$NON-NLS-1$
+					r.nextTag();
+					r.nextTag();
+				}
+			} finally {
+				r.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Failed to read backup index '"+f.getAbsolutePath()+"'.", e); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (NumberFormatException e) {
+			throw new IOException("Failed to read backup index '"+f.getAbsolutePath()+"'.", e); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			in.close();
+		}
+		return b;
+	}
+
+	private void writeIndex(Backup b) throws IOException {
+		ByteArrayOutputStream buf= new ByteArrayOutputStream(1024);
+		try {
+			XMLStreamWriter w= XMLOutputFactory.newInstance().createXMLStreamWriter(buf,"UTF-8"); //$NON-NLS-1$
+			w.writeStartDocument("UTF-8","1.0"); //$NON-NLS-1$ //$NON-NLS-2$
+			w.writeCharacters("\n"); //$NON-NLS-1$
+			w.writeStartElement("gtd-backup"); //$NON-NLS-1$
+			w.writeAttribute("version", "1"); //$NON-NLS-1$ //$NON-NLS-2$
+			w.writeAttribute("dataVersion", b.version); //$NON-NLS-1$
+			w.writeAttribute("created", Long.toString(b.created)); //$NON-NLS-1$
+			w.writeAttribute("lastActionID", Integer.toString(b.lastActionID)); //$NON-NLS-1$
+			w.writeCharacters("\n"); //$NON-NLS-1$
+			for (String hash : b.chunks) {
+				w.writeCharacters("  "); //$NON-NLS-1$
+				w.writeStartElement("chunk"); //$NON-NLS-1$
+				w.writeAttribute("hash", hash); //$NON-NLS-1$
+				w.writeEndElement();
+				w.writeCharacters("\n"); //$NON-NLS-1$
+			}
+			w.writeEndElement();
+			w.writeEndDocument();
+			w.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+		writeAtomic(b.file, buf.toByteArray());
+	}
+
+	/**
+	 * Writes file to temporary file and moves it in place, so partially written file
+	 * is never visible under its name.
+	 */
+	private void writeAtomic(File f, byte[] data) throws IOException {
+		File tmp= File.createTempFile(f.getName()+".", TEMP_SUFFIX, f.getParentFile()); //$NON-NLS-1$
+		try {
+			FileOutputStream out= new FileOutputStream(tmp);
+			try {
+				BufferedOutputStream bout= new BufferedOutputStream(out,65536);
+				bout.write(data);
+				bout.flush();
+				out.getChannel().force(true);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				logger.debug("Atomic move not supported.", e); //$NON-NLS-1$
+				Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			if (tmp.exists() && !tmp.delete()) {
+				logger.warn("Failed to remove temporary file '"+tmp.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream buf= new ByteArrayOutputStream(data.length/4+64);
+		GZIPOutputStream gz= new GZIPOutputStream(buf);
+		gz.write(data);
+		gz.close();
+		return buf.toByteArray();
+	}
+
+	private static String toHex(byte[] b) {
+		char[] c= new char[b.length*2];
+		for (int i = 0; i < b.length; i++) {
+			c[i*2]= HEX[(b[i]>>4)&0xF];
+			c[i*2+1]= HEX[b[i]&0xF];
+		}
+		return new String(c);
+	}
+}
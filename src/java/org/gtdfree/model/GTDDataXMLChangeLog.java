@@ -0,0 +1,670 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+import org.gtdfree.model.Action.ActionType;
+import org.gtdfree.model.Action.Resolution;
+import org.gtdfree.model.Folder.FolderType;
+import org.gtdfree.model.GTDData.ActionProxy;
+import org.gtdfree.model.GTDModelEventBus.EventType;
+import org.gtdfree.model.GTDModelEventBus.Subscription;
+
+/**
+ * Append-only log of changes made to model since XML data file was last written.
+ * <p>
+ * Log listens to model and only remembers which actions and folders were changed,
+ * which is cheap. When <code>sync()</code> is called, current state of each changed
+ * action and folder is appended to log file as single record and file is forced
+ * to disk, so many changes are written with one sync. Records carry complete state,
+ * so replaying record more than once gives same result.
+ * <p>
+ * When XML data file is written, log is cut at checkpoint, which was taken before
+ * model snapshot was made. At startup log is replayed over loaded XML data file.
+ * Record with broken checksum, left by interrupted write, ends replay.
+ * <p>
+ * Besides model events, XML data store reports folders, which were changed directly
+ * through folder data, like re-sort after comparator change. Open action count
+ * is not logged, it is counted again when model is loaded.
+ *
+ * @author ikesan
+ *
+ */
+final class GTDDataXMLChangeLog implements GTDModelListener {
+
+	private static final int MAGIC= 0x47544443; // GTDC
+	private static final int VERSION= 1;
+	private static final int HEADER_SIZE= 8;
+	private static final int MAX_RECORD= 1<<26;
+
+	private static final byte FOLDER= 1;
+	private static final byte ACTION= 2;
+	private static final byte ORDER= 3;
+	private static final byte FOLDER_REMOVED= 4;
+	private static final byte ACTION_REMOVED= 5;
+
+	private final File file;
+	private GTDModel model;
+	private Subscription subscription;
+	private Logger logger= Logger.getLogger(this.getClass());
+
+	// changed entities, guarded by this
+	private Set<Integer> actions= new LinkedHashSet<Integer>();
+	private Set<Integer> folders= new LinkedHashSet<Integer>();
+	private Set<Integer> orders= new LinkedHashSet<Integer>();
+	private Set<Integer> removed= new LinkedHashSet<Integer>();
+
+	// log file, guarded by file lock
+	private final Object fileLock= new Object();
+	private FileOutputStream out;
+	private long length;
+
+	GTDDataXMLChangeLog(File file) {
+		this.file=file;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * Starts recording changes of provided model.
+	 * @param m the model
+	 */
+	void attach(GTDModel m) {
+		model=m;
+		subscription= model.getEventBus().subscribe(this, EnumSet.allOf(EventType.class));
+	}
+
+	/**
+	 * Stops recording changes and closes log file.
+	 */
+	void detach() {
+		if (subscription!=null) {
+			model.getEventBus().unsubscribe(subscription);
+			subscription=null;
+		}
+		synchronized (fileLock) {
+			closeFile();
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if there are changes, which were not yet written to log.
+	 */
+	synchronized boolean isPending() {
+		return !actions.isEmpty() || !folders.isEmpty() || !orders.isEmpty() || !removed.isEmpty();
+	}
+
+	/**
+	 * Returns size of log file in bytes.
+	 */
+	long length() {
+		synchronized (fileLock) {
+			if (out!=null) {
+				return length;
+			}
+			return file.length();
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if log file holds records, which are not in XML data file.
+	 */
+	boolean hasRecords() {
+		return length()>HEADER_SIZE;
+	}
+
+	/*
+	 * Change tracking
+	 */
+
+	private static boolean isOrdered(Folder f) {
+		return !f.isMeta() || f.isProject() || f.isQueue();
+	}
+
+	private synchronized void markActions(ActionProxy[] ap) {
+		for (ActionProxy p : ap) {
+			if (p!=null) {
+				actions.add(p.getId());
+			}
+		}
+	}
+
+	private synchronized void markOrder(Folder f) {
+		if (isOrdered(f)) {
+			orders.add(f.getId());
+		}
+	}
+
+	private synchronized void markFolder(Folder f) {
+		if (!f.isMeta() || f.isProject()) {
+			folders.add(f.getId());
+		}
+	}
+
+	/**
+	 * Marks folder, which was changed through its data store without model event.
+	 * @param f the folder
+	 */
+	void folderStored(Folder f) {
+		markFolder(f);
+		markOrder(f);
+	}
+
+	@Override
+	public void elementAdded(FolderEvent a) {
+		if (!a.getFolder().isMeta()) {
+			markActions(a.getActionProxies());
+		}
+		// folder modified date is changed too
+		markFolder(a.getFolder());
+		markOrder(a.getFolder());
+	}
+
+	@Override
+	public void elementRemoved(FolderEvent a) {
+		if (!a.getFolder().isMeta()) {
+			markActions(a.getActionProxies());
+		}
+		markFolder(a.getFolder());
+		markOrder(a.getFolder());
+	}
+
+	@Override
+	public void elementModified(ActionEvent a) {
+		markActions(a.getActionProxies());
+	}
+
+	@Override
+	public void orderChanged(Folder f) {
+		markOrder(f);
+	}
+
+	@Override
+	public void folderAdded(Folder folder) {
+		markFolder(folder);
+		markOrder(folder);
+	}
+
+	@Override
+	public void folderModified(FolderEvent folder) {
+		markFolder(folder.getFolder());
+	}
+
+	@Override
+	public synchronized void folderRemoved(Folder folder) {
+		folders.remove(folder.getId());
+		orders.remove(folder.getId());
+		removed.add(folder.getId());
+	}
+
+	/*
+	 * Writing
+	 */
+
+	/**
+	 * Appends current state of all changed actions and folders to log and forces
+	 * log to disk.
+	 * @return log file size after write, can be used as checkpoint
+	 * @throws IOException if writing fails, changes are then kept for next write
+	 */
+	long sync() throws IOException {
+		synchronized (fileLock) {
+			Integer[] f, a, o, r;
+			synchronized (this) {
+				f= folders.toArray(new Integer[folders.size()]);
+				a= actions.toArray(new Integer[actions.size()]);
+				o= orders.toArray(new Integer[orders.size()]);
+				r= removed.toArray(new Integer[removed.size()]);
+				folders.clear();
+				actions.clear();
+				orders.clear();
+				removed.clear();
+			}
+			if (f.length+a.length+o.length+r.length==0) {
+				return length();
+			}
+			try {
+				openFile();
+				ByteArrayOutputStream buf= new ByteArrayOutputStream(128*(f.length+a.length+o.length+r.length));
+				ByteArrayOutputStream rb= new ByteArrayOutputStream(256);
+				DataOutputStream rec= new DataOutputStream(rb);
+				// records do not capture half applied move or batch
+				boolean locked= model.lockChanges();
+				try {
+					for (Integer id : f) {
+						Folder ff= model.getFolder(id);
+						if (ff!=null) {
+							writeFolder(rec, ff);
+							append(buf, rb);
+						}
+					}
+					for (Integer id : a) {
+						Action aa= model.getAction(id);
+						if (aa!=null && aa.getParent()!=null) {
+							writeAction(rec, aa);
+						} else {
+							rec.writeByte(ACTION_REMOVED);
+							rec.writeInt(id);
+						}
+						append(buf, rb);
+					}
+					for (Integer id : o) {
+						Folder ff= model.getFolder(id);
+						if (ff!=null) {
+							writeOrder(rec, ff);
+							append(buf, rb);
+						}
+					}
+					for (Integer id : r) {
+						rec.writeByte(FOLDER_REMOVED);
+						rec.writeInt(id);
+						append(buf, rb);
+					}
+				} finally {
+					if (locked) {
+						model.unlockChanges();
+					}
+				}
+				buf.writeTo(out);
+				out.getChannel().force(false);
+				length+=buf.size();
+				return length;
+			} catch (IOException e) {
+				// mark again, so changes are not lost
+				synchronized (this) {
+					for (Integer id : f) folders.add(id);
+					for (Integer id : a) actions.add(id);
+					for (Integer id : o) orders.add(id);
+					for (Integer id : r) removed.add(id);
+				}
+				closeFile();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Appends record with length and checksum to buffer and resets record.
+	 */
+	private static void append(ByteArrayOutputStream buf, ByteArrayOutputStream rb) throws IOException {
+		byte[] r= rb.toByteArray();
+		rb.reset();
+		CRC32 crc= new CRC32();
+		crc.update(r);
+		DataOutputStream d= new DataOutputStream(buf);
+		d.writeInt(r.length);
+		d.write(r);
+		d.writeInt((int)crc.getValue());
+	}
+
+	private static void writeString(DataOutputStream o, String s) throws IOException {
+		if (s==null) {
+			o.writeInt(-1);
+			return;
+		}
+		byte[] b= s.getBytes("UTF-8"); //$NON-NLS-1$
+		o.writeInt(b.length);
+		o.write(b);
+	}
+
+	private static void writeDate(DataOutputStream o, Date d) throws IOException {
+		o.writeLong(d!=null ? d.getTime() : Long.MIN_VALUE);
+	}
+
+	private static void writeFolder(DataOutputStream o, Folder f) throws IOException {
+		o.writeByte(FOLDER);
+		o.writeInt(f.getId());
+		writeString(o, f.getName());
+		writeString(o, f.getType().toString());
+		o.writeBoolean(f.isClosed());
+		writeString(o, f.getDescription());
+		writeDate(o, f.getCreated());
+		writeDate(o, f.getModified());
+		writeDate(o, f.getResolved());
+		writeString(o, f.isProject() ? ((Project)f).getGoal() : null);
+	}
+
+	private static void writeAction(DataOutputStream o, Action a) throws IOException {
+		o.writeByte(ACTION);
+		o.writeInt(a.getId());
+		o.writeInt(a.getParent().getId());
+		writeDate(o, a.getCreated());
+		writeDate(o, a.getResolved());
+		writeDate(o, a.getModified());
+		writeString(o, a.getDescription());
+		writeString(o, a.getResolution().toString());
+		writeDate(o, a.getStart());
+		writeDate(o, a.getRemind());
+		writeDate(o, a.getDue());
+		writeString(o, a.getType()!=null ? a.getType().toString() : null);
+		writeString(o, a.getUrl()!=null ? a.getUrl().toString() : null);
+		o.writeBoolean(a.isQueued());
+		o.writeInt(a.getProject()!=null ? a.getProject() : Integer.MIN_VALUE);
+		writeString(o, a.getPriority()!=null ? a.getPriority().toString() : null);
+	}
+
+	private static void writeOrder(DataOutputStream o, Folder f) throws IOException {
+		ActionProxy[] v= f.view();
+		o.writeByte(ORDER);
+		o.writeInt(f.getId());
+		o.writeInt(v.length);
+		for (ActionProxy p : v) {
+			o.writeInt(p.getId());
+		}
+	}
+
+	/**
+	 * Opens log for appending, new log file starts with header.
+	 */
+	private void openFile() throws IOException {
+		if (out!=null) {
+			return;
+		}
+		boolean exists= file.exists() && file.length()>=HEADER_SIZE;
+		out= new FileOutputStream(file, exists);
+		if (exists) {
+			length= file.length();
+		} else {
+			DataOutputStream d= new DataOutputStream(out);
+			d.writeInt(MAGIC);
+			d.writeInt(VERSION);
+			d.flush();
+			length= HEADER_SIZE;
+		}
+	}
+
+	private void closeFile() {
+		if (out!=null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				logger.debug("I/O error.", e); //$NON-NLS-1$
+			}
+			out=null;
+		}
+	}
+
+	/**
+	 * Removes records up to provided checkpoint, which are now part of XML data file.
+	 * Records appended after checkpoint are kept.
+	 * @param checkpoint log size returned by <code>sync()</code> before model snapshot was made
+	 * @throws IOException if log can not be cut
+	 */
+	void cut(long checkpoint) throws IOException {
+		synchronized (fileLock) {
+			long l= length();
+			if (l<=HEADER_SIZE) {
+				return;
+			}
+			closeFile();
+			if (checkpoint>=l) {
+				RandomAccessFile raf= new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+				try {
+					raf.setLength(HEADER_SIZE);
+					raf.getChannel().force(true);
+				} finally {
+					raf.close();
+				}
+				return;
+			}
+			// keep tail, usually only few records
+			byte[] tail= new byte[(int)(l-checkpoint)];
+			RandomAccessFile raf= new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+			try {
+				raf.seek(checkpoint);
+				raf.readFully(tail);
+				raf.seek(HEADER_SIZE);
+				raf.write(tail);
+				raf.setLength(HEADER_SIZE+tail.length);
+				raf.getChannel().force(true);
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+	/*
+	 * Replay
+	 */
+
+	/**
+	 * Applies records from log file to provided model, which was loaded from XML data file.
+	 * @param m the model
+	 * @return number of applied records
+	 * @throws IOException if log can not be read
+	 */
+	int replay(GTDModel m) throws IOException {
+		if (!file.exists() || file.length()<=HEADER_SIZE) {
+			return 0;
+		}
+		InputStream in= new BufferedInputStream(new FileInputStream(file));
+		int count=0;
+		try {
+			DataInputStream d= new DataInputStream(in);
+			if (d.readInt()!=MAGIC) {
+				throw new IOException("File '"+file.getAbsolutePath()+"' is not GTD-Free change log."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			int ver= d.readInt();
+			if (ver>VERSION) {
+				throw new IOException("Change log version "+ver+" is not supported."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			while (true) {
+				int len;
+				try {
+					len= d.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				if (len<=0 || len>MAX_RECORD) {
+					logger.warn("Change log record length "+len+" is invalid, rest of log is ignored."); //$NON-NLS-1$ //$NON-NLS-2$
+					break;
+				}
+				byte[] r= new byte[len];
+				int crc;
+				try {
+					d.readFully(r);
+					crc= d.readInt();
+				} catch (EOFException e) {
+					logger.warn("Change log ends with incomplete record, record is ignored."); //$NON-NLS-1$
+					break;
+				}
+				CRC32 c= new CRC32();
+				c.update(r);
+				if ((int)c.getValue()!=crc) {
+					logger.warn("Change log record checksum does not match, rest of log is ignored."); //$NON-NLS-1$
+					break;
+				}
+				apply(m, new DataInputStream(new ByteArrayInputStream(r)));
+				count++;
+			}
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				logger.debug("I/O error.", e); //$NON-NLS-1$
+			}
+		}
+		return count;
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int l= in.readInt();
+		if (l<0) {
+			return null;
+		}
+		byte[] b= new byte[l];
+		in.readFully(b);
+		return new String(b, "UTF-8"); //$NON-NLS-1$
+	}
+
+	private static Date readDate(DataInputStream in) throws IOException {
+		long l= in.readLong();
+		return l==Long.MIN_VALUE ? null : new Date(l);
+	}
+
+	private void apply(GTDModel m, DataInputStream in) throws IOException {
+		byte type= in.readByte();
+		switch (type) {
+			case FOLDER: {
+				int id= in.readInt();
+				String name= readString(in);
+				FolderType ft= FolderType.valueOf(readString(in));
+				boolean closed= in.readBoolean();
+				String desc= readString(in);
+				Date cr= readDate(in);
+				Date mo= readDate(in);
+				Date re= readDate(in);
+				String goal= readString(in);
+				Folder f= m.getFolder(id);
+				if (f==null) {
+					f= m.createFolder(id, name, ft);
+				} else if (name!=null && !name.equals(f.getName())) {
+					m.renameFolder(f, name);
+				}
+				f.setClosed(closed);
+				if (!f.isInBucket()) {
+					f.setDescription(desc);
+				}
+				if (f.isProject()) {
+					((Project)f).setGoal(goal);
+				}
+				f.setDates(cr, mo, re);
+				break;
+			}
+			case ACTION: {
+				int id= in.readInt();
+				Folder f= m.getFolder(in.readInt());
+				Date cr= readDate(in);
+				Date re= readDate(in);
+				Date mo= readDate(in);
+				String desc= readString(in);
+				Resolution res= Resolution.toResolution(readString(in));
+				Date start= readDate(in);
+				Date remind= readDate(in);
+				Date due= readDate(in);
+				String s= readString(in);
+				ActionType at= s!=null ? ActionType.valueOf(s) : null;
+				s= readString(in);
+				URL url= null;
+				if (s!=null) {
+					try {
+						url= new URL(s);
+					} catch (Exception e) {
+						logger.debug("Internal error.", e); //$NON-NLS-1$
+					}
+				}
+				boolean queued= in.readBoolean();
+				int p= in.readInt();
+				Integer project= p!=Integer.MIN_VALUE ? p : null;
+				s= readString(in);
+				Priority pr= s!=null ? Priority.valueOf(s) : null;
+				if (f==null || f.isMeta()) {
+					logger.warn("Change log refers to missing folder, action "+id+" is ignored."); //$NON-NLS-1$ //$NON-NLS-2$
+					break;
+				}
+
+				Action a= m.getAction(id);
+				boolean created= a==null;
+				if (created) {
+					a= new Action(id, cr, re, desc, mo);
+				} else if (a.getParent()!=f) {
+					m.moveAction(a, f);
+				}
+				a.setDescription(desc);
+				a.setStart(start);
+				a.setRemind(remind);
+				a.setDue(due);
+				if (at!=null) {
+					a.setType(at);
+				}
+				a.setUrl(url);
+				a.setPriority(pr);
+				if (project!=null && m.getProject(project)==null) {
+					project=null;
+				}
+				a.setProject(project);
+				a.setResolution(res);
+				a.setQueued(queued);
+				a.restoreDates(re, mo);
+				if (created) {
+					f.add(a);
+					if (id>m.getLastActionID()) {
+						m.setLastActionID(id);
+					}
+				}
+				break;
+			}
+			case ORDER: {
+				Folder f= m.getFolder(in.readInt());
+				int n= in.readInt();
+				List<Action> order= new ArrayList<Action>(n);
+				for (int i = 0; i < n; i++) {
+					Action a= m.getAction(in.readInt());
+					if (a!=null) {
+						order.add(a);
+					}
+				}
+				if (f!=null) {
+					f.reorder(order.toArray(new Action[order.size()]));
+				}
+				break;
+			}
+			case FOLDER_REMOVED: {
+				m.removeFolder(in.readInt());
+				break;
+			}
+			case ACTION_REMOVED: {
+				Action a= m.getAction(in.readInt());
+				if (a!=null && a.getParent()!=null) {
+					ActionProxy ap= a.getProxy();
+					a.getParent().remove(a, ap);
+					m.removeDeleted(a, ap);
+				}
+				break;
+			}
+			default:
+				throw new IOException("Unknown change log record type "+type+"."); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+}
@@ -0,0 +1,489 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.log4j.Logger;
+import org.gtdfree.model.Folder.FolderType;
+
+/**
+ * Stores data as directory of segments, one XML file for each list, project and queue,
+ * with manifest, which lists current segment files. On write only segments of changed
+ * folders are written, as new files, and then manifest is atomically replaced.
+ * Directory is thus always consistent, either with old or with new manifest,
+ * and cost of write depends on size of changed folders, not on size of all data.
+ * <p>
+ * Segments are kept next to XML data file. Manifest records length and modification
+ * time of data file and whether segments hold same data as data file. If data file
+ * is changed by someone else, segments are not used.
+ * <p>
+ * Folders are marked as changed by data repository, whenever their data is stored.
+ *
+ * @author ikesan
+ *
+ */
+final class GTDDataXMLSegments {
+
+	/**
+	 * Content of manifest file.
+	 */
+	static final class Manifest {
+		private int generation;
+		private int lastActionID;
+		private long dataLength;
+		private long dataModified;
+		private boolean synced;
+		/**
+		 * Segment file names by segment key, lists first, then projects and queue.
+		 */
+		private final Map<String, String> files= new LinkedHashMap<String, String>();
+
+		/**
+		 * @return <code>true</code> if segments hold same data as data file
+		 */
+		boolean isSynced() {
+			return synced;
+		}
+
+		/**
+		 * Checks if segments were written with provided data file, that is if data file
+		 * was not changed since then.
+		 * @param data XML data file
+		 * @return <code>true</code> if data file has same length and modification time
+		 * as when segments were written
+		 */
+		boolean isBasedOn(File data) {
+			return data.exists() && data.length()==dataLength && data.lastModified()==dataModified;
+		}
+	}
+
+	/**
+	 * Segments marked as changed, taken for write.
+	 */
+	static final class Changes {
+		private final Set<String> keys;
+		private final boolean all;
+
+		private Changes(Set<String> keys, boolean all) {
+			this.keys=keys;
+			this.all=all;
+		}
+	}
+
+	private static final String MANIFEST= "manifest.xml"; //$NON-NLS-1$
+	private static final String TEMP_SUFFIX= ".tmp"; //$NON-NLS-1$
+	private static final String KEY_QUEUE= "queue"; //$NON-NLS-1$
+	private static final String KEY_PROJECT= "project-"; //$NON-NLS-1$
+	private static final String KEY_LIST= "list-"; //$NON-NLS-1$
+
+	private final File dir;
+	private Logger logger= Logger.getLogger(this.getClass());
+
+	// guarded by fileLock
+	private final Object fileLock= new Object();
+	private Manifest manifest;
+
+	// guarded by this
+	private Set<String> dirty= new HashSet<String>();
+	private boolean allDirty= true;
+
+	/**
+	 * @param dir directory with segments
+	 */
+	GTDDataXMLSegments(File dir) {
+		this.dir=dir;
+	}
+
+	/**
+	 * @return directory with segments
+	 */
+	File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * Returns key of segment, which holds folder with provided ID and type.
+	 * @return segment key or <code>null</code> if folder is not stored
+	 */
+	static String key(int id, FolderType type) {
+		switch (type) {
+			case QUEUE:
+				return KEY_QUEUE;
+			case PROJECT:
+				return KEY_PROJECT+id;
+			case BUILDIN:
+			case BUILDIN_DELETED:
+			case BUILDIN_PRIORITY:
+			case BUILDIN_REMIND:
+			case BUILDIN_RESOLVED:
+				return null;
+			default:
+				return KEY_LIST+id;
+		}
+	}
+
+	/**
+	 * Marks segment as changed.
+	 * @param key segment key, if <code>null</code> nothing is marked
+	 */
+	synchronized void markDirty(String key) {
+		if (key!=null && !allDirty) {
+			dirty.add(key);
+		}
+	}
+
+	/**
+	 * Marks all segments as changed, for example when data was not loaded from segments.
+	 */
+	synchronized void markAllDirty() {
+		allDirty=true;
+		dirty.clear();
+	}
+
+	/**
+	 * Marks all segments as unchanged, for example when data was loaded from segments.
+	 */
+	synchronized void clearDirty() {
+		allDirty=false;
+		dirty.clear();
+	}
+
+	/**
+	 * @return last read or written manifest, <code>null</code> if there is none
+	 */
+	Manifest getManifest() {
+		synchronized (fileLock) {
+			return manifest;
+		}
+	}
+
+	/**
+	 * Reads manifest and checks that segment files exist.
+	 * @return manifest or <code>null</code> if there is no manifest
+	 * @throws IOException if manifest can not be read or segment file is missing
+	 */
+	Manifest readManifest() throws IOException {
+		synchronized (fileLock) {
+			File f= new File(dir, MANIFEST);
+			if (!f.exists()) {
+				manifest=null;
+				return null;
+			}
+			Manifest m= new Manifest();
+			InputStream in= new BufferedInputStream(new FileInputStream(f));
+			try {
+				XMLStreamReader r= XMLInputFactory.newInstance().createXMLStreamReader(in);
+				try {
+					r.nextTag();
+					if (!"gtd-segments".equals(r.getLocalName())) { //$NON-NLS-1$
+						throw new IOException("File '"+f.getAbsolutePath()+"' is not segments manifest."); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+					m.generation= Integer.parseInt(r.getAttributeValue(null, "generation")); //$NON-NLS-1$
+					m.lastActionID= Integer.parseInt(r.getAttributeValue(null, "lastActionID")); //$NON-NLS-1$
+					m.dataLength= Long.parseLong(r.getAttributeValue(null, "dataLength")); //$NON-NLS-1$
+					m.dataModified= Long.parseLong(r.getAttributeValue(null, "dataModified")); //$NON-NLS-1$
+					m.synced= Boolean.parseBoolean(r.getAttributeValue(null, "synced")); //$NON-NLS-1$
+					r.nextTag();
+					while (r.getEventType()==XMLStreamReader.START_ELEMENT && "segment".equals(r.getLocalName())) { //$NON-NLS-1$
+						String key= r.getAttributeValue(null, "key"); //$NON-NLS-1$
+						String file= r.getAttributeValue(null, "file"); //$NON-NLS-1$
+						if (key==null || file==null || !new File(dir, file).exists()) {
+							throw new IOException("Segment '"+key+"' in '"+f.getAbsolutePath()+"' is missing."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						}
+						m.files.put(key, file);
+						r.nextTag();
+						r.nextTag();
+					}
+				} finally {
+					r.close();
+				}
+			} catch (XMLStreamException e) {
+				throw new IOException("Failed to read segments manifest '"+f.getAbsolutePath()+"'.", e); //$NON-NLS-1$ //$NON-NLS-2$
+			} catch (NumberFormatException e) {
+				throw new IOException("Failed to read segments manifest '"+f.getAbsolutePath()+"'.", e); //$NON-NLS-1$ //$NON-NLS-2$
+			} finally {
+				in.close();
+			}
+			manifest=m;
+			return m;
+		}
+	}
+
+	/**
+	 * Loads data from segments listed in manifest, which was read last.
+	 * @param model empty model
+	 * @throws IOException if segments can not be loaded
+	 */
+	void load(GTDModel model) throws IOException {
+		synchronized (fileLock) {
+			if (manifest==null) {
+				throw new IOException("Missing segments manifest in '"+dir.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			List<File> files= new ArrayList<File>(manifest.files.size());
+			for (String name : manifest.files.values()) {
+				files.add(new File(dir, name));
+			}
+			try {
+				GTDDataXMLTools.loadSegments(model, files, manifest.lastActionID);
+			} catch (XMLStreamException e) {
+				throw new IOException("Failed to load segments from '"+dir.getAbsolutePath()+"'.", e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	/**
+	 * Takes segments marked as changed and clears marks. Must be called before snapshot 
+	 * of model is made, so changes made after it are marked again, and before data file 
+	 * is replaced.
+	 * <p>
+	 * Unchanged segment files are reused only if they were written on top of current 
+	 * data file. If there is no manifest or data file was changed since, all segments 
+	 * are taken as changed.
+	 * @param data XML data file, as it is before save
+	 * @return changed segments, to be passed to <code>write</code>
+	 */
+	Changes takeChanges(File data) {
+		Manifest old= getManifest();
+		boolean stale= old==null || !old.isBasedOn(data);
+		synchronized (this) {
+			Changes c= new Changes(dirty, allDirty || stale);
+			dirty= new HashSet<String>();
+			allDirty= false;
+			return c;
+		}
+	}
+
+	/**
+	 * Marks again segments, which were taken but not written.
+	 * @param c changes returned by <code>takeChanges</code>
+	 */
+	synchronized void restoreChanges(Changes c) {
+		if (c.all) {
+			allDirty= true;
+			dirty.clear();
+		} else if (!allDirty) {
+			dirty.addAll(c.keys);
+		}
+	}
+
+	/**
+	 * Writes segments of folders, which were changed, and replaces manifest.
+	 * If nothing was changed, only manifest is replaced. If writing fails, changed segments
+	 * are marked again, also when it is synced write after data file.
+	 * @param model snapshot of model to be written
+	 * @param data XML data file, its length and modification time are recorded in manifest
+	 * @param synced <code>true</code> if data file holds same data as model
+	 * @param changes changes taken before snapshot was made
+	 * @return number of written segments
+	 * @throws IOException if writing fails
+	 */
+	int write(GTDModel model, File data, boolean synced, Changes changes) throws IOException {
+		Set<String> changed= changes.keys;
+		boolean all= changes.all;
+
+		synchronized (fileLock) {
+			List<File> written= new ArrayList<File>();
+			boolean done= false;
+			try {
+				if (!dir.exists() && !dir.mkdirs()) {
+					throw new IOException("Failed to create segments folder '"+dir.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				Manifest old= manifest;
+				Manifest m= new Manifest();
+				m.generation= old!=null ? old.generation+1 : 1;
+				m.lastActionID= model.getLastActionID();
+				m.dataLength= data.exists() ? data.length() : 0;
+				m.dataModified= data.exists() ? data.lastModified() : 0;
+				m.synced= synced;
+
+				List<Folder> folders= new ArrayList<Folder>();
+				for (Folder f : model.toFoldersArray()) {
+					if (!f.isMeta()) {
+						folders.add(f);
+					}
+				}
+				for (Project p : model.toProjectsArray()) {
+					folders.add(p);
+				}
+				folders.add(model.getQueue());
+
+				for (Folder f : folders) {
+					String key= key(f.getId(), f.getType());
+					String file= old!=null ? old.files.get(key) : null;
+					if (all || file==null || changed.contains(key)) {
+						file= key+"."+m.generation+".xml"; //$NON-NLS-1$ //$NON-NLS-2$
+						File sf= new File(dir, file);
+						written.add(sf);
+						writeSegment(f, sf);
+					}
+					m.files.put(key, file);
+				}
+
+				writeManifest(m);
+				manifest= m;
+				done= true;
+
+				removeUnused(m.files.values());
+				return written.size();
+			} finally {
+				if (!done) {
+					restoreChanges(changes);
+					for (File f : written) {
+						if (f.exists() && !f.delete()) {
+							logger.warn("Failed to remove segment '"+f.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void writeSegment(Folder f, File file) throws IOException {
+		FileOutputStream out= new FileOutputStream(file);
+		try {
+			BufferedOutputStream bout= new BufferedOutputStream(out,65536);
+			GTDDataXMLTools.storeSegment(f, bout);
+			bout.flush();
+			out.getChannel().force(true);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeManifest(Manifest m) throws IOException {
+		File f= new File(dir, MANIFEST);
+		File tmp= File.createTempFile(MANIFEST+".", TEMP_SUFFIX, dir); //$NON-NLS-1$
+		try {
+			FileOutputStream out= new FileOutputStream(tmp);
+			try {
+				BufferedOutputStream bout= new BufferedOutputStream(out);
+				XMLStreamWriter w= XMLOutputFactory.newInstance().createXMLStreamWriter(bout,"UTF-8"); //$NON-NLS-1$
+				w.writeStartDocument("UTF-8","1.0"); //$NON-NLS-1$ //$NON-NLS-2$
+				w.writeCharacters("\n"); //$NON-NLS-1$
+				w.writeStartElement("gtd-segments"); //$NON-NLS-1$
+				w.writeAttribute("version", "1"); //$NON-NLS-1$ //$NON-NLS-2$
+				w.writeAttribute("generation", Integer.toString(m.generation)); //$NON-NLS-1$
+				w.writeAttribute("lastActionID", Integer.toString(m.lastActionID)); //$NON-NLS-1$
+				w.writeAttribute("dataLength", Long.toString(m.dataLength)); //$NON-NLS-1$
+				w.writeAttribute("dataModified", Long.toString(m.dataModified)); //$NON-NLS-1$
+				w.writeAttribute("synced", Boolean.toString(m.synced)); //$NON-NLS-1$
+				w.writeCharacters("\n"); //$NON-NLS-1$
+				for (Map.Entry<String, String> e : m.files.entrySet()) {
+					w.writeCharacters("  "); //$NON-NLS-1$
+					w.writeStartElement("segment"); //$NON-NLS-1$
+					w.writeAttribute("key", e.getKey()); //$NON-NLS-1$
+					w.writeAttribute("file", e.getValue()); //$NON-NLS-1$
+					w.writeEndElement();
+					w.writeCharacters("\n"); //$NON-NLS-1$
+				}
+				w.writeEndElement();
+				w.writeEndDocument();
+				w.flush();
+				w.close();
+				bout.flush();
+				out.getChannel().force(true);
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				logger.debug("Atomic move not supported.", e); //$NON-NLS-1$
+				Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			forceDirectory();
+		} finally {
+			if (tmp.exists() && !tmp.delete()) {
+				logger.warn("Failed to remove temporary file '"+tmp.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	private void forceDirectory() {
+		try {
+			FileChannel ch= FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+			try {
+				ch.force(true);
+			} finally {
+				ch.close();
+			}
+		} catch (IOException e) {
+			// not supported on all platforms
+			logger.debug("Directory sync not supported.", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Removes segment files, which are not listed in manifest, left from previous writes
+	 * or from writes, which failed.
+	 */
+	void removeUnused() {
+		synchronized (fileLock) {
+			if (manifest!=null) {
+				removeUnused(manifest.files.values());
+			}
+		}
+	}
+
+	private void removeUnused(Collection<String> used) {
+		File[] files= dir.listFiles();
+		if (files==null) {
+			return;
+		}
+		Set<String> keep= new HashSet<String>(used);
+		keep.add(MANIFEST);
+		for (File f : files) {
+			if (!keep.contains(f.getName()) && f.isFile() && !f.delete()) {
+				logger.warn("Failed to remove unused segment '"+f.getAbsolutePath()+"'."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+}
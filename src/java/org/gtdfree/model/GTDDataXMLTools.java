@@ -23,7 +23,6 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -34,11 +33,16 @@ import java.net.URL;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.FactoryConfigurationError;
 import javax.xml.stream.XMLInputFactory;
@@ -51,6 +55,7 @@ import org.apache.log4j.Logger;
 import org.gtdfree.ApplicationHelper;
 import org.gtdfree.model.Action.ActionType;
 import org.gtdfree.model.Folder.FolderType;
+import org.gtdfree.model.GTDData.ActionProxy;
 
 /**
  * @author ikesan
@@ -64,8 +69,9 @@ public final class GTDDataXMLTools {
 	 */
 	private static String unescapeJava(String input) {
 		if (input == null) return null;
+		if (input.indexOf('\\') < 0) return input;
 		
-		StringBuilder result = new StringBuilder();
+		StringBuilder result = new StringBuilder(input.length());
 		boolean escaping = false;
 		
 		for (int i = 0; i < input.length(); i++) {
@@ -113,7 +119,7 @@ public final class GTDDataXMLTools {
 	 * Modern replacement for new URL(String) constructor.
 	 * Uses URI.toURL() which is the recommended approach.
 	 */
-	private static java.net.URL createURL(String spec) throws java.net.MalformedURLException {
+	static java.net.URL createURL(String spec) throws java.net.MalformedURLException {
 		try {
 			return new java.net.URI(spec).toURL();
 		} catch (java.net.URISyntaxException e) {
@@ -133,14 +139,14 @@ public final class GTDDataXMLTools {
 				}
 			}
 		}
-		public DataHeader(File f) throws FileNotFoundException, XMLStreamException, javax.xml.stream.FactoryConfigurationError {
+		public DataHeader(File f) throws IOException, XMLStreamException, javax.xml.stream.FactoryConfigurationError {
 			file=f;
 			
 			InputStream in=null; 
 			XMLStreamReader r=null;
 			try {
 				
-				in=new BufferedInputStream(new FileInputStream(f));
+				in=openData(new FileInputStream(f));
 				r = XMLInputFactory.newInstance().createXMLStreamReader(in);
 				r.nextTag();
 	
@@ -657,234 +663,343 @@ public final class GTDDataXMLTools {
 	
 	}
 
-	private static void _load_2_2(GTDModel model, XMLStreamReader r) throws XMLStreamException  {
-		
-		HashMap<Integer, Action> withProject= new HashMap<Integer, Action>();
-		HashMap<Integer, Action> queued= new HashMap<Integer, Action>();
-	
-		if (checkTagStart(r,"lists")) { //$NON-NLS-1$
-			
-			r.nextTag();
-			while (checkTagStart(r, "list")) { //$NON-NLS-1$
-				Folder ff;
-				String id= r.getAttributeValue(null,"id"); //$NON-NLS-1$
-				if (id!=null) {
-					ff= model.createFolder(Integer.parseInt(id),r.getAttributeValue(null, "name"),FolderType.valueOf(r.getAttributeValue(null, "type"))); //$NON-NLS-1$ //$NON-NLS-2$
-				} else {
-					String s=r.getAttributeValue(null, "type").replace("NOTE", "INBUCKET"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-					ff= model.createFolder(r.getAttributeValue(null, "name"),FolderType.valueOf(s)); //$NON-NLS-1$
-				}
-				String s= r.getAttributeValue(null, "closed"); //$NON-NLS-1$
-				if (s!=null) ff.setClosed(Boolean.parseBoolean(s));
-				
-				s = unescapeJava(r.getAttributeValue(null, "description")); //$NON-NLS-1$
-				
-				if (!ff.isInBucket()) {
-					ff.setDescription(s);
-				}
-				
-				Date cr=null, mo=null, re=null;
-				s= r.getAttributeValue(null, "created"); //$NON-NLS-1$
-				if (s!=null) {
-					cr= new Date(Long.parseLong(s));
-				}
-				s= r.getAttributeValue(null, "modified"); //$NON-NLS-1$
-				if (s!=null) {
-					mo= new Date(Long.parseLong(s));
-				}
-				s= r.getAttributeValue(null, "resolved"); //$NON-NLS-1$
-				if (s!=null) {
-					re= new Date(Long.parseLong(s));
-				}
-				ff.setDates(cr, mo, re);
-
-				r.nextTag();
-				
-				while(checkTagStart(r, "action")) { //$NON-NLS-1$
-					int i= Integer.parseInt(r.getAttributeValue(null, "id")); //$NON-NLS-1$
-					cr= new Date(Long.parseLong(r.getAttributeValue(null, "created"))); //$NON-NLS-1$
-					re= r.getAttributeValue(null, "resolved")==null ? null : new Date(Long.parseLong(r.getAttributeValue(null, "resolved"))); //$NON-NLS-1$ //$NON-NLS-2$
-					mo= r.getAttributeValue(null, "modified")==null ? null : new Date(Long.parseLong(r.getAttributeValue(null, "modified"))); //$NON-NLS-1$ //$NON-NLS-2$
-					
-					String d = unescapeJava(r.getAttributeValue(null, "description")); //$NON-NLS-1$
-					
-					Action a= new Action(i,cr,re,d,mo);
-					
-					s= r.getAttributeValue(null, "type"); //$NON-NLS-1$
-					if (s!=null) a.setType(ActionType.valueOf(s));
-					
-					s= r.getAttributeValue(null, "url"); //$NON-NLS-1$
-					if (s!=null) {
-						try {
-							a.setUrl(createURL(s));
-						} catch (Exception e) {
-							Logger.getLogger(GTDDataXMLTools.class).debug("Internal error.", e); //$NON-NLS-1$
-						}
-					}
-	
-					s= r.getAttributeValue(null, "start"); //$NON-NLS-1$
-					if (s!=null) a.setStart(new Date(Long.parseLong(s)));
-					
-					s= r.getAttributeValue(null, "remind"); //$NON-NLS-1$
-					if (s!=null) a.setRemind(new Date(Long.parseLong(s)));
-	
-					s= r.getAttributeValue(null, "due"); //$NON-NLS-1$
-					if (s!=null) a.setDue(new Date(Long.parseLong(s)));
-	
-					s= r.getAttributeValue(null, "queued"); //$NON-NLS-1$
-					if (s!=null) a.setQueued(Boolean.parseBoolean(s));
-	
-					s= r.getAttributeValue(null, "project"); //$NON-NLS-1$
-					if (s!=null) a.setProject(Integer.parseInt(s));
-					
-					s= r.getAttributeValue(null, "priority"); //$NON-NLS-1$
-					if (s!=null) a.setPriority(Priority.valueOf(s));
+	/**
+	 * Attributes of action element, position in array is position of value in attribute buffer.
+	 */
+	private static final String[] ACTION_ATTRIBUTES= {
+		"id", //$NON-NLS-1$
+		"created", //$NON-NLS-1$
+		"resolved", //$NON-NLS-1$
+		"modified", //$NON-NLS-1$
+		"description", //$NON-NLS-1$
+		"type", //$NON-NLS-1$
+		"url", //$NON-NLS-1$
+		"start", //$NON-NLS-1$
+		"remind", //$NON-NLS-1$
+		"due", //$NON-NLS-1$
+		"queued", //$NON-NLS-1$
+		"project", //$NON-NLS-1$
+		"priority", //$NON-NLS-1$
+		"resolution" //$NON-NLS-1$
+	};
+	private static final int A_ID=0, A_CREATED=1, A_RESOLVED=2, A_MODIFIED=3, A_DESCRIPTION=4, A_TYPE=5, A_URL=6, 
+		A_START=7, A_REMIND=8, A_DUE=9, A_QUEUED=10, A_PROJECT=11, A_PRIORITY=12, A_RESOLUTION=13;
+	private static final Map<String, Integer> ACTION_ATTRIBUTE_INDEX= new HashMap<String, Integer>();
+	static {
+		for (int i = 0; i < ACTION_ATTRIBUTES.length; i++) {
+			ACTION_ATTRIBUTE_INDEX.put(ACTION_ATTRIBUTES[i], i);
+		}
+	}
 	
-					a.setResolution(Action.Resolution.toResolution(r.getAttributeValue(null, "resolution"))); //$NON-NLS-1$
+	/**
+	 * Reads attributes of current element into reused buffer in single pass.
+	 * @param r the reader
+	 * @param index position in buffer by attribute name
+	 * @param values buffer for values, missing attributes are <code>null</code>
+	 */
+	private static void readAttributes(XMLStreamReader r, Map<String, Integer> index, String[] values) {
+		Arrays.fill(values, null);
+		int n= r.getAttributeCount();
+		for (int i = 0; i < n; i++) {
+			Integer k= index.get(r.getAttributeLocalName(i));
+			if (k!=null) {
+				values[k]= r.getAttributeValue(i);
+			}
+		}
+	}
 	
-					ff.add(a);
-					
-					if (a.getProject()!=null) {
-						withProject.put(a.getId(), a);
-					}
+	private static Date toDate(String s) {
+		return s!=null ? new Date(Long.parseLong(s)) : null;
+	}
 	
-					if (a.isQueued()) {
-						queued.put(a.getId(), a);
-					}
-					
-					if (a.getId()>model.getLastActionID()) {
-						model.setLastActionID(a.getId());
-					}
-					
-					findTagEnd(r,"action"); //$NON-NLS-1$
-					r.nextTag();
-				}	
-					
-				findTagEnd(r,"list"); //$NON-NLS-1$
-				r.nextTag();
+	/**
+	 * Creates action from attribute values read with <code>readAttributes</code>.
+	 */
+	private static Action createAction(String[] v) {
+		Date mo= toDate(v[A_MODIFIED]);
+		Action a= new Action(Integer.parseInt(v[A_ID]),toDate(v[A_CREATED]),toDate(v[A_RESOLVED]),unescapeJava(v[A_DESCRIPTION]),mo);
+		
+		if (v[A_TYPE]!=null) a.setType(ActionType.valueOf(v[A_TYPE]));
+		
+		if (v[A_URL]!=null) {
+			try {
+				a.setUrl(createURL(v[A_URL]));
+			} catch (Exception e) {
+				Logger.getLogger(GTDDataXMLTools.class).debug("Internal error.", e); //$NON-NLS-1$
 			}
-			findTagEnd(r,"lists"); //$NON-NLS-1$
-			//r.nextTag();
 		}
+
+		if (v[A_START]!=null) a.setStart(toDate(v[A_START]));
+		if (v[A_REMIND]!=null) a.setRemind(toDate(v[A_REMIND]));
+		if (v[A_DUE]!=null) a.setDue(toDate(v[A_DUE]));
+		if (v[A_QUEUED]!=null) a.setQueued(Boolean.parseBoolean(v[A_QUEUED]));
+		if (v[A_PROJECT]!=null) a.setProject(Integer.parseInt(v[A_PROJECT]));
+		if (v[A_PRIORITY]!=null) a.setPriority(Priority.valueOf(v[A_PRIORITY]));
+
+		a.setResolution(Action.Resolution.toResolution(v[A_RESOLUTION]));
 		
+		// setters have touched modified date, stored one is kept
+		if (mo!=null) {
+			a.restoreDates(a.getResolved(), mo);
+		}
+		return a;
+	}
+
+	/**
+	 * State of loading, which spans several parts of data: actions are read with lists,
+	 * but are added to projects and queue later.
+	 */
+	private static final class LoadState {
+		final GTDData data;
+		final String[] values= new String[ACTION_ATTRIBUTES.length];
+		// actions are looked up by ID and leftovers are handled in load order
+		final IntHashMap<Action> withProject= new IntHashMap<Action>();
+		final List<Action> withProjectOrder= new ArrayList<Action>();
+		final IntHashMap<Action> queued= new IntHashMap<Action>();
+		final List<Action> queuedOrder= new ArrayList<Action>();
+		int lastID;
+
+		LoadState(GTDModel model) {
+			data= model.getDataRepository();
+			lastID= model.getLastActionID();
+		}
+	}
+
+	private static void _load_2_2(GTDModel model, XMLStreamReader r) throws XMLStreamException  {
+		LoadState st= new LoadState(model);
+		_load_2_2_part(model, r, st);
+		_load_2_2_finish(model, st);
+	}
+
+	/**
+	 * Reads lists, projects and queue, whichever of them are present in data.
+	 */
+	private static void _load_2_2_part(GTDModel model, XMLStreamReader r, LoadState st) throws XMLStreamException  {
+
+		if (checkTagStart(r,"lists")) { //$NON-NLS-1$
+			readLists(model, r, st);
+		}
+
 		if (r.getEventType()==XMLStreamReader.END_DOCUMENT) {
 			return;
 		}
 		// read projects
 		r.nextTag();
-	
+
 		if (r.getEventType()==XMLStreamReader.END_DOCUMENT) {
 			return;
 		}
-		
+
 		if (checkTagStart(r,"projects")) { //$NON-NLS-1$
-	
+			readProjects(model, r, st);
+		}
+
+		if (r.getEventType()==XMLStreamReader.END_DOCUMENT) {
+			return;
+		}
+
+		// read queue
+		r.nextTag();
+
+		if (r.getEventType()==XMLStreamReader.END_DOCUMENT) {
+			return;
+		}
+
+		if (checkTagStart(r,"queue")) { //$NON-NLS-1$
+			readQueue(model, r, st);
+		}
+	}
+
+	private static void readLists(GTDModel model, XMLStreamReader r, LoadState st) throws XMLStreamException  {
+		GTDData data= st.data;
+		String[] v= st.values;
+
+		r.nextTag();
+		while (checkTagStart(r, "list")) { //$NON-NLS-1$
+			Folder ff;
+			String id= r.getAttributeValue(null,"id"); //$NON-NLS-1$
+			if (id!=null) {
+				ff= model.createFolder(Integer.parseInt(id),r.getAttributeValue(null, "name"),FolderType.valueOf(r.getAttributeValue(null, "type"))); //$NON-NLS-1$ //$NON-NLS-2$
+			} else {
+				String s=r.getAttributeValue(null, "type").replace("NOTE", "INBUCKET"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				ff= model.createFolder(r.getAttributeValue(null, "name"),FolderType.valueOf(s)); //$NON-NLS-1$
+			}
+			String s= r.getAttributeValue(null, "closed"); //$NON-NLS-1$
+			if (s!=null) ff.setClosed(Boolean.parseBoolean(s));
+
+			s = unescapeJava(r.getAttributeValue(null, "description")); //$NON-NLS-1$
+
+			if (!ff.isInBucket()) {
+				ff.setDescription(s);
+			}
+
+			Date cr=null, mo=null, re=null;
+			s= r.getAttributeValue(null, "created"); //$NON-NLS-1$
+			if (s!=null) {
+				cr= new Date(Long.parseLong(s));
+			}
+			s= r.getAttributeValue(null, "modified"); //$NON-NLS-1$
+			if (s!=null) {
+				mo= new Date(Long.parseLong(s));
+			}
+			s= r.getAttributeValue(null, "resolved"); //$NON-NLS-1$
+			if (s!=null) {
+				re= new Date(Long.parseLong(s));
+			}
+			ff.setDates(cr, mo, re);
+
 			r.nextTag();
-			while (checkTagStart(r, "project")) { //$NON-NLS-1$
-				Project pp;
-				String id= r.getAttributeValue(null,"id"); //$NON-NLS-1$
-				if (id!=null) {
-					pp= (Project)model.createFolder(Integer.parseInt(id),r.getAttributeValue(null, "name"),FolderType.PROJECT); //$NON-NLS-1$
-				} else {
-					pp= (Project)model.createFolder(r.getAttributeValue(null, "name"),FolderType.PROJECT); //$NON-NLS-1$
-				}
-				pp.setClosed(Boolean.parseBoolean(r.getAttributeValue(null, "closed"))); //$NON-NLS-1$
-				pp.setGoal(r.getAttributeValue(null, "goal")); //$NON-NLS-1$
-				
-				String s = unescapeJava(r.getAttributeValue(null, "description")); //$NON-NLS-1$
-				if (s!=null) {
-					pp.setDescription(s);
-				}
-				
-				Date cr=null, mo=null, re=null;
-				s= r.getAttributeValue(null, "created"); //$NON-NLS-1$
-				if (s!=null) {
-					cr= new Date(Long.parseLong(s));
-				}
-				s= r.getAttributeValue(null, "modified"); //$NON-NLS-1$
-				if (s!=null) {
-					mo= new Date(Long.parseLong(s));
+
+			List<Action> ac= new ArrayList<Action>();
+			List<ActionProxy> ap= new ArrayList<ActionProxy>();
+
+			while(checkTagStart(r, "action")) { //$NON-NLS-1$
+				readAttributes(r, ACTION_ATTRIBUTE_INDEX, v);
+				Action a= createAction(v);
+
+				ac.add(a);
+				ap.add(data.getProxy(a));
+
+				if (a.getProject()!=null) {
+					st.withProject.put(a.getId(), a);
+					st.withProjectOrder.add(a);
 				}
-				s= r.getAttributeValue(null, "resolved"); //$NON-NLS-1$
-				if (s!=null) {
-					re= new Date(Long.parseLong(s));
+
+				if (a.isQueued()) {
+					st.queued.put(a.getId(), a);
+					st.queuedOrder.add(a);
 				}
-				pp.setDates(cr, mo, re);
 
-				s= r.getAttributeValue(null, "actions"); //$NON-NLS-1$
-				
-				if (s!=null && s.trim().length()>0) {
-					String[] ss= s.trim().split(","); //$NON-NLS-1$
-					for (int i = 0; i < ss.length; i++) {
-						if (ss[i].trim().length()>0) {
-							int ii= Integer.parseInt(ss[i].trim());
-							Action a= withProject.remove(ii);
-							if (a!=null) {
-								pp.add(a);
-							}
-						}
-					}
+				if (a.getId()>st.lastID) {
+					st.lastID= a.getId();
 				}
+
+				findTagEnd(r,"action"); //$NON-NLS-1$
 				r.nextTag();
-				findTagEnd(r,"project"); //$NON-NLS-1$
-				r.nextTag();
-			}
-			findTagEnd(r,"projects"); //$NON-NLS-1$
-		}
-		
-		for (Action a: withProject.values()) {
-			if (a.getProject()!=null) {
-				Project p= model.getProject(a.getProject());
-				
-				if (p!=null) {
-					p.add(a);
-				} else {
-					System.err.println("Project "+p+" in action "+a+" does not exsist."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-					a.setProject(null);
-				}
 			}
+
+			// whole list is added at once, with single event and sort
+			ff.add(ac.toArray(new Action[ac.size()]), ap.toArray(new ActionProxy[ap.size()]));
+
+			findTagEnd(r,"list"); //$NON-NLS-1$
+			r.nextTag();
 		}
-		
-		if (r.getEventType()==XMLStreamReader.END_DOCUMENT) {
-			return;
+		findTagEnd(r,"lists"); //$NON-NLS-1$
+
+		if (st.lastID>model.getLastActionID()) {
+			model.setLastActionID(st.lastID);
 		}
-	
-		// read projects
+	}
+
+	private static void readProjects(GTDModel model, XMLStreamReader r, LoadState st) throws XMLStreamException  {
+		GTDData data= st.data;
+
 		r.nextTag();
-	
-		if (r.getEventType()==XMLStreamReader.END_DOCUMENT) {
-			return;
-		}
-		
-		if (checkTagStart(r,"queue")) { //$NON-NLS-1$
-			Folder f = model.getQueue();
-	
-			String s= r.getAttributeValue(null, "actions"); //$NON-NLS-1$
-			
+		while (checkTagStart(r, "project")) { //$NON-NLS-1$
+			Project pp;
+			String id= r.getAttributeValue(null,"id"); //$NON-NLS-1$
+			if (id!=null) {
+				pp= (Project)model.createFolder(Integer.parseInt(id),r.getAttributeValue(null, "name"),FolderType.PROJECT); //$NON-NLS-1$
+			} else {
+				pp= (Project)model.createFolder(r.getAttributeValue(null, "name"),FolderType.PROJECT); //$NON-NLS-1$
+			}
+			pp.setClosed(Boolean.parseBoolean(r.getAttributeValue(null, "closed"))); //$NON-NLS-1$
+			pp.setGoal(r.getAttributeValue(null, "goal")); //$NON-NLS-1$
+
+			String s = unescapeJava(r.getAttributeValue(null, "description")); //$NON-NLS-1$
+			if (s!=null) {
+				pp.setDescription(s);
+			}
+
+			Date cr=null, mo=null, re=null;
+			s= r.getAttributeValue(null, "created"); //$NON-NLS-1$
+			if (s!=null) {
+				cr= new Date(Long.parseLong(s));
+			}
+			s= r.getAttributeValue(null, "modified"); //$NON-NLS-1$
+			if (s!=null) {
+				mo= new Date(Long.parseLong(s));
+			}
+			s= r.getAttributeValue(null, "resolved"); //$NON-NLS-1$
+			if (s!=null) {
+				re= new Date(Long.parseLong(s));
+			}
+			pp.setDates(cr, mo, re);
+
+			s= r.getAttributeValue(null, "actions"); //$NON-NLS-1$
+
 			if (s!=null && s.trim().length()>0) {
 				String[] ss= s.trim().split(","); //$NON-NLS-1$
+				List<Action> ac= new ArrayList<Action>(ss.length);
+				List<ActionProxy> ap= new ArrayList<ActionProxy>(ss.length);
 				for (int i = 0; i < ss.length; i++) {
 					if (ss[i].trim().length()>0) {
 						int ii= Integer.parseInt(ss[i].trim());
-						Action a= queued.remove(ii);
+						Action a= st.withProject.remove(ii);
 						if (a!=null) {
-							f.add(a);
+							ac.add(a);
+							ap.add(data.getProxy(a));
 						}
 					}
 				}
+				pp.add(ac.toArray(new Action[ac.size()]), ap.toArray(new ActionProxy[ap.size()]));
 			}
 			r.nextTag();
-			findTagEnd(r,"queue"); //$NON-NLS-1$
+			findTagEnd(r,"project"); //$NON-NLS-1$
 			r.nextTag();
 		}
-	
-		for (Action a: queued.values()) {
-			if (a.isQueued()) {
+		findTagEnd(r,"projects"); //$NON-NLS-1$
+	}
+
+	private static void readQueue(GTDModel model, XMLStreamReader r, LoadState st) throws XMLStreamException  {
+		Folder f = model.getQueue();
+
+		String s= r.getAttributeValue(null, "actions"); //$NON-NLS-1$
+
+		if (s!=null && s.trim().length()>0) {
+			String[] ss= s.trim().split(","); //$NON-NLS-1$
+			List<Action> ac= new ArrayList<Action>(ss.length);
+			List<ActionProxy> ap= new ArrayList<ActionProxy>(ss.length);
+			for (int i = 0; i < ss.length; i++) {
+				if (ss[i].trim().length()>0) {
+					int ii= Integer.parseInt(ss[i].trim());
+					Action a= st.queued.remove(ii);
+					if (a!=null) {
+						ac.add(a);
+						ap.add(st.data.getProxy(a));
+					}
+				}
+			}
+			f.add(ac.toArray(new Action[ac.size()]), ap.toArray(new ActionProxy[ap.size()]));
+		}
+		r.nextTag();
+		findTagEnd(r,"queue"); //$NON-NLS-1$
+		r.nextTag();
+	}
+
+	/**
+	 * Adds actions, which were not listed by their project or queue.
+	 */
+	private static void _load_2_2_finish(GTDModel model, LoadState st) {
+		for (Action a: st.withProjectOrder) {
+			if (st.withProject.containsKey(a.getId()) && a.getProject()!=null) {
+				Project p= model.getProject(a.getProject());
+
+				if (p!=null) {
+					p.add(a);
+				} else {
+					System.err.println("Project "+p+" in action "+a+" does not exsist."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					a.setProject(null);
+				}
+			}
+		}
+
+		for (Action a: st.queuedOrder) {
+			if (st.queued.containsKey(a.getId()) && a.isQueued()) {
 				System.err.println("Action "+a+" is queued but not in queue list."); //$NON-NLS-1$ //$NON-NLS-2$
 				model.getQueue().add(a);
 			}
 		}
-	
 	}
 
 	static private boolean checkTagStart(XMLStreamReader r, String tag) throws XMLStreamException {
@@ -932,6 +1047,35 @@ public final class GTDDataXMLTools {
 		}
 	}
 
+	/**
+	 * Returns stream with data file content, which is decompressed if data file 
+	 * is GZIP compressed. Compressed data is recognized by GZIP header, not by file name.
+	 * @param in stream with plain or compressed data
+	 * @return stream with plain data
+	 */
+	static InputStream openData(InputStream in) throws IOException {
+		BufferedInputStream bin= in instanceof BufferedInputStream ? (BufferedInputStream)in : new BufferedInputStream(in,65536);
+		bin.mark(2);
+		int b1= bin.read();
+		int b2= bin.read();
+		bin.reset();
+		if (b1==(GZIPInputStream.GZIP_MAGIC&0xFF) && b2==(GZIPInputStream.GZIP_MAGIC>>8)) {
+			return new GZIPInputStream(bin,65536);
+		}
+		return bin;
+	}
+	
+	/**
+	 * Creates parser factory for loading data. Data files do not use namespaces or DTD,
+	 * so parser does not have to resolve them for each element.
+	 */
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory f= XMLInputFactory.newInstance();
+		f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+		f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		return f;
+	}
+	
 	static public DataHeader load(GTDModel model, InputStream in) throws XMLStreamException, IOException {
 				
 		model.setSuspendedForMultipleChanges(true);
@@ -940,8 +1084,8 @@ public final class GTDDataXMLTools {
 		XMLStreamReader r;
 		try {
 			
-			// buffer size is same as default in 1.6, we explicitly request it so, not to brake if defaut changes.
-			BufferedInputStream bin= new BufferedInputStream(in,8192);
+			// large buffer, parser reads in small chunks
+			BufferedInputStream bin= new BufferedInputStream(openData(in),65536);
 			bin.mark(8191);
 			
 			Reader rr= new InputStreamReader(bin);
@@ -960,13 +1104,13 @@ public final class GTDDataXMLTools {
 	        if (matcher.find()) {
 	        	//System.out.println(matcher);
 	        	// if defined, then XML parser will pick it up and use it
-				r = XMLInputFactory.newInstance().createXMLStreamReader(bin);
+				r = createInputFactory().createXMLStreamReader(bin);
 				Logger.getLogger(GTDDataXMLTools.class).info("XML declared encoding: "+r.getEncoding()+", system default encoding: "+Charset.defaultCharset()); //$NON-NLS-1$ //$NON-NLS-2$
 	        } else {
 	        	//System.out.println(matcher);
 	        	// if not defined, then we assume it is generated by gtd-free version 0.4 or some local editor,
 	        	// so we assume system default encoding.
-				r = XMLInputFactory.newInstance().createXMLStreamReader(new InputStreamReader(bin));
+				r = createInputFactory().createXMLStreamReader(new InputStreamReader(bin));
 				Logger.getLogger(GTDDataXMLTools.class).info("XML assumed system default encoding: "+Charset.defaultCharset()); //$NON-NLS-1$
 	        }
 			
@@ -1024,6 +1168,183 @@ public final class GTDDataXMLTools {
 		
 	}
 
+	private static void writeList(XMLStreamWriter w, Folder ff, ActionFilter filter) throws XMLStreamException {
+		w.writeCharacters(SKIP);
+		w.writeStartElement("list"); //$NON-NLS-1$
+		w.writeAttribute("id", String.valueOf(ff.getId())); //$NON-NLS-1$
+		w.writeAttribute("name", ff.getName()); //$NON-NLS-1$
+		w.writeAttribute("type", ff.getType().toString()); //$NON-NLS-1$
+		w.writeAttribute("closed", Boolean.toString(ff.isClosed())); //$NON-NLS-1$
+		if (ff.getCreated()!=null) w.writeAttribute("created", Long.toString(ff.getCreated().getTime())); //$NON-NLS-1$
+		if (ff.getModified()!=null) w.writeAttribute("modified", Long.toString(ff.getModified().getTime())); //$NON-NLS-1$
+		if (ff.getResolved()!=null) w.writeAttribute("resolved", Long.toString(ff.getResolved().getTime())); //$NON-NLS-1$
+		if (!ff.isInBucket() && ff.getDescription()!=null) {
+			w.writeAttribute("description", ApplicationHelper.escapeControls(ff.getDescription())); //$NON-NLS-1$
+		}
+		w.writeCharacters(EOL);
+		
+		for (Action a : ff) {
+			
+			if (!filter.isAcceptable(ff,a)) {
+				continue;
+			}
+			
+			w.writeCharacters(SKIPSKIP);
+			w.writeStartElement("action"); //$NON-NLS-1$
+			w.writeAttribute("id", Integer.toString(a.getId())); //$NON-NLS-1$
+			w.writeAttribute("created", Long.toString(a.getCreated().getTime())); //$NON-NLS-1$
+			w.writeAttribute("resolution", a.getResolution().toString()); //$NON-NLS-1$
+			if (a.getResolved()!=null) w.writeAttribute("resolved", Long.toString(a.getResolved().getTime())); //$NON-NLS-1$
+			if (a.getModified()!=null) w.writeAttribute("modified", Long.toString(a.getModified().getTime())); //$NON-NLS-1$
+			String d= a.loadDescription();
+			if (d!=null) w.writeAttribute("description", ApplicationHelper.escapeControls(d)); //$NON-NLS-1$
+			if (a.getStart()!=null) w.writeAttribute("start", Long.toString(a.getStart().getTime())); //$NON-NLS-1$
+			if (a.getRemind()!=null) w.writeAttribute("remind", Long.toString(a.getRemind().getTime())); //$NON-NLS-1$
+			if (a.getDue()!=null) w.writeAttribute("due", Long.toString(a.getDue().getTime())); //$NON-NLS-1$
+			if (a.getType()!=null) w.writeAttribute("type", a.getType().toString()); //$NON-NLS-1$
+			if (a.getUrl()!=null) w.writeAttribute("url", a.getUrl().toString()); //$NON-NLS-1$
+			if (a.isQueued()) w.writeAttribute("queued", Boolean.toString(a.isQueued())); //$NON-NLS-1$
+			if (a.getProject()!=null) w.writeAttribute("project", a.getProject().toString()); //$NON-NLS-1$
+			if (a.getPriority()!=null) w.writeAttribute("priority", a.getPriority().toString()); //$NON-NLS-1$
+			w.writeEndElement();
+			w.writeCharacters(EOL);
+		}
+		w.writeCharacters(SKIP);
+		w.writeEndElement();
+		w.writeCharacters(EOL);
+	}
+	
+	private static void writeProject(XMLStreamWriter w, Project ff, ActionFilter filter) throws XMLStreamException {
+		w.writeCharacters(SKIP);
+		w.writeStartElement("project"); //$NON-NLS-1$
+		w.writeAttribute("id", String.valueOf(ff.getId())); //$NON-NLS-1$
+		w.writeAttribute("name", ff.getName()); //$NON-NLS-1$
+		w.writeAttribute("closed", String.valueOf(ff.isClosed())); //$NON-NLS-1$
+		if (ff.getCreated()!=null) w.writeAttribute("created", Long.toString(ff.getCreated().getTime())); //$NON-NLS-1$
+		if (ff.getModified()!=null) w.writeAttribute("modified", Long.toString(ff.getModified().getTime())); //$NON-NLS-1$
+		if (ff.getResolved()!=null) w.writeAttribute("resolved", Long.toString(ff.getResolved().getTime())); //$NON-NLS-1$
+
+		if (ff.getDescription()!=null) {
+			w.writeAttribute("description", ApplicationHelper.escapeControls(ff.getDescription())); //$NON-NLS-1$
+		}
+		
+		StringBuilder sb= new StringBuilder();
+		
+		for (Action a : ff) {
+			if (!filter.isAcceptable(ff, a)) {
+				continue;
+			}
+			if (sb.length()>0) {
+				sb.append(","); //$NON-NLS-1$
+			}
+			sb.append(a.getId());
+		}
+		w.writeAttribute("actions", sb.toString()); //$NON-NLS-1$
+		w.writeEndElement();
+		w.writeCharacters(EOL);
+	}
+	
+	private static void writeQueue(XMLStreamWriter w, Folder f) throws XMLStreamException {
+		w.writeStartElement("queue"); //$NON-NLS-1$
+		w.writeAttribute("id", String.valueOf(f.getId())); //$NON-NLS-1$
+		w.writeAttribute("name", f.getName()); //$NON-NLS-1$
+		
+		StringBuilder sb= new StringBuilder();
+		Iterator<Action> i= f.iterator();
+		if (i.hasNext()) {
+			sb.append(i.next().getId());
+		}
+		while (i.hasNext()) {
+			sb.append(","); //$NON-NLS-1$
+			sb.append(i.next().getId());
+		}
+		w.writeAttribute("actions", sb.toString()); //$NON-NLS-1$
+		w.writeEndElement();
+		w.writeCharacters(EOL);
+	}
+	
+	/**
+	 * Writes single list, project or queue as data segment. Segment is data document
+	 * version 2.2, which contains only provided folder.
+	 * @param f list, project or queue
+	 * @param out output stream, it is not closed
+	 */
+	static void storeSegment(Folder f, OutputStream out) throws XMLStreamException, FactoryConfigurationError {
+		ActionFilter filter= new DummyFilter(true);
+		XMLStreamWriter w= XMLOutputFactory.newInstance().createXMLStreamWriter(out,"UTF-8"); //$NON-NLS-1$
+		
+		w.writeStartDocument("UTF-8","1.0"); //$NON-NLS-1$ //$NON-NLS-2$
+		w.writeCharacters(EOL);
+		w.writeStartElement("gtd-data"); //$NON-NLS-1$
+		w.writeAttribute("version", "2.2"); //$NON-NLS-1$ //$NON-NLS-2$
+		w.writeCharacters(EOL);
+		
+		w.writeStartElement("lists"); //$NON-NLS-1$
+		w.writeCharacters(EOL);
+		if (!f.isMeta()) {
+			writeList(w, f, filter);
+		}
+		w.writeEndElement();
+		w.writeCharacters(EOL);
+		
+		w.writeStartElement("projects"); //$NON-NLS-1$
+		w.writeCharacters(EOL);
+		if (f.isProject()) {
+			writeProject(w, (Project)f, filter);
+		}
+		w.writeEndElement();
+		w.writeCharacters(EOL);
+		
+		if (f.isQueue()) {
+			writeQueue(w, f);
+		}
+		
+		w.writeEndElement();
+		w.writeEndDocument();
+		w.flush();
+		w.close();
+	}
+	
+	/**
+	 * Loads data from segments written with <code>storeSegment</code>. Segments with lists 
+	 * must come before segments with projects and queue, which refer to actions in lists.
+	 * @param model the model
+	 * @param segments segment files
+	 * @param lastActionID last action ID of stored data 
+	 */
+	static void loadSegments(GTDModel model, List<File> segments, int lastActionID) throws XMLStreamException, IOException {
+		model.setSuspendedForMultipleChanges(true);
+		model.getDataRepository().suspend(true);
+		try {
+			if (lastActionID>model.getLastActionID()) {
+				model.setLastActionID(lastActionID);
+			}
+			LoadState st= new LoadState(model);
+			for (File f : segments) {
+				InputStream in= openData(new FileInputStream(f));
+				try {
+					XMLStreamReader r= createInputFactory().createXMLStreamReader(in);
+					try {
+						r.nextTag();
+						if (!"gtd-data".equals(r.getLocalName())) { //$NON-NLS-1$
+							throw new IOException("File '"+f.getAbsolutePath()+"' is not GTD-Free data segment."); //$NON-NLS-1$ //$NON-NLS-2$
+						}
+						r.nextTag();
+						_load_2_2_part(model, r, st);
+					} finally {
+						r.close();
+					}
+				} finally {
+					in.close();
+				}
+			}
+			_load_2_2_finish(model, st);
+		} finally {
+			model.setSuspendedForMultipleChanges(false);
+			model.getDataRepository().suspend(false);
+		}
+	}
+
 	static public void store(GTDModel model, File f, ActionFilter filter) throws IOException, XMLStreamException, FactoryConfigurationError {
 		BufferedOutputStream bw= new BufferedOutputStream(new FileOutputStream(f));
 		store(model,bw,filter);
@@ -1034,6 +1355,27 @@ public final class GTDDataXMLTools {
 		store(model, f, new DummyFilter(true));
 	}
 
+	/**
+	 * Writes model as XML data, optionally GZIP compressed. Compression runs 
+	 * in background thread, in parallel with XML writing.
+	 * @param model the model
+	 * @param out output stream, it is not closed
+	 * @param filter action filter, if <code>null</code> all actions are written
+	 * @param compress if <code>true</code> data is GZIP compressed
+	 */
+	static public void store(GTDModel model, OutputStream out, ActionFilter filter, boolean compress) throws IOException, XMLStreamException, FactoryConfigurationError {
+		if (!compress) {
+			store(model, out, filter);
+			return;
+		}
+		PipedGZIPOutputStream gz= new PipedGZIPOutputStream(out);
+		try {
+			store(model, gz, filter);
+		} finally {
+			gz.close();
+		}
+	}
+
 	static public void store(GTDModel model, OutputStream out, ActionFilter filter) throws IOException, XMLStreamException, FactoryConfigurationError {
 		
 		if (filter==null) {
@@ -1064,48 +1406,7 @@ public final class GTDDataXMLTools {
 			if (ff.isMeta() || !filter.isAcceptable(ff, null)) {
 				continue;
 			}
-			w.writeCharacters(SKIP);
-			w.writeStartElement("list"); //$NON-NLS-1$
-			w.writeAttribute("id", String.valueOf(ff.getId())); //$NON-NLS-1$
-			w.writeAttribute("name", ff.getName()); //$NON-NLS-1$
-			w.writeAttribute("type", ff.getType().toString()); //$NON-NLS-1$
-			w.writeAttribute("closed", Boolean.toString(ff.isClosed())); //$NON-NLS-1$
-			if (ff.getCreated()!=null) w.writeAttribute("created", Long.toString(ff.getCreated().getTime())); //$NON-NLS-1$
-			if (ff.getModified()!=null) w.writeAttribute("modified", Long.toString(ff.getModified().getTime())); //$NON-NLS-1$
-			if (ff.getResolved()!=null) w.writeAttribute("resolved", Long.toString(ff.getResolved().getTime())); //$NON-NLS-1$
-			if (!ff.isInBucket() && ff.getDescription()!=null) {
-				w.writeAttribute("description", ApplicationHelper.escapeControls(ff.getDescription())); //$NON-NLS-1$
-			}
-			w.writeCharacters(EOL);
-			
-			for (Action a : ff) {
-				
-				if (!filter.isAcceptable(ff,a)) {
-					continue;
-				}
-				
-				w.writeCharacters(SKIPSKIP);
-				w.writeStartElement("action"); //$NON-NLS-1$
-				w.writeAttribute("id", Integer.toString(a.getId())); //$NON-NLS-1$
-				w.writeAttribute("created", Long.toString(a.getCreated().getTime())); //$NON-NLS-1$
-				w.writeAttribute("resolution", a.getResolution().toString()); //$NON-NLS-1$
-				if (a.getResolved()!=null) w.writeAttribute("resolved", Long.toString(a.getResolved().getTime())); //$NON-NLS-1$
-				if (a.getModified()!=null) w.writeAttribute("modified", Long.toString(a.getModified().getTime())); //$NON-NLS-1$
-				if (a.getDescription()!=null) w.writeAttribute("description", ApplicationHelper.escapeControls(a.getDescription())); //$NON-NLS-1$
-				if (a.getStart()!=null) w.writeAttribute("start", Long.toString(a.getStart().getTime())); //$NON-NLS-1$
-				if (a.getRemind()!=null) w.writeAttribute("remind", Long.toString(a.getRemind().getTime())); //$NON-NLS-1$
-				if (a.getDue()!=null) w.writeAttribute("due", Long.toString(a.getDue().getTime())); //$NON-NLS-1$
-				if (a.getType()!=null) w.writeAttribute("type", a.getType().toString()); //$NON-NLS-1$
-				if (a.getUrl()!=null) w.writeAttribute("url", a.getUrl().toString()); //$NON-NLS-1$
-				if (a.isQueued()) w.writeAttribute("queued", Boolean.toString(a.isQueued())); //$NON-NLS-1$
-				if (a.getProject()!=null) w.writeAttribute("project", a.getProject().toString()); //$NON-NLS-1$
-				if (a.getPriority()!=null) w.writeAttribute("priority", a.getPriority().toString()); //$NON-NLS-1$
-				w.writeEndElement();
-				w.writeCharacters(EOL);
-			}
-			w.writeCharacters(SKIP);
-			w.writeEndElement();
-			w.writeCharacters(EOL);
+			writeList(w, ff, filter);
 		}
 		w.writeEndElement();
 		w.writeCharacters(EOL);
@@ -1121,34 +1422,7 @@ public final class GTDDataXMLTools {
 			if (!filter.isAcceptable(ff, null)) {
 				continue;
 			}
-			
-			w.writeCharacters(SKIP);
-			w.writeStartElement("project"); //$NON-NLS-1$
-			w.writeAttribute("id", String.valueOf(ff.getId())); //$NON-NLS-1$
-			w.writeAttribute("name", ff.getName()); //$NON-NLS-1$
-			w.writeAttribute("closed", String.valueOf(ff.isClosed())); //$NON-NLS-1$
-			if (ff.getCreated()!=null) w.writeAttribute("created", Long.toString(ff.getCreated().getTime())); //$NON-NLS-1$
-			if (ff.getModified()!=null) w.writeAttribute("modified", Long.toString(ff.getModified().getTime())); //$NON-NLS-1$
-			if (ff.getResolved()!=null) w.writeAttribute("resolved", Long.toString(ff.getResolved().getTime())); //$NON-NLS-1$
-	
-			if (ff.getDescription()!=null) {
-				w.writeAttribute("description", ApplicationHelper.escapeControls(ff.getDescription())); //$NON-NLS-1$
-			}
-			
-			StringBuilder sb= new StringBuilder();
-			
-			for (Action a : ff) {
-				if (!filter.isAcceptable(ff, a)) {
-					continue;
-				}
-				if (sb.length()>0) {
-					sb.append(","); //$NON-NLS-1$
-				}
-				sb.append(a.getId());
-			}
-			w.writeAttribute("actions", sb.toString()); //$NON-NLS-1$
-			w.writeEndElement();
-			w.writeCharacters(EOL);
+			writeProject(w, ff, filter);
 		}
 		w.writeEndElement();
 		w.writeCharacters(EOL);
@@ -1157,22 +1431,7 @@ public final class GTDDataXMLTools {
 		Folder f= model.getQueue();
 		
 		if (filter.isAcceptable(f, null)) {
-			w.writeStartElement("queue"); //$NON-NLS-1$
-			w.writeAttribute("id", String.valueOf(f.getId())); //$NON-NLS-1$
-			w.writeAttribute("name", f.getName()); //$NON-NLS-1$
-			
-			StringBuilder sb= new StringBuilder();
-			Iterator<Action> i= f.iterator();
-			if (i.hasNext()) {
-				sb.append(i.next().getId());
-			}
-			while (i.hasNext()) {
-				sb.append(","); //$NON-NLS-1$
-				sb.append(i.next().getId());
-			}
-			w.writeAttribute("actions", sb.toString()); //$NON-NLS-1$
-			w.writeEndElement();
-			w.writeCharacters(EOL);
+			writeQueue(w, f);
 		}
 		
 		// containers
@@ -22,6 +22,7 @@ package org.gtdfree.model;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -32,6 +33,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -673,7 +675,7 @@ public class GTDModel implements Iterable<Folder> {
 		}
 		
 		private Project getProject(Integer project) {
-			return model.projects.get(project);
+			return model.getProject(project);
 		}
 		
 		void updateMetaRemove(FolderEvent a) {
@@ -712,7 +714,15 @@ public class GTDModel implements Iterable<Folder> {
 		}
 		
 		public void elementAdded(FolderEvent a) {
+			model.indexAdded(a);
 			updateMetaAdd(a);
+			if (model.batch!=null) {
+				model.batch.elementAdded(a);
+				return;
+			}
+			fireElementAdded(a);
+		}
+		void fireElementAdded(FolderEvent a) {
 			GTDModelListener[] l= listeners.getListeners(GTDModelListener.class);
 			for (int i = 0; i < l.length; i++) {
 				try {
@@ -739,6 +749,13 @@ public class GTDModel implements Iterable<Folder> {
 					}
 				}
 			}
+			if (model.batch!=null) {
+				model.batch.elementModified(a);
+				return;
+			}
+			fireElementModified(a);
+		}
+		void fireElementModified(ActionEvent a) {
 			GTDModelListener[] l= listeners.getListeners(GTDModelListener.class);
 			for (int i = 0; i < l.length; i++) {
 				try {
@@ -749,7 +766,15 @@ public class GTDModel implements Iterable<Folder> {
 			}
 		}
 		public void elementRemoved(FolderEvent a) {
+			model.indexRemoved(a);
 			updateMetaRemove(a);
+			if (model.batch!=null) {
+				model.batch.elementRemoved(a);
+				return;
+			}
+			fireElementRemoved(a);
+		}
+		void fireElementRemoved(FolderEvent a) {
 			GTDModelListener[] l= listeners.getListeners(GTDModelListener.class);
 			for (int i = 0; i < l.length; i++) {
 				try {
@@ -760,6 +785,13 @@ public class GTDModel implements Iterable<Folder> {
 			}
 		}
 		public void folderAdded(Folder folder) {
+			if (model.batch!=null) {
+				model.batch.folderAdded(folder);
+				return;
+			}
+			fireFolderAdded(folder);
+		}
+		void fireFolderAdded(Folder folder) {
 			GTDModelListener[] l= listeners.getListeners(GTDModelListener.class);
 			for (int i = 0; i < l.length; i++) {
 				try {
@@ -773,6 +805,13 @@ public class GTDModel implements Iterable<Folder> {
 			folderModified(new FolderEvent(f,(Action[])null,(ActionProxy[])null,p,o,n,recycled));
 		}
 		public void folderModified(FolderEvent folder) {
+			if (model.batch!=null) {
+				model.batch.folderModified(folder);
+				return;
+			}
+			fireFolderModified(folder);
+		}
+		void fireFolderModified(FolderEvent folder) {
 			GTDModelListener[] l= listeners.getListeners(GTDModelListener.class);
 			for (int i = 0; i < l.length; i++) {
 				try {
@@ -783,6 +822,13 @@ public class GTDModel implements Iterable<Folder> {
 			}
 		}
 		public void folderRemoved(Folder folder) {
+			if (model.batch!=null) {
+				model.batch.folderRemoved(folder);
+				return;
+			}
+			fireFolderRemoved(folder);
+		}
+		void fireFolderRemoved(Folder folder) {
 			GTDModelListener[] l= listeners.getListeners(GTDModelListener.class);
 			for (int i = 0; i < l.length; i++) {
 				try {
@@ -793,6 +839,13 @@ public class GTDModel implements Iterable<Folder> {
 			}
 		}
 		public void orderChanged(Folder f) {
+			if (model.batch!=null) {
+				model.batch.orderChanged(f);
+				return;
+			}
+			fireOrderChanged(f);
+		}
+		void fireOrderChanged(Folder f) {
 			GTDModelListener[] l= listeners.getListeners(GTDModelListener.class);
 			for (int i = 0; i < l.length; i++) {
 				try {
@@ -861,6 +914,12 @@ public class GTDModel implements Iterable<Folder> {
 
 	private Map<Integer,Folder> folders= new HashMap<Integer,Folder>();
 	private Map<Integer,Project> projects= new HashMap<Integer,Project>();
+	/**
+	 * Read-only copies of folder and project maps. Writers change maps while holding 
+	 * model lock and then publish new copies, so readers can use them without locking.
+	 */
+	private transient volatile Map<Integer,Folder> foldersView;
+	private transient volatile Map<Integer,Project> projectsView;
 	private int lastActionID=0; 
 	private int lastFolderID=0; 
 	private transient ModelListenerSupport support= new ModelListenerSupport(this);
@@ -872,6 +931,22 @@ public class GTDModel implements Iterable<Folder> {
 	private Folder queue;
 	private Folder priority;
 	private transient GTDData dataRepository;
+	/**
+	 * Index of actions by ID, contains actions from primary (non meta) folders.
+	 */
+	private transient IntHashMap<ActionProxy> actionIndex= new IntHashMap<ActionProxy>();
+	/**
+	 * Collects events while model is in batch mode, <code>null</code> otherwise.
+	 */
+	private transient volatile ModelBatch batch;
+	private transient int batchDepth=0;
+	/**
+	 * Held shared by batches and by moves of actions between folders, and exclusively 
+	 * while snapshot is made, so snapshot contains such changes completely or not at all.
+	 * It is taken before model lock.
+	 */
+	private final transient ReentrantReadWriteLock changeLock= new ReentrantReadWriteLock();
+	private transient GTDModelEventBus eventBus;
 	
 	/**
 	 * This constructor creates empty and uninitialized instance. 
@@ -903,7 +978,7 @@ public class GTDModel implements Iterable<Folder> {
 	 * 
 	 */
 	private void createMetaFolders() {
-		if (resolved==null || !folders.containsKey(-1)) {
+		if (resolved==null || !folders().containsKey(-1)) {
 			resolved= createFolder(-1, Messages.getString("GTDModel.Resolved"), FolderType.BUILDIN_RESOLVED); //$NON-NLS-1$
 			resolved.setDescription(Messages.getString("GTDModel.Resolved.desc")); //$NON-NLS-1$
 			resolved.setComparator(new Comparator<Action>() {
@@ -914,7 +989,7 @@ public class GTDModel implements Iterable<Folder> {
 			
 			});
 		}
-		if (reminder==null || !folders.containsKey(-2)) {
+		if (reminder==null || !folders().containsKey(-2)) {
 			reminder= createFolder(-2, Messages.getString("GTDModel.Tickler"), FolderType.BUILDIN_REMIND); //$NON-NLS-1$
 			reminder.setDescription(Messages.getString("GTDModel.Tickler.desc")); //$NON-NLS-1$
 			reminder.setComparator(new Comparator<Action>() {
@@ -934,15 +1009,15 @@ public class GTDModel implements Iterable<Folder> {
 			
 			});
 		}
-		if (inBucket==null || !folders.containsKey(-3)) {
+		if (inBucket==null || !folders().containsKey(-3)) {
 			inBucket= createFolder(-3, Messages.getString("GTDModel.InB"), FolderType.INBUCKET); //$NON-NLS-1$
 			inBucket.setDescription(Messages.getString("GTDModel.InB.desc")); //$NON-NLS-1$
 		}
-		if (queue==null || !folders.containsKey(-4)) {
+		if (queue==null || !folders().containsKey(-4)) {
 			queue= createFolder(-4, Messages.getString("GTDModel.Queue"), FolderType.QUEUE); //$NON-NLS-1$
 			queue.setDescription(Messages.getString("GTDModel.Queue.desc")); //$NON-NLS-1$
 		}
-		if (priority==null || !folders.containsKey(-5)) {
+		if (priority==null || !folders().containsKey(-5)) {
 			priority= createFolder(-5, Messages.getString("GTDModel.Priority"), FolderType.BUILDIN_PRIORITY); //$NON-NLS-1$
 			priority.setDescription(Messages.getString("GTDModel.Priority.desc")); //$NON-NLS-1$
 			priority.setComparator(new Comparator<Action>() {
@@ -951,7 +1026,7 @@ public class GTDModel implements Iterable<Folder> {
 				}
 			});
 		}
-		if (deleted==null || !folders.containsKey(-6)) {
+		if (deleted==null || !folders().containsKey(-6)) {
 			deleted= createFolder(-6, Messages.getString("GTDModel.Deleted"), FolderType.BUILDIN_DELETED); //$NON-NLS-1$
 			deleted.setDescription(Messages.getString("GTDModel.Deleted.desc")); //$NON-NLS-1$
 			deleted.setComparator(new Comparator<Action>() {
@@ -971,6 +1046,19 @@ public class GTDModel implements Iterable<Folder> {
 	public void removeGTDModelListener(GTDModelListener l) {
 		support.removelistener(l);
 	}
+	
+	/**
+	 * Returns event bus of this model, where listeners can subscribe only for events
+	 * they are interested in, and can receive them on event dispatch thread.
+	 * @return event bus of this model
+	 */
+	public synchronized GTDModelEventBus getEventBus() {
+		if (eventBus==null) {
+			eventBus= new GTDModelEventBus();
+			support.addlistener(eventBus);
+		}
+		return eventBus;
+	}
 
 	public synchronized Folder createFolder(String name, FolderType type) {
 		return createFolder(++lastFolderID, name, type);
@@ -988,6 +1076,7 @@ public class GTDModel implements Iterable<Folder> {
 			}
 			f.addFolderListener(support);
 			folders.put(id, f);
+			publishFolders();
 			support.folderAdded(f);
 			getDataRepository().store();
 		}
@@ -1007,6 +1096,7 @@ public class GTDModel implements Iterable<Folder> {
 	public synchronized Folder removeFolder(int id) {
 		Folder f= folders.remove(id);
 		if (f!=null) {
+			publishFolders();
 			f.removeFolderListener(support);
 			support.folderRemoved(f);
 		}
@@ -1019,7 +1109,44 @@ public class GTDModel implements Iterable<Folder> {
 	 * @return iterator over all folders
 	 */
 	public Iterator<Folder> iterator() {
-		return folders.values().iterator();
+		return folders().values().iterator();
+	}
+	
+	/**
+	 * Returns current read-only copy of folders map, safe to be used without locking.
+	 */
+	private Map<Integer,Folder> folders() {
+		Map<Integer,Folder> m= foldersView;
+		if (m==null) {
+			synchronized (this) {
+				if (foldersView==null) {
+					publishFolders();
+				}
+				m= foldersView;
+			}
+		}
+		return m;
+	}
+
+	private Map<Integer,Project> projects() {
+		Map<Integer,Project> m= projectsView;
+		if (m==null) {
+			synchronized (this) {
+				if (projectsView==null) {
+					publishFolders();
+				}
+				m= projectsView;
+			}
+		}
+		return m;
+	}
+	
+	/**
+	 * Publishes copies of changed folder and project maps, must be called with model lock held.
+	 */
+	private void publishFolders() {
+		projectsView= Collections.unmodifiableMap(new HashMap<Integer,Project>(projects));
+		foldersView= Collections.unmodifiableMap(new HashMap<Integer,Folder>(folders));
 	}
 	
 	/**
@@ -1028,29 +1155,180 @@ public class GTDModel implements Iterable<Folder> {
 	 * @return iterator over all folders and actions
 	 */
 	public Iterator<Object> iterator(ActionFilter filter) {
-		return new TotalIterator(folders.values().iterator(),filter);
+		return new TotalIterator(folders().values().iterator(),filter);
 	}
 
 	public int size() {
-		return folders.size();
+		return folders().size();
 	}
 	
 	public Action getAction(int id) {
+		synchronized (actionIndex) {
+			ActionProxy ap= actionIndex.get(id);
+			if (ap!=null) {
+				return ap.get();
+			}
+		}
+		// data repository may have populated folders without firing events
 		for (Folder f : this) {
 			Action a= f.getActionByID(id);
 			if (a!=null) {
+				if (!f.isMeta() && a.getProxy()!=null) {
+					synchronized (actionIndex) {
+						actionIndex.put(id, a.getProxy());
+					}
+				}
 				return a;
 			}
 		}
 		return null;
 	}
 	
+	void indexAdded(FolderEvent e) {
+		if (e.getFolder().isMeta()) {
+			return;
+		}
+		ActionProxy[] ap= e.getActionProxies();
+		synchronized (actionIndex) {
+			for (int i = 0; i < ap.length; i++) {
+				if (ap[i]!=null) {
+					actionIndex.put(ap[i].getId(), ap[i]);
+				}
+			}
+		}
+	}
+	
+	void indexRemoved(FolderEvent e) {
+		Folder f= e.getFolder();
+		if (f.isMeta()) {
+			return;
+		}
+		ActionProxy[] ap= e.getActionProxies();
+		synchronized (actionIndex) {
+			for (int i = 0; i < ap.length; i++) {
+				// when action is moved, it is first added to new folder and then removed from old one
+				if (ap[i]!=null && actionIndex.get(ap[i].getId())==ap[i] 
+						&& (ap[i].getParent()==null || ap[i].getParent()==f)) {
+					actionIndex.remove(ap[i].getId());
+				}
+			}
+		}
+	}
+	
+	private void rebuildActionIndex() {
+		if (actionIndex==null) {
+			actionIndex= new IntHashMap<ActionProxy>();
+		}
+		synchronized (actionIndex) {
+			actionIndex.clear();
+			for (Folder f : this) {
+				if (!f.isMeta()) {
+					Iterator<ActionProxy> i= f.proxyIterator(Folder.FolderPreset.ALL);
+					while (i.hasNext()) {
+						ActionProxy ap= i.next();
+						if (ap!=null) {
+							actionIndex.put(ap.getId(), ap);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Starts batch of model changes. Until matching <code>commit()</code> is called, 
+	 * events for model and folder listeners are collected and merged into one event per 
+	 * folder and property change, action store calls are collected and data repository 
+	 * is suspended. Model itself, including meta folders, is updated immediately.
+	 * <p>
+	 * Batches can be nested, changes are delivered when outermost batch is committed.
+	 * Batch should be used from same thread, which is changing model.
+	 */
+	public void beginBatch() {
+		changeLock.readLock().lock();
+		try {
+			synchronized (this) {
+				if (batchDepth++==0) {
+					batch= new ModelBatch();
+					getDataRepository().suspend(true);
+				}
+			}
+		} catch (RuntimeException e) {
+			changeLock.readLock().unlock();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Ends batch of model changes started with <code>beginBatch()</code>. When outermost
+	 * batch is committed, collected action proxies are stored, merged events are 
+	 * delivered to listeners and data repository is resumed.
+	 */
+	public void commit() {
+		ModelBatch b;
+		synchronized (this) {
+			if (batchDepth==0) {
+				throw new IllegalStateException("Commit called without beginBatch."); //$NON-NLS-1$
+			}
+			try {
+				if (--batchDepth>0) {
+					return;
+				}
+				b= batch;
+				batch=null;
+			} finally {
+				// model is complete, listeners may make snapshot while handling events
+				changeLock.readLock().unlock();
+			}
+		}
+		try {
+			b.commit(support);
+		} finally {
+			getDataRepository().suspend(false);
+		}
+	}
+	
+	/**
+	 * Runs provided changes as single batch, see <code>beginBatch()</code>.
+	 * @param r changes to the model
+	 */
+	public void batch(Runnable r) {
+		beginBatch();
+		try {
+			r.run();
+		} finally {
+			commit();
+		}
+	}
+	
+	/**
+	 * Returns <code>true</code> if model is collecting changes in batch.
+	 * @return <code>true</code> if model is in batch mode
+	 */
+	public boolean isBatch() {
+		return batch!=null;
+	}
+	
+	void deferStore(ActionProxy ap) {
+		ModelBatch b= batch;
+		if (b!=null) {
+			b.store(ap);
+		} else {
+			ap.store();
+		}
+	}
+
 	public boolean moveAction(Action action, Folder toFolder) {
 		Folder f= action.getParent();
 		ActionProxy ap= getDataRepository().getProxy(action);
 		if (f!=null && toFolder!=null && f!=toFolder && !toFolder.contains(ap)) {
-			toFolder.add(0,action,ap);
-			f.remove(action,ap);
+			changeLock.readLock().lock();
+			try {
+				toFolder.add(0,action,ap);
+				f.remove(action,ap);
+			} finally {
+				changeLock.readLock().unlock();
+			}
 			return true;
 		}
 		return false;
@@ -1077,11 +1355,16 @@ public class GTDModel implements Iterable<Folder> {
 			return false;
 		}
 		
-		toFolder.add(0,a.toArray(new Action[a.size()]));
-		
-		Iterator<Folder> fi= f.iterator();
-		for (Action aa : a) {
-			fi.next().remove(aa, aa.getProxy());
+		beginBatch();
+		try {
+			toFolder.add(0,a.toArray(new Action[a.size()]));
+			
+			Iterator<Folder> fi= f.iterator();
+			for (Action aa : a) {
+				fi.next().remove(aa, aa.getProxy());
+			}
+		} finally {
+			commit();
 		}
 		return true;
 	}
@@ -1089,29 +1372,124 @@ public class GTDModel implements Iterable<Folder> {
 	 * Returns array of all folders, also default and projects.
 	 * @return array of all folders
 	 */
-	public synchronized Folder[] toFoldersArray() {
-		return folders.values().toArray(new Folder[folders.size()]);
+	public Folder[] toFoldersArray() {
+		Map<Integer,Folder> m= folders();
+		return m.values().toArray(new Folder[m.size()]);
 	}
 	/**
 	 * Returns array of all Projects.
 	 * @return array of all Projects
 	 */
-	public synchronized Project[] toProjectsArray() {
-		return projects.values().toArray(new Project[projects.size()]);
+	public Project[] toProjectsArray() {
+		Map<Integer,Project> m= projects();
+		return m.values().toArray(new Project[m.size()]);
 	}
 	
-	public synchronized void visit(Visitor v) {
-		for (Folder f : folders.values()) {
+	/**
+	 * Creates read-only snapshot of this model, with all folders, projects and actions
+	 * as they were at the time of call. Snapshot does not change when this model is changed
+	 * and can be used from background thread, for example for saving or exporting, 
+	 * while user continues to work with model. 
+	 * <p>
+	 * Folder content is taken from copies, which folders already keep for readers. 
+	 * Read-only action copies are shared between folders and are reused by later 
+	 * snapshots until action is changed, so snapshot of mostly unchanged model 
+	 * copies only folder arrays. 
+	 * <p>
+	 * Snapshot waits for running batches and moves of actions between folders to 
+	 * complete and holds off new ones while it is made, so action is never missing 
+	 * or found in two primary folders. Single action change, which is made 
+	 * concurrently, may be seen in primary folder before meta folders are updated, 
+	 * meta folders are derived from action properties when data is loaded.
+	 * If calling thread is itself inside batch, snapshot does not wait.
+	 * Any attempt to change snapshot throws <code>UnsupportedOperationException</code>.
+	 * 
+	 * @return read-only copy of this model
+	 */
+	public GTDModel snapshot() {
+		boolean locked= lockChanges();
+		try {
+			return makeSnapshot();
+		} finally {
+			if (locked) {
+				unlockChanges();
+			}
+		}
+	}
+	
+	/**
+	 * Waits for batches and moves of actions between folders in progress to complete 
+	 * and holds off new ones until <code>unlockChanges()</code> is called. 
+	 * If calling thread is itself inside batch, nothing is locked.
+	 * @return <code>true</code> if changes were locked and must be unlocked
+	 */
+	boolean lockChanges() {
+		// read lock can not be upgraded, own batch is not in the middle of change anyway
+		if (changeLock.getReadHoldCount()>0) {
+			return false;
+		}
+		changeLock.writeLock().lock();
+		return true;
+	}
+	
+	/**
+	 * Releases changes locked with <code>lockChanges()</code>.
+	 */
+	void unlockChanges() {
+		changeLock.writeLock().unlock();
+	}
+	
+	private GTDModel makeSnapshot() {
+		GTDModel m= new GTDModel();
+		GTDDataSnapshot ds= new GTDDataSnapshot(m);
+		m.dataRepository=ds;
+		m.lastActionID=lastActionID;
+		m.lastFolderID=lastFolderID;
+
+		Map<Integer,Folder> live= folders();
+		IntHashMap<ActionProxy> copies= new IntHashMap<ActionProxy>();
+		// primary folders first, so meta folders share their action copies
+		for (Folder f : live.values()) {
+			if (!f.isMeta()) {
+				m.folders.put(f.getId(), ds.copyFolder(f, copies));
+			}
+		}
+		for (Folder f : live.values()) {
+			if (f.isMeta()) {
+				Folder sf= ds.copyFolder(f, copies);
+				m.folders.put(f.getId(), sf);
+				if (sf.isProject()) {
+					m.projects.put(f.getId(), (Project)sf);
+				}
+			}
+		}
+		
+		m.resolved= m.folders.get(-1);
+		m.reminder= m.folders.get(-2);
+		m.inBucket= m.folders.get(-3);
+		m.queue= m.folders.get(-4);
+		m.priority= m.folders.get(-5);
+		m.deleted= m.folders.get(-6);
+		
+		synchronized (m) {
+			m.publishFolders();
+		}
+		m.rebuildActionIndex();
+		return m;
+	}
+	
+	public void visit(Visitor v) {
+		for (Folder f : folders().values()) {
 			f.visit(v);
 		}
 	}
 	
 	public Project getProject(int id) {
-		return projects.get(id);
+		return projects().get(id);
 	}
 
 	public Folder getFolder(int id) {
-		return folders.get(id);
+		return folders().get(id);
 	}
 
 	public Folder getInBucketFolder() {
@@ -1127,7 +1505,15 @@ public class GTDModel implements Iterable<Folder> {
 	
 	public void importData(GTDModel m) {
 
-		getDataRepository().suspend(true);
+		beginBatch();
+		try {
+			importDataInBatch(m);
+		} finally {
+			commit();
+		}
+	}
+	
+	private void importDataInBatch(GTDModel m) {
 		
 		Map<Integer,Integer> folderMap= new HashMap<Integer, Integer>();
 		Map<String,Folder> folderNames= new HashMap<String, Folder>();
@@ -1160,8 +1546,6 @@ public class GTDModel implements Iterable<Folder> {
 				}
 			}
 		}
-
-		getDataRepository().suspend(false);
 	}
 	
 	public int getLastActionID() {
@@ -1212,6 +1596,9 @@ public class GTDModel implements Iterable<Folder> {
 
 		ModelListenerSupport s= support;
 		support= new ModelListenerSupport(this);
+		if (eventBus!=null) {
+			support.addlistener(eventBus);
+		}
 
 		
 		for (Folder f : this) {
@@ -1220,11 +1607,12 @@ public class GTDModel implements Iterable<Folder> {
 			f.setParent(this);
 		}
 		
+		rebuildActionIndex();
 	}
 	
 	public Folder findFirstFolder(String name) {
 		
-		Iterator<Folder> i= folders.values().iterator();
+		Iterator<Folder> i= folders().values().iterator();
 		
 		while (i.hasNext()) {
 			Folder f = i.next();
@@ -1239,7 +1627,7 @@ public class GTDModel implements Iterable<Folder> {
 	
 	public Project findFirstProject(String name) {
 		
-		Iterator<Project> i= projects.values().iterator();
+		Iterator<Project> i= projects().values().iterator();
 		
 		while (i.hasNext()) {
 			Project f = i.next();
@@ -0,0 +1,258 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Delivers model events only to listeners, which subscribed for them. Listener subscribes
+ * for set of event types and optionally for single folder and single property,
+ * so it is not called for events it would discard anyway.
+ * <p>
+ * Listener can be called synchronously, from the thread which changed model,
+ * or asynchronously on event dispatch thread. Asynchronous events, which pile up
+ * before listener is called, are merged in same way as in model batch, so listener
+ * is called once per folder and property change.
+ * <p>
+ * Bus is obtained with <code>GTDModel.getEventBus()</code>.
+ *
+ * @author ikesan
+ *
+ */
+public final class GTDModelEventBus implements GTDModelListener {
+
+	public enum EventType {ELEMENT_ADDED, ELEMENT_REMOVED, ELEMENT_MODIFIED, ORDER_CHANGED, FOLDER_ADDED, FOLDER_MODIFIED, FOLDER_REMOVED;
+
+		/**
+		 * Events about actions in folders.
+		 */
+		public static final EnumSet<EventType> ELEMENT_EVENTS= EnumSet.of(ELEMENT_ADDED, ELEMENT_REMOVED, ELEMENT_MODIFIED, ORDER_CHANGED);
+		/**
+		 * Events about folders and projects.
+		 */
+		public static final EnumSet<EventType> FOLDER_EVENTS= EnumSet.of(FOLDER_ADDED, FOLDER_MODIFIED, FOLDER_REMOVED);
+	}
+
+	/**
+	 * Registration of listener with event bus, used to unsubscribe.
+	 */
+	public static final class Subscription {
+
+		private final GTDModelListener listener;
+		private final EnumSet<EventType> types;
+		private final Integer folderId;
+		private final String property;
+		private final boolean onEDT;
+		private ModelBatch pending;
+		private final Runnable drain= new Runnable() {
+			@Override
+			public void run() {
+				ModelBatch b;
+				synchronized (Subscription.this) {
+					b= pending;
+					pending=null;
+				}
+				if (b!=null) {
+					b.deliver(listener);
+				}
+			}
+		};
+
+		Subscription(GTDModelListener listener, EnumSet<EventType> types, Integer folderId, String property, boolean onEDT) {
+			this.listener=listener;
+			this.types=EnumSet.copyOf(types);
+			this.folderId=folderId;
+			this.property=property;
+			this.onEDT=onEDT;
+		}
+
+		public GTDModelListener getListener() {
+			return listener;
+		}
+
+		/**
+		 * Delivers event to listener, exception thrown by listener does not stop delivery to others.
+		 */
+		void deliver(Delivery d) {
+			try {
+				d.to(listener);
+			} catch (Exception ex) {
+				Logger.getLogger(this.getClass()).debug("Internal error.", ex); //$NON-NLS-1$
+			}
+		}
+
+		boolean accepts(Folder f, String p) {
+			if (folderId!=null && (f==null || f.getId()!=folderId.intValue())) {
+				return false;
+			}
+			if (property!=null && !property.equals(p)) {
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Returns batch collecting events for asynchronous delivery,
+		 * schedules delivery on event dispatch thread when new batch is started.
+		 */
+		synchronized ModelBatch pending() {
+			if (pending==null) {
+				pending= new ModelBatch();
+				SwingUtilities.invokeLater(drain);
+			}
+			return pending;
+		}
+	}
+
+	/**
+	 * Single event, which can be delivered to any listener.
+	 */
+	private interface Delivery {
+		void to(GTDModelListener l);
+	}
+
+	private static final Subscription[] NONE= new Subscription[0];
+
+	/**
+	 * Subscriptions by event type ordinal, arrays are replaced on change,
+	 * so events are dispatched without locking.
+	 */
+	private volatile Subscription[][] byType;
+
+	GTDModelEventBus() {
+		Subscription[][] s= new Subscription[EventType.values().length][];
+		Arrays.fill(s, NONE);
+		byType=s;
+	}
+
+	/**
+	 * Subscribes listener for provided event types from all folders.
+	 * Listener is called synchronously.
+	 * @param l the listener
+	 * @param types event types listener is interested in
+	 * @return subscription, which can be used to unsubscribe
+	 */
+	public Subscription subscribe(GTDModelListener l, EnumSet<EventType> types) {
+		return subscribe(l, types, null, null, false);
+	}
+
+	/**
+	 * Subscribes listener for provided event types.
+	 * @param l the listener
+	 * @param types event types listener is interested in
+	 * @param folderId if not <code>null</code>, only events from folder with this ID are delivered
+	 * @param property if not <code>null</code>, only modification events of this action or folder property are delivered
+	 * @param onEDT if <code>true</code> listener is called later on event dispatch thread with merged events,
+	 * otherwise listener is called immediately from thread which changed model
+	 * @return subscription, which can be used to unsubscribe
+	 */
+	public synchronized Subscription subscribe(GTDModelListener l, EnumSet<EventType> types, Integer folderId, String property, boolean onEDT) {
+		Subscription s= new Subscription(l, types, folderId, property, onEDT);
+		Subscription[][] n= byType.clone();
+		for (EventType t : s.types) {
+			Subscription[] o= n[t.ordinal()];
+			Subscription[] a= Arrays.copyOf(o, o.length+1);
+			a[o.length]=s;
+			n[t.ordinal()]=a;
+		}
+		byType=n;
+		return s;
+	}
+
+	/**
+	 * Removes subscription, listener will not receive any more events trough it.
+	 * Asynchronous events, which were already collected, are still delivered.
+	 * @param s the subscription
+	 */
+	public synchronized void unsubscribe(Subscription s) {
+		Subscription[][] n= byType.clone();
+		for (EventType t : s.types) {
+			Subscription[] o= n[t.ordinal()];
+			int i= Arrays.asList(o).indexOf(s);
+			if (i<0) {
+				continue;
+			}
+			Subscription[] a= new Subscription[o.length-1];
+			System.arraycopy(o, 0, a, 0, i);
+			System.arraycopy(o, i+1, a, i, a.length-i);
+			n[t.ordinal()]=a;
+		}
+		byType=n;
+	}
+
+	/**
+	 * Delivers event to subscribers of its type, which accept its folder and property.
+	 * Subscribers on event dispatch thread get it later, merged with other pending events.
+	 */
+	private void dispatch(EventType t, Folder f, String property, Delivery d) {
+		for (Subscription s : byType[t.ordinal()]) {
+			if (s.accepts(f, property)) {
+				if (s.onEDT) {
+					synchronized (s) {
+						d.to(s.pending());
+					}
+				} else {
+					s.deliver(d);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void elementAdded(FolderEvent e) {
+		dispatch(EventType.ELEMENT_ADDED, e.getFolder(), null, l -> l.elementAdded(e));
+	}
+
+	@Override
+	public void elementRemoved(FolderEvent e) {
+		dispatch(EventType.ELEMENT_REMOVED, e.getFolder(), null, l -> l.elementRemoved(e));
+	}
+
+	@Override
+	public void elementModified(ActionEvent e) {
+		dispatch(EventType.ELEMENT_MODIFIED, (Folder)e.getSource(), e.getProperty(), l -> l.elementModified(e));
+	}
+
+	@Override
+	public void orderChanged(Folder f) {
+		dispatch(EventType.ORDER_CHANGED, f, null, l -> l.orderChanged(f));
+	}
+
+	@Override
+	public void folderAdded(Folder folder) {
+		dispatch(EventType.FOLDER_ADDED, folder, null, l -> l.folderAdded(folder));
+	}
+
+	@Override
+	public void folderModified(FolderEvent folder) {
+		dispatch(EventType.FOLDER_MODIFIED, folder.getFolder(), folder.getProperty(), l -> l.folderModified(folder));
+	}
+
+	@Override
+	public void folderRemoved(Folder folder) {
+		dispatch(EventType.FOLDER_REMOVED, folder, null, l -> l.folderRemoved(folder));
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.util.Arrays;
+
+/**
+ * Hash map with primitive <code>int</code> keys, implemented with open addressing
+ * and linear probing. Keys are not boxed, so lookups do not allocate.
+ * This class is not thread safe.
+ *
+ * @author ikesan
+ *
+ * @param <V> value type
+ */
+public final class IntHashMap<V> {
+
+	private static final int MIN_CAPACITY= 16;
+
+	private int[] keys;
+	private Object[] values;
+	private int size=0;
+	private int mask;
+
+	public IntHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	public IntHashMap(int expected) {
+		int cap= MIN_CAPACITY;
+		while (cap < expected*2) {
+			cap<<=1;
+		}
+		allocate(cap);
+	}
+
+	private void allocate(int cap) {
+		keys= new int[cap];
+		values= new Object[cap];
+		mask= cap-1;
+	}
+
+	private static int hash(int key) {
+		int h= key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int slot(int key) {
+		int i= hash(key) & mask;
+		while (values[i]!=null && keys[i]!=key) {
+			i= (i+1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns value mapped to key or <code>null</code> if there is no mapping.
+	 * @param key the key
+	 * @return value mapped to key or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		return (V)values[slot(key)];
+	}
+
+	public boolean containsKey(int key) {
+		return values[slot(key)]!=null;
+	}
+
+	/**
+	 * Maps value to key. <code>null</code> values are not permitted,
+	 * use <code>remove(int)</code> instead.
+	 * @param key the key
+	 * @param value the value, must not be <code>null</code>
+	 * @return previous value mapped to key or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if (value==null) {
+			throw new NullPointerException("Null values are not supported."); //$NON-NLS-1$
+		}
+		int i= slot(key);
+		V old= (V)values[i];
+		keys[i]=key;
+		values[i]=value;
+		if (old==null) {
+			size++;
+			if (size*4 > keys.length*3) {
+				rehash(keys.length<<1);
+			}
+		}
+		return old;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int i= slot(key);
+		V old= (V)values[i];
+		if (old==null) {
+			return null;
+		}
+		values[i]=null;
+		size--;
+
+		// shift following entries of the same probe chain back into the gap
+		int gap= i;
+		int j= (i+1) & mask;
+		while (values[j]!=null) {
+			int home= hash(keys[j]) & mask;
+			if (((j-home) & mask) >= ((j-gap) & mask)) {
+				keys[gap]=keys[j];
+				values[gap]=values[j];
+				values[j]=null;
+				gap=j;
+			}
+			j= (j+1) & mask;
+		}
+		return old;
+	}
+
+	private void rehash(int cap) {
+		int[] k= keys;
+		Object[] v= values;
+		allocate(cap);
+		for (int i = 0; i < k.length; i++) {
+			if (v[i]!=null) {
+				int s= slot(k[i]);
+				keys[s]=k[i];
+				values[s]=v[i];
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	public void clear() {
+		Arrays.fill(values, null);
+		size=0;
+	}
+
+}
@@ -0,0 +1,324 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.gtdfree.model.GTDData.ActionProxy;
+
+/**
+ * Collects model events and proxy stores while {@link GTDModel} is in batch mode.
+ * Events are merged into one event per folder, kind and property, which carries 
+ * first old value and last new value of property, and are delivered to listeners in order of first occurrence when batch is committed.
+ *
+ * @author ikesan
+ *
+ */
+final class ModelBatch implements GTDModelListener {
+
+	enum Kind {ADDED, REMOVED, MODIFIED, ORDER, FOLDER_ADDED, FOLDER_MODIFIED, FOLDER_REMOVED}
+
+	static final class Key {
+		final Kind kind;
+		final Folder folder;
+		final String property;
+
+		Key(Kind kind, Folder folder, String property) {
+			this.kind=kind;
+			this.folder=folder;
+			this.property=property;
+		}
+
+		@Override
+		public int hashCode() {
+			int h= kind.hashCode()*31+System.identityHashCode(folder);
+			if (property!=null) {
+				h= h*31+property.hashCode();
+			}
+			return h;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key k= (Key)obj;
+			return kind==k.kind && folder==k.folder
+				&& (property==k.property || (property!=null && property.equals(k.property)));
+		}
+	}
+
+	static final class Entry {
+		final Key key;
+		final Map<ActionProxy, Action> actions= new LinkedHashMap<ActionProxy, Action>();
+		boolean recycled;
+		Object oldValue;
+		Object newValue;
+
+		Entry(Key key, boolean recycled) {
+			this.key=key;
+			this.recycled=recycled;
+		}
+	}
+
+	private Map<Key, Entry> entries= new LinkedHashMap<Key, Entry>();
+	private Set<ActionProxy> stores= Collections.newSetFromMap(new IdentityHashMap<ActionProxy, Boolean>());
+
+	private Entry entry(Kind kind, Folder f, String property, boolean recycled) {
+		Key k= new Key(kind, f, property);
+		Entry e= entries.get(k);
+		if (e==null) {
+			e= new Entry(k, recycled);
+			entries.put(k, e);
+		} else {
+			e.recycled= e.recycled && recycled;
+		}
+		return e;
+	}
+
+	private Entry find(Kind kind, Folder f) {
+		return entries.get(new Key(kind, f, null));
+	}
+
+	@Override
+	public void elementAdded(FolderEvent e) {
+		Folder f= e.getFolder();
+		Entry removed= find(Kind.REMOVED, f);
+		Action[] a= e.getActions();
+		ActionProxy[] ap= e.getActionProxies();
+		Entry added= null;
+		for (int i = 0; i < ap.length; i++) {
+			if (removed!=null && removed.actions.remove(ap[i])!=null) {
+				// was there before batch, only position might be changed
+				entry(Kind.ORDER, f, null, false);
+				continue;
+			}
+			if (added==null) {
+				added= entry(Kind.ADDED, f, null, e.isRecycled());
+			}
+			added.actions.put(ap[i], a[i]);
+		}
+	}
+
+	@Override
+	public void elementRemoved(FolderEvent e) {
+		Folder f= e.getFolder();
+		Entry added= find(Kind.ADDED, f);
+		Action[] a= e.getActions();
+		ActionProxy[] ap= e.getActionProxies();
+		Entry removed= null;
+		for (int i = 0; i < ap.length; i++) {
+			if (added!=null && added.actions.remove(ap[i])!=null) {
+				// was not there before batch, nothing to report
+				continue;
+			}
+			if (removed==null) {
+				removed= entry(Kind.REMOVED, f, null, e.isRecycled());
+			}
+			removed.actions.put(ap[i], a[i]);
+		}
+	}
+
+	@Override
+	public void elementModified(ActionEvent e) {
+		// first old value and last new value are kept for action property
+		Entry en= entry(Kind.MODIFIED, (Folder)e.getSource(), e.getProperty(), e.isRecycled());
+		if (en.actions.isEmpty()) {
+			en.oldValue= e.getOldValue();
+		}
+		en.newValue= e.getNewValue();
+		Action[] a= e.getActions();
+		ActionProxy[] ap= e.getActionProxies();
+		for (int i = 0; i < ap.length; i++) {
+			en.actions.put(ap[i], a[i]);
+		}
+	}
+
+	@Override
+	public void orderChanged(Folder f) {
+		entry(Kind.ORDER, f, null, false);
+	}
+
+	@Override
+	public void folderAdded(Folder f) {
+		entry(Kind.FOLDER_ADDED, f, null, false);
+	}
+
+	@Override
+	public void folderRemoved(Folder f) {
+		entry(Kind.FOLDER_REMOVED, f, null, false);
+	}
+
+	@Override
+	public void folderModified(FolderEvent e) {
+		// first old value and last new value are kept for folder property
+		Key k= new Key(Kind.FOLDER_MODIFIED, e.getFolder(), e.getProperty());
+		Entry en= entries.get(k);
+		if (en==null) {
+			en= entry(Kind.FOLDER_MODIFIED, e.getFolder(), e.getProperty(), e.isRecycled());
+			en.oldValue= e.getOldValue();
+		} else {
+			en.recycled= en.recycled && e.isRecycled();
+		}
+		en.newValue= e.getNewValue();
+	}
+
+	void store(ActionProxy ap) {
+		stores.add(ap);
+	}
+
+	/**
+	 * Stores collected proxies and delivers merged events.
+	 * @param support model listener support, which delivers events to model listeners
+	 */
+	void commit(final GTDModel.ModelListenerSupport support) {
+		for (ActionProxy ap : stores) {
+			ap.store();
+		}
+		stores.clear();
+
+		deliver(new GTDModelListener() {
+			@Override
+			public void elementAdded(FolderEvent e) {
+				e.getFolder().deliverElementAdded(e);
+				support.fireElementAdded(e);
+			}
+			@Override
+			public void elementRemoved(FolderEvent e) {
+				e.getFolder().deliverElementRemoved(e);
+				support.fireElementRemoved(e);
+			}
+			@Override
+			public void elementModified(ActionEvent e) {
+				((Folder)e.getSource()).deliverElementModified(e);
+				support.fireElementModified(e);
+			}
+			@Override
+			public void orderChanged(Folder f) {
+				f.deliverOrderChanged();
+				support.fireOrderChanged(f);
+			}
+			@Override
+			public void folderAdded(Folder folder) {
+				support.fireFolderAdded(folder);
+			}
+			@Override
+			public void folderRemoved(Folder folder) {
+				support.fireFolderRemoved(folder);
+			}
+			@Override
+			public void folderModified(FolderEvent folder) {
+				support.fireFolderModified(folder);
+			}
+		});
+	}
+
+	/**
+	 * Delivers merged events to provided listener in order of first occurrence 
+	 * and clears collected events. Exception thrown by listener does not stop delivery 
+	 * of other events.
+	 * @param l listener which receives merged events
+	 */
+	void deliver(GTDModelListener l) {
+		for (Entry e : entries.values()) {
+			try {
+				deliver(e, l);
+			} catch (Exception ex) {
+				Logger.getLogger(this.getClass()).debug("Internal error.", ex); //$NON-NLS-1$
+			}
+		}
+		entries.clear();
+	}
+
+	private void deliver(Entry e, GTDModelListener l) {
+		Folder f= e.key.folder;
+		switch (e.key.kind) {
+			case ADDED: {
+				if (e.actions.isEmpty()) {
+					break;
+				}
+				l.elementAdded(new FolderEvent(f, actions(e), proxies(e), e.recycled));
+				break;
+			}
+			case REMOVED: {
+				if (e.actions.isEmpty()) {
+					break;
+				}
+				l.elementRemoved(new FolderEvent(f, actions(e), proxies(e), e.recycled));
+				break;
+			}
+			case MODIFIED: {
+				// skip actions, which are not in folder any more
+				List<Action> a= new ArrayList<Action>(e.actions.size());
+				List<ActionProxy> ap= new ArrayList<ActionProxy>(e.actions.size());
+				for (Map.Entry<ActionProxy, Action> me : e.actions.entrySet()) {
+					if (f.contains(me.getKey())) {
+						ap.add(me.getKey());
+						a.add(me.getValue());
+					}
+				}
+				if (a.isEmpty()) {
+					break;
+				}
+				l.elementModified(new ActionEvent(f, a.toArray(new Action[a.size()]), ap.toArray(new ActionProxy[ap.size()]), e.key.property, e.oldValue, e.newValue, e.recycled));
+				break;
+			}
+			case ORDER: {
+				l.orderChanged(f);
+				break;
+			}
+			case FOLDER_ADDED: {
+				l.folderAdded(f);
+				break;
+			}
+			case FOLDER_REMOVED: {
+				l.folderRemoved(f);
+				break;
+			}
+			case FOLDER_MODIFIED: {
+				if (e.oldValue==e.newValue || (e.oldValue!=null && e.oldValue.equals(e.newValue))) {
+					break;
+				}
+				l.folderModified(new FolderEvent(f, (Action[])null, (ActionProxy[])null, e.key.property, e.oldValue, e.newValue, e.recycled));
+				break;
+			}
+		}
+	}
+
+	boolean isEmpty() {
+		return entries.isEmpty() && stores.isEmpty();
+	}
+
+	private static Action[] actions(Entry e) {
+		return e.actions.values().toArray(new Action[e.actions.size()]);
+	}
+
+	private static ActionProxy[] proxies(Entry e) {
+		return e.actions.keySet().toArray(new ActionProxy[e.actions.size()]);
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream, which compresses written data with GZIP in background thread.
+ * Data is passed to compressing thread in blocks, so writer, for example XML
+ * serialization of model, and compression run in parallel.
+ * <p>
+ * Closing this stream finishes compression, but does not close underlying stream.
+ *
+ * @author ikesan
+ *
+ */
+final class PipedGZIPOutputStream extends OutputStream {
+
+	private static final int BLOCK= 65536;
+	private static final byte[] END= new byte[0];
+
+	private final BlockingQueue<byte[]> queue= new ArrayBlockingQueue<byte[]>(4);
+	private final Thread worker;
+	private volatile IOException error;
+	private byte[] buf= new byte[BLOCK];
+	private int count;
+	private boolean closed;
+
+	/**
+	 * @param out stream, to which compressed data is written
+	 */
+	PipedGZIPOutputStream(final OutputStream out) {
+		worker= new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					GZIPOutputStream gz= null;
+					byte[] b;
+					while ((b= queue.take())!=END) {
+						if (error!=null) {
+							// keep taking, so writer does not block
+							continue;
+						}
+						try {
+							if (gz==null) {
+								gz= new GZIPOutputStream(out, BLOCK);
+							}
+							gz.write(b);
+						} catch (IOException e) {
+							error=e;
+						}
+					}
+					if (error==null) {
+						try {
+							if (gz==null) {
+								gz= new GZIPOutputStream(out, BLOCK);
+							}
+							gz.finish();
+							gz.flush();
+						} catch (IOException e) {
+							error=e;
+						}
+					}
+				} catch (InterruptedException e) {
+					error= new InterruptedIOException("Compression interrupted."); //$NON-NLS-1$
+				}
+			}
+		},"GTDDataXML-Compressor"); //$NON-NLS-1$
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (count==buf.length) {
+			pass();
+		}
+		buf[count++]=(byte)b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len>0) {
+			if (count==buf.length) {
+				pass();
+			}
+			int l= Math.min(len, buf.length-count);
+			System.arraycopy(b, off, buf, count, l);
+			count+=l;
+			off+=l;
+			len-=l;
+		}
+	}
+
+	/**
+	 * Passes collected data to compressing thread.
+	 */
+	private void pass() throws IOException {
+		check();
+		if (count==0) {
+			return;
+		}
+		byte[] b= buf;
+		if (count<b.length) {
+			b= new byte[count];
+			System.arraycopy(buf, 0, b, 0, count);
+		} else {
+			buf= new byte[BLOCK];
+		}
+		count=0;
+		put(b);
+	}
+
+	private void put(byte[] b) throws IOException {
+		try {
+			queue.put(b);
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Compression interrupted."); //$NON-NLS-1$
+		}
+	}
+
+	private void check() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed."); //$NON-NLS-1$
+		}
+		IOException e= error;
+		if (e!=null) {
+			throw new IOException("Compression failed.", e); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		pass();
+	}
+
+	/**
+	 * Waits until all data is compressed and written to underlying stream.
+	 * Underlying stream is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			pass();
+		} finally {
+			// compressing thread must end even if this failed
+			closed=true;
+			put(END);
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Compression interrupted."); //$NON-NLS-1$
+			}
+		}
+		IOException e= error;
+		if (e!=null) {
+			throw new IOException("Compression failed.", e); //$NON-NLS-1$
+		}
+	}
+}
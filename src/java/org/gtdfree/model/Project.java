@@ -49,6 +49,13 @@ public class Project extends Folder {
 		getParent().fireFolderModified(this,"goal",o,goal,false); //$NON-NLS-1$
 	}
 	@Override
+	void copyState(Folder f) {
+		super.copyState(f);
+		if (f instanceof Project) {
+			goal= ((Project)f).goal;
+		}
+	}
+	@Override
 	public String toString() {
 		StringBuilder sb= new StringBuilder();
 		sb.append("Project{ id= "); //$NON-NLS-1$
@@ -0,0 +1,182 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Schedules saving of data after changes. Changes are coalesced: save is made
+ * when there were no new changes for quiet period, but not later than maximum delay
+ * after first unsaved change. Two saves are never closer than minimum interval,
+ * so continuous changes, like typing, cause at most one save per interval.
+ * <p>
+ * Save runs on single background thread. If save fails, it is retried after
+ * minimum interval.
+ *
+ * @author ikesan
+ *
+ */
+final class SaveScheduler {
+
+	/**
+	 * Performs save for scheduler.
+	 */
+	interface Saver {
+		/**
+		 * Saves data.
+		 * @param changes number of change notifications covered by this save
+		 * @throws Exception if save fails, save is then retried
+		 */
+		void save(int changes) throws Exception;
+	}
+
+	private final Saver saver;
+	private final long quietPeriod;
+	private final long maxDelay;
+	private final long minInterval;
+	private final ScheduledThreadPoolExecutor executor;
+	private volatile Thread thread;
+	private Logger logger= Logger.getLogger(this.getClass());
+
+	// guarded by this
+	private int changes;
+	private long firstChange;
+	private long lastChange;
+	private long lastSave;
+	private boolean scheduled;
+
+	private final Runnable task= new Runnable() {
+		@Override
+		public void run() {
+			fire();
+		}
+	};
+
+	/**
+	 * @param name name of save thread
+	 * @param quietPeriod time in milliseconds without changes, after which save is made
+	 * @param maxDelay longest time in milliseconds from first unsaved change to save
+	 * @param minInterval shortest time in milliseconds between two saves
+	 * @param saver performs save
+	 */
+	SaveScheduler(final String name, long quietPeriod, long maxDelay, long minInterval, Saver saver) {
+		this.saver=saver;
+		this.quietPeriod=Math.max(0, quietPeriod);
+		this.maxDelay=Math.max(this.quietPeriod, maxDelay);
+		this.minInterval=Math.max(0, minInterval);
+		executor= new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t= new Thread(r, name);
+				t.setDaemon(true);
+				thread=t;
+				return t;
+			}
+		});
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	/**
+	 * Notifies scheduler about change, which needs to be saved.
+	 */
+	synchronized void changed() {
+		long now= System.currentTimeMillis();
+		if (changes==0) {
+			firstChange=now;
+		}
+		changes++;
+		lastChange=now;
+		if (!scheduled && !executor.isShutdown()) {
+			scheduled=true;
+			executor.schedule(task, Math.max(0, due()-now), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Returns time when pending changes should be saved.
+	 */
+	private long due() {
+		long t= Math.min(lastChange+quietPeriod, firstChange+maxDelay);
+		return Math.max(t, lastSave+minInterval);
+	}
+
+	private void fire() {
+		int c;
+		synchronized (this) {
+			long now= System.currentTimeMillis();
+			long due= due();
+			if (due>now) {
+				// changes came in meantime, wait for them to settle
+				if (executor.isShutdown()) {
+					scheduled=false;
+				} else {
+					executor.schedule(task, due-now, TimeUnit.MILLISECONDS);
+				}
+				return;
+			}
+			c= changes;
+			changes=0;
+			scheduled=false;
+		}
+		try {
+			saver.save(c);
+		} catch (Exception e) {
+			logger.warn("Save failed, will retry.", e); //$NON-NLS-1$
+			synchronized (this) {
+				if (changes==0) {
+					firstChange=System.currentTimeMillis();
+					lastChange=firstChange;
+				}
+				changes+=c;
+			}
+			retry();
+		} finally {
+			synchronized (this) {
+				lastSave=System.currentTimeMillis();
+			}
+		}
+	}
+
+	private synchronized void retry() {
+		if (!scheduled && !executor.isShutdown()) {
+			scheduled=true;
+			executor.schedule(task, minInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops scheduler, pending changes are not saved. Waits for save in progress to finish.
+	 */
+	void stop() {
+		executor.shutdown();
+		if (Thread.currentThread()==thread) {
+			return;
+		}
+		try {
+			executor.awaitTermination(60, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			logger.debug("Internal error.", e); //$NON-NLS-1$
+		}
+	}
+}
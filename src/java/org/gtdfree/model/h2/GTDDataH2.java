@@ -22,9 +22,11 @@ package org.gtdfree.model.h2;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -32,7 +34,14 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
@@ -57,7 +66,105 @@ public class GTDDataH2 implements GTDData {
     
     private static final Logger logger = Logger.getLogger(GTDDataH2.class.getName());
     
+    /**
+     * Pending writes are drained when this many actions are queued.
+     */
+    private static final int WRITE_BATCH_SIZE = 500;
+    
+    /**
+     * Pending writes are drained at latest this many milliseconds after first queued write.
+     */
+    private static final long WRITE_DELAY = 1000;
+    
+    /**
+     * Write of single action, which failed this many times, is dropped.
+     */
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    
+    private static final String SQL_MERGE_ACTION = """
+        MERGE INTO actions (id, folder_id, description, created_date, modified_date,
+                           resolved_date, start_date, remind_date, due_date, project_id,
+                           queued, resolution_id, type_id, priority_id, url)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+    
+    private static final String SQL_MERGE_ACTION_POSITION = """
+        MERGE INTO actions (id, folder_id, description, created_date, modified_date,
+                           resolved_date, start_date, remind_date, due_date, project_id,
+                           queued, resolution_id, type_id, priority_id, url, position)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+    
+    private static final String SQL_DELETE_ACTION = "DELETE FROM actions WHERE id = ?";
+    
+    private static final String SQL_SELECT_FOLDER_ACTIONS = "SELECT * FROM actions WHERE folder_id = ? ORDER BY position, id";
+    
+    // Next open actions after (position, id), served by idx_actions_folder_position
+    private static final String SQL_SELECT_OPEN_ACTIONS = """
+        SELECT * FROM actions
+        WHERE folder_id = ? AND resolution_id = ? AND (position > ? OR (position = ? AND id > ?))
+        ORDER BY position, id LIMIT ?
+        """;
+    
+    /**
+     * Position value of action, which position in folder is not known. 
+     * Actions saved with it keep position they already have in database.
+     */
+    static final long NO_POSITION = Long.MIN_VALUE;
+    
+    /**
+     * Queued write of single action, later write of same action replaces earlier one.
+     */
+    private static final class PendingWrite {
+        final Action action;
+        final int folderId;
+        final long position;
+        /** Number of failed attempts to write this change. */
+        final int failures;
+        
+        PendingWrite(Action action, int folderId, long position) {
+            this(action, folderId, position, 0);
+        }
+        
+        PendingWrite(Action action, int folderId, long position, int failures) {
+            this.action = action;
+            this.folderId = folderId;
+            this.position = position;
+            this.failures = failures;
+        }
+        
+        boolean isDelete() {
+            return action == null;
+        }
+    }
+    
+    private H2ConnectionManager connections;
+    /** Writer connection of connections, guarded by this. */
     private Connection connection;
+    
+    /**
+     * Prepared statements by SQL, reused for lifetime of connection. Guarded by this.
+     */
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    
+    /**
+     * Actions waiting to be written, by action ID in order of first change. Guarded by this.
+     */
+    private Map<Integer, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    private ScheduledExecutorService writeExecutor;
+    private ScheduledFuture<?> scheduledDrain;
+    /** Number of suspend(true) calls, which were not yet matched by suspend(false). */
+    private final AtomicInteger suspendDepth = new AtomicInteger();
+    /**
+     * Increased with each queued write, so cached query results can tell they are outdated.
+     */
+    private volatile int writeGeneration;
+    /**
+     * Proxies of actions in memory by action ID, so folders and meta folders share 
+     * same action instances. Guarded by itself.
+     */
+    private final Map<Integer, WeakReference<H2ActionProxy>> liveProxies = new HashMap<>();
+    private int livePurgeSize = 1024;
     private File databaseFile;
     private GlobalProperties globalProperties;
     private AtomicInteger nextActionId = new AtomicInteger(1);
@@ -88,14 +195,20 @@ public class GTDDataH2 implements GTDData {
     @Override
     public Folder newFolder(int id, String name, FolderType type) {
         try {
-            // Insert folder into database
-            try (PreparedStatement stmt = connection.prepareStatement(
-                    "INSERT INTO folders (id, name, type_id, created_date) VALUES (?, ?, ?, ?)")) {
+            // Folder row is kept if it exists, for example meta folders of reopened database
+            synchronized (this) {
+                PreparedStatement stmt = prepare(
+                        "MERGE INTO folders (id, name, type_id) KEY (id) VALUES (?, ?, ?)");
                 stmt.setInt(1, id);
                 stmt.setString(2, name);
                 stmt.setInt(3, type.ordinal());
-                stmt.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
-                stmt.executeUpdate();
+                try {
+                    stmt.executeUpdate();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
             }
             
             // Update the ID counter if necessary
@@ -103,7 +216,10 @@ public class GTDDataH2 implements GTDData {
                 nextFolderId.set(id + 1);
             }
             
-            Folder folder = new Folder(model, id, name, type, new H2FolderDataProxy(id, this));
+            // meta folders are not stored with actions, they are queried by action properties
+            FolderDataProxy data = H2MetaFolderDataProxy.isQueried(type) 
+                    ? new H2MetaFolderDataProxy(type, this) : new H2FolderDataProxy(id, this);
+            Folder folder = new Folder(model, id, name, type, data);
             logger.fine("Created folder: " + name + " (ID: " + id + ")");
             return folder;
         } catch (SQLException e) {
@@ -114,9 +230,11 @@ public class GTDDataH2 implements GTDData {
     
     @Override
     public void store() {
-        // H2 uses auto-commit by default, so explicit store is not needed
-        // This method is kept for interface compatibility
-        logger.fine("Store operation completed (H2 auto-commit mode)");
+        try {
+            drainWrites();
+        } catch (SQLException e) {
+            logger.severe("Failed to write pending actions: " + e.getMessage());
+        }
     }
     
     @Override
@@ -150,7 +268,7 @@ public class GTDDataH2 implements GTDData {
             nextActionId.set(id + 1);
         }
         
-        return new H2ActionProxy(action, this);
+        return live(new H2ActionProxy(action, this));
     }
     
     @Override
@@ -173,24 +291,54 @@ public class GTDDataH2 implements GTDData {
             nextActionId.set(id + 1);
         }
         
-        return new H2ActionProxy(action, this);
+        return live(new H2ActionProxy(action, this));
     }
     
     @Override
     public ActionProxy getProxy(Action a) {
-        // Since proxy methods are package-private, we'll use reflection or create a new approach
-        // For now, create a new proxy
-        H2ActionProxy proxy = new H2ActionProxy(a, this);
-        // Associate it with the action later when we find a way
+        // Proxy methods of Action are package-private, so proxy is found by action ID
+        H2ActionProxy proxy = live(new H2ActionProxy(a, this));
+        if (proxy.get() != a) {
+            // other instance of same action, for example a read-only copy
+            return new H2ActionProxy(a, this);
+        }
         return proxy;
     }
     
+    /**
+     * Returns proxy in memory for same action, or registers given proxy if there is none.
+     */
+    H2ActionProxy live(H2ActionProxy proxy) {
+        synchronized (liveProxies) {
+            WeakReference<H2ActionProxy> ref = liveProxies.get(proxy.getId());
+            H2ActionProxy ap = ref != null ? ref.get() : null;
+            if (ap != null) {
+                return ap;
+            }
+            liveProxies.put(proxy.getId(), new WeakReference<>(proxy));
+            if (liveProxies.size() > livePurgeSize) {
+                liveProxies.values().removeIf(r -> r.get() == null);
+                livePurgeSize = Math.max(1024, liveProxies.size() * 2);
+            }
+            return proxy;
+        }
+    }
+    
+    /**
+     * Returns counter of queued writes, which changes whenever database content is about to change.
+     */
+    int getWriteGeneration() {
+        return writeGeneration;
+    }
+    
     @Override
     public void flush() throws IOException {
-        // H2 uses auto-commit, but we can call commit explicitly for safety
         try {
-            if (connection != null && !connection.getAutoCommit()) {
-                connection.commit();
+            drainWrites();
+            synchronized (this) {
+                if (connection != null && !connection.isClosed()) {
+                    connection.commit();
+                }
             }
         } catch (SQLException e) {
             throw new IOException("Failed to flush H2 database", e);
@@ -201,12 +349,21 @@ public class GTDDataH2 implements GTDData {
     public boolean close(boolean terminal) throws IOException {
         try {
             if (connection != null && !connection.isClosed()) {
-                // Commit any pending transactions
-                if (!connection.getAutoCommit()) {
+                // Write queued actions before connection goes away
+                drainWrites();
+                
+                synchronized (this) {
+                    if (writeExecutor != null) {
+                        writeExecutor.shutdownNow();
+                        writeExecutor = null;
+                    }
+                    
+                    // Commit any pending transactions
                     connection.commit();
+                    
+                    closeStatements();
+                    connections.close();
                 }
-                
-                connection.close();
                 logger.info("H2 database closed successfully");
             }
             return true;
@@ -224,18 +381,21 @@ public class GTDDataH2 implements GTDData {
     @Override
     public boolean isClosed() {
         try {
-            return connection == null || connection.isClosed();
-        } catch (SQLException e) {
+            return connections == null || connections.isClosed();
+        } catch (RuntimeException e) {
             return true;
         }
     }
     
     @Override
     public void suspend(boolean b) {
+        // While suspended, writes are only queued and written in single transaction when suspend ends
+        int depth = suspendDepth.updateAndGet(d -> b ? d + 1 : Math.max(0, d - 1));
         try {
-            // Enable/disable auto-commit based on suspend state
-            connection.setAutoCommit(!b);
-            logger.fine("H2 suspend mode: " + b + " (auto-commit: " + !b + ")");
+            if (!b && depth == 0) {
+                drainWrites();
+            }
+            logger.fine("H2 suspend mode: " + b);
         } catch (SQLException e) {
             logger.severe("Failed to set suspend mode: " + e.getMessage());
         }
@@ -245,31 +405,35 @@ public class GTDDataH2 implements GTDData {
     public void checkConsistency(Logger log, boolean fail, boolean correct) throws ConsistencyException {
         // Basic consistency checks for H2 database
         try {
-            // Check for orphaned actions (actions without valid folders)
-            try (PreparedStatement stmt = connection.prepareStatement(
-                    "SELECT COUNT(*) FROM actions a WHERE a.folder_id NOT IN (SELECT id FROM folders)")) {
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        int orphanedActions = rs.getInt(1);
-                        if (orphanedActions > 0) {
-                            String msg = "Found " + orphanedActions + " orphaned actions";
-                            log.warning(msg);
-                            
-                            if (correct) {
-                                // Remove orphaned actions
-                                try (PreparedStatement deleteStmt = connection.prepareStatement(
-                                        "DELETE FROM actions WHERE folder_id NOT IN (SELECT id FROM folders)")) {
-                                    int deleted = deleteStmt.executeUpdate();
-                                    log.info("Removed " + deleted + " orphaned actions");
-                                }
-                            }
-                            
-                            if (fail && !correct) {
-                                throw new ConsistencyException(msg);
-                            }
+            drainWrites();
+            
+            // Check for orphaned actions (actions without valid folders), 
+            // checked with reader, so it does not hold up writes
+            int orphanedActions = connections.read(r -> {
+                try (ResultSet rs = r.prepare(
+                        "SELECT COUNT(*) FROM actions a WHERE a.folder_id NOT IN (SELECT id FROM folders)").executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
+            if (orphanedActions > 0) {
+                String msg = "Found " + orphanedActions + " orphaned actions";
+                log.warning(msg);
+                
+                if (correct) {
+                    // Remove orphaned actions
+                    synchronized (this) {
+                        try (PreparedStatement deleteStmt = connection.prepareStatement(
+                                "DELETE FROM actions WHERE folder_id NOT IN (SELECT id FROM folders)")) {
+                            int deleted = deleteStmt.executeUpdate();
+                            connection.commit();
+                            log.info("Removed " + deleted + " orphaned actions");
                         }
                     }
                 }
+                
+                if (fail && !correct) {
+                    throw new ConsistencyException(msg);
+                }
             }
             
             log.info("H2 database consistency check completed");
@@ -292,9 +456,13 @@ public class GTDDataH2 implements GTDData {
     private void initializeDatabase() throws SQLException {
         logger.info("Initializing H2 database: " + databaseFile.getAbsolutePath());
         
-        this.connection = H2DatabaseSchema.createConnection(databaseFile);
+        this.connections = new H2ConnectionManager(databaseFile);
+        this.connection = connections.getWriter();
         H2DatabaseSchema.initializeSchema(connection);
         
+        // From now on writer uses explicit transactions and queries use read-only connections
+        connections.readAccess();
+        
         // Initialize ID counters
         initializeIdCounters();
         
@@ -330,7 +498,7 @@ public class GTDDataH2 implements GTDData {
     }
     
     /**
-     * Get the database connection for internal operations.
+     * Get the writer connection for internal operations. It does not auto-commit.
      */
     Connection getConnection() {
         return connection;
@@ -340,35 +508,136 @@ public class GTDDataH2 implements GTDData {
      * Load an action from the database by ID.
      */
     Action loadAction(int actionId) throws SQLException {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "SELECT * FROM actions WHERE id = ?")) {
+        drainWrites();
+        return connections.read(r -> {
+            PreparedStatement stmt = r.prepare("SELECT * FROM actions WHERE id = ?");
             stmt.setInt(1, actionId);
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return createActionFromResultSet(rs);
+                return rs.next() ? createActionFromResultSet(rs) : null;
+            }
+        });
+    }
+    
+    /**
+     * Load actions for a specific folder, in folder order.
+     */
+    List<H2ActionProxy> loadActionsForFolder(int folderId) throws SQLException {
+        drainWrites();
+        return connections.read(r -> {
+            PreparedStatement stmt = r.prepare(SQL_SELECT_FOLDER_ACTIONS);
+            stmt.setInt(1, folderId);
+            return readProxies(stmt);
+        });
+    }
+    
+    /**
+     * Load window of actions for a folder, in same order as loadActionsForFolder(int).
+     */
+    List<H2ActionProxy> loadActionsForFolder(int folderId, int offset, int limit) throws SQLException {
+        drainWrites();
+        return connections.read(r -> {
+            PreparedStatement stmt = r.prepare(SQL_SELECT_FOLDER_ACTIONS + " LIMIT ? OFFSET ?");
+            stmt.setInt(1, folderId);
+            stmt.setInt(2, limit);
+            stmt.setInt(3, offset);
+            return readProxies(stmt);
+        });
+    }
+    
+    /**
+     * Load open actions of a folder, which follow given action in folder order.
+     * 
+     * @param afterPosition position of last action already read, or NO_POSITION to start at beginning
+     * @param afterId ID of last action already read
+     */
+    List<H2ActionProxy> loadOpenActionsForFolder(int folderId, long afterPosition, int afterId, int limit) throws SQLException {
+        drainWrites();
+        return connections.read(r -> {
+            PreparedStatement stmt = r.prepare(SQL_SELECT_OPEN_ACTIONS);
+            stmt.setInt(1, folderId);
+            stmt.setInt(2, Resolution.OPEN.ordinal());
+            stmt.setLong(3, afterPosition);
+            stmt.setLong(4, afterPosition);
+            stmt.setInt(5, afterId);
+            stmt.setInt(6, limit);
+            return readProxies(stmt);
+        });
+    }
+    
+    /**
+     * Load actions, which match condition of a meta folder.
+     * 
+     * @param condition SQL condition on actions table
+     * @param order SQL order of actions
+     * @param limit maximum number of actions, -1 for all
+     */
+    List<H2ActionProxy> loadActionsWhere(String condition, String order, int offset, int limit) throws SQLException {
+        drainWrites();
+        return connections.read(r -> {
+            String sql = "SELECT * FROM actions WHERE " + condition + " ORDER BY " + order;
+            if (limit < 0) {
+                return readProxies(r.prepare(sql));
+            }
+            PreparedStatement stmt = r.prepare(sql + " LIMIT ? OFFSET ?");
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+            return readProxies(stmt);
+        });
+    }
+    
+    /**
+     * Count actions, which match condition of a meta folder.
+     */
+    int countActionsWhere(String condition) throws SQLException {
+        drainWrites();
+        return connections.read(r -> {
+            try (ResultSet rs = r.prepare("SELECT COUNT(*) FROM actions WHERE " + condition).executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+    
+    /**
+     * Reads actions from result, actions which are already in memory are not read again, 
+     * only their folder and position are refreshed from row.
+     */
+    private List<H2ActionProxy> readProxies(PreparedStatement stmt) throws SQLException {
+        List<H2ActionProxy> proxies = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                H2ActionProxy ap;
+                synchronized (liveProxies) {
+                    WeakReference<H2ActionProxy> ref = liveProxies.get(id);
+                    ap = ref != null ? ref.get() : null;
                 }
+                if (ap == null) {
+                    H2ActionProxy proxy = new H2ActionProxy(createActionFromResultSet(rs), this, rs.getInt("folder_id"));
+                    proxy.setPosition(rs.getLong("position"));
+                    ap = live(proxy);
+                } else if (!isPending(id)) {
+                    // write queued after row was read is newer than row
+                    ap.setFolderId(rs.getInt("folder_id"));
+                    ap.setPosition(rs.getLong("position"));
+                }
+                proxies.add(ap);
             }
         }
-        return null;
+        return proxies;
     }
     
     /**
-     * Load actions for a specific folder.
+     * Count actions in a folder, without loading them.
      */
-    List<Action> loadActionsForFolder(int folderId) throws SQLException {
-        List<Action> actions = new ArrayList<>();
-        
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "SELECT * FROM actions WHERE folder_id = ? ORDER BY created_date")) {
+    int countActionsForFolder(int folderId) throws SQLException {
+        drainWrites();
+        return connections.read(r -> {
+            PreparedStatement stmt = r.prepare("SELECT COUNT(*) FROM actions WHERE folder_id = ?");
             stmt.setInt(1, folderId);
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    actions.add(createActionFromResultSet(rs));
-                }
+                return rs.next() ? rs.getInt(1) : 0;
             }
-        }
-        
-        return actions;
+        });
     }
     
     /**
@@ -418,80 +687,338 @@ public class GTDDataH2 implements GTDData {
     }
     
     /**
-     * Save an action to the database.
+     * Queues action to be saved to the database. Repeated saves of the same action 
+     * before queue is drained are written once, with latest action state.
      */
-    void saveAction(Action action, int folderId) throws SQLException {
-        String sql = """
-            MERGE INTO actions (id, folder_id, description, created_date, modified_date, 
-                               resolved_date, start_date, remind_date, due_date, project_id, 
-                               queued, resolution_id, type_id, priority_id, url) 
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-            """;
+    void saveAction(Action action, int folderId) {
+        saveAction(action, folderId, NO_POSITION);
+    }
+    
+    /**
+     * Queues action to be saved to the database, together with its position in folder.
+     * 
+     * @param position position of action in folder, or NO_POSITION to keep current position
+     */
+    void saveAction(Action action, int folderId, long position) {
+        queueWrite(action.getId(), new PendingWrite(action, folderId, position));
+    }
+    
+    /**
+     * Queues action to be deleted from the database.
+     */
+    void deleteAction(int actionId) {
+        queueWrite(actionId, new PendingWrite(null, -1, NO_POSITION));
+    }
+    
+    private synchronized boolean isPending(int actionId) {
+        return pendingWrites.containsKey(actionId);
+    }
+    
+    private void queueWrite(int actionId, PendingWrite w) {
+        boolean drain;
+        synchronized (this) {
+            // removed first, so entry moves to end of queue
+            PendingWrite old = pendingWrites.remove(actionId);
+            if (old != null && !old.isDelete() && !w.isDelete() 
+                    && w.position == NO_POSITION && old.folderId == w.folderId) {
+                // position from earlier write is not yet in database
+                w = new PendingWrite(w.action, w.folderId, old.position);
+            }
+            pendingWrites.put(actionId, w);
+            writeGeneration++;
+            drain = pendingWrites.size() >= WRITE_BATCH_SIZE && suspendDepth.get() == 0;
+            if (!drain) {
+                scheduleDrain();
+            }
+        }
+        if (drain) {
+            try {
+                drainWrites();
+            } catch (SQLException e) {
+                logger.severe("Failed to write pending actions: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Schedules drain of pending writes, if not already scheduled.
+     */
+    private synchronized void scheduleDrain() {
+        if (scheduledDrain != null && !scheduledDrain.isDone()) {
+            return;
+        }
+        if (writeExecutor == null) {
+            writeExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "GTDDataH2-Writer");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        scheduledDrain = writeExecutor.schedule(() -> {
+            if (suspendDepth.get() > 0) {
+                // drained when suspend ends
+                return;
+            }
+            try {
+                drainWrites();
+            } catch (SQLException e) {
+                logger.severe("Failed to write pending actions: " + e.getMessage());
+            }
+        }, WRITE_DELAY, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Writes all queued actions in single transaction, with one batch of saves and one 
+     * batch of deletes. If batch fails, actions are written one by one, so single bad 
+     * action does not prevent others from being written. Failed actions are queued again 
+     * and dropped after {@link #MAX_WRITE_ATTEMPTS} failures.
+     * 
+     * @throws SQLException if transaction fails, queued actions are then kept for next drain
+     */
+    synchronized void drainWrites() throws SQLException {
+        if (pendingWrites.isEmpty() || connection == null || connection.isClosed()) {
+            return;
+        }
+        Map<Integer, PendingWrite> writes = pendingWrites;
+        pendingWrites = new LinkedHashMap<>();
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, action.getId());
-            stmt.setInt(2, folderId);
-            stmt.setString(3, action.getDescription());
-            stmt.setTimestamp(4, new Timestamp(action.getCreated().getTime()));
-            stmt.setTimestamp(5, new Timestamp(action.getModified().getTime()));
-            
-            // Handle nullable dates
-            setTimestampOrNull(stmt, 6, action.getResolved());
-            setTimestampOrNull(stmt, 7, action.getStart());
-            setTimestampOrNull(stmt, 8, action.getRemind());
-            setTimestampOrNull(stmt, 9, action.getDue());
-            
-            // Handle nullable integer
-            setIntegerOrNull(stmt, 10, action.getProject());
-            
-            stmt.setBoolean(11, action.isQueued());
-            stmt.setInt(12, action.getResolution().ordinal());
-            
-            // Handle nullable type
-            if (action.getType() != null) {
-                stmt.setInt(13, action.getType().ordinal());
-            } else {
-                stmt.setNull(13, java.sql.Types.INTEGER);
+        try {
+            Map<Integer, PendingWrite> failed = new LinkedHashMap<>();
+            try {
+                executeWrites(writes, null);
+            } catch (BatchUpdateException e) {
+                logger.warning("Batch write failed, writing actions one by one: " + e.getMessage());
+                connection.rollback();
+                executeWrites(writes, failed);
             }
-            
-            stmt.setInt(14, action.getPriority().ordinal());
-            
-            // Handle nullable URL
-            if (action.getUrl() != null) {
-                stmt.setString(15, action.getUrl().toString());
+            // readers see changes only after commit
+            connection.commit();
+            logger.fine("Wrote " + (writes.size() - failed.size()) + " pending actions");
+            requeueFailed(failed);
+        } catch (SQLException e) {
+            connection.rollback();
+            // keep writes, later changes of same actions take precedence
+            writes.putAll(pendingWrites);
+            pendingWrites = writes;
+            throw e;
+        }
+    }
+    
+    /**
+     * Queues failed writes again, unless action was changed meanwhile or write failed too often.
+     */
+    private void requeueFailed(Map<Integer, PendingWrite> failed) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Integer, PendingWrite> e : failed.entrySet()) {
+            PendingWrite w = e.getValue();
+            if (w.failures + 1 >= MAX_WRITE_ATTEMPTS) {
+                logger.severe("Dropped write of action " + e.getKey() + " after " + MAX_WRITE_ATTEMPTS + " failed attempts");
             } else {
-                stmt.setNull(15, java.sql.Types.VARCHAR);
+                // later change of same action takes precedence
+                pendingWrites.putIfAbsent(e.getKey(), 
+                        new PendingWrite(w.action, w.folderId, w.position, w.failures + 1));
             }
-            
-            stmt.executeUpdate();
+        }
+        if (!pendingWrites.isEmpty()) {
+            scheduleDrain();
         }
     }
     
     /**
-     * Delete an action from the database.
+     * Writes actions in batches, or one by one, if map for failed writes is given.
+     * 
+     * @param writes the writes
+     * @param failed collects writes, which failed when written one by one;
+     * if <code>null</code> writes are batched
      */
-    void deleteAction(int actionId) throws SQLException {
-        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM actions WHERE id = ?")) {
-            stmt.setInt(1, actionId);
+    private void executeWrites(Map<Integer, PendingWrite> writes, Map<Integer, PendingWrite> failed) throws SQLException {
+        boolean batch = failed == null;
+        PreparedStatement merge = prepare(SQL_MERGE_ACTION);
+        PreparedStatement mergePosition = prepare(SQL_MERGE_ACTION_POSITION);
+        PreparedStatement delete = prepare(SQL_DELETE_ACTION);
+        int merges = 0;
+        int mergePositions = 0;
+        int deletes = 0;
+        try {
+            for (Map.Entry<Integer, PendingWrite> e : writes.entrySet()) {
+                PendingWrite w = e.getValue();
+                if (w.isDelete()) {
+                    delete.setInt(1, e.getKey());
+                    if (batch) {
+                        delete.addBatch();
+                        deletes++;
+                    } else if (!executeSingle(delete, e.getKey())) {
+                        failed.put(e.getKey(), w);
+                    }
+                } else if (w.position != NO_POSITION) {
+                    setActionParameters(mergePosition, w.action, w.folderId);
+                    mergePosition.setLong(16, w.position);
+                    if (batch) {
+                        mergePosition.addBatch();
+                        mergePositions++;
+                    } else if (!executeSingle(mergePosition, e.getKey())) {
+                        failed.put(e.getKey(), w);
+                    }
+                } else {
+                    setActionParameters(merge, w.action, w.folderId);
+                    if (batch) {
+                        merge.addBatch();
+                        merges++;
+                    } else if (!executeSingle(merge, e.getKey())) {
+                        failed.put(e.getKey(), w);
+                    }
+                }
+            }
+            if (mergePositions > 0) {
+                mergePosition.executeBatch();
+            }
+            if (merges > 0) {
+                merge.executeBatch();
+            }
+            if (deletes > 0) {
+                delete.executeBatch();
+            }
+        } finally {
+            // statements are cached, batch left after failure would be replayed by next drain
+            clearBatch(mergePosition);
+            clearBatch(merge);
+            clearBatch(delete);
+        }
+    }
+    
+    private void clearBatch(PreparedStatement stmt) {
+        try {
+            stmt.clearBatch();
+        } catch (SQLException e) {
+            logger.fine("Failed to clear batch: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stores order of queue, actions get queue position by their index in queue.
+     * Queued writes are drained first, so new actions already have rows.
+     */
+    void saveQueueOrder(ActionProxy[] queue) throws SQLException {
+        drainWrites();
+        synchronized (this) {
+            if (connection == null || connection.isClosed()) {
+                return;
+            }
+            PreparedStatement stmt = prepare("UPDATE actions SET queue_position = ? WHERE id = ?");
+            try {
+                for (int i = 0; i < queue.length; i++) {
+                    stmt.setLong(1, i + 1);
+                    stmt.setInt(2, queue[i].getId());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                clearBatch(stmt);
+            }
+        }
+    }
+    
+    private boolean executeSingle(PreparedStatement stmt, int actionId) {
+        try {
             stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            logger.severe("Failed to write action: " + actionId + " - " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private void setActionParameters(PreparedStatement stmt, Action action, int folderId) throws SQLException {
+        stmt.setInt(1, action.getId());
+        stmt.setInt(2, folderId);
+        stmt.setString(3, action.getDescription());
+        stmt.setTimestamp(4, new Timestamp(action.getCreated().getTime()));
+        stmt.setTimestamp(5, new Timestamp(action.getModified().getTime()));
+        
+        // Handle nullable dates
+        setTimestampOrNull(stmt, 6, action.getResolved());
+        setTimestampOrNull(stmt, 7, action.getStart());
+        setTimestampOrNull(stmt, 8, action.getRemind());
+        setTimestampOrNull(stmt, 9, action.getDue());
+        
+        // Handle nullable integer
+        setIntegerOrNull(stmt, 10, action.getProject());
+        
+        stmt.setBoolean(11, action.isQueued());
+        stmt.setInt(12, action.getResolution().ordinal());
+        
+        // Handle nullable type
+        if (action.getType() != null) {
+            stmt.setInt(13, action.getType().ordinal());
+        } else {
+            stmt.setNull(13, java.sql.Types.INTEGER);
+        }
+        
+        stmt.setInt(14, action.getPriority().ordinal());
+        
+        // Handle nullable URL
+        if (action.getUrl() != null) {
+            stmt.setString(15, action.getUrl().toString());
+        } else {
+            stmt.setNull(15, java.sql.Types.VARCHAR);
         }
     }
     
+    /**
+     * Returns prepared statement of writer for SQL, which is prepared once and then reused.
+     * Must be called while holding lock on this.
+     */
+    private PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+        }
+        return stmt;
+    }
+    
+    private void closeStatements() {
+        for (PreparedStatement stmt : statements.values()) {
+            try {
+                stmt.close();
+            } catch (SQLException e) {
+                logger.fine("Failed to close statement: " + e.getMessage());
+            }
+        }
+        statements.clear();
+    }
+    
     /**
      * Delete a folder from the database.
      * Package-private method for internal use by H2FolderDataProxy.
      */
     void deleteFolder(int folderId) throws SQLException {
-        // Delete all actions in the folder first
-        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM actions WHERE folder_id = ?")) {
-            stmt.setInt(1, folderId);
-            stmt.executeUpdate();
-        }
+        // Queued writes may refer to this folder
+        drainWrites();
         
-        // Delete the folder
-        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM folders WHERE id = ?")) {
-            stmt.setInt(1, folderId);
-            stmt.executeUpdate();
+        synchronized (this) {
+            try {
+                // Delete all actions in the folder first
+                PreparedStatement stmt = prepare("DELETE FROM actions WHERE folder_id = ?");
+                stmt.setInt(1, folderId);
+                stmt.executeUpdate();
+                
+                // Delete the folder
+                stmt = prepare("DELETE FROM folders WHERE id = ?");
+                stmt.setInt(1, folderId);
+                stmt.executeUpdate();
+                
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         }
         
         logger.fine("Deleted folder ID: " + folderId);
@@ -20,7 +20,6 @@
 
 package org.gtdfree.model.h2;
 
-import java.sql.SQLException;
 
 import org.apache.log4j.Logger;
 import org.gtdfree.model.Action;
@@ -39,6 +38,7 @@ public class H2ActionProxy implements ActionProxy {
     private Action action;
     private GTDDataH2 dataStore;
     private int folderId;
+    private long position = GTDDataH2.NO_POSITION;
     private Folder parent;
     
     public H2ActionProxy(Action action, GTDDataH2 dataStore, int folderId) {
@@ -61,11 +61,8 @@ public class H2ActionProxy implements ActionProxy {
     
     @Override
     public void store() {
-        try {
-            dataStore.saveAction(action, folderId);
-        } catch (SQLException e) {
-            logger.error("Failed to store action: " + action.getId(), e);
-        }
+        // queued, written in batch together with other changes
+        dataStore.saveAction(action, folderId, position);
     }
     
     @Override
@@ -75,11 +72,7 @@ public class H2ActionProxy implements ActionProxy {
     
     @Override
     public void delete() {
-        try {
-            dataStore.deleteAction(action.getId());
-        } catch (SQLException e) {
-            logger.error("Failed to delete action: " + action.getId(), e);
-        }
+        dataStore.deleteAction(action.getId());
     }
     
     @Override
@@ -108,4 +101,18 @@ public class H2ActionProxy implements ActionProxy {
     public void setFolderId(int folderId) {
         this.folderId = folderId;
     }
+    
+    /**
+     * Get position of action in its folder, GTDDataH2.NO_POSITION if not known.
+     */
+    public long getPosition() {
+        return position;
+    }
+    
+    /**
+     * Set position of action in its folder, it is written with next store.
+     */
+    public void setPosition(long position) {
+        this.position = position;
+    }
 }
@@ -0,0 +1,189 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *    H2 Migration by GitHub Copilot 2025
+ *    
+ *    This file is part of GTD-Free.
+ *    
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *    
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *    
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model.h2;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Connections to H2 database: single writer connection and small pool of read-only 
+ * connections. 
+ * <p>
+ * Writer does not auto-commit, changes are committed explicitly by its user. Readers 
+ * see only committed data, H2 MVStore gives each statement consistent snapshot, so 
+ * long queries do not block writer and writer does not block queries.
+ * 
+ * @author GitHub Copilot
+ */
+public class H2ConnectionManager {
+    
+    private static final Logger logger = Logger.getLogger(H2ConnectionManager.class);
+    
+    /**
+     * Maximum number of read-only connections, additional readers wait for free one.
+     */
+    public static final int MAX_READERS = 4;
+    
+    /**
+     * Read-only connection with its prepared statements.
+     */
+    static final class Reader {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        
+        private Reader(Connection connection) {
+            this.connection = connection;
+        }
+        
+        /**
+         * Returns prepared statement for SQL, which is prepared once and then reused.
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt == null || stmt.isClosed()) {
+                stmt = connection.prepareStatement(sql);
+                statements.put(sql, stmt);
+            }
+            return stmt;
+        }
+        
+        private void close() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.debug("Failed to close reader connection", e);
+            }
+        }
+    }
+    
+    /**
+     * Work done with read-only connection.
+     */
+    interface ReadTask<T> {
+        T run(Reader reader) throws SQLException;
+    }
+    
+    private final File databaseFile;
+    private final Connection writer;
+    private final ConcurrentLinkedQueue<Reader> idle = new ConcurrentLinkedQueue<>();
+    private final Semaphore permits = new Semaphore(MAX_READERS, true);
+    private final List<Reader> readers = new ArrayList<>();
+    private volatile boolean closed;
+    
+    /**
+     * Opens writer connection. Read-only connections are opened when needed, 
+     * after readAccess() was called.
+     * 
+     * @param databaseFile The database file path
+     * @throws SQLException if connection fails
+     */
+    public H2ConnectionManager(File databaseFile) throws SQLException {
+        this.databaseFile = databaseFile;
+        this.writer = H2DatabaseSchema.createConnection(databaseFile);
+    }
+    
+    /**
+     * Prepares database for read-only connections and switches writer to explicit 
+     * transactions. Called after schema is initialized.
+     */
+    public void readAccess() throws SQLException {
+        H2DatabaseSchema.grantReadAccess(writer);
+        writer.setAutoCommit(false);
+    }
+    
+    /**
+     * Get the writer connection. Only one thread may use it at a time.
+     */
+    public Connection getWriter() {
+        return writer;
+    }
+    
+    /**
+     * Runs task with free read-only connection, waits if all are in use.
+     */
+    <T> T read(ReadTask<T> task) throws SQLException {
+        if (closed) {
+            throw new SQLException("Database is closed");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for database connection", e);
+        }
+        Reader r = null;
+        try {
+            r = idle.poll();
+            if (r == null) {
+                r = new Reader(H2DatabaseSchema.createReadConnection(databaseFile));
+                synchronized (readers) {
+                    readers.add(r);
+                }
+                logger.debug("Opened reader connection " + readers.size());
+            }
+            return task.run(r);
+        } finally {
+            if (r != null) {
+                idle.add(r);
+            }
+            permits.release();
+        }
+    }
+    
+    /**
+     * Closes all connections. Uncommitted changes of writer are rolled back.
+     */
+    public void close() throws SQLException {
+        closed = true;
+        // wait for running reads
+        permits.acquireUninterruptibly(MAX_READERS);
+        try {
+            synchronized (readers) {
+                for (Reader r : readers) {
+                    r.close();
+                }
+                readers.clear();
+            }
+            idle.clear();
+            writer.close();
+        } finally {
+            permits.release(MAX_READERS);
+        }
+    }
+    
+    public boolean isClosed() {
+        try {
+            return closed || writer.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
@@ -40,7 +40,36 @@ public class H2DatabaseSchema {
     
     private static final Logger logger = Logger.getLogger(H2DatabaseSchema.class);
     
-    public static final String SCHEMA_VERSION = "1.0";
+    public static final String SCHEMA_VERSION = "1.3";
+    
+    /**
+     * Distance between positions of neighboring actions, when folder positions are 
+     * renumbered. Actions inserted between neighbors get position in the middle, so 
+     * folder is renumbered only when there is no gap left.
+     */
+    public static final long POSITION_GAP = 1024;
+    
+    /**
+     * Page cache of database in KB. Data of GTD-Free is small and folders are read 
+     * lazily, so smaller cache than H2 default is enough and keeps heap low.
+     */
+    public static final int CACHE_SIZE = 16384;
+    
+    /**
+     * Delay in ms before committed changes are written to disk. Actions already wait 
+     * in write queue of GTDDataH2 and are committed in batches, so commits are rare 
+     * and are written at once, H2 delay would only widen window of lost changes.
+     */
+    public static final int WRITE_DELAY = 0;
+    
+    /**
+     * Database user for read-only connections, it has only SELECT rights.
+     */
+    static final String READER_USER = "GTD_READER";
+    
+    // Database settings, applied by connection which opens database
+    private static final String DATABASE_SETTINGS = 
+        ";CACHE_SIZE=" + CACHE_SIZE + ";WRITE_DELAY=" + WRITE_DELAY;
     
     // Table creation SQL
     private static final String CREATE_FOLDERS_TABLE = """
@@ -73,6 +102,8 @@ public class H2DatabaseSchema {
             type_id INTEGER,
             priority_id INTEGER DEFAULT 0,
             url VARCHAR(2048),
+            position BIGINT DEFAULT 0,
+            queue_position BIGINT,
             FOREIGN KEY (folder_id) REFERENCES folders(id) ON DELETE CASCADE
         )
         """;
@@ -93,6 +124,38 @@ public class H2DatabaseSchema {
         CREATE INDEX IF NOT EXISTS idx_actions_due ON actions(due_date);
         CREATE INDEX IF NOT EXISTS idx_actions_remind ON actions(remind_date);
         CREATE INDEX IF NOT EXISTS idx_folders_type ON folders(type_id);
+        CREATE INDEX IF NOT EXISTS idx_actions_folder_position ON actions(folder_id, resolution_id, position);
+        CREATE INDEX IF NOT EXISTS idx_actions_priority ON actions(priority_id);
+        CREATE INDEX IF NOT EXISTS idx_actions_queued ON actions(queued);
+        CREATE INDEX IF NOT EXISTS idx_actions_queue_position ON actions(queued, queue_position);
+        """;
+    
+    // Migration from 1.0, positions follow previous order by creation date
+    private static final String MIGRATE_1_1 = """
+        ALTER TABLE actions ADD COLUMN IF NOT EXISTS position BIGINT DEFAULT 0;
+        MERGE INTO actions a USING (
+            SELECT id, ROW_NUMBER() OVER (PARTITION BY folder_id ORDER BY created_date, id) * %d AS pos
+            FROM actions
+        ) o ON a.id = o.id
+        WHEN MATCHED THEN UPDATE SET a.position = o.pos;
+        CREATE INDEX IF NOT EXISTS idx_actions_folder_position ON actions(folder_id, resolution_id, position);
+        """.formatted(POSITION_GAP);
+    
+    // Migration from 1.1, indexes for meta folder queries
+    private static final String MIGRATE_1_2 = """
+        CREATE INDEX IF NOT EXISTS idx_actions_priority ON actions(priority_id);
+        CREATE INDEX IF NOT EXISTS idx_actions_queued ON actions(queued);
+        """;
+    
+    // Migration from 1.2, queue order follows previous order by ID
+    private static final String MIGRATE_1_3 = """
+        ALTER TABLE actions ADD COLUMN IF NOT EXISTS queue_position BIGINT;
+        MERGE INTO actions a USING (
+            SELECT id, ROW_NUMBER() OVER (ORDER BY id) AS pos
+            FROM actions WHERE queued = TRUE
+        ) o ON a.id = o.id
+        WHEN MATCHED THEN UPDATE SET a.queue_position = o.pos;
+        CREATE INDEX IF NOT EXISTS idx_actions_queue_position ON actions(queued, queue_position);
         """;
     
     /**
@@ -112,6 +175,7 @@ public class H2DatabaseSchema {
             String currentVersion = getCurrentSchemaVersion(connection);
             if (currentVersion != null) {
                 logger.info("Database schema version " + currentVersion + " already exists");
+                migrateSchema(connection, currentVersion);
                 return;
             }
             
@@ -120,20 +184,10 @@ public class H2DatabaseSchema {
             stmt.execute(CREATE_ACTIONS_TABLE);
             
             // Create indexes
-            String[] indexes = CREATE_INDEXES.split(";");
-            for (String index : indexes) {
-                if (!index.trim().isEmpty()) {
-                    stmt.execute(index.trim());
-                }
-            }
+            executeAll(stmt, CREATE_INDEXES);
             
             // Record schema version
-            try (PreparedStatement pstmt = connection.prepareStatement(
-                    "INSERT INTO schema_info (version, description) VALUES (?, ?)")) {
-                pstmt.setString(1, SCHEMA_VERSION);
-                pstmt.setString(2, "Initial H2 schema for GTD-Free");
-                pstmt.executeUpdate();
-            }
+            recordSchemaVersion(connection, SCHEMA_VERSION, "Initial H2 schema for GTD-Free");
             
             logger.info("H2 database schema initialized successfully");
             
@@ -143,6 +197,69 @@ public class H2DatabaseSchema {
         }
     }
     
+    /**
+     * Upgrade schema from older version to current version.
+     * 
+     * @param connection Database connection
+     * @param version Version of existing schema
+     * @throws SQLException if migration fails
+     */
+    private static void migrateSchema(Connection connection, String version) throws SQLException {
+        if ("1.0".equals(version)) {
+            migrate(connection, MIGRATE_1_1, version, "1.1", "Action positions");
+            version = "1.1";
+        }
+        if ("1.1".equals(version)) {
+            migrate(connection, MIGRATE_1_2, version, "1.2", "Meta folder indexes");
+            version = "1.2";
+        }
+        if ("1.2".equals(version)) {
+            migrate(connection, MIGRATE_1_3, version, "1.3", "Queue positions");
+        }
+    }
+    
+    /**
+     * Executes single migration step. H2 commits DDL statements at once, so step is 
+     * not atomic, but its statements can be repeated, and new version is recorded 
+     * only after all of them succeeded. Failed step is thus executed again on next start.
+     */
+    private static void migrate(Connection connection, String sql, String from, String to, String description) throws SQLException {
+        logger.info("Migrating database schema from " + from + " to " + to + "...");
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            executeAll(stmt, sql);
+            recordSchemaVersion(connection, to, description);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        logger.info("Database schema migrated to " + to);
+    }
+    
+    /**
+     * Executes semicolon separated SQL statements.
+     */
+    private static void executeAll(Statement stmt, String sql) throws SQLException {
+        for (String s : sql.split(";")) {
+            if (!s.trim().isEmpty()) {
+                stmt.execute(s.trim());
+            }
+        }
+    }
+    
+    private static void recordSchemaVersion(Connection connection, String version, String description) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO schema_info (version, description) VALUES (?, ?)")) {
+            pstmt.setString(1, version);
+            pstmt.setString(2, description);
+            pstmt.executeUpdate();
+        }
+    }
+    
     /**
      * Get the current schema version from the database.
      * 
@@ -151,7 +268,7 @@ public class H2DatabaseSchema {
      */
     private static String getCurrentSchemaVersion(Connection connection) {
         try (PreparedStatement pstmt = connection.prepareStatement(
-                "SELECT version FROM schema_info ORDER BY applied_date DESC LIMIT 1")) {
+                "SELECT version FROM schema_info ORDER BY applied_date DESC, version DESC LIMIT 1")) {
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     return rs.getString("version");
@@ -164,6 +281,20 @@ public class H2DatabaseSchema {
         return null;
     }
     
+    /**
+     * Grants read access to database for read-only connections.
+     * 
+     * @param connection Database connection with admin rights
+     * @throws SQLException if user can not be created
+     */
+    public static void grantReadAccess(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE USER IF NOT EXISTS " + READER_USER + " PASSWORD ''");
+            // schema grant also covers tables created later by migrations
+            stmt.execute("GRANT SELECT ON SCHEMA PUBLIC TO " + READER_USER);
+        }
+    }
+    
     /**
      * Create an H2 database connection.
      * 
@@ -172,13 +303,7 @@ public class H2DatabaseSchema {
      * @throws SQLException if connection fails
      */
     public static Connection createConnection(File databaseFile) throws SQLException {
-        try {
-            Class.forName("org.h2.Driver");
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("H2 database driver not found", e);
-        }
-        
-        String url = "jdbc:h2:" + databaseFile.getAbsolutePath() + ";AUTO_SERVER=TRUE";
+        String url = url(databaseFile) + DATABASE_SETTINGS;
         logger.debug("Connecting to H2 database: " + url);
         
         Connection connection = DriverManager.getConnection(url, "sa", "");
@@ -187,6 +312,34 @@ public class H2DatabaseSchema {
         return connection;
     }
     
+    /**
+     * Create an H2 database connection, which can only read. Database must be already 
+     * opened with createConnection(File) and read access granted.
+     * 
+     * @param databaseFile The database file path
+     * @return H2 connection
+     * @throws SQLException if connection fails
+     */
+    public static Connection createReadConnection(File databaseFile) throws SQLException {
+        String url = url(databaseFile);
+        logger.debug("Connecting to H2 database for reading: " + url);
+        
+        Connection connection = DriverManager.getConnection(url, READER_USER, "");
+        connection.setReadOnly(true);
+        connection.setAutoCommit(true);
+        
+        return connection;
+    }
+    
+    private static String url(File databaseFile) throws SQLException {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("H2 database driver not found", e);
+        }
+        return "jdbc:h2:" + databaseFile.getAbsolutePath() + ";AUTO_SERVER=TRUE";
+    }
+    
     /**
      * Test database connectivity.
      * 
@@ -24,50 +24,195 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.apache.log4j.Logger;
 import org.gtdfree.model.Action;
+import org.gtdfree.model.ActionProxyList;
 import org.gtdfree.model.Folder.FolderPreset;
 import org.gtdfree.model.GTDData.ActionProxy;
-import org.gtdfree.model.GTDData.FolderDataProxy;
+import org.gtdfree.model.GTDData.LazyFolderDataProxy;
 
 /**
  * H2 database implementation of FolderDataProxy.
+ * <p>
+ * Folder content is loaded lazily: size is counted in database and actions are read 
+ * in pages when they are accessed by index or iterated. Whole folder is loaded 
+ * into memory only when it is changed or copied with toArray().
+ * <p>
+ * Order of actions is kept in database as action position. Positions have gaps, 
+ * so inserted action usually gets position between its neighbors without 
+ * changing other actions.
  * 
  * @author GitHub Copilot
  */
-public class H2FolderDataProxy implements FolderDataProxy {
+public class H2FolderDataProxy implements LazyFolderDataProxy {
     
     private static final Logger logger = Logger.getLogger(H2FolderDataProxy.class);
     
+    /**
+     * Number of actions read from database at once, while folder is not loaded.
+     */
+    static final int PAGE_SIZE = 200;
+    
     private int folderId;
     private GTDDataH2 dataStore;
-    private List<ActionProxy> actions;
+    /** Folder content, null until folder is loaded. */
+    private ActionProxyList actions;
+    /** Number of actions in database, -1 when not counted yet. */
+    private int count = -1;
+    /** Pages read while folder is not loaded. */
+    private final Map<Integer, ActionProxy[]> pages = new HashMap<>();
+    /** Proxies read while folder is not loaded, by action ID. */
+    private final Map<Integer, H2ActionProxy> read = new HashMap<>();
     private boolean suspended = false;
     
     public H2FolderDataProxy(int folderId, GTDDataH2 dataStore) {
         this.folderId = folderId;
         this.dataStore = dataStore;
-        this.actions = new ArrayList<>();
-        loadActions();
     }
     
     /**
-     * Load actions from the database.
+     * Loads whole folder, if not already loaded. Proxies, which were already read 
+     * in pages, are reused, so they stay same for the folder.
      */
-    private void loadActions() {
+    private synchronized ActionProxyList actions() {
+        if (actions != null) {
+            return actions;
+        }
+        ActionProxyList l = new ActionProxyList();
         try {
-            List<Action> dbActions = dataStore.loadActionsForFolder(folderId);
-            actions.clear();
-            for (Action action : dbActions) {
-                H2ActionProxy proxy = new H2ActionProxy(action, dataStore, folderId);
-                actions.add(proxy);
+            for (H2ActionProxy proxy : dataStore.loadActionsForFolder(folderId)) {
+                l.add(obtain(proxy));
             }
         } catch (SQLException e) {
             logger.error("Failed to load actions for folder " + folderId, e);
         }
+        actions = l;
+        pages.clear();
+        read.clear();
+        logger.debug("Loaded " + l.size() + " actions for folder " + folderId);
+        return l;
+    }
+    
+    /**
+     * Returns page of actions, reads it from database if necessary.
+     */
+    private synchronized ActionProxy[] page(int p) {
+        if (actions != null) {
+            // folder was loaded while iterating
+            int from = Math.min(p * PAGE_SIZE, actions.size());
+            ActionProxy[] page = new ActionProxy[Math.min(PAGE_SIZE, actions.size() - from)];
+            for (int i = 0; i < page.length; i++) {
+                page[i] = actions.get(from + i);
+            }
+            return page;
+        }
+        ActionProxy[] page = pages.get(p);
+        if (page == null) {
+            try {
+                List<H2ActionProxy> proxies = dataStore.loadActionsForFolder(folderId, p * PAGE_SIZE, PAGE_SIZE);
+                page = new ActionProxy[proxies.size()];
+                for (int i = 0; i < page.length; i++) {
+                    page[i] = obtain(proxies.get(i));
+                }
+            } catch (SQLException e) {
+                logger.error("Failed to load actions for folder " + folderId, e);
+                page = new ActionProxy[0];
+            }
+            pages.put(p, page);
+        }
+        return page;
+    }
+    
+    /**
+     * Returns proxy, which was already read for same action, or registers the new one.
+     */
+    private H2ActionProxy obtain(H2ActionProxy proxy) {
+        H2ActionProxy ap = read.get(proxy.getId());
+        if (ap == null) {
+            read.put(proxy.getId(), proxy);
+            ap = proxy;
+        }
+        return ap;
+    }
+    
+    /**
+     * Reads next open actions from database, while folder is not loaded.
+     */
+    private synchronized List<ActionProxy> openPage(long afterPosition, int afterId) {
+        List<ActionProxy> page = new ArrayList<>();
+        if (actions != null) {
+            // folder was loaded while iterating, continue in memory
+            boolean after = afterPosition == GTDDataH2.NO_POSITION;
+            for (ActionProxy ap : actions) {
+                if (after && ap.get().isOpen()) {
+                    page.add(ap);
+                }
+                after |= ap.getId() == afterId;
+            }
+            return page;
+        }
+        try {
+            for (H2ActionProxy proxy : dataStore.loadOpenActionsForFolder(folderId, afterPosition, afterId, PAGE_SIZE)) {
+                page.add(obtain(proxy));
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to load actions for folder " + folderId, e);
+        }
+        return page;
+    }
+    
+    private static long position(ActionProxy ap) {
+        return ap instanceof H2ActionProxy ? ((H2ActionProxy) ap).getPosition() : GTDDataH2.NO_POSITION;
+    }
+    
+    /**
+     * Sets position of proxy at index i to be between its neighbors. 
+     * If there is no room between them, whole folder is renumbered.
+     */
+    private void place(ActionProxyList l, int i) {
+        if (!(l.get(i) instanceof H2ActionProxy)) {
+            return;
+        }
+        long before = i > 0 ? position(l.get(i - 1)) : GTDDataH2.NO_POSITION;
+        long after = i < l.size() - 1 ? position(l.get(i + 1)) : GTDDataH2.NO_POSITION;
+        if (i > 0 && before == GTDDataH2.NO_POSITION || i < l.size() - 1 && after == GTDDataH2.NO_POSITION) {
+            renumber(l);
+            return;
+        }
+        if (i == 0 && after == GTDDataH2.NO_POSITION) {
+            before = 0;
+            after = 2 * H2DatabaseSchema.POSITION_GAP;
+        } else if (i == 0) {
+            before = after - 2 * H2DatabaseSchema.POSITION_GAP;
+        } else if (after == GTDDataH2.NO_POSITION) {
+            after = before + 2 * H2DatabaseSchema.POSITION_GAP;
+        }
+        if (after - before < 2) {
+            renumber(l);
+            return;
+        }
+        ((H2ActionProxy) l.get(i)).setPosition(before + (after - before) / 2);
+    }
+    
+    /**
+     * Renumbers positions of all actions in folder order, with gaps between them.
+     * Actions with changed position are stored.
+     */
+    private void renumber(ActionProxyList l) {
+        for (int i = 0; i < l.size(); i++) {
+            ActionProxy ap = l.get(i);
+            long p = (i + 1) * H2DatabaseSchema.POSITION_GAP;
+            if (ap instanceof H2ActionProxy && ((H2ActionProxy) ap).getPosition() != p) {
+                ((H2ActionProxy) ap).setPosition(p);
+                ap.store();
+            }
+        }
     }
     
     @Override
@@ -103,51 +248,206 @@ public class H2FolderDataProxy implements FolderDataProxy {
     
     @Override
     public boolean contains(ActionProxy ap) {
-        return actions.contains(ap);
+        return actions().contains(ap);
+    }
+    
+    @Override
+    public int indexOf(ActionProxy ap) {
+        return actions().indexOf(ap);
+    }
+    
+    @Override
+    public synchronized boolean isLoaded() {
+        return actions != null;
     }
     
     @Override
-    public int size() {
-        return actions.size();
+    public synchronized int size() {
+        if (actions != null) {
+            return actions.size();
+        }
+        if (count < 0) {
+            try {
+                count = dataStore.countActionsForFolder(folderId);
+            } catch (SQLException e) {
+                logger.error("Failed to count actions for folder " + folderId, e);
+                return 0;
+            }
+        }
+        return count;
     }
     
     @Override
-    public ActionProxy get(int i) {
-        return actions.get(i);
+    public synchronized ActionProxy get(int i) {
+        if (actions != null) {
+            return actions.get(i);
+        }
+        if (i < 0 || i >= size()) {
+            return null;
+        }
+        ActionProxy[] page = page(i / PAGE_SIZE);
+        int j = i % PAGE_SIZE;
+        return j < page.length ? page[j] : null;
     }
     
     @Override
-    public Iterator<ActionProxy> iterator(FolderPreset fp) {
-        // For simplicity, return all actions regardless of preset
-        // This could be enhanced to filter based on preset
-        return actions.iterator();
+    public synchronized Iterator<ActionProxy> iterator(FolderPreset fp) {
+        if (actions != null) {
+            if (fp == FolderPreset.OPEN) {
+                return new OpenIterator(actions.iterator());
+            }
+            return actions.iterator();
+        }
+        if (fp == FolderPreset.OPEN) {
+            return new OpenPageIterator();
+        }
+        return new PageIterator(size());
+    }
+    
+    /**
+     * Iterates over open actions of folder, which is not loaded. Each page is read with 
+     * index range scan, continuing after last action of previous page.
+     */
+    private class OpenPageIterator implements Iterator<ActionProxy> {
+        private List<ActionProxy> page;
+        private int index;
+        private boolean last;
+        
+        @Override
+        public boolean hasNext() {
+            if (page == null || index == page.size() && !last) {
+                long position = GTDDataH2.NO_POSITION;
+                int id = 0;
+                if (page != null) {
+                    ActionProxy ap = page.get(page.size() - 1);
+                    position = position(ap);
+                    id = ap.getId();
+                }
+                page = openPage(position, id);
+                index = 0;
+                last = page.size() < PAGE_SIZE;
+            }
+            return index < page.size();
+        }
+        
+        @Override
+        public ActionProxy next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(index++);
+        }
+    }
+    
+    /**
+     * Iterates over folder, which is not loaded, page by page.
+     */
+    private class PageIterator implements Iterator<ActionProxy> {
+        private final int size;
+        private int index;
+        private ActionProxy[] page;
+        
+        PageIterator(int size) {
+            this.size = size;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (index >= size) {
+                return false;
+            }
+            if (page == null || index % PAGE_SIZE == 0) {
+                page = page(index / PAGE_SIZE);
+            }
+            // page may be shorter, if actions were removed meanwhile
+            return index % PAGE_SIZE < page.length;
+        }
+        
+        @Override
+        public ActionProxy next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page[index++ % PAGE_SIZE];
+        }
+    }
+    
+    /**
+     * Skips actions, which are not open.
+     */
+    static class OpenIterator implements Iterator<ActionProxy> {
+        private final Iterator<ActionProxy> i;
+        private ActionProxy next;
+        
+        OpenIterator(Iterator<ActionProxy> i) {
+            this.i = i;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (next == null && i.hasNext()) {
+                ActionProxy ap = i.next();
+                if (ap.get().isOpen()) {
+                    next = ap;
+                }
+            }
+            return next != null;
+        }
+        
+        @Override
+        public ActionProxy next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ActionProxy ap = next;
+            next = null;
+            return ap;
+        }
     }
     
     @Override
     public void sort(Comparator<Action> comparator) {
+        ActionProxyList actions = actions();
         actions.sort((proxy1, proxy2) -> comparator.compare(proxy1.get(), proxy2.get()));
+        renumber(actions);
     }
     
     @Override
     public void add(int i, ActionProxy ap) {
-        actions.add(i, ap);
+        ActionProxyList actions = actions();
         if (ap instanceof H2ActionProxy) {
             ((H2ActionProxy) ap).setFolderId(folderId);
         }
+        actions.add(i, ap);
+        place(actions, i);
         ap.store();
     }
     
     @Override
     public void add(ActionProxy ap) {
+        ActionProxyList actions = actions();
+        if (ap instanceof H2ActionProxy) {
+            ((H2ActionProxy) ap).setFolderId(folderId);
+        }
         actions.add(ap);
+        place(actions, actions.size() - 1);
+        ap.store();
+    }
+    
+    @Override
+    public void addSorted(ActionProxy ap, Comparator<Action> comparator) {
+        ActionProxyList actions = actions();
         if (ap instanceof H2ActionProxy) {
             ((H2ActionProxy) ap).setFolderId(folderId);
         }
+        int i = actions.addSorted(ap, (proxy1, proxy2) -> comparator.compare(proxy1.get(), proxy2.get()));
+        place(actions, i);
         ap.store();
     }
     
     @Override
     public boolean remove(int i) {
+        ActionProxyList actions = actions();
         if (i >= 0 && i < actions.size()) {
             ActionProxy removed = actions.remove(i);
             removed.delete();
@@ -158,7 +458,7 @@ public class H2FolderDataProxy implements FolderDataProxy {
     
     @Override
     public boolean remove(ActionProxy ap) {
-        boolean removed = actions.remove(ap);
+        boolean removed = actions().remove(ap);
         if (removed) {
             ap.delete();
         }
@@ -167,20 +467,24 @@ public class H2FolderDataProxy implements FolderDataProxy {
     
     @Override
     public void set(int i, ActionProxy actionProxy) {
-        actions.set(i, actionProxy);
+        ActionProxyList actions = actions();
         if (actionProxy instanceof H2ActionProxy) {
             ((H2ActionProxy) actionProxy).setFolderId(folderId);
         }
+        actions.set(i, actionProxy);
+        // positioned by neighbors, replaced proxy may still be at other index while swapping
+        place(actions, i);
         actionProxy.store();
     }
     
     @Override
     public ActionProxy[] toArray() {
-        return actions.toArray(new ActionProxy[0]);
+        return actions().toArray();
     }
     
     @Override
     public void clear() {
+        ActionProxyList actions = actions();
         for (ActionProxy ap : actions) {
             ap.delete();
         }
@@ -227,17 +531,10 @@ public class H2FolderDataProxy implements FolderDataProxy {
     
     @Override
     public void reorder(Action[] order) {
-        // Reorder actions according to the provided array
-        List<ActionProxy> newOrder = new ArrayList<>();
-        for (Action action : order) {
-            for (ActionProxy proxy : actions) {
-                if (proxy.get().getId() == action.getId()) {
-                    newOrder.add(proxy);
-                    break;
-                }
-            }
-        }
-        this.actions = newOrder;
+        ActionProxyList actions = actions();
+        actions.reorder(order);
+        // new order is written in single batch, only for actions which moved
+        renumber(actions);
     }
     
     /**
@@ -248,9 +545,11 @@ public class H2FolderDataProxy implements FolderDataProxy {
     }
     
     /**
-     * Refresh actions from the database.
+     * Refresh actions from the database. Folder is read again when accessed.
      */
-    public void refresh() {
-        loadActions();
+    public synchronized void refresh() {
+        actions = null;
+        count = -1;
+        pages.clear();
     }
 }
@@ -0,0 +1,430 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *    H2 Migration by GitHub Copilot 2025
+ *    
+ *    This file is part of GTD-Free.
+ *    
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *    
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *    
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model.h2;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+import org.gtdfree.model.Action;
+import org.gtdfree.model.Action.Resolution;
+import org.gtdfree.model.ActionProxyList;
+import org.gtdfree.model.Folder.FolderPreset;
+import org.gtdfree.model.Folder.FolderType;
+import org.gtdfree.model.GTDData.ActionProxy;
+import org.gtdfree.model.GTDData.LazyFolderDataProxy;
+
+/**
+ * H2 database implementation of FolderDataProxy for meta folders: Resolved, Deleted, 
+ * Tickler, Priority and Queue. 
+ * <p>
+ * Meta folder does not own actions, it lists actions with particular property. 
+ * Content is therefore not stored, but queried by action columns with indexes, in same 
+ * order as folder comparator would sort it. Until folder is loaded, size is counted in 
+ * database and actions are read in pages. Folder is loaded with single query when 
+ * it is changed or copied with toArray(), after that model keeps it up to date.
+ * <p>
+ * Queue is ordered by user, its order is stored in queue position of actions 
+ * whenever loaded queue is changed.
+ * 
+ * @author GitHub Copilot
+ */
+public class H2MetaFolderDataProxy implements LazyFolderDataProxy {
+    
+    private static final Logger logger = Logger.getLogger(H2MetaFolderDataProxy.class);
+    
+    private final FolderType type;
+    private final String condition;
+    private final String order;
+    private GTDDataH2 dataStore;
+    /** Folder content, null until folder is loaded. */
+    private ActionProxyList actions;
+    /** Number of actions in database, -1 when not counted yet. */
+    private int count = -1;
+    /** Pages read while folder is not loaded. */
+    private final Map<Integer, ActionProxy[]> pages = new HashMap<>();
+    /** Write generation of database, for which count and pages were read. */
+    private int generation;
+    private String description = "";
+    private Date created = new Date();
+    private Date modified = new Date();
+    private Date resolved;
+    
+    /**
+     * Returns true if content of folder type is queried from actions.
+     */
+    public static boolean isQueried(FolderType type) {
+        return condition(type) != null;
+    }
+    
+    private static String condition(FolderType type) {
+        switch (type) {
+            case BUILDIN_RESOLVED:
+                return "resolution_id = " + Resolution.RESOLVED.ordinal();
+            case BUILDIN_DELETED:
+                return "resolution_id = " + Resolution.DELETED.ordinal();
+            case BUILDIN_REMIND:
+                return "remind_date IS NOT NULL";
+            case BUILDIN_PRIORITY:
+                return "priority_id > 0";
+            case QUEUE:
+                return "queued = TRUE";
+            default:
+                return null;
+        }
+    }
+    
+    private static String order(FolderType type) {
+        switch (type) {
+            case BUILDIN_REMIND:
+                return "remind_date, id";
+            case BUILDIN_PRIORITY:
+                return "priority_id DESC, id";
+            case QUEUE:
+                return "queue_position NULLS LAST, id";
+            default:
+                return "id";
+        }
+    }
+    
+    public H2MetaFolderDataProxy(FolderType type, GTDDataH2 dataStore) {
+        if (!isQueried(type)) {
+            throw new IllegalArgumentException("Not a meta folder type: " + type);
+        }
+        this.type = type;
+        this.condition = condition(type);
+        this.order = order(type);
+        this.dataStore = dataStore;
+    }
+    
+    /**
+     * Loads whole folder with single query, if not already loaded.
+     */
+    private synchronized ActionProxyList actions() {
+        if (actions != null) {
+            return actions;
+        }
+        ActionProxyList l = new ActionProxyList();
+        try {
+            for (H2ActionProxy proxy : dataStore.loadActionsWhere(condition, order, 0, -1)) {
+                l.add(proxy);
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to load actions for meta folder " + type, e);
+        }
+        actions = l;
+        pages.clear();
+        logger.debug("Loaded " + l.size() + " actions for meta folder " + type);
+        return l;
+    }
+    
+    /**
+     * Drops count and pages, if database changed since they were read.
+     */
+    private void checkGeneration() {
+        int g = dataStore.getWriteGeneration();
+        if (g != generation) {
+            generation = g;
+            count = -1;
+            pages.clear();
+        }
+    }
+    
+    /**
+     * Returns page of actions, reads it from database if necessary.
+     */
+    private synchronized ActionProxy[] page(int p) {
+        if (actions != null) {
+            // folder was loaded while iterating
+            int from = Math.min(p * H2FolderDataProxy.PAGE_SIZE, actions.size());
+            ActionProxy[] page = new ActionProxy[Math.min(H2FolderDataProxy.PAGE_SIZE, actions.size() - from)];
+            for (int i = 0; i < page.length; i++) {
+                page[i] = actions.get(from + i);
+            }
+            return page;
+        }
+        checkGeneration();
+        ActionProxy[] page = pages.get(p);
+        if (page == null) {
+            try {
+                List<H2ActionProxy> proxies = dataStore.loadActionsWhere(condition, order, 
+                        p * H2FolderDataProxy.PAGE_SIZE, H2FolderDataProxy.PAGE_SIZE);
+                page = proxies.toArray(new ActionProxy[proxies.size()]);
+            } catch (SQLException e) {
+                logger.error("Failed to load actions for meta folder " + type, e);
+                page = new ActionProxy[0];
+            }
+            pages.put(p, page);
+        }
+        return page;
+    }
+    
+    @Override
+    public void store() {
+        // meta folder content follows from actions, nothing to store
+    }
+    
+    @Override
+    public void delete() {
+        // meta folders are build-in, they are not deleted
+    }
+    
+    @Override
+    public String getDescription() {
+        return description;
+    }
+    
+    @Override
+    public void setDescription(String desc) {
+        this.description = desc;
+    }
+    
+    @Override
+    public boolean contains(ActionProxy ap) {
+        return actions().contains(ap);
+    }
+    
+    @Override
+    public int indexOf(ActionProxy ap) {
+        return actions().indexOf(ap);
+    }
+    
+    @Override
+    public synchronized boolean isLoaded() {
+        return actions != null;
+    }
+    
+    @Override
+    public synchronized int size() {
+        if (actions != null) {
+            return actions.size();
+        }
+        checkGeneration();
+        if (count < 0) {
+            try {
+                count = dataStore.countActionsWhere(condition);
+            } catch (SQLException e) {
+                logger.error("Failed to count actions for meta folder " + type, e);
+                return 0;
+            }
+        }
+        return count;
+    }
+    
+    @Override
+    public synchronized ActionProxy get(int i) {
+        if (actions != null) {
+            return actions.get(i);
+        }
+        if (i < 0 || i >= size()) {
+            return null;
+        }
+        ActionProxy[] page = page(i / H2FolderDataProxy.PAGE_SIZE);
+        int j = i % H2FolderDataProxy.PAGE_SIZE;
+        return j < page.length ? page[j] : null;
+    }
+    
+    @Override
+    public synchronized Iterator<ActionProxy> iterator(FolderPreset fp) {
+        Iterator<ActionProxy> i = actions != null ? actions.iterator() : new PageIterator(size());
+        if (fp == FolderPreset.OPEN) {
+            return new H2FolderDataProxy.OpenIterator(i);
+        }
+        return i;
+    }
+    
+    /**
+     * Iterates over folder, which is not loaded, page by page.
+     */
+    private class PageIterator implements Iterator<ActionProxy> {
+        private final int size;
+        private int index;
+        private ActionProxy[] page;
+        
+        PageIterator(int size) {
+            this.size = size;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (index >= size) {
+                return false;
+            }
+            if (page == null || index % H2FolderDataProxy.PAGE_SIZE == 0) {
+                page = page(index / H2FolderDataProxy.PAGE_SIZE);
+            }
+            return index % H2FolderDataProxy.PAGE_SIZE < page.length;
+        }
+        
+        @Override
+        public ActionProxy next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page[index++ % H2FolderDataProxy.PAGE_SIZE];
+        }
+    }
+    
+    // Changes below only keep loaded folder in line with model, 
+    // actions are stored by folders which own them.
+    
+    @Override
+    public synchronized void sort(Comparator<Action> comparator) {
+        if (actions == null) {
+            // query order already follows comparator, folder is not loaded just to sort it
+            return;
+        }
+        actions.sort((proxy1, proxy2) -> comparator.compare(proxy1.get(), proxy2.get()));
+        storeQueue();
+    }
+    
+    @Override
+    public void add(int i, ActionProxy ap) {
+        actions().add(i, ap);
+        storeQueue();
+    }
+    
+    @Override
+    public void add(ActionProxy ap) {
+        actions().add(ap);
+        storeQueue();
+    }
+    
+    @Override
+    public void addSorted(ActionProxy ap, Comparator<Action> comparator) {
+        actions().addSorted(ap, (proxy1, proxy2) -> comparator.compare(proxy1.get(), proxy2.get()));
+        storeQueue();
+    }
+    
+    @Override
+    public boolean remove(int i) {
+        ActionProxyList actions = actions();
+        if (i >= 0 && i < actions.size()) {
+            actions.remove(i);
+            storeQueue();
+            return true;
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean remove(ActionProxy ap) {
+        if (actions().remove(ap)) {
+            storeQueue();
+            return true;
+        }
+        return false;
+    }
+    
+    @Override
+    public void set(int i, ActionProxy actionProxy) {
+        actions().set(i, actionProxy);
+        storeQueue();
+    }
+    
+    @Override
+    public ActionProxy[] toArray() {
+        return actions().toArray();
+    }
+    
+    @Override
+    public void clear() {
+        actions().clear();
+        storeQueue();
+    }
+    
+    @Override
+    public void suspend(boolean b) {
+        // nothing is stored, nothing to suspend
+    }
+    
+    @Override
+    public Date getCreated() {
+        return created;
+    }
+    
+    @Override
+    public Date getResolved() {
+        return resolved;
+    }
+    
+    @Override
+    public Date getModified() {
+        return modified;
+    }
+    
+    @Override
+    public void setCreated(Date d) {
+        created = d;
+    }
+    
+    @Override
+    public void setResolved(Date d) {
+        resolved = d;
+    }
+    
+    @Override
+    public void setModified(Date d) {
+        modified = d;
+    }
+    
+    @Override
+    public void reorder(Action[] order) {
+        actions().reorder(order);
+        storeQueue();
+    }
+    
+    /**
+     * Stores order of loaded queue, other meta folders are ordered by action columns.
+     */
+    private void storeQueue() {
+        if (type != FolderType.QUEUE) {
+            return;
+        }
+        try {
+            dataStore.saveQueueOrder(actions().toArray());
+        } catch (SQLException e) {
+            logger.error("Failed to store queue order", e);
+        }
+    }
+    
+    /**
+     * Get type of meta folder this proxy represents.
+     */
+    public FolderType getType() {
+        return type;
+    }
+    
+    /**
+     * Refresh actions from the database. Folder is queried again when accessed.
+     */
+    public synchronized void refresh() {
+        actions = null;
+        count = -1;
+        pages.clear();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.gtdfree.model.GTDData.ActionProxy;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of ordered proxy set used as folder content.
+ *
+ * @author ikesan
+ *
+ */
+public class ActionProxyListTest {
+
+	private static final class Proxy implements ActionProxy {
+		private final Action action;
+
+		Proxy(int id) {
+			action= new Action(id, new Date(), null, "a"+id); //$NON-NLS-1$
+		}
+		@Override
+		public Action get() {
+			return action;
+		}
+		@Override
+		public void store() {
+		}
+		@Override
+		public int getId() {
+			return action.getId();
+		}
+		@Override
+		public void delete() {
+		}
+		@Override
+		public Folder getParent() {
+			return null;
+		}
+		@Override
+		public void setParent(Folder f) {
+		}
+	}
+
+	@Test
+	public void testMembershipFollowsChanges() {
+		ActionProxyList l= new ActionProxyList();
+		List<ActionProxy> expected= new ArrayList<ActionProxy>();
+		List<ActionProxy> all= new ArrayList<ActionProxy>();
+		Random r= new Random(11);
+		for (int i = 0; i < 5000; i++) {
+			int op= r.nextInt(5);
+			if (op<2 || expected.isEmpty()) {
+				Proxy p= new Proxy(i);
+				all.add(p);
+				// mostly at the end, sometimes in the middle
+				int at= op==0 ? expected.size() : r.nextInt(expected.size()+1);
+				l.add(at, p);
+				expected.add(at, p);
+			} else if (op==2) {
+				int at= r.nextInt(expected.size());
+				assertEquals(expected.remove(at), l.remove(at));
+			} else if (op==3) {
+				ActionProxy p= all.get(r.nextInt(all.size()));
+				assertEquals(expected.remove(p), l.remove(p));
+			} else {
+				// swap two proxies, as sort of folder does
+				int a= r.nextInt(expected.size());
+				int b= r.nextInt(expected.size());
+				ActionProxy pa= expected.get(a);
+				ActionProxy pb= expected.get(b);
+				l.set(a, pb);
+				l.set(b, pa);
+				expected.set(a, pb);
+				expected.set(b, pa);
+			}
+			ActionProxy p= all.get(r.nextInt(all.size()));
+			assertEquals(expected.contains(p), l.contains(p));
+			assertEquals(expected.indexOf(p), l.indexOf(p));
+		}
+		assertArrayEquals(expected.toArray(), l.toArray());
+		for (ActionProxy p : all) {
+			assertEquals(expected.indexOf(p), l.indexOf(p));
+		}
+	}
+
+	@Test
+	public void testReorder() {
+		ActionProxyList l= new ActionProxyList();
+		Proxy[] p= new Proxy[5];
+		for (int i = 0; i < p.length; i++) {
+			p[i]= new Proxy(i);
+			l.add(p[i]);
+		}
+		l.reorder(new Action[]{p[3].get(), p[1].get()});
+		assertArrayEquals(new ActionProxy[]{p[3], p[1], p[0], p[2], p[4]}, l.toArray());
+		assertEquals(2, l.indexOf(p[0]));
+		assertTrue(l.remove(p[1]));
+		assertFalse(l.contains(p[1]));
+		assertEquals(1, l.indexOf(p[0]));
+	}
+
+	@Test
+	public void testAddSortedInsertsAfterEqual() {
+		Comparator<ActionProxy> byTens= new Comparator<ActionProxy>() {
+			@Override
+			public int compare(ActionProxy o1, ActionProxy o2) {
+				return o1.getId()/10-o2.getId()/10;
+			}
+		};
+		ActionProxyList l= new ActionProxyList();
+		List<ActionProxy> expected= new ArrayList<ActionProxy>();
+		Random r= new Random(5);
+		for (int i = 0; i < 500; i++) {
+			Proxy p= new Proxy(r.nextInt(100)*10+i%10);
+			int at= l.addSorted(p, byTens);
+			assertEquals(at, l.indexOf(p));
+			assertTrue(at==0 || byTens.compare(l.get(at-1), p)<=0);
+			assertTrue(at==l.size()-1 || byTens.compare(p, l.get(at+1))<0);
+			expected.add(p);
+		}
+		// stable sort keeps insertion order of equal proxies, as addSorted does
+		expected.sort(byTens);
+		assertArrayEquals(expected.toArray(), l.toArray());
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.gtdfree.model.Folder.FolderType;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of incrementally maintained folder statistics.
+ *
+ * @author ikesan
+ *
+ */
+public class FolderStatsTest {
+
+	private static int countBefore(Folder f, long time) {
+		int n=0;
+		for (Action a : f) {
+			if (a.isOpen() && a.getRemind()!=null && a.getRemind().getTime()<time) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	@Test
+	public void testRemindCountsFollowChanges() {
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		Folder other= m.createFolder("Other", FolderType.ACTION); //$NON-NLS-1$
+		FolderStats st= f.getStats();
+		Random r= new Random(7);
+		List<Action> actions= new ArrayList<Action>();
+		for (int i = 0; i < 300; i++) {
+			int op= r.nextInt(4);
+			if (op==0 || actions.isEmpty()) {
+				Action a= m.createAction(f, "a"+i); //$NON-NLS-1$
+				a.setRemind(new Date(r.nextInt(50)*1000L));
+				actions.add(a);
+			} else if (op==1) {
+				actions.get(r.nextInt(actions.size())).setRemind(new Date(r.nextInt(50)*1000L));
+			} else if (op==2) {
+				actions.get(r.nextInt(actions.size())).setResolution(Action.Resolution.RESOLVED);
+			} else {
+				Action a= actions.remove(r.nextInt(actions.size()));
+				m.moveAction(a, other);
+			}
+			// query times move back and forth
+			long time= r.nextInt(52)*1000L;
+			assertEquals(countBefore(f, time), st.getRemindCountBefore(time));
+			assertEquals(countBefore(f, time+5000)-countBefore(f, time), st.getRemindCountBetween(time, time+5000));
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.util.Date;
+
+import org.gtdfree.model.Action.ActionType;
+import org.gtdfree.model.Folder.FolderType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of binary data file, which is used as cache of XML data file.
+ *
+ * @author ikesan
+ *
+ */
+public class GTDDataBinaryToolsTest {
+
+	@TempDir
+	File dir;
+
+	private static GTDModel createModel() throws Exception {
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		Folder p= m.createFolder("Project", FolderType.PROJECT); //$NON-NLS-1$
+		f.setDescription("list description"); //$NON-NLS-1$
+		Action a= m.createAction(f, "open"); //$NON-NLS-1$
+		a.setProject(p.getId());
+		a.setPriority(Priority.High);
+		a.setType(ActionType.Mail);
+		a.setUrl(new URL("http://gtd-free.sourceforge.net")); //$NON-NLS-1$
+		a.setRemind(new Date(1000000000000L));
+		a.setDue(new Date(1000000100000L));
+		a.setQueued(true);
+		Action b= m.createAction(f, "resolved"); //$NON-NLS-1$
+		b.setResolution(Action.Resolution.RESOLVED);
+		Action c= m.createAction(f, "resolved"); //$NON-NLS-1$
+		c.setResolution(Action.Resolution.RESOLVED);
+		m.createAction(f, null);
+		Action d= m.createAction(m.getInBucketFolder(), "deleted"); //$NON-NLS-1$
+		d.setResolution(Action.Resolution.DELETED);
+		return m;
+	}
+
+	private static void assertSameModel(GTDModel m, GTDModel r) {
+		assertEquals(m.getLastActionID(), r.getLastActionID());
+		for (Folder f : m.toFoldersArray()) {
+			Folder rf= r.getFolder(f.getId());
+			assertEquals(f.getName(), rf.getName());
+			assertEquals(f.getType(), rf.getType());
+			assertEquals(f.getDescription(), rf.getDescription());
+			assertEquals(f.size(), rf.size());
+			for (int i = 0; i < f.size(); i++) {
+				Action a= f.get(i);
+				Action ra= rf.get(i);
+				assertEquals(a.getId(), ra.getId());
+				assertEquals(a.getDescription(), ra.getDescription());
+				assertEquals(a.getResolution(), ra.getResolution());
+				assertEquals(a.getCreated(), ra.getCreated());
+				assertEquals(a.getResolved(), ra.getResolved());
+				assertEquals(a.getRemind(), ra.getRemind());
+				assertEquals(a.getDue(), ra.getDue());
+				assertEquals(a.getProject(), ra.getProject());
+				assertEquals(a.getPriority(), ra.getPriority());
+				assertEquals(a.getType(), ra.getType());
+				assertEquals(String.valueOf(a.getUrl()), String.valueOf(ra.getUrl()));
+				assertEquals(a.isQueued(), ra.isQueued());
+			}
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		GTDModel m= createModel();
+		for (boolean compress : new boolean[]{false, true}) {
+			File bin= new File(dir, "gtd-free.bin"); //$NON-NLS-1$
+			GTDDataBinaryTools.store(m, bin, compress, null);
+			assertEquals(compress, GTDDataBinaryTools.readHeader(bin).isCompressed());
+			for (boolean defer : new boolean[]{false, true}) {
+				GTDModel r= new GTDModel(null);
+				GTDDataBinaryTools.load(r, bin, defer);
+				// file is not needed after load, also deferred descriptions are copied
+				assertTrue(bin.delete());
+				assertSameModel(m, r);
+				GTDDataBinaryTools.store(m, bin, compress, null);
+			}
+			assertTrue(bin.delete());
+		}
+	}
+
+	@Test
+	public void testCorruptedBodyIsRejected() throws Exception {
+		File bin= new File(dir, "gtd-free.bin"); //$NON-NLS-1$
+		GTDDataBinaryTools.store(createModel(), bin, false, null);
+		RandomAccessFile raf= new RandomAccessFile(bin, "rw"); //$NON-NLS-1$
+		try {
+			long p= raf.length()-2;
+			raf.seek(p);
+			int b= raf.read();
+			raf.seek(p);
+			raf.write(b ^ 0xFF);
+		} finally {
+			raf.close();
+		}
+		assertThrows(IOException.class, () -> GTDDataBinaryTools.load(new GTDModel(null), bin));
+	}
+
+	private static Object deferred(Action a) throws Exception {
+		Field f= Action.class.getDeclaredField("deferredDescription"); //$NON-NLS-1$
+		f.setAccessible(true);
+		return f.get(a);
+	}
+
+	@Test
+	public void testDeferredDescriptions() throws Exception {
+		GTDModel m= createModel();
+		File bin= new File(dir, "gtd-free.bin"); //$NON-NLS-1$
+		GTDDataBinaryTools.store(m, bin, false, null);
+		GTDModel r= new GTDModel(null);
+		GTDDataBinaryTools.load(r, bin, true);
+		Action resolved= null;
+		for (Folder f : r.toFoldersArray()) {
+			if (!f.isMeta()) {
+				for (int i = 0; i < f.size(); i++) {
+					Action a= f.get(i);
+					if (a.isOpen()) {
+						assertNull(deferred(a));
+					} else {
+						assertNotNull(deferred(a));
+						resolved= a;
+					}
+				}
+			}
+		}
+		assertNotNull(resolved);
+
+		// store reads deferred descriptions, but does not keep them
+		File copy= new File(dir, "copy.bin"); //$NON-NLS-1$
+		GTDDataBinaryTools.store(r, copy, false, null);
+		assertNotNull(deferred(resolved));
+		GTDModel c= new GTDModel(null);
+		GTDDataBinaryTools.load(c, copy);
+		assertSameModel(m, c);
+
+		// first read decodes description and keeps it
+		assertEquals(m.getAction(resolved.getId()).getDescription(), resolved.getDescription());
+		assertNull(deferred(resolved));
+	}
+
+}
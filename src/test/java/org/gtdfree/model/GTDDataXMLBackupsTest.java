@@ -0,0 +1,77 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+
+import org.gtdfree.model.Folder.FolderType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of backup store, which shares unchanged folders between backups.
+ *
+ * @author ikesan
+ *
+ */
+public class GTDDataXMLBackupsTest {
+
+	@TempDir
+	File dir;
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		Action a= m.createAction(f, "first"); //$NON-NLS-1$
+		m.createAction(f, "second"); //$NON-NLS-1$
+		a.setResolution(Action.Resolution.RESOLVED);
+
+		File store= new File(dir, "backups"); //$NON-NLS-1$
+		GTDDataXMLBackups b= new GTDDataXMLBackups(store);
+		b.setCompress(true);
+		int chunks= b.store(m);
+		assertTrue(chunks>0);
+		// nothing changed, all chunks are shared
+		assertEquals(0, b.store(m));
+		assertEquals(2, b.list().length);
+
+		GTDDataXMLBackups.Backup last= b.list()[0];
+		GTDModel r= new GTDModel(null);
+		b.load(r, last.getFile());
+		Folder rf= r.getFolder(f.getId());
+		assertEquals(2, rf.size());
+		assertEquals(Action.Resolution.RESOLVED, r.getAction(a.getId()).getResolution());
+		assertEquals(m.getLastActionID(), r.getLastActionID());
+
+		// only target file is written
+		File target= new File(dir, "restored.xml"); //$NON-NLS-1$
+		b.materialize(last.getFile(), target);
+		assertEquals(2, dir.list().length);
+		r= new GTDModel(null);
+		GTDDataXMLTools.load(r, target);
+		assertEquals(2, r.getFolder(f.getId()).size());
+		assertEquals("first", r.getAction(a.getId()).getDescription()); //$NON-NLS-1$
+	}
+
+}
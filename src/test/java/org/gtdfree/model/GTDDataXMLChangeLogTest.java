@@ -0,0 +1,128 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.gtdfree.model.Folder.FolderType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of change log, which is replayed over XML data file.
+ *
+ * @author ikesan
+ *
+ */
+public class GTDDataXMLChangeLogTest {
+
+	@TempDir
+	File dir;
+
+	private static GTDModel load(File data, GTDDataXMLChangeLog log, int records) throws Exception {
+		GTDModel r= new GTDModel(null);
+		GTDDataXMLTools.load(r, data);
+		assertEquals(records, log.replay(r));
+		return r;
+	}
+
+	private static void truncate(File f, long length) throws IOException {
+		RandomAccessFile raf= new RandomAccessFile(f, "rw"); //$NON-NLS-1$
+		try {
+			raf.setLength(length);
+		} finally {
+			raf.close();
+		}
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		Action a= m.createAction(f, "first"); //$NON-NLS-1$
+		File data= new File(dir, "gtd-free.xml"); //$NON-NLS-1$
+		GTDDataXMLTools.store(m, data);
+
+		GTDDataXMLChangeLog log= new GTDDataXMLChangeLog(new File(dir, "gtd-free.log")); //$NON-NLS-1$
+		log.attach(m);
+		a.setDescription("changed"); //$NON-NLS-1$
+		Folder g= m.createFolder("Other", FolderType.ACTION); //$NON-NLS-1$
+		Action b= m.createAction(g, "second"); //$NON-NLS-1$
+		m.moveAction(a, g);
+		log.sync();
+		log.detach();
+
+		GTDModel r= new GTDModel(null);
+		GTDDataXMLTools.load(r, data);
+		assertTrue(log.replay(r)>0);
+		assertEquals("changed", r.getAction(a.getId()).getDescription()); //$NON-NLS-1$
+		assertEquals(0, r.getFolder(f.getId()).size());
+		assertEquals(2, r.getFolder(g.getId()).size());
+		assertEquals(g.getId(), r.getAction(a.getId()).getParent().getId());
+		assertEquals("second", r.getAction(b.getId()).getDescription()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testBrokenTailIsIgnored() throws Exception {
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		Action a= m.createAction(f, "first"); //$NON-NLS-1$
+		File data= new File(dir, "gtd-free.xml"); //$NON-NLS-1$
+		GTDDataXMLTools.store(m, data);
+
+		File file= new File(dir, "gtd-free.log"); //$NON-NLS-1$
+		GTDDataXMLChangeLog log= new GTDDataXMLChangeLog(file);
+		log.attach(m);
+		a.setDescription("synced"); //$NON-NLS-1$
+		log.sync();
+		GTDModel r= new GTDModel(null);
+		GTDDataXMLTools.load(r, data);
+		int synced= log.replay(r);
+		assertEquals("synced", r.getAction(a.getId()).getDescription()); //$NON-NLS-1$
+
+		a.setDescription("lost"); //$NON-NLS-1$
+		long end= log.sync();
+		log.detach();
+		assertEquals("lost", load(data, log, synced+1).getAction(a.getId()).getDescription()); //$NON-NLS-1$
+
+		// interrupted write left incomplete record at the end
+		truncate(file, end-3);
+		assertEquals("synced", load(data, log, synced).getAction(a.getId()).getDescription()); //$NON-NLS-1$
+
+		// last record is complete, but its checksum does not match
+		truncate(file, end);
+		RandomAccessFile raf= new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			raf.seek(end-5);
+			int b= raf.read();
+			raf.seek(end-5);
+			raf.write(b ^ 0xFF);
+		} finally {
+			raf.close();
+		}
+		assertEquals("synced", load(data, log, synced).getAction(a.getId()).getDescription()); //$NON-NLS-1$
+	}
+
+}
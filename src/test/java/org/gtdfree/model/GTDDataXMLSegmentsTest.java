@@ -0,0 +1,114 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.gtdfree.model.Folder.FolderType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of segment store, which holds folders written after XML data file.
+ *
+ * @author ikesan
+ *
+ */
+public class GTDDataXMLSegmentsTest {
+
+	@TempDir
+	File dir;
+
+	private static File writeData(File data, int length) throws IOException {
+		FileOutputStream out= new FileOutputStream(data);
+		try {
+			out.write(new byte[length]);
+		} finally {
+			out.close();
+		}
+		return data;
+	}
+
+	private static GTDModel load(File segments) throws IOException {
+		GTDDataXMLSegments s= new GTDDataXMLSegments(segments);
+		assertNotNull(s.readManifest());
+		GTDModel m= new GTDModel(null);
+		s.load(m);
+		return m;
+	}
+
+	@Test
+	public void testRestoreAfterPartialWrite() throws IOException {
+		File data= writeData(new File(dir, "gtd-free.xml"), 1); //$NON-NLS-1$
+		File sd= new File(dir, "segments"); //$NON-NLS-1$
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		m.createAction(f, "first"); //$NON-NLS-1$
+
+		GTDDataXMLSegments s= new GTDDataXMLSegments(sd);
+		// in-bucket, list and queue
+		assertEquals(3, s.write(m, data, false, s.takeChanges(data)));
+
+		// next segment file of folder can not be created, so write fails halfway
+		m.createAction(f, "second"); //$NON-NLS-1$
+		String key= GTDDataXMLSegments.key(f.getId(), f.getType());
+		s.markDirty(key);
+		File blocker= new File(sd, key+".2.xml"); //$NON-NLS-1$
+		assertTrue(blocker.mkdir());
+		File inner= writeData(new File(blocker, "file"), 1); //$NON-NLS-1$
+		assertThrows(IOException.class, () -> s.write(m, data, false, s.takeChanges(data)));
+
+		// old manifest and segments are still complete
+		GTDModel r= load(sd);
+		assertEquals(1, r.getFolder(f.getId()).size());
+		assertEquals("first", r.getFolder(f.getId()).get(0).getDescription()); //$NON-NLS-1$
+
+		// failed write marked folder again, so it is written with next write
+		assertTrue(inner.delete() && blocker.delete());
+		assertEquals(1, s.write(m, data, false, s.takeChanges(data)));
+		r= load(sd);
+		assertEquals(2, r.getFolder(f.getId()).size());
+	}
+
+	@Test
+	public void testStaleManifestRewritesAllSegments() throws IOException {
+		File data= writeData(new File(dir, "gtd-free.xml"), 1); //$NON-NLS-1$
+		File sd= new File(dir, "segments"); //$NON-NLS-1$
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		m.createAction(f, "first"); //$NON-NLS-1$
+
+		GTDDataXMLSegments s= new GTDDataXMLSegments(sd);
+		s.write(m, data, false, s.takeChanges(data));
+		assertEquals(0, s.write(m, data, false, s.takeChanges(data)));
+
+		// data file changed, segments are no longer based on it
+		writeData(data, 3);
+		assertEquals(3, s.write(m, data, false, s.takeChanges(data)));
+	}
+
+}
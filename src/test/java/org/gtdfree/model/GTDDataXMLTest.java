@@ -0,0 +1,121 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+import org.gtdfree.GlobalProperties;
+import org.gtdfree.model.Folder.FolderType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of XML data store, which saves model into data file.
+ *
+ * @author ikesan
+ *
+ */
+public class GTDDataXMLTest {
+
+	@TempDir
+	File dir;
+
+	private File[] tempFiles() {
+		return dir.listFiles(f -> f.getName().endsWith(".tmp")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testFlushReplacesDataFile() throws Exception {
+		GTDDataXML x= new GTDDataXML(dir, new GlobalProperties());
+		File data= x.getDataFile();
+		// save, which was interrupted, left partial temporary file
+		FileOutputStream out= new FileOutputStream(new File(dir, data.getName()+".123.tmp")); //$NON-NLS-1$
+		try {
+			out.write("<?xml".getBytes()); //$NON-NLS-1$
+		} finally {
+			out.close();
+		}
+		GTDModel m= x.restore();
+		x.setAutoSave(false);
+		assertEquals(0, tempFiles().length);
+
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		Action a= m.createAction(f, "first"); //$NON-NLS-1$
+		x.flush();
+		a.setDescription("second"); //$NON-NLS-1$
+		x.flush();
+		assertEquals(0, tempFiles().length);
+
+		GTDModel r= new GTDModel(null);
+		GTDDataXMLTools.load(r, data);
+		assertEquals("second", r.getAction(a.getId()).getDescription()); //$NON-NLS-1$
+		x.close(true);
+		assertTrue(data.exists());
+	}
+
+	@Test
+	public void testCompressedDataFile() throws Exception {
+		GlobalProperties gp= new GlobalProperties();
+		gp.putProperty(GlobalProperties.COMPRESS_DATA, true);
+		GTDDataXML x= new GTDDataXML(dir, gp);
+		GTDModel m= x.restore();
+		x.setAutoSave(false);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		Action a= m.createAction(f, "first"); //$NON-NLS-1$
+		x.flush();
+		x.close(true);
+
+		File data= x.getDataFile();
+		FileInputStream in= new FileInputStream(data);
+		try {
+			// GZIP header
+			assertEquals(0x1f, in.read());
+			assertEquals(0x8b, in.read());
+		} finally {
+			in.close();
+		}
+		GTDModel r= new GTDModel(null);
+		GTDDataXMLTools.load(r, data);
+		assertEquals("first", r.getAction(a.getId()).getDescription()); //$NON-NLS-1$
+
+		// setting can be switched, plain data file is written over compressed one
+		x= new GTDDataXML(dir, new GlobalProperties());
+		m= x.restore();
+		x.setAutoSave(false);
+		m.getAction(a.getId()).setDescription("second"); //$NON-NLS-1$
+		x.flush();
+		x.close(true);
+		in= new FileInputStream(data);
+		try {
+			assertEquals('<', in.read());
+		} finally {
+			in.close();
+		}
+		r= new GTDModel(null);
+		GTDDataXMLTools.load(r, data);
+		assertEquals("second", r.getAction(a.getId()).getDescription()); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.util.Date;
+
+import org.gtdfree.model.Folder.FolderType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of XML data file format.
+ *
+ * @author ikesan
+ *
+ */
+public class GTDDataXMLToolsTest {
+
+	@TempDir
+	File dir;
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List <&>", FolderType.ACTION); //$NON-NLS-1$
+		Folder p= m.createFolder("Project", FolderType.PROJECT); //$NON-NLS-1$
+		String[] desc= {"plain", "line\nbreak\ttab", "back\\slash \"quoted\" <&>", "čšž €", ""}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		Action[] a= new Action[desc.length];
+		for (int i = 0; i < desc.length; i++) {
+			a[i]= m.createAction(f, desc[i]);
+		}
+		a[1].setProject(p.getId());
+		a[2].setQueued(true);
+		a[3].setRemind(new Date(1000000000000L));
+		a[4].setResolution(Action.Resolution.RESOLVED);
+
+		File data= new File(dir, "gtd-free.xml"); //$NON-NLS-1$
+		GTDDataXMLTools.store(m, data);
+		Thread.sleep(10);
+		GTDModel r= new GTDModel(null);
+		GTDDataXMLTools.load(r, data);
+
+		Folder rf= r.getFolder(f.getId());
+		assertEquals(f.getName(), rf.getName());
+		assertEquals(desc.length, rf.size());
+		for (int i = 0; i < desc.length; i++) {
+			assertEquals(f.get(i).getId(), rf.get(i).getId());
+			Action ra= r.getAction(a[i].getId());
+			assertEquals(desc[i], ra.getDescription());
+			assertEquals(a[i].getCreated(), ra.getCreated());
+			// load keeps stored modified date, it is not set to load time
+			assertEquals(a[i].getModified(), ra.getModified());
+			assertEquals(a[i].getResolution(), ra.getResolution());
+			assertEquals(a[i].getRemind(), ra.getRemind());
+			assertEquals(a[i].getProject(), ra.getProject());
+			assertEquals(a[i].isQueued(), ra.isQueued());
+		}
+		assertEquals(m.getFolder(p.getId()).size(), r.getFolder(p.getId()).size());
+		assertEquals(1, r.getQueue().size());
+		assertEquals(m.getLastActionID(), r.getLastActionID());
+	}
+
+}
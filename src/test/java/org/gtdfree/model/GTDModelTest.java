@@ -0,0 +1,95 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Random;
+
+import org.gtdfree.model.Folder.FolderType;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of model operations.
+ *
+ * @author ikesan
+ *
+ */
+public class GTDModelTest {
+
+	@Test
+	public void testActionIndexFollowsActions() {
+		GTDModel m= new GTDModel(null);
+		Folder f1= m.createFolder("First", FolderType.ACTION); //$NON-NLS-1$
+		Folder f2= m.createFolder("Second", FolderType.ACTION); //$NON-NLS-1$
+		Action a= m.createAction(f1, "a"); //$NON-NLS-1$
+		Action b= m.createAction(f1, "b"); //$NON-NLS-1$
+		assertSame(a, m.getAction(a.getId()));
+		assertSame(b, m.getAction(b.getId()));
+
+		// moved action is added to new folder before it is removed from old one
+		m.moveAction(a, f2);
+		assertSame(a, m.getAction(a.getId()));
+		assertSame(f2, a.getParent());
+
+		// removal from meta folder does not remove action from index
+		b.setQueued(true);
+		b.setResolution(Action.Resolution.DELETED);
+		m.purgeDeletedActions();
+		assertSame(b, m.getAction(b.getId()));
+
+		f1.remove(b, b.getProxy());
+		assertNull(m.getAction(b.getId()));
+		assertSame(a, m.getAction(a.getId()));
+		assertNull(m.getAction(a.getId()+100));
+	}
+
+	@Test
+	public void testTicklerStaysSorted() {
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		Folder tickler= m.getRemindFolder();
+		Comparator<Action> c= tickler.getComparator();
+		Random r= new Random(9);
+		for (int i = 0; i < 200; i++) {
+			Action a= m.createAction(f, "a"+i); //$NON-NLS-1$
+			a.setRemind(new Date(r.nextInt(1000)*1000L));
+			if (i%50==49) {
+				// changed reminder breaks order, next insert sorts whole folder
+				tickler.get(0).setRemind(new Date(2000000L));
+			} else {
+				assertSorted(tickler, c);
+			}
+		}
+		assertEquals(200, tickler.size());
+	}
+
+	private static void assertSorted(Folder f, Comparator<Action> c) {
+		for (int i = 1; i < f.size(); i++) {
+			assertTrue(c.compare(f.get(i-1), f.get(i))<=0);
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of open addressing map with primitive int keys.
+ *
+ * @author ikesan
+ *
+ */
+public class IntHashMapTest {
+
+	@Test
+	public void testGrowth() {
+		IntHashMap<String> m= new IntHashMap<String>();
+		for (int i = 0; i < 10000; i++) {
+			assertNull(m.put(i*16, "v"+i)); //$NON-NLS-1$
+		}
+		assertEquals(10000, m.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals("v"+i, m.get(i*16)); //$NON-NLS-1$
+		}
+		assertNull(m.get(1));
+		assertEquals("v0", m.put(0, "x")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(10000, m.size());
+	}
+
+	@Test
+	public void testRemoveKeepsProbeChains() {
+		IntHashMap<Integer> m= new IntHashMap<Integer>();
+		Map<Integer, Integer> expected= new HashMap<Integer, Integer>();
+		Random r= new Random(3);
+		for (int i = 0; i < 20000; i++) {
+			// small key range, so keys collide and are removed often
+			int k= r.nextInt(512)-256;
+			if (r.nextBoolean()) {
+				assertEquals(expected.put(k, i), m.put(k, i));
+			} else {
+				assertEquals(expected.remove(k), m.remove(k));
+			}
+			assertEquals(expected.size(), m.size());
+		}
+		for (int k = -256; k < 256; k++) {
+			assertEquals(expected.get(k), m.get(k));
+			assertEquals(expected.containsKey(k), m.containsKey(k));
+		}
+		m.clear();
+		assertTrue(m.isEmpty());
+		assertNull(m.get(expected.keySet().iterator().next()));
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gtdfree.model.Folder.FolderType;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of batched model changes and merging of their events.
+ *
+ * @author ikesan
+ *
+ */
+public class ModelBatchTest {
+
+	@Test
+	public void testModifiedEventsAreMergedPerProperty() {
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		Action a1= m.createAction(f, "a"); //$NON-NLS-1$
+		Action a2= m.createAction(f, "x"); //$NON-NLS-1$
+		final List<ActionEvent> events= new ArrayList<ActionEvent>();
+		m.addGTDModelListener(new GTDModelAdapter() {
+			@Override
+			public void elementModified(ActionEvent e) {
+				if ("description".equals(e.getProperty())) { //$NON-NLS-1$
+					events.add(e);
+				}
+			}
+		});
+
+		m.beginBatch();
+		a1.setDescription("b"); //$NON-NLS-1$
+		a1.setDescription("c"); //$NON-NLS-1$
+		a2.setDescription("y"); //$NON-NLS-1$
+		assertTrue(m.isBatch());
+		assertTrue(events.isEmpty());
+		m.commit();
+		assertFalse(m.isBatch());
+
+		assertEquals(1, events.size());
+		ActionEvent e= events.get(0);
+		assertEquals(2, e.getActions().length);
+		assertEquals("a", e.getOldValue()); //$NON-NLS-1$
+		assertEquals("y", e.getNewValue()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testNestedBatchDeliversOnOutermostCommit() {
+		GTDModel m= new GTDModel(null);
+		Folder f= m.createFolder("List", FolderType.ACTION); //$NON-NLS-1$
+		final int[] added= new int[1];
+		m.addGTDModelListener(new GTDModelAdapter() {
+			@Override
+			public void elementAdded(FolderEvent e) {
+				added[0]+= e.getActions().length;
+			}
+		});
+
+		m.beginBatch();
+		m.createAction(f, "first"); //$NON-NLS-1$
+		m.batch(new Runnable() {
+			@Override
+			public void run() {
+				m.createAction(f, "second"); //$NON-NLS-1$
+			}
+		});
+		assertEquals(0, added[0]);
+		m.commit();
+		assertEquals(2, added[0]);
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of save scheduler, which coalesces changes into few saves.
+ *
+ * @author ikesan
+ *
+ */
+public class SaveSchedulerTest {
+
+	private static class Recorder implements SaveScheduler.Saver {
+		final List<Integer> saves= new ArrayList<Integer>();
+		final CountDownLatch latch;
+		int failures;
+		Recorder(int count, int failures) {
+			latch= new CountDownLatch(count);
+			this.failures=failures;
+		}
+		@Override
+		public synchronized void save(int changes) throws Exception {
+			if (failures>0) {
+				failures--;
+				throw new Exception("Test failure."); //$NON-NLS-1$
+			}
+			saves.add(changes);
+			latch.countDown();
+		}
+		synchronized List<Integer> saves() {
+			return new ArrayList<Integer>(saves);
+		}
+	}
+
+	@Test
+	public void testChangesAreCoalesced() throws Exception {
+		Recorder r= new Recorder(1, 0);
+		SaveScheduler s= new SaveScheduler("test-save", 200, 10000, 0, r); //$NON-NLS-1$
+		try {
+			for (int i = 0; i < 50; i++) {
+				s.changed();
+			}
+			assertTrue(r.latch.await(5, TimeUnit.SECONDS));
+			Thread.sleep(400);
+			assertEquals(1, r.saves().size());
+			assertEquals(50, r.saves().get(0).intValue());
+		} finally {
+			s.stop();
+		}
+	}
+
+	@Test
+	public void testContinuousChangesAreSavedAfterMaxDelay() throws Exception {
+		Recorder r= new Recorder(2, 0);
+		SaveScheduler s= new SaveScheduler("test-save", 500, 300, 100, r); //$NON-NLS-1$
+		try {
+			// changes never pause for quiet period
+			long end= System.currentTimeMillis()+5000;
+			while (r.latch.getCount()>0 && System.currentTimeMillis()<end) {
+				s.changed();
+				Thread.sleep(20);
+			}
+			assertEquals(0, r.latch.getCount());
+		} finally {
+			s.stop();
+		}
+	}
+
+	@Test
+	public void testFailedSaveIsRetried() throws Exception {
+		Recorder r= new Recorder(1, 1);
+		SaveScheduler s= new SaveScheduler("test-save", 10, 100, 50, r); //$NON-NLS-1$
+		try {
+			s.changed();
+			s.changed();
+			assertTrue(r.latch.await(5, TimeUnit.SECONDS));
+			// changes of failed save are kept for retry
+			assertEquals(2, r.saves().get(0).intValue());
+		} finally {
+			s.stop();
+		}
+	}
+
+}
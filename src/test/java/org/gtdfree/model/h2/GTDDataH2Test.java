@@ -0,0 +1,213 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *    H2 Migration by GitHub Copilot 2025
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model.h2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.gtdfree.model.Action;
+import org.gtdfree.model.Folder;
+import org.gtdfree.model.Folder.FolderPreset;
+import org.gtdfree.model.Folder.FolderType;
+import org.gtdfree.model.GTDData.ActionProxy;
+import org.gtdfree.model.GTDData.LazyFolderDataProxy;
+import org.gtdfree.model.GTDModel;
+import org.gtdfree.model.Visitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of H2 data store, which need real database files.
+ *
+ * @author GitHub Copilot
+ */
+public class GTDDataH2Test {
+
+    @TempDir
+    File dir;
+
+    private GTDDataH2 dataStore;
+
+    private GTDDataH2 open() throws Exception {
+        dataStore = new GTDDataH2(new File(dir, "gtd-free-h2"));
+        dataStore.initialize(dir, null);
+        return dataStore;
+    }
+
+    private static LazyFolderDataProxy data(Folder f) throws Exception {
+        Field field = Folder.class.getDeclaredField("data");
+        field.setAccessible(true);
+        return (LazyFolderDataProxy) field.get(f);
+    }
+    
+    private static int count(Iterator<?> i) {
+        int n = 0;
+        while (i.hasNext()) {
+            i.next();
+            n++;
+        }
+        return n;
+    }
+    
+    @AfterEach
+    public void close() throws Exception {
+        if (dataStore != null) {
+            dataStore.close(true);
+        }
+    }
+
+    @Test
+    public void testReopenKeepsQueueOrder() throws Exception {
+        GTDModel model = open().restore();
+        Folder f = model.createFolder("List", FolderType.ACTION);
+        List<Action> queue = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Action a = model.createAction(f, "a" + i);
+            a.setQueued(true);
+            queue.add(a);
+        }
+        Collections.reverse(queue);
+        model.getQueue().reorder(queue.toArray(new Action[queue.size()]));
+        dataStore.close(true);
+
+        // meta folder rows exist already, restore must accept them
+        model = open().restore();
+        Folder q = model.getQueue();
+        assertEquals(5, q.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("a" + (4 - i), q.get(i).getDescription());
+        }
+        assertEquals(5, dataStore.loadActionsForFolder(f.getId()).size());
+    }
+
+    @Test
+    public void testFailedBatchIsNotReplayed() throws Exception {
+        GTDModel model = open().restore();
+        Folder f = model.createFolder("List", FolderType.ACTION);
+
+        Action good = new Action(1001, new Date(), null, "good");
+        Action bad = new Action(1002, new Date(), null, "bad");
+        Action other = new Action(1003, new Date(), null, "other");
+        dataStore.saveAction(good, f.getId());
+        // folder does not exist, batch fails on foreign key
+        dataStore.saveAction(bad, 999999);
+        dataStore.saveAction(other, f.getId());
+        dataStore.drainWrites();
+
+        // actions were written one by one, only bad one is missing
+        assertNotNull(dataStore.loadAction(1001));
+        assertNull(dataStore.loadAction(1002));
+        assertNotNull(dataStore.loadAction(1003));
+
+        // next drain writes only new changes
+        good.setDescription("changed");
+        dataStore.saveAction(good, f.getId());
+        dataStore.deleteAction(1003);
+        dataStore.drainWrites();
+        assertEquals("changed", dataStore.loadAction(1001).getDescription());
+        assertNull(dataStore.loadAction(1002));
+        assertNull(dataStore.loadAction(1003));
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() throws Exception {
+        open().restore();
+        Action late = new Action(1001, new Date(), null, "late");
+        Action lost = new Action(1002, new Date(), null, "lost");
+        dataStore.saveAction(late, 999998);
+        dataStore.saveAction(lost, 999999);
+        dataStore.drainWrites();
+        assertNull(dataStore.loadAction(1001));
+        
+        // folder appears, queued write succeeds on retry
+        dataStore.newFolder(999998, "Late", FolderType.ACTION);
+        dataStore.drainWrites();
+        assertNotNull(dataStore.loadAction(1001));
+        
+        // write, which fails again, is dropped after last attempt
+        dataStore.drainWrites();
+        dataStore.newFolder(999999, "Lost", FolderType.ACTION);
+        dataStore.drainWrites();
+        assertNull(dataStore.loadAction(1002));
+    }
+    
+    @Test
+    public void testIterationKeepsFolderUnloaded() throws Exception {
+        GTDModel model = open().restore();
+        Folder f = model.createFolder("List", FolderType.ACTION);
+        int size = H2FolderDataProxy.PAGE_SIZE * 2 + 3;
+        Action last = null;
+        for (int i = 0; i < size; i++) {
+            last = model.createAction(f, "a" + i);
+            if (i % 2 == 0) {
+                last.setResolution(Action.Resolution.RESOLVED);
+            }
+        }
+        dataStore.drainWrites();
+        
+        H2FolderDataProxy data = (H2FolderDataProxy) data(f);
+        data.refresh();
+        assertFalse(data.isLoaded());
+        
+        assertEquals(size, count(f.iterator()));
+        assertEquals(size, count(f.proxyIterator(FolderPreset.ALL)));
+        assertEquals(size / 2, count(f.proxyIterator(FolderPreset.OPEN)));
+        assertEquals(size / 2, f.getStats().getOpenCount());
+        assertNotNull(f.getActionByID(last.getId()));
+        int[] met = new int[1];
+        f.visit(new Visitor() {
+            @Override
+            public void meet(Folder folder) {
+            }
+            @Override
+            public void meet(Action action) {
+                met[0]++;
+            }
+            @Override
+            public void depart(Folder folder) {
+            }
+        });
+        assertEquals(size, met[0]);
+        // iteration read pages, but did not load whole folder into data
+        assertFalse(data.isLoaded());
+        
+        LazyFolderDataProxy resolved = data(model.getResolvedFolder());
+        ((H2MetaFolderDataProxy) resolved).refresh();
+        int closed = 0;
+        for (Iterator<ActionProxy> i = model.getResolvedFolder().proxyIterator(FolderPreset.ALL); i.hasNext();) {
+            assertFalse(i.next().get().isOpen());
+            closed++;
+        }
+        assertEquals(size - size / 2, closed);
+        assertFalse(resolved.isLoaded());
+    }
+}
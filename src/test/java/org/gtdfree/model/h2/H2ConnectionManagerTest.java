@@ -0,0 +1,141 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *    H2 Migration by GitHub Copilot 2025
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model.h2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of H2 connection manager, which pools read-only connections.
+ *
+ * @author GitHub Copilot
+ */
+public class H2ConnectionManagerTest {
+
+    @TempDir
+    File dir;
+
+    private H2ConnectionManager manager;
+
+    private H2ConnectionManager open() throws SQLException {
+        manager = new H2ConnectionManager(new File(dir, "gtd-free-h2"));
+        H2DatabaseSchema.initializeSchema(manager.getWriter());
+        manager.readAccess();
+        return manager;
+    }
+
+    private int countFolders() throws SQLException {
+        return manager.read(r -> {
+            try (ResultSet rs = r.prepare("SELECT COUNT(*) FROM folders").executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        });
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        if (manager != null && !manager.isClosed()) {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testReadersSeeCommittedData() throws Exception {
+        open();
+        Connection w = manager.getWriter();
+        try (Statement stmt = w.createStatement()) {
+            stmt.execute("INSERT INTO folders (id, name, type_id) VALUES (1, 'List', 1)");
+            // writer uses explicit transactions, uncommitted row is not visible
+            assertEquals(0, countFolders());
+            w.commit();
+        }
+        assertEquals(1, countFolders());
+    }
+
+    @Test
+    public void testReadersCanNotWrite() throws Exception {
+        open();
+        assertThrows(SQLException.class, () -> manager.read(r -> {
+            try (Statement stmt = r.prepare("SELECT 1").getConnection().createStatement()) {
+                return stmt.executeUpdate("INSERT INTO folders (id, name, type_id) VALUES (2, 'Other', 1)");
+            }
+        }));
+        assertEquals(0, countFolders());
+    }
+
+    @Test
+    public void testReadersAreLimited() throws Exception {
+        open();
+        int threads = H2ConnectionManager.MAX_READERS * 2;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return manager.read(r -> {
+                        max.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        running.decrementAndGet();
+                        try (ResultSet rs = r.prepare("SELECT COUNT(*) FROM folders").executeQuery()) {
+                            rs.next();
+                            return rs.getInt(1);
+                        }
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> f : results) {
+                assertEquals(0, f.get(10, TimeUnit.SECONDS).intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(max.get() <= H2ConnectionManager.MAX_READERS);
+    }
+}
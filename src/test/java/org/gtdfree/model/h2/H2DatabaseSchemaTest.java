@@ -0,0 +1,124 @@
+/*
+ *    Copyright (C) 2008-2010 Igor Kriznar
+ *    H2 Migration by GitHub Copilot 2025
+ *
+ *    This file is part of GTD-Free.
+ *
+ *    GTD-Free is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    GTD-Free is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with GTD-Free.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gtdfree.model.h2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of H2 schema upgrade from older versions.
+ *
+ * @author GitHub Copilot
+ */
+public class H2DatabaseSchemaTest {
+
+    @TempDir
+    File dir;
+
+    // Actions table as created by schema 1.0, without position columns
+    private static final String CREATE_ACTIONS_TABLE_1_0 = """
+        CREATE TABLE actions (
+            id INTEGER PRIMARY KEY,
+            folder_id INTEGER,
+            description TEXT,
+            created_date TIMESTAMP NOT NULL,
+            modified_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+            resolved_date TIMESTAMP,
+            start_date TIMESTAMP,
+            remind_date TIMESTAMP,
+            due_date TIMESTAMP,
+            project_id INTEGER,
+            queued BOOLEAN DEFAULT FALSE,
+            resolution_id INTEGER DEFAULT 0,
+            type_id INTEGER,
+            priority_id INTEGER DEFAULT 0,
+            url VARCHAR(2048),
+            FOREIGN KEY (folder_id) REFERENCES folders(id) ON DELETE CASCADE
+        )
+        """;
+
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            assertTrue(rs.next());
+            long l = rs.getLong(1);
+            return rs.wasNull() ? -1 : l;
+        }
+    }
+
+    private static String version(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT version FROM schema_info ORDER BY applied_date DESC, version DESC LIMIT 1")) {
+            assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    public void testMigrationFrom10() throws Exception {
+        try (Connection conn = H2DatabaseSchema.createConnection(new File(dir, "gtd-free-h2"));
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE schema_info (version VARCHAR(50) PRIMARY KEY, "
+                    + "applied_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP, description TEXT)");
+            stmt.execute("INSERT INTO schema_info (version, applied_date, description) "
+                    + "VALUES ('1.0', TIMESTAMP '2025-01-01 00:00:00', 'Initial H2 schema for GTD-Free')");
+            stmt.execute("CREATE TABLE folders (id INTEGER PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+                    + "type_id INTEGER NOT NULL, open_count INTEGER DEFAULT 0, closed BOOLEAN DEFAULT FALSE, "
+                    + "description TEXT, created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                    + "modified_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute(CREATE_ACTIONS_TABLE_1_0);
+            stmt.execute("INSERT INTO folders (id, name, type_id) VALUES (1, 'List', 1), (2, 'Other', 1)");
+            // folder order was by creation date, not by ID
+            stmt.execute("INSERT INTO actions (id, folder_id, description, created_date, queued) VALUES "
+                    + "(1, 1, 'third', TIMESTAMP '2025-01-03 00:00:00', TRUE), "
+                    + "(2, 1, 'first', TIMESTAMP '2025-01-01 00:00:00', FALSE), "
+                    + "(3, 1, 'second', TIMESTAMP '2025-01-02 00:00:00', TRUE), "
+                    + "(4, 2, 'only', TIMESTAMP '2025-01-01 00:00:00', FALSE)");
+
+            H2DatabaseSchema.initializeSchema(conn);
+
+            assertEquals(H2DatabaseSchema.SCHEMA_VERSION, version(stmt));
+            long gap = H2DatabaseSchema.POSITION_GAP;
+            assertEquals(gap, queryLong(stmt, "SELECT position FROM actions WHERE id = 2"));
+            assertEquals(2 * gap, queryLong(stmt, "SELECT position FROM actions WHERE id = 3"));
+            assertEquals(3 * gap, queryLong(stmt, "SELECT position FROM actions WHERE id = 1"));
+            assertEquals(gap, queryLong(stmt, "SELECT position FROM actions WHERE id = 4"));
+            // queue order follows IDs, actions which are not queued have no queue position
+            assertEquals(1, queryLong(stmt, "SELECT queue_position FROM actions WHERE id = 1"));
+            assertEquals(2, queryLong(stmt, "SELECT queue_position FROM actions WHERE id = 3"));
+            assertEquals(-1, queryLong(stmt, "SELECT queue_position FROM actions WHERE id = 2"));
+            assertEquals(4, queryLong(stmt, "SELECT COUNT(*) FROM actions"));
+
+            // each step is recorded, current schema is not migrated again
+            H2DatabaseSchema.initializeSchema(conn);
+            assertEquals(H2DatabaseSchema.SCHEMA_VERSION, version(stmt));
+            assertEquals(4, queryLong(stmt, "SELECT COUNT(*) FROM schema_info"));
+        }
+    }
+}